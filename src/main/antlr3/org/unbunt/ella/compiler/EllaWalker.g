@@ -81,7 +81,9 @@ scope Block {
 	 */
 	public Block walkScript(Scope scope) throws EllaRecognitionException {
 		try {
-			return script(scope);
+			Block block = script(scope);
+			scope.resolveAddresses();
+			return block;
 		} catch (RecognitionException e) {
 			throw new EllaRecognitionException(e);
 		}
@@ -200,7 +202,7 @@ unscopedBlock returns [ Statement value ]
 // NOTE: Therefore we just split the block rule in two separate rules. (a form of currying)
 blockStmt returns [ Statement value ]
 scope Scope;
-@init { $Scope::scope = new Scope($Scope[-1]::scope); }
+@init { $Scope::scope = new Scope($Scope[-1]::scope, Scope.TYPE_BLOCK); }
 	:	blk=unscopedBlockStmt { $blk.value.setScoped(true); $value = $blk.value; }
 	;
 
@@ -310,7 +312,10 @@ scope Block;
 
 funcDefRest [ Function function ]
 scope Scope;
-@init { $Scope::scope = new Scope($Scope[-1]::scope); }
+@init {
+	$Scope::scope = new Scope($Scope[-1]::scope, Scope.TYPE_FUNCTION);
+	function.setScope($Scope::scope);
+}
 	:	( args=argumentsDef { function.setArguments($args.value); } )?
 		unscopedBlock
 	;
@@ -327,7 +332,10 @@ scope Block;
 
 blockClosureRest [ BlockClosure blockClosure ]
 scope Scope;
-@init { $Scope::scope = new Scope($Scope[-1]::scope); }
+@init {
+	$Scope::scope = new Scope($Scope[-1]::scope, Scope.TYPE_CLOSURE);
+	blockClosure.setScope($Scope::scope);
+}
 	:	( args=argumentsDef { blockClosure.setArguments($args.value); } )?
 		unscopedBlock
 	;
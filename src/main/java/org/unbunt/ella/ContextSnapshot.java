@@ -0,0 +1,154 @@
+/* ContextSnapshot.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella;
+
+import org.unbunt.ella.engine.corelang.AbstractObj;
+import org.unbunt.ella.engine.corelang.Obj;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Immutable snapshot of the native objects of a freshly bootstrapped {@link DefaultContext}.
+ * <p>
+ * Bootstrapping a context registers all prototypes, each one allocating its slots and native calls. Contexts created
+ * from a snapshot skip this: They copy the native objects of the snapshot on first access instead, sharing the slot
+ * storage copy-on-write (see {@link AbstractObj#copy()}). Prototypes a program never touches are never copied.
+ * <p>
+ * The objects of a snapshot are never handed out to programs, so a snapshot may be shared by any number of contexts
+ * and threads.
+ */
+public final class ContextSnapshot {
+    /**
+     * The registered native objects of the bootstrapped context, indexed by object id.
+     */
+    final AbstractObj[] objects;
+
+    /**
+     * The ids of the prototypes of the registered object ids, <code>-1</code> for ids without prototype.
+     */
+    final int[] protoIDs;
+
+    final AbstractObj objTrue;
+    final AbstractObj objFalse;
+
+    /**
+     * Whether no context has been created by default yet.
+     */
+    private static final AtomicBoolean FIRST_CONTEXT = new AtomicBoolean(true);
+
+    /**
+     * Creates a snapshot of the native objects of the given freshly bootstrapped context. The context must not be
+     * used anymore afterwards.
+     *
+     * @param context the context to take the snapshot of.
+     * @throws IllegalStateException if the native objects of the context cannot be copied.
+     */
+    ContextSnapshot(DefaultContext context) {
+        // contexts created from the snapshot register nothing on their own
+        context.registerPendingPrototypes();
+        int size = context.objects.length;
+        objects = new AbstractObj[size];
+        protoIDs = new int[size];
+        for (int i = 0; i < size; i++) {
+            objects[i] = toTemplate(context.objects[i]);
+            Obj proto = context.objectProtos[i];
+            protoIDs[i] = proto == null ? -1 : proto.getObjectID();
+        }
+        objTrue = toTemplate(context.objTrue);
+        objFalse = toTemplate(context.objFalse);
+
+        // copies are not fixed up, so slots must not refer to other native objects
+        for (AbstractObj obj : objects) {
+            if (obj != null) {
+                checkSlots(obj);
+            }
+        }
+        checkSlots(objTrue);
+        checkSlots(objFalse);
+    }
+
+    protected AbstractObj toTemplate(Obj obj) {
+        if (obj == null) {
+            return null;
+        }
+        if (!(obj instanceof AbstractObj)) {
+            throw new IllegalStateException("Native object cannot be copied: " + obj.getClass().getName());
+        }
+        return (AbstractObj) obj;
+    }
+
+    protected void checkSlots(AbstractObj obj) {
+        for (Map.Entry<Obj, Obj> entry : obj.getSlots().entrySet()) {
+            Obj value = entry.getValue();
+            int id = value.getObjectID();
+            if (value == objTrue || value == objFalse
+                || id >= 0 && id < objects.length && objects[id] == value) {
+                throw new IllegalStateException("Slot " + entry.getKey() + " of native object "
+                                                + obj.getClass().getName() + " refers to another native object");
+            }
+        }
+    }
+
+    /**
+     * Returns the snapshot of the default bootstrap, which is taken on first use.
+     *
+     * @return the default snapshot.
+     */
+    public static ContextSnapshot getDefault() {
+        return DefaultHolder.SNAPSHOT;
+    }
+
+    /**
+     * Returns the snapshot new contexts are created from by default. The first context created in a VM is
+     * bootstrapped on its own instead, as taking a snapshot requires a complete bootstrap. Programs run by a single
+     * context, e.g. from the command line, thus only register the prototypes they actually use.
+     *
+     * @return the default snapshot or <code>null</code> for the first context.
+     */
+    static ContextSnapshot getForNewContext() {
+        return FIRST_CONTEXT.getAndSet(false) ? null : getDefault();
+    }
+
+    /**
+     * Lazily takes the default snapshot.
+     */
+    private static class DefaultHolder {
+        static final ContextSnapshot SNAPSHOT = new ContextSnapshot(new DefaultContext(new Object[0], null));
+    }
+}
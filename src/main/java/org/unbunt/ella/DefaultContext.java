@@ -55,7 +55,9 @@ import java.io.InputStream;
 import java.io.PrintStream;
 import java.sql.ResultSet;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -162,6 +164,9 @@ import java.util.Set;
  *      </tr>
  * </tbody>
  * </table>
+ * <p>
+ * The prototypes for Java integration (<code>JArray</code>, <code>JClass</code>) and SQL
+ * (<code>Conn</code>, <code>Stmt</code>) are registered on first use only, see {@link #LAZY_PROTOTYPES}.
  *
  * @see org.unbunt.ella.engine.context.Context
  */
@@ -193,8 +198,85 @@ public class DefaultContext implements Context {
      */
     protected Obj[] objects = new Obj[64];
 
+    /**
+     * Groups of prototypes which are registered on first use only. Loading their classes makes up a good share of
+     * the time needed to bootstrap a context, while many programs never touch them.
+     */
+    protected static final LazyPrototypes[] LAZY_PROTOTYPES = {
+            new LazyPrototypes("JArray", "JClass") {
+                protected void register(Context ctx) {
+                    JMethod.registerInContext(ctx);
+                    JArray.registerInContext(ctx);
+                    JClass.registerInContext(ctx);
+                    JObject.registerInContext(ctx);
+                }
+
+                protected int getObjectID(String name) {
+                    return "JArray".equals(name) ? JArray.JArrayProto.OBJECT_ID : JClass.JClassProto.OBJECT_ID;
+                }
+            },
+            new LazyPrototypes("Conn", "Stmt") {
+                protected void register(Context ctx) {
+                    Conn.registerInContext(ctx);
+                    Stmt.regiserInContext(ctx);
+                    ResSet.registerInContext(ctx);
+                }
+
+                protected int getObjectID(String name) {
+                    return "Conn".equals(name) ? Conn.ConnProto.OBJECT_ID : Stmt.StmtProto.OBJECT_ID;
+                }
+            }
+    };
+
+    /**
+     * Maps the names of the globals of the lazily registered prototypes to their index in {@link #LAZY_PROTOTYPES}.
+     */
+    protected static final Map<String, Integer> LAZY_GLOBALS = new HashMap<String, Integer>();
+
+    static {
+        for (int i = 0; i < LAZY_PROTOTYPES.length; i++) {
+            for (String name : LAZY_PROTOTYPES[i].names) {
+                LAZY_GLOBALS.put(name, i);
+            }
+        }
+    }
+
+    /**
+     * Flags the groups of {@link #LAZY_PROTOTYPES} which have not been registered in this context yet.
+     */
+    protected final boolean[] pendingPrototypes = new boolean[LAZY_PROTOTYPES.length];
+
+    /**
+     * Flags the object ids registered in this context at the time of creation. Looking up the prototype of an object
+     * having any other id registers all pending prototypes, as the object may depend on one of these.
+     */
+    protected boolean[] bootstrapIDs;
+
+    /**
+     * The snapshot the native objects of this context are copied from on first access or <code>null</code> if they
+     * have been bootstrapped eagerly.
+     */
+    protected final ContextSnapshot snapshot;
+
     protected Object[] args;
 
+    protected MainEnv mainEnv;
+    protected Variable argvVariable;
+
+    /**
+     * The slot versions of the registered objects (indexed by object id) at the time of the last call to
+     * {@link #mark()}.
+     */
+    protected int[] markedSlotVersions;
+    protected int markedTrueVersion;
+    protected int markedFalseVersion;
+    protected InputStream markedInputStream;
+    protected PrintStream markedOutputStream;
+    protected PrintStream markedErrorStream;
+    protected ContextLogger markedLogger;
+    protected LogLevel markedLogLevel;
+    protected Object[] markedArgs;
+
     protected ContextLogger logger;
     protected LogLevel logLevel = LogLevel.info;
     protected boolean traceEnabled = false;
@@ -225,12 +307,91 @@ public class DefaultContext implements Context {
      * @see org.unbunt.ella.lang.Lst
      */
     public DefaultContext(Object[] args) {
+        this(args, ContextSnapshot.getForNewContext());
+    }
+
+    /**
+     * Creates a DefaultContext with the given program arguments exposed in the environment, whose native objects
+     * are copied from the given snapshot. Native objects are copied on first access, so creating a context from a
+     * snapshot is much cheaper than bootstrapping it.
+     *
+     * @param args the objects to be used as program arguments
+     * @param snapshot the snapshot to copy the native objects from or <code>null</code> to bootstrap them.
+     * @see ContextSnapshot#getDefault()
+     */
+    public DefaultContext(Object[] args, ContextSnapshot snapshot) {
         this.args = args;
+        this.snapshot = snapshot;
         Arrays.fill(objectProtos, null);
         Arrays.fill(objects, null);
         logger = new VolatileOutputStreamContextLogger();
-        initProtos();
+        if (snapshot == null) {
+            initProtos();
+            Arrays.fill(pendingPrototypes, true);
+            bootstrapIDs = new boolean[objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                bootstrapIDs[i] = objects[i] != null || objectProtos[i] != null;
+            }
+        }
+        else {
+            initProtosFromSnapshot();
+        }
         initEnv();
+        mark();
+    }
+
+    /**
+     * Registers the prototypes of the given group of {@link #LAZY_PROTOTYPES} if this has not been done yet.
+     *
+     * @param index the index of the group.
+     */
+    protected void registerPrototypes(int index) {
+        if (!pendingPrototypes[index]) {
+            return;
+        }
+        pendingPrototypes[index] = false;
+        LAZY_PROTOTYPES[index].register(this);
+        if (markedSlotVersions != null) {
+            // the new objects are part of the state to be restored by reset()
+            for (int i = 0; i < objects.length; i++) {
+                if (!bootstrapIDs[i] && objects[i] instanceof AbstractObj) {
+                    markedSlotVersions[i] = ((AbstractObj) objects[i]).getSlotVersion();
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers all prototypes not registered yet.
+     */
+    protected void registerPendingPrototypes() {
+        for (int i = 0; i < pendingPrototypes.length; i++) {
+            registerPrototypes(i);
+        }
+    }
+
+    /**
+     * Returns the lazily registered prototype bound to the given global name, registering it if necessary.
+     *
+     * @param name the global name.
+     * @return the prototype or <code>null</code> if the name is not bound to a lazily registered prototype.
+     */
+    protected Obj getLazyGlobal(String name) {
+        Integer index = LAZY_GLOBALS.get(name);
+        if (index == null) {
+            return null;
+        }
+        registerPrototypes(index);
+        return getObject(LAZY_PROTOTYPES[index].getObjectID(name));
+    }
+
+    protected void initProtosFromSnapshot() {
+        objNull = ensureType(NullImpl.class, ensureObject(NullImpl.OBJECT_ID));
+        objSys = ensureType(SysImpl.class, ensureObject(SysImpl.OBJECT_ID));
+        objConnMgr = ensureType(ConnMgrImpl.class, ensureObject(ConnMgrImpl.OBJECT_ID));
+
+        objTrue = (Bool) snapshot.objTrue.copy();
+        objFalse = (Bool) snapshot.objFalse.copy();
     }
 
     protected void initProtos() {
@@ -255,14 +416,7 @@ public class DefaultContext implements Context {
         BoolImpl.registerInContext(this);
         ClosImpl.registerInContext(this);
         FuncImpl.registerInContext(this);
-        JMethod.registerInContext(this);
-        JArray.registerInContext(this);
-        JClass.registerInContext(this);
-        JObject.registerInContext(this);
         ConnMgrImpl.registerInContext(this);
-        Conn.registerInContext(this);
-        Stmt.regiserInContext(this);
-        ResSet.registerInContext(this);
 
         objSys = ensureType(SysImpl.class, ensureObject(SysImpl.OBJECT_ID));
         objConnMgr = ensureType(ConnMgrImpl.class, ensureObject(ConnMgrImpl.OBJECT_ID));
@@ -272,15 +426,7 @@ public class DefaultContext implements Context {
     }
 
     protected void initEnv() {
-        // sets up environment in which all undefined variables are looked up in the slots of the Sys object
-        final Context ctx = this;
-        final Obj receiver = objSys;
-        DynamicVariableResolver globalResolver = new DynamicVariableResolver() {
-            public Obj resolve(Variable var) {
-                return ObjUtils.getSlot(ctx, receiver, var.nameStr);
-            }
-        };
-        MainEnv mainEnv = new MainEnv(objNull, globalResolver);
+        MainEnv mainEnv = new MainEnv(objNull, createGlobalResolver());
 
         // Expose global objects in the environment
         mainEnv.add("Null", objNull);
@@ -300,22 +446,117 @@ public class DefaultContext implements Context {
         mainEnv.add("false", objFalse);
         mainEnv.add("Clos", ensureObject(ClosImpl.ClosProto.OBJECT_ID));
         mainEnv.add("Func", ensureObject(FuncImpl.FuncProto.OBJECT_ID));
-        mainEnv.add("JArray", ensureObject(JArray.JArrayProto.OBJECT_ID));
-        mainEnv.add("JClass", ensureObject(JClass.JClassProto.OBJECT_ID));
         mainEnv.add("ConnMgr", ensureObject(ConnMgrImpl.OBJECT_ID));
-        mainEnv.add("Conn", ensureObject(Conn.ConnProto.OBJECT_ID));
-        mainEnv.add("Stmt", ensureObject(Stmt.StmtProto.OBJECT_ID));
 
         // init arguments
-        Obj[] args = new Obj[this.args.length];
-        for (int i = 0; i < args.length; i++) {
-            args[i] = NativeWrapper.wrap(this, this.args[i]);
-        }
-        mainEnv.add("ARGV", new Args(args));
+        argvVariable = mainEnv.add("ARGV", wrapArgs(this.args));
 
+        this.mainEnv = mainEnv;
         this.env = mainEnv;
     }
 
+    /**
+     * Creates the resolver used for looking up undefined variables. The default resolver sets up an environment in
+     * which all undefined variables are looked up in the slots of the Sys object, followed by the globals of the
+     * lazily registered prototypes.
+     * <p>
+     * This method is called during construction, so the resolver must not access state of subclasses until it is
+     * actually asked to resolve variables.
+     *
+     * @return the resolver for undefined variables.
+     */
+    protected DynamicVariableResolver createGlobalResolver() {
+        final Context ctx = this;
+        final Obj receiver = objSys;
+        return new DynamicVariableResolver() {
+            public Obj resolve(Variable var) {
+                Obj value = ObjUtils.getSlot(ctx, receiver, var.nameStr);
+                return value != null ? value : getLazyGlobal(var.name);
+            }
+        };
+    }
+
+    protected Obj wrapArgs(Object[] args) {
+        Obj[] wrapped = new Obj[args.length];
+        for (int i = 0; i < wrapped.length; i++) {
+            wrapped[i] = NativeWrapper.wrap(this, args[i]);
+        }
+        return new Args(wrapped);
+    }
+
+    /**
+     * Replaces the program arguments exposed in the environment under the <code>ARGV</code> name.
+     *
+     * @param args the objects to be used as program arguments
+     */
+    public void setArgs(Object[] args) {
+        this.args = args;
+        mainEnv.set(argvVariable, wrapArgs(args));
+    }
+
+    /**
+     * Marks the current state of this context as the state to be restored by {@link #reset()}. This is done on
+     * creation already, so subclasses only need to call this method if they extend the initial state.
+     */
+    protected void mark() {
+        mainEnv.mark();
+        markedSlotVersions = new int[objects.length];
+        for (int i = 0; i < objects.length; i++) {
+            // objects not copied from the snapshot yet will be copied with the version of the snapshot's object
+            Obj obj = objects[i] != null || snapshot == null ? objects[i] : snapshot.objects[i];
+            if (obj instanceof AbstractObj) {
+                markedSlotVersions[i] = ((AbstractObj) obj).getSlotVersion();
+            }
+        }
+        markedTrueVersion = ((AbstractObj) objTrue).getSlotVersion();
+        markedFalseVersion = ((AbstractObj) objFalse).getSlotVersion();
+        markedInputStream = inputStream;
+        markedOutputStream = outputStream;
+        markedErrorStream = errorStream;
+        markedLogger = logger;
+        markedLogLevel = logLevel;
+        markedArgs = args;
+    }
+
+    /**
+     * Resets this context to its initial state so that it may be used for the execution of another program.
+     * Global variables defined by the previous program are removed, the values of the default bindings are
+     * restored and the connection manager forgets about all connections. Connections still open have to be closed
+     * by finishing the engine before, see {@link org.unbunt.ella.engine.EllaEngine#finish()}.
+     * <p>
+     * The slots of the native objects cannot be restored. If a program modified them, e.g. by patching the slots
+     * of a prototype, the reset fails and this context should be discarded.
+     *
+     * @return <code>true</code> if the reset succeeded, <code>false</code> if native objects have been modified.
+     */
+    public boolean reset() {
+        objConnMgr.reset();
+        for (int i = 0; i < objects.length; i++) {
+            Obj obj = objects[i];
+            if (obj instanceof AbstractObj && obj != objConnMgr
+                && ((AbstractObj) obj).getSlotVersion() != markedSlotVersions[i]) {
+                return false;
+            }
+        }
+        if (((AbstractObj) objTrue).getSlotVersion() != markedTrueVersion
+            || ((AbstractObj) objFalse).getSlotVersion() != markedFalseVersion) {
+            return false;
+        }
+
+        mainEnv.reset();
+        env = mainEnv;
+        args = markedArgs;
+        scriptFilename = "<unknown>";
+        scriptResource = null;
+        inputStream = markedInputStream;
+        outputStream = markedOutputStream;
+        errorStream = markedErrorStream;
+        logger = markedLogger;
+        setLogLevel(markedLogLevel);
+        sqlResultListeners.clear();
+        return true;
+    }
+
     public void registerProto(int objectID, int protoID) {
         if (hasObjectProto(objectID)) {
             throw new RuntimeException("Invalid prototype association for object: " + objectID + ": " +
@@ -340,18 +581,26 @@ public class DefaultContext implements Context {
     }
 
     public Obj getObjectProto(Obj obj) {
-        // No existance check. Returns null if key not found which would also be returned to indicate there is no proto.
-        int id = obj.getObjectID();
-        try {
-            return objectProtos[id];
-        } catch (IndexOutOfBoundsException e) {
-            return null;
-        }
+        return getObjectProto(obj.getObjectID());
     }
 
     protected Obj getObjectProto(int objectID) {
+        // No existance check. Returns null if key not found which would also be returned to indicate there is no proto.
         try {
-            return objectProtos[objectID];
+            Obj proto = objectProtos[objectID];
+            if (proto == null) {
+                if (snapshot != null) {
+                    int protoID = snapshot.protoIDs[objectID];
+                    if (protoID >= 0) {
+                        proto = objectProtos[objectID] = getObject(protoID);
+                    }
+                }
+                else if (bootstrapIDs != null && !bootstrapIDs[objectID]) {
+                    registerPendingPrototypes();
+                    proto = objectProtos[objectID];
+                }
+            }
+            return proto;
         } catch (IndexOutOfBoundsException e) {
             return null;
         }
@@ -372,12 +621,32 @@ public class DefaultContext implements Context {
 
     protected Obj getObject(int objectID) {
         try {
-            return objects[objectID];
+            Obj obj = objects[objectID];
+            if (obj == null && snapshot != null) {
+                obj = copyObject(objectID);
+            }
+            return obj;
         } catch (IndexOutOfBoundsException e) {
             return null;
         }
     }
 
+    /**
+     * Copies the native object of the given id from the snapshot into this context.
+     *
+     * @param objectID the object id.
+     * @return the copied object or <code>null</code> if the snapshot has no object of the given id.
+     */
+    protected Obj copyObject(int objectID) {
+        AbstractObj template = snapshot.objects[objectID];
+        if (template == null) {
+            return null;
+        }
+        Obj obj = template.copy();
+        objects[objectID] = obj;
+        return obj;
+    }
+
     protected Obj ensureObject(int objectID) {
         Obj obj = getObject(objectID);
         if (obj == null) {
@@ -565,6 +834,35 @@ public class DefaultContext implements Context {
         this.logger = logger;
     }
 
+    /**
+     * A group of prototypes registered on first use.
+     */
+    protected abstract static class LazyPrototypes {
+        /**
+         * The global names the prototypes of this group are exposed under.
+         */
+        protected final String[] names;
+
+        protected LazyPrototypes(String... names) {
+            this.names = names;
+        }
+
+        /**
+         * Registers the prototypes of this group within the given execution context.
+         *
+         * @param ctx the execution context to register the prototypes in.
+         */
+        protected abstract void register(Context ctx);
+
+        /**
+         * Returns the object id of the prototype exposed under the given global name.
+         *
+         * @param name the global name.
+         * @return the object id.
+         */
+        protected abstract int getObjectID(String name);
+    }
+
     protected class VolatileOutputStreamContextLogger implements ContextLogger {
         public void trace(String msg, Object[] args) {
             log(errorStream, msg, args);
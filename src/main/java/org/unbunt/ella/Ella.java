@@ -50,19 +50,19 @@ import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.unbunt.ella.compiler.*;
 import org.unbunt.ella.compiler.antlr.LazyInputStream;
 import org.unbunt.ella.compiler.antlr.LazyTokenStream;
 import org.unbunt.ella.compiler.statement.Block;
 import org.unbunt.ella.compiler.support.Scope;
-import org.unbunt.ella.engine.EllaCPSEngine;
 import org.unbunt.ella.engine.EllaEngine;
+import org.unbunt.ella.engine.EngineType;
 import org.unbunt.ella.engine.context.Context;
 import org.unbunt.ella.engine.context.DupContextLogger;
 import org.unbunt.ella.engine.context.PrintStreamLogger;
 import org.unbunt.ella.engine.context.SLF4JContextLogger;
 import org.unbunt.ella.exception.*;
+import org.unbunt.ella.lang.sql.Conn;
 import org.unbunt.ella.lang.sql.DBUtils;
 import org.unbunt.ella.lang.sql.Drivers;
 import org.unbunt.ella.lang.sql.StmtBatch;
@@ -71,6 +71,7 @@ import org.unbunt.ella.utils.*;
 import sun.misc.Signal;
 import sun.misc.SignalHandler;
 
+import javax.sql.DataSource;
 import java.io.*;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -107,6 +108,8 @@ public class Ella {
     protected boolean batchStatements = false;
     protected int batchSize = 1000;
 
+    protected EngineType engineType = EngineType.getDefault();
+
     protected InputStream inputStream = System.in;
     protected OutputStream outputStream = System.out;
     protected OutputStream errorStream = System.err;
@@ -164,7 +167,9 @@ public class Ella {
             throw new IllegalArgumentException("Neither script nor scriptResource given");
         }
 
-        return new ELLA(context, script);
+        ELLA ella = new ELLA(context, script);
+        ella.setEngineType(engineType);
+        return ella;
     }
 
     protected ELLA prepareELLA() throws EllaIOException, DBConnectionFailedException, DataSourceInitializationException,
@@ -213,9 +218,9 @@ public class Ella {
             context.setErrorStream(new PrintStream(errorStream));
         }
 
-        DriverManagerDataSource ds = null;
+        DataSource ds = null;
         if (connectionDetails != null) {
-            ds = connectionDetails.createDataSource();
+            ds = connectionDetails.getDataSource();
         }
 
         currentConnection = null;
@@ -242,7 +247,7 @@ public class Ella {
                 context.getObjConnMgr().activate(currentConnection, currentBatch);
             }
             else {
-                context.getObjConnMgr().activate(currentConnection);
+                context.getObjConnMgr().activate(new Conn(currentConnection, ds));
             }
         }
 
@@ -396,6 +401,14 @@ public class Ella {
         this.logLevel = logLevel;
     }
 
+    public EngineType getEngineType() {
+        return engineType;
+    }
+
+    public void setEngineType(EngineType engineType) {
+        this.engineType = engineType;
+    }
+
     public SimpleResourceLoader getResourceLoader() {
         return resourceLoader;
     }
@@ -558,7 +571,8 @@ public class Ella {
     }
 
     /**
-     * Compiles the given EllaScript program into an executable form.
+     * Compiles the given EllaScript program into an executable form. Executing the program does not modify it, so
+     * it may be executed by any number of engines concurrently, each using a context of its own.
      *
      * @param script the file containing the program to compile.
      * @return the executable form of the program.
@@ -572,7 +586,8 @@ public class Ella {
     }
 
     /**
-     * Compiles the given EllaScript program into an executable form.
+     * Compiles the given EllaScript program into an executable form. Executing the program does not modify it, so
+     * it may be executed by any number of engines concurrently, each using a context of its own.
      *
      * @param script the souce code of the program to compile.
      * @return the executable form of the program.
@@ -678,6 +693,14 @@ public class Ella {
             ella.setLogOutput(pargs.log);
             ella.setLogOnly(pargs.logonly);
 
+            if (pargs.engine != null) {
+                try {
+                    ella.setEngineType(EngineType.forName(pargs.engine));
+                } catch (IllegalArgumentException e) {
+                    return usage(parser);
+                }
+            }
+
             if (pargs.compile) {
                 ella.compile();
                 return 0;
@@ -782,6 +805,9 @@ public class Ella {
         @Option(name = "-logonly", usage = "route all output through the SLF4J logging system")
         public boolean logonly = false;
 
+        @Option(name = "-engine", usage = "the execution engine to use - cps (default) or tree")
+        public String engine = null;
+
         @Option(name = "-large", usage = "optimize for large files")
         public boolean large = false;
 
@@ -830,6 +856,7 @@ public class Ella {
 
         protected EllaWalker walker;
 
+        protected EngineType engineType = EngineType.getDefault();
         protected EllaEngine engine = null;
         protected Block block; // the parsed script to be run by the engine
 
@@ -1283,7 +1310,7 @@ public class Ella {
         }
 
         protected void initEngine() {
-            engine = EllaCPSEngine.create(context);
+            engine = engineType.create(context);
         }
 
         protected void finish() {
@@ -1297,5 +1324,18 @@ public class Ella {
         public Context getContext() {
             return context;
         }
+
+        public EngineType getEngineType() {
+            return engineType;
+        }
+
+        /**
+         * Sets the type of engine to execute the program with.
+         *
+         * @param engineType the engine type to use.
+         */
+        public void setEngineType(EngineType engineType) {
+            this.engineType = engineType;
+        }
     }
 }
@@ -48,12 +48,15 @@ import org.unbunt.ella.compiler.antlr.LazyTokenStream;
 import org.unbunt.ella.compiler.statement.Block;
 import org.unbunt.ella.compiler.support.RawParamedSQL;
 import org.unbunt.ella.compiler.support.SQLParseMode;
+import org.unbunt.ella.compiler.support.SQLStringType;
 import org.unbunt.ella.compiler.support.Scope;
 import org.unbunt.ella.compiler.support.RawSQL;
 import org.unbunt.ella.exception.*;
 import org.unbunt.ella.resource.SimpleResource;
 
 import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Helper class providing static methods for:
@@ -65,6 +68,18 @@ import java.io.*;
 public class ParserHelper {
     protected static ThreadLocalParser threadLocalParser = new ThreadLocalParser();
 
+    /**
+     * The maximum number of SQL statements kept parsed for named parameters.
+     */
+    public static final int PARAMED_SQL_CACHE_SIZE = 256;
+
+    protected static final Map<ParamedSQLKey, RawParamedSQL> paramedSQLCache =
+            new LinkedHashMap<ParamedSQLKey, RawParamedSQL>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<ParamedSQLKey, RawParamedSQL> eldest) {
+                    return size() > PARAMED_SQL_CACHE_SIZE;
+                }
+            };
+
     /**
      * Compiles the given EllaScript program into an executable form.
      *
@@ -90,14 +105,57 @@ public class ParserHelper {
     }
 
     /**
-     * Parses the given sql statement for named parameters.
+     * Parses the given sql statement for named parameters. Results are cached and shared between callers and must
+     * not be modified.
      *
      * @param stmt the sql statement.
      * @return the sql statement and it's named parameters.
      * @throws GenericParseException if any errors occur during parsing of the statement.
      */
     public static RawParamedSQL parseParamedSQLLiteral(RawSQL stmt) throws GenericParseException {
-        return threadLocalParser.get().paramedSQLLiteralParser.parse(stmt);
+        ParamedSQLKey key = new ParamedSQLKey(stmt.getStatement(), stmt.getParseMode().getStringType());
+        RawParamedSQL result;
+        synchronized (paramedSQLCache) {
+            result = paramedSQLCache.get(key);
+        }
+        if (result == null) {
+            result = threadLocalParser.get().paramedSQLLiteralParser.parse(stmt);
+            synchronized (paramedSQLCache) {
+                paramedSQLCache.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Key of a statement parsed for named parameters. The result of parsing depends on the statement text and on the
+     * string literal syntax in effect.
+     */
+    protected static class ParamedSQLKey {
+        protected final String statement;
+        protected final SQLStringType stringType;
+
+        protected ParamedSQLKey(String statement, SQLStringType stringType) {
+            this.statement = statement;
+            this.stringType = stringType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ParamedSQLKey)) {
+                return false;
+            }
+            ParamedSQLKey other = (ParamedSQLKey) o;
+            return stringType == other.stringType && statement.equals(other.statement);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * statement.hashCode() + (stringType == null ? 0 : stringType.hashCode());
+        }
     }
 
     protected static class ThreadLocalParser extends ThreadLocal<RealParser> {
@@ -0,0 +1,272 @@
+/* RowUpdateDetector.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.compiler;
+
+import org.unbunt.ella.compiler.statement.*;
+import org.unbunt.ella.compiler.stmtbase.Expression;
+import org.unbunt.ella.compiler.stmtbase.Statement;
+import org.unbunt.ella.compiler.support.BlockClosure;
+import org.unbunt.ella.compiler.support.ObjectLiteral;
+import org.unbunt.ella.compiler.support.StringEscape;
+import org.unbunt.ella.compiler.support.StringLiteral;
+import org.unbunt.ella.compiler.support.StringLiteralComponent;
+import org.unbunt.ella.compiler.support.StringText;
+import org.unbunt.ella.compiler.support.Variable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Decides whether a block closure receiving result rows may modify them through the <code>update</code> or
+ * <code>insert</code> slots of the row object. Only result sets handed to such closures need to be opened with an
+ * updatable cursor.
+ * <p>
+ * The analysis is conservative: a closure is considered to modify rows if it refers to a slot named
+ * <code>update</code> or <code>insert</code> anywhere in its body, to a slot whose name is computed at run time, or
+ * if its row argument is used for anything else than accessing one of the row's slots, e.g. if it is passed to a
+ * function. Results are cached per closure.
+ */
+public class RowUpdateDetector {
+    protected static final Map<BlockClosure, Boolean> results = new WeakHashMap<BlockClosure, Boolean>();
+
+    private RowUpdateDetector() {
+    }
+
+    /**
+     * Checks whether the given block closure may update or insert rows of the result set passed as its first
+     * argument.
+     *
+     * @param closure the block closure to analyze.
+     * @return <code>false</code> if the block closure certainly does not modify rows, <code>true</code> otherwise.
+     */
+    public static boolean mayUpdateRows(BlockClosure closure) {
+        Boolean result;
+        synchronized (results) {
+            result = results.get(closure);
+        }
+        if (result == null) {
+            List<Variable> args = closure.getArguments();
+            String rowName = args == null || args.isEmpty() ? null : args.get(0).name;
+            DetectingVisitor visitor = new DetectingVisitor(rowName);
+            closure.getBody().accept(visitor);
+            result = visitor.detected;
+            synchronized (results) {
+                results.put(closure, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the given slot expression may refer to a modifying slot. Slot names computed at run time, e.g.
+     * by concatenation or by interpolating variables into a string, may refer to any slot.
+     *
+     * @param slot the slot expression.
+     * @return <code>false</code> if the slot is a constant other than <code>update</code> or <code>insert</code>,
+     *         <code>true</code> otherwise.
+     */
+    protected static boolean isModifyingSlot(Expression slot) {
+        if (slot instanceof IntegerLiteralExpression
+            || slot instanceof FloatingPointLiteralExpression
+            || slot instanceof BooleanLiteralExpression) {
+            return false;
+        }
+        String name = getConstantName(slot);
+        return name == null || "update".equals(name) || "insert".equals(name);
+    }
+
+    /**
+     * Returns the slot name given by a slot expression if it is a compile time constant.
+     *
+     * @param slot the slot expression.
+     * @return the slot name or <code>null</code> if the name is computed at run time.
+     */
+    protected static String getConstantName(Expression slot) {
+        if (slot instanceof IdentifierExpression) {
+            return ((IdentifierExpression) slot).getIdentifier();
+        }
+        if (slot instanceof StringLiteralExpression) {
+            StringLiteral literal = ((StringLiteralExpression) slot).getStringLiteral();
+            for (StringLiteralComponent part : literal.getParts()) {
+                if (!(part instanceof StringText) && !(part instanceof StringEscape)) {
+                    return null;
+                }
+            }
+            // constant parts do not use the interpolator
+            return literal.toString(null);
+        }
+        return null;
+    }
+
+    /**
+     * Searches the expression tree for references to the modifying slots and for uses of the row argument.
+     */
+    protected static class DetectingVisitor implements ExpressionVisitor {
+        protected final String rowName;
+
+        protected boolean detected = false;
+
+        protected DetectingVisitor(String rowName) {
+            this.rowName = rowName;
+        }
+
+        protected boolean isRow(Expression expression) {
+            return rowName != null
+                   && expression instanceof VariableExpression
+                   && rowName.equals(((VariableExpression) expression).getVariable().name);
+        }
+
+        protected void processAll(List<? extends Statement> statements) {
+            if (statements == null) {
+                return;
+            }
+            for (Statement statement : statements) {
+                if (detected) {
+                    return;
+                }
+                statement.accept(this);
+            }
+        }
+
+        public void processExpression(Block blockExpression) {
+            processAll(blockExpression.getStatements());
+        }
+
+        public void processExpression(IdentifierExpression identifierExpression) {
+        }
+
+        public void processExpression(IntegerLiteralExpression integerLiteralExpression) {
+        }
+
+        public void processExpression(FloatingPointLiteralExpression floatingPointLiteralExpression) {
+        }
+
+        public void processExpression(BooleanLiteralExpression booleanLiteralExpression) {
+        }
+
+        public void processExpression(StringLiteralExpression stringLiteralExpression) {
+        }
+
+        public void processExpression(SQLLiteralExpression sqlLiteralExpression) {
+        }
+
+        public void processExpression(ObjectLiteralExpression objectLiteralExpression) {
+            for (ObjectLiteral.SlotEntry entry : objectLiteralExpression.getObjectLiteral().getSlots()) {
+                entry.key.accept(this);
+                entry.value.accept(this);
+            }
+        }
+
+        public void processExpression(ArrayLiteralExpression arrayLiteralExpression) {
+            for (Expression expression : arrayLiteralExpression.getComponents()) {
+                expression.accept(this);
+            }
+        }
+
+        public void processExpression(DeclareVariableExpression declareVariableExpression) {
+        }
+
+        public void processExpression(AssignExpression assignExpression) {
+            assignExpression.getRvalue().accept(this);
+        }
+
+        public void processExpression(DeclareAndAssignExpression declareAndAssignExpression) {
+            declareAndAssignExpression.getAssignExpr().getRvalue().accept(this);
+        }
+
+        public void processExpression(SlotSetExpression slotSetExpression) {
+            slotSetExpression.getSlotExpression().accept(this);
+            slotSetExpression.getValueExpression().accept(this);
+        }
+
+        public void processExpression(SlotExpression slotExpression) {
+            Expression slot = slotExpression.getSlot();
+            if (isModifyingSlot(slot)) {
+                detected = true;
+                return;
+            }
+            // accessing a slot of the row does not let the row escape
+            if (!isRow(slotExpression.getReceiver())) {
+                slotExpression.getReceiver().accept(this);
+            }
+            slot.accept(this);
+        }
+
+        public void processExpression(VariableExpression variableExpression) {
+            if (isRow(variableExpression)) {
+                detected = true;
+            }
+        }
+
+        public void processExpression(FunctionDefinitionExpression functionDefinitionExpression) {
+            functionDefinitionExpression.getFunction().getBody().accept(this);
+        }
+
+        public void processExpression(FunctionCallExpression functionCallExpression) {
+            functionCallExpression.getExpression().accept(this);
+            processAll(functionCallExpression.getArguments());
+        }
+
+        public void processExpression(SlotCallExpression slotCallExpression) {
+            slotCallExpression.getSlotExpression().accept(this);
+            processAll(slotCallExpression.getArguments());
+        }
+
+        public void processExpression(ReturnStatement returnStatement) {
+            if (returnStatement.hasExpression()) {
+                returnStatement.getExpression().accept(this);
+            }
+        }
+
+        public void processExpression(NewExpression newExpression) {
+            newExpression.getExpression().accept(this);
+            processAll(newExpression.getArguments());
+        }
+
+        public void processExpression(ThisExpression thisExpression) {
+        }
+
+        public void processExpression(SuperExpression superExpression) {
+        }
+
+        public void processExpression(BlockClosureExpression blockClosureExpression) {
+            blockClosureExpression.getBlockClosure().getBody().accept(this);
+        }
+    }
+}
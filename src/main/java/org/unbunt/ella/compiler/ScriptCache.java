@@ -0,0 +1,160 @@
+/* ScriptCache.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.compiler;
+
+import org.unbunt.ella.compiler.statement.Block;
+import org.unbunt.ella.compiler.support.Scope;
+import org.unbunt.ella.exception.GenericParseException;
+import org.unbunt.ella.resource.SimpleResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of programs compiled from files, used for scripts included repeatedly.
+ * <p>
+ * A compiled program depends on the file contents and on the layout of the scope it is compiled in, which determines
+ * the addresses of the variables it refers to. Programs are therefore cached by the canonical path, modification time
+ * and length of their file along with the layout of the enclosing scope. Programs read from resources not backed by a
+ * file are not cached.
+ */
+public class ScriptCache {
+    /**
+     * The maximum number of compiled programs kept.
+     */
+    public static final int CAPACITY = 64;
+
+    protected static final Map<Key, Block> programs = new LinkedHashMap<Key, Block>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<Key, Block> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    private ScriptCache() {
+    }
+
+    /**
+     * Compiles the given EllaScript program into an executable form in a new scope nested in the given scope, or
+     * returns the program compiled before if neither the program nor the layout of the scope have changed since.
+     *
+     * @param scope the scope enclosing the program.
+     * @param resource the resource containing the program to compile.
+     * @return the executable representation of the program.
+     * @throws GenericParseException if any errors occur during compilation of the program.
+     * @see ParserHelper#parseScript(Scope, SimpleResource)
+     */
+    public static Block parseScript(Scope scope, SimpleResource resource) throws GenericParseException {
+        Key key = createKey(scope, resource);
+        if (key != null) {
+            Block block;
+            synchronized (programs) {
+                block = programs.get(key);
+            }
+            if (block != null) {
+                return block;
+            }
+        }
+
+        Block block = ParserHelper.parseScript(new Scope(scope), resource);
+
+        if (key != null) {
+            synchronized (programs) {
+                programs.put(key, block);
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Removes all compiled programs from the cache.
+     */
+    public static void clear() {
+        synchronized (programs) {
+            programs.clear();
+        }
+    }
+
+    protected static Key createKey(Scope scope, SimpleResource resource) {
+        File file;
+        try {
+            file = resource.getFile().getCanonicalFile();
+        } catch (IOException e) {
+            return null;
+        }
+        long lastModified = file.lastModified();
+        if (lastModified == 0) {
+            // file does not exist, let the parser report it
+            return null;
+        }
+        return new Key(file.getPath(), lastModified, file.length(), scope == null ? null : scope.getLayout());
+    }
+
+    protected static class Key {
+        protected final String path;
+        protected final long lastModified;
+        protected final long length;
+        protected final List<List<String>> layout;
+
+        protected Key(String path, long lastModified, long length, List<List<String>> layout) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.layout = layout;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key key = (Key) o;
+
+            return lastModified == key.lastModified && length == key.length && path.equals(key.path)
+                   && (layout == null ? key.layout == null : layout.equals(key.layout));
+        }
+
+        public int hashCode() {
+            int result = path.hashCode();
+            result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+            result = 31 * result + (layout != null ? layout.hashCode() : 0);
+            return result;
+        }
+    }
+}
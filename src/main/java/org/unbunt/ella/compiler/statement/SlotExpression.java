@@ -39,10 +39,12 @@ package org.unbunt.ella.compiler.statement;
 
 import org.unbunt.ella.compiler.statement.ExpressionVisitor;
 import org.unbunt.ella.compiler.stmtbase.Expression;
+import org.unbunt.ella.engine.corelang.InlineCache;
 
 public class SlotExpression implements Expression {
     protected Expression receiver;
     protected Expression slot;
+    protected final InlineCache inlineCache = new InlineCache();
 
     public SlotExpression(Expression receiver, Expression slot) {
         this.receiver = receiver;
@@ -68,6 +70,16 @@ public class SlotExpression implements Expression {
         this.slot = slot;
     }
 
+    /**
+     * Returns the cache for slot lookups performed by this expression. The cache is only used if the slot is given
+     * by an identifier.
+     *
+     * @return the inline cache of this slot expression.
+     */
+    public InlineCache getInlineCache() {
+        return inlineCache;
+    }
+
     public void accept(ExpressionVisitor visitor) {
         visitor.processExpression(this);
     }
@@ -38,18 +38,25 @@ exception statement from your version. */
 package org.unbunt.ella.compiler.support;
 
 import org.unbunt.ella.compiler.stmtbase.Statement;
-import org.unbunt.ella.engine.environment.Env;
+import org.unbunt.ella.engine.nodes.Node;
 
 import java.util.List;
 
 /**
  * Base class for activatable objects.
+ * <p>
+ * Callables are part of the compiled program and may be shared by engines in different threads. They are never
+ * modified by executing the program: the environment a function or block closure has been created in is held by
+ * the corresponding runtime object (see {@link org.unbunt.ella.engine.corelang.Func} and
+ * {@link org.unbunt.ella.engine.corelang.Clos}). The compiled body merely caches a derived form of the body.
  */
 public class AbstractCallable implements Callable {
     protected List<Variable> arguments = null;
     protected int argCount = 0;
     protected Statement body = null;
-    protected Env env = null;
+    protected Scope scope = null;
+    protected volatile Node compiledBody = null;
+    protected int invocationCount = 0;
 
     public AbstractCallable() {
     }
@@ -79,11 +86,51 @@ public class AbstractCallable implements Callable {
         this.body = body;
     }
 
-    public Env getEnv() {
-        return env;
+    /**
+     * Returns the scope of the arguments and variables declared in the body.
+     *
+     * @return the scope.
+     */
+    public Scope getScope() {
+        return scope;
     }
 
-    public void setEnv(Env env) {
-        this.env = env;
+    public void setScope(Scope scope) {
+        this.scope = scope;
+    }
+
+    /**
+     * Returns the executable form of the body as compiled by a node based engine.
+     *
+     * @return the compiled body or <code>null</code> if the body has not been compiled yet.
+     */
+    public Node getCompiledBody() {
+        return compiledBody;
+    }
+
+    public void setCompiledBody(Node compiledBody) {
+        this.compiledBody = compiledBody;
+    }
+
+    /**
+     * Returns the number of invocations of the compiled body counted so far.
+     *
+     * @return the invocation count.
+     */
+    public int getInvocationCount() {
+        return invocationCount;
+    }
+
+    /**
+     * Counts an invocation of the compiled body. The count saturates instead of overflowing. Invocations by
+     * concurrently running engines may be lost.
+     *
+     * @return the number of invocations counted so far, including this one.
+     */
+    public int countInvocation() {
+        if (invocationCount < Integer.MAX_VALUE) {
+            invocationCount++;
+        }
+        return invocationCount;
     }
 }
@@ -38,7 +38,6 @@ exception statement from your version. */
 package org.unbunt.ella.compiler.support;
 
 import org.unbunt.ella.compiler.stmtbase.Statement;
-import org.unbunt.ella.engine.environment.Env;
 
 import java.util.List;
 
@@ -52,5 +51,5 @@ public interface Callable {
 
     Statement getBody();
 
-    Env getEnv();
+    Scope getScope();
 }
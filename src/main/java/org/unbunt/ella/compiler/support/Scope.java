@@ -37,6 +37,7 @@ exception statement from your version. */
 
 package org.unbunt.ella.compiler.support;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -45,16 +46,89 @@ import java.util.List;
  * <p>
  * This class implements the lexical addressing scheme in that it calculates lexical addresses for every declared
  * variable.
+ * <p>
+ * Scopes of functions, block closures and nested blocks are laid out as frames of fixed size once the script
+ * containing them has been compiled completely (see {@link #resolveAddresses()}):
+ * <ul>
+ * <li>Block closures declaring no variables (including arguments) run in the environment they have been created in.
+ * <li>Nested blocks declaring no variables run in the enclosing environment. The same applies to nested blocks none of
+ * whose variables can be captured by a function or block closure: their variables are moved into the frame of the
+ * enclosing function, block closure or block.
+ * </ul>
+ * Scopes created without a type represent environments set up outside of compiled code, e.g. the global environment.
+ * Variables declared in these scopes are addressed by their position, the environments are expected to grow as needed.
  */
 public class Scope {
+    /**
+     * Type of scopes backed by environments set up outside of compiled code.
+     */
+    public static final int TYPE_FRAME = 0;
+
+    /**
+     * Type of function scopes.
+     */
+    public static final int TYPE_FUNCTION = 1;
+
+    /**
+     * Type of block closure scopes.
+     */
+    public static final int TYPE_CLOSURE = 2;
+
+    /**
+     * Type of nested block scopes.
+     */
+    public static final int TYPE_BLOCK = 3;
+
     protected static final int UNDEF_BASE_ADDR = Math.abs(Integer.MIN_VALUE >> 1);
 
     protected Scope parent;
 
-    protected List<String> vars = new LinkedList<String>();
+    protected final Scope root;
+
+    protected final int type;
+
+    protected List<String> vars = new ArrayList<String>();
     protected List<String> undefVars = new LinkedList<String>();
     protected int currAddr = -1;
 
+    /**
+     * The declarations of the variables of this scope in the order of {@link #vars}, not maintained for scopes of type
+     * {@link #TYPE_FRAME}.
+     */
+    protected List<Variable> decls = null;
+
+    /**
+     * Whether a function or block closure is created within this scope.
+     */
+    protected boolean captured = false;
+
+    /**
+     * Whether this scope shares the environment of its parent scope.
+     */
+    protected boolean elided = false;
+
+    /**
+     * The scope owning the environment variables of this scope are stored in.
+     */
+    protected Scope frame = this;
+
+    /**
+     * The variables stored in the frame of this scope, indexed by their address.
+     */
+    protected List<Variable> frameVars = null;
+
+    /**
+     * The range of addresses of the variables this scope stores in the frame of an enclosing scope.
+     */
+    protected int hoistedFrom = 0;
+    protected int hoistedTo = 0;
+
+    /**
+     * Scopes and variables whose addresses have to be resolved, maintained by the root scope only.
+     */
+    protected List<Scope> pendingScopes = null;
+    protected List<Variable> pendingVars = null;
+
     /**
      * Creates a new empty Scope with no associated parent scope.
      */
@@ -68,7 +142,35 @@ public class Scope {
      * @param parent the parent scope.
      */
     public Scope(Scope parent) {
+        this(parent, TYPE_FRAME);
+    }
+
+    /**
+     * Creates a new empty Scope of the given type with the given scope used as its parent scope.
+     *
+     * @param parent the parent scope.
+     * @param type the type of the scope, one of the <code>TYPE_*</code> constants.
+     */
+    public Scope(Scope parent, int type) {
         this.parent = parent;
+        this.type = type;
+        this.root = parent == null ? this : parent.root;
+
+        if (type != TYPE_FRAME) {
+            decls = new ArrayList<Variable>();
+            if (root.pendingScopes == null) {
+                root.pendingScopes = new ArrayList<Scope>();
+                root.pendingVars = new ArrayList<Variable>();
+            }
+            root.pendingScopes.add(this);
+        }
+
+        if (type == TYPE_FUNCTION || type == TYPE_CLOSURE) {
+            // the blocks enclosing the function or closure have to keep their variables in environments of their own
+            for (Scope scope = parent; scope != null && scope.type == TYPE_BLOCK; scope = scope.parent) {
+                scope.captured = true;
+            }
+        }
     }
 
     /**
@@ -84,10 +186,35 @@ public class Scope {
         int index = vars.indexOf(name);
         if (index != -1) {
             System.err.println("Warning: Variable " + name + " is already defined");
-            return new Variable(index, name, true, false);
+            Variable var = new Variable(index, name, true, false);
+            register(var, this, index, false);
+            return var;
         }
         vars.add(name);
-        return new Variable(++currAddr, name, false, false);
+        Variable var = new Variable(++currAddr, name, false, false);
+        if (decls != null) {
+            decls.add(var);
+        }
+        register(var, this, currAddr, true);
+        return var;
+    }
+
+    /**
+     * Declares a variable with the given name occupying the next address of this scope. Unlike
+     * {@link #addVariable(String)}, a variable of the same name already declared in this scope is hidden silently.
+     * This is used to rebuild the scope of an existing environment.
+     *
+     * @param name the variable name or <code>null</code> to just reserve the address.
+     */
+    public void addFrameVariable(String name) {
+        if (name != null) {
+            int index = vars.indexOf(name);
+            if (index != -1) {
+                vars.set(index, null);
+            }
+        }
+        vars.add(name);
+        currAddr++;
     }
 
     /**
@@ -106,7 +233,18 @@ public class Scope {
      */
     public Variable getVariable(String name) {
         int addr = findVariable(name);
-        return new Variable(addr, name, true, addr >= UNDEF_BASE_ADDR);
+        Variable var = new Variable(addr, name, true, addr >= UNDEF_BASE_ADDR);
+        if (type != TYPE_FRAME) {
+            for (Scope scope = this; scope != null; scope = scope.parent) {
+                int index = scope.vars.indexOf(name);
+                if (index != -1) {
+                    register(var, scope, index, false);
+                    return var;
+                }
+            }
+            register(var, null, root.undefVars.indexOf(name), false);
+        }
+        return var;
     }
 
     protected int findVariable(String name) {
@@ -135,4 +273,189 @@ public class Scope {
 
         return paddr + 0x10000;
     }
+
+    protected void register(Variable var, Scope declScope, int index, boolean declaration) {
+        if (type == TYPE_FRAME) {
+            // the address calculated from the position is final
+            return;
+        }
+        var.scope = this;
+        var.declScope = declScope;
+        var.index = index;
+        var.declaration = declaration;
+        root.pendingVars.add(var);
+    }
+
+    /**
+     * Returns the names of the variables of this scope and its parent scopes, in order of their addresses, starting
+     * with this scope. Programs compiled in scopes of equal layouts are interchangeable.
+     *
+     * @return the variable names of each scope, <code>null</code> for unused addresses.
+     */
+    public List<List<String>> getLayout() {
+        List<List<String>> layout = new ArrayList<List<String>>();
+        for (Scope scope = this; scope != null; scope = scope.parent) {
+            layout.add(new ArrayList<String>(scope.vars));
+        }
+        layout.add(new ArrayList<String>(root.undefVars));
+        return layout;
+    }
+
+    /**
+     * Returns the type of this scope.
+     *
+     * @return one of the <code>TYPE_*</code> constants.
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * Returns whether this scope shares the environment of its parent scope, i.e. entering it does not require a new
+     * environment to be set up.
+     *
+     * @return <code>true</code> if no environment has to be created for this scope.
+     */
+    public boolean isElided() {
+        return elided;
+    }
+
+    /**
+     * Returns the number of variables the environment of this scope has to hold.
+     *
+     * @return the frame size.
+     */
+    public int getFrameSize() {
+        return frameVars == null ? vars.size() : frameVars.size();
+    }
+
+    /**
+     * Returns the variable stored at the given index of the environment of this scope.
+     *
+     * @param index the index.
+     * @return the variable or <code>null</code> if the index is not used.
+     */
+    public Variable getFrameVariable(int index) {
+        return frameVars == null || index >= frameVars.size() ? null : frameVars.get(index);
+    }
+
+    /**
+     * Returns the lowest address of the variables this scope stores in the environment of an enclosing scope.
+     *
+     * @return the address.
+     */
+    public int getHoistedFrom() {
+        return hoistedFrom;
+    }
+
+    /**
+     * Returns the address following the highest address of the variables this scope stores in the environment of an
+     * enclosing scope. Equals {@link #getHoistedFrom()} if there are no such variables.
+     *
+     * @return the address.
+     */
+    public int getHoistedTo() {
+        return hoistedTo;
+    }
+
+    /**
+     * Lays out the frames of the scopes created below the root scope of this scope since the last invocation and
+     * calculates the final addresses of all variables declared or referenced in them. Has to be invoked after a
+     * script has been compiled.
+     */
+    public void resolveAddresses() {
+        List<Scope> scopes = root.pendingScopes;
+        List<Variable> variables = root.pendingVars;
+        if (scopes == null) {
+            return;
+        }
+        root.pendingScopes = null;
+        root.pendingVars = null;
+
+        // parent scopes have been created before their children
+        for (Scope scope : scopes) {
+            scope.layout();
+        }
+
+        // declarations are assigned addresses in the order they occur in, references need these
+        for (Variable var : variables) {
+            if (var.declaration) {
+                var.declScope.allocate(var);
+            }
+        }
+        for (Variable var : variables) {
+            if (!var.declaration) {
+                var.address = var.scope.resolve(var);
+            }
+        }
+    }
+
+    protected void layout() {
+        switch (type) {
+            case TYPE_CLOSURE:
+                elided = decls.isEmpty();
+                break;
+            case TYPE_BLOCK:
+                elided = decls.isEmpty() || (!captured && parent.getHoistTarget() != null);
+                break;
+        }
+        if (elided) {
+            frame = parent.frame;
+        }
+        else {
+            frameVars = new ArrayList<Variable>();
+        }
+    }
+
+    /**
+     * Returns the scope variables of nested blocks may be moved into.
+     *
+     * @return the scope or <code>null</code> if moving variables out of nested blocks into this scope is not
+     *         possible.
+     */
+    protected Scope getHoistTarget() {
+        Scope scope = this;
+        while (scope.elided) {
+            if (scope.type != TYPE_BLOCK) {
+                // closures without an environment of their own may run in several invocations at once
+                return null;
+            }
+            scope = scope.parent;
+        }
+        return scope.type == TYPE_FRAME ? null : scope;
+    }
+
+    protected void allocate(Variable var) {
+        if (frame.type == TYPE_FRAME) {
+            // addressed by position
+            return;
+        }
+        int addr = frame.frameVars.size();
+        frame.frameVars.add(var);
+        var.address = addr;
+        if (frame != this) {
+            if (hoistedFrom == hoistedTo) {
+                hoistedFrom = addr;
+            }
+            hoistedTo = addr + 1;
+        }
+    }
+
+    protected int resolve(Variable var) {
+        Scope target = var.declScope == null ? root : var.declScope.frame;
+        int hops = 0;
+        for (Scope scope = this; scope != target; scope = scope.parent) {
+            if (!scope.elided) {
+                hops++;
+            }
+        }
+
+        if (var.declScope == null) {
+            return UNDEF_BASE_ADDR + var.index + (hops << 16);
+        }
+        if (target.type == TYPE_FRAME) {
+            return var.index + (hops << 16);
+        }
+        return var.declScope.decls.get(var.index).address + (hops << 16);
+    }
 }
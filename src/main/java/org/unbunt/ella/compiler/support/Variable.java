@@ -44,9 +44,13 @@ import org.unbunt.ella.lang.Str;
  */
 public class Variable {
     /**
-     * The address of the variable.
+     * The address of the variable. The upper 16 bits hold the number of environments to skip, the lower 16 bits the
+     * index of the variable in the environment reached.
+     * <p>
+     * Addresses of variables used in functions and block closures are final only after the script containing them
+     * has been compiled completely, see {@link Scope#resolveAddresses()}.
      */
-    public final int address;
+    public int address;
 
     /**
      * The name of the variable.
@@ -61,10 +65,30 @@ public class Variable {
     public final boolean defined;
     public final boolean implicit;
 
+    /**
+     * The scope this variable has been declared or referenced in, if its address has to be resolved.
+     */
+    Scope scope;
+
+    /**
+     * The scope declaring this variable or <code>null</code> if the variable is undefined.
+     */
+    Scope declScope;
+
+    /**
+     * The position of this variable in the declaring scope or among the undefined variables.
+     */
+    int index;
+
+    /**
+     * Whether this variable is the declaration of a variable rather than a reference.
+     */
+    boolean declaration;
+
     public Variable(int address, String name, boolean defined, boolean implicit) {
         this.address = address;
-        this.name = name.intern();
-        this.nameStr = Str.toSym(this.name);
+        this.nameStr = Str.toSym(name);
+        this.name = nameStr.value;
         this.defined = defined;
         this.implicit = implicit;
     }
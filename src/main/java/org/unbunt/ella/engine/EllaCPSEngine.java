@@ -112,11 +112,114 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
 
     protected boolean next;
 
-    // TODO: dynamically increase cont stack size to allow non-tail-recursion to occur up until the heap runs out
-    protected int MAX_CONT_STACK = 4096;
-    protected Continuation[] cont = new Continuation[MAX_CONT_STACK];
+    /**
+     * Initial capacity of the continuation stack. The stack grows in multiples of this size and is never shrunk
+     * below it.
+     */
+    public static final int CONT_STACK_CHUNK = 4096;
+
+    /**
+     * Default limit for the number of entries on the continuation stack. May be overridden by the system property
+     * <code>ella.maxContStack</code>.
+     */
+    public static final int DEFAULT_MAX_CONT_STACK = Math.max(Integer.getInteger("ella.maxContStack", 1 << 20),
+                                                              CONT_STACK_CHUNK);
+
+    /**
+     * Initial capacity of the stacks of frame and loop indices.
+     */
+    protected static final int MARK_STACK_CHUNK = 64;
+
+    protected int maxContStack = DEFAULT_MAX_CONT_STACK;
+    protected Continuation[] cont = new Continuation[CONT_STACK_CHUNK];
     protected int pc;
 
+    /**
+     * The stack is shrunk as soon as the stack pointer drops below this mark. A negative value disables shrinking.
+     */
+    protected int shrinkMark = -1;
+
+    // Index of the innermost call frame (FunRetCont or ClosRetCont) on the continuation stack or -1 if there is
+    // none. The indices of the enclosing frames are saved on frameMarks.
+    protected int fp = -1;
+    protected int[] frameMarks = new int[MARK_STACK_CHUNK];
+    protected int frameCount = 0;
+
+    // Index of the innermost loop marker (LoopCont) on the continuation stack or -1 if there is none. The indices
+    // of the enclosing loop markers are saved on loopMarks.
+    protected int lp = -1;
+    protected int[] loopMarks = new int[MARK_STACK_CHUNK];
+    protected int loopCount = 0;
+
+    // Status of the loop driven via invokeLoopBody() which has just been left by a loop control statement
+    protected LoopStatus loopStatus = null;
+
+    // Pools of reusable continuations for the most frequently executed steps (blocks, slot access, calls and
+    // returns).
+    // Continuations are released right after they have been processed for the last time.
+    protected final ContinuationPool<BlockCont> blockPool = new ContinuationPool<BlockCont>() {
+        protected BlockCont create() {
+            return new BlockCont();
+        }
+    };
+    protected final ContinuationPool<SlotGetReceiverCont> slotGetReceiverPool =
+            new ContinuationPool<SlotGetReceiverCont>() {
+                protected SlotGetReceiverCont create() {
+                    return new SlotGetReceiverCont();
+                }
+            };
+    protected final ContinuationPool<SlotGetSlotCont> slotGetSlotPool = new ContinuationPool<SlotGetSlotCont>() {
+        protected SlotGetSlotCont create() {
+            return new SlotGetSlotCont();
+        }
+    };
+    protected final ContinuationPool<SlotCallReceiverCont> slotCallReceiverPool =
+            new ContinuationPool<SlotCallReceiverCont>() {
+                protected SlotCallReceiverCont create() {
+                    return new SlotCallReceiverCont();
+                }
+            };
+    protected final ContinuationPool<SlotCallSlotCont> slotCallSlotPool = new ContinuationPool<SlotCallSlotCont>() {
+        protected SlotCallSlotCont create() {
+            return new SlotCallSlotCont();
+        }
+    };
+    protected final ContinuationPool<CallCont> callPool = new ContinuationPool<CallCont>() {
+        protected CallCont create() {
+            return new CallCont();
+        }
+    };
+    protected final ContinuationPool<NativeCont> nativePool = new ContinuationPool<NativeCont>() {
+        protected NativeCont create() {
+            return new NativeCont();
+        }
+    };
+    protected final ContinuationPool<NumericOpCont> numericOpPool = new ContinuationPool<NumericOpCont>() {
+        protected NumericOpCont create() {
+            return new NumericOpCont();
+        }
+    };
+    protected final ContinuationPool<ArgsCont> argsPool = new ContinuationPool<ArgsCont>() {
+        protected ArgsCont create() {
+            return new ArgsCont();
+        }
+    };
+    protected final ContinuationPool<CallArgCont> callArgPool = new ContinuationPool<CallArgCont>() {
+        protected CallArgCont create() {
+            return new CallArgCont();
+        }
+    };
+    protected final ContinuationPool<FunRetCont> funRetPool = new ContinuationPool<FunRetCont>() {
+        protected FunRetCont create() {
+            return new FunRetCont();
+        }
+    };
+    protected final ContinuationPool<ClosRetCont> closRetPool = new ContinuationPool<ClosRetCont>() {
+        protected ClosRetCont create() {
+            return new ClosRetCont();
+        }
+    };
+
     public Object eval(Block block) throws EllaException, EllaStoppedException {
         stop = false;
         exited = false;
@@ -129,14 +232,6 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
 
         try {
             process();
-        } catch (ArrayIndexOutOfBoundsException e) {
-            if (pc >= MAX_CONT_STACK) {
-                // TODO: throw an exception explicitly indicating this engine being in an unusable state
-                throw new EllaRuntimeException("Continuation stack overflow", e);
-            }
-            else {
-                throw e;
-            }
         } catch (EllaInterruptedException e) {
             throw new EllaStoppedException(e);
         } catch (EllaRuntimeException e) {
@@ -147,11 +242,164 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
                 // so do this now or else a later reinvocation of this engine instance may fail with absurd errors.
                 cleanup();
             }
+            resetStack();
         }
 
         return val == null ? null : val.toJavaObject();
     }
 
+    /**
+     * Returns the maximum number of entries the continuation stack of this engine may grow to.
+     *
+     * @return the maximum continuation stack size.
+     */
+    public int getMaxContStack() {
+        return maxContStack;
+    }
+
+    /**
+     * Sets the maximum number of entries the continuation stack of this engine may grow to.
+     * Exceeding this limit (i.e. by deep non-tail recursion) results in a "Continuation stack overflow" error
+     * which leaves the engine in a usable state.
+     *
+     * @param maxContStack the maximum continuation stack size, must not be smaller than {@link #CONT_STACK_CHUNK}.
+     */
+    public void setMaxContStack(int maxContStack) {
+        if (maxContStack < CONT_STACK_CHUNK) {
+            throw new IllegalArgumentException("Maximum continuation stack size must be at least " + CONT_STACK_CHUNK);
+        }
+        this.maxContStack = maxContStack;
+    }
+
+    protected void push(Continuation c) {
+        if (++pc == cont.length) {
+            growStack();
+        }
+        cont[pc] = c;
+    }
+
+    protected void pop() {
+        cont[pc--] = null;
+        if (pc < fp) {
+            dropFrames();
+        }
+        if (pc < lp) {
+            dropLoops();
+        }
+        if (pc < shrinkMark) {
+            shrinkStack();
+        }
+    }
+
+    /**
+     * Pushes a continuation representing a call frame and makes it the target of return statements.
+     *
+     * @param c the frame continuation to push.
+     */
+    protected void pushFrame(Continuation c) {
+        push(c);
+        markFrame();
+    }
+
+    /**
+     * Records the continuation on top of the stack as the innermost call frame.
+     */
+    protected void markFrame() {
+        if (frameCount == frameMarks.length) {
+            frameMarks = Arrays.copyOf(frameMarks, frameCount * 2);
+        }
+        frameMarks[frameCount++] = fp;
+        fp = pc;
+    }
+
+    protected void dropFrames() {
+        do {
+            fp = frameMarks[--frameCount];
+        } while (pc < fp);
+    }
+
+    /**
+     * Pushes a loop marker and makes it the target of break and continue statements.
+     *
+     * @param c the loop marker to push.
+     */
+    protected void pushLoop(Continuation c) {
+        push(c);
+        if (loopCount == loopMarks.length) {
+            loopMarks = Arrays.copyOf(loopMarks, loopCount * 2);
+        }
+        loopMarks[loopCount++] = lp;
+        lp = pc;
+    }
+
+    protected void dropLoops() {
+        do {
+            lp = loopMarks[--loopCount];
+        } while (pc < lp);
+    }
+
+    /**
+     * Pops all continuations above the given stack index.
+     *
+     * @param index the index of the continuation to become the top of the stack.
+     */
+    protected void unwind(int index) {
+        while (pc > index) {
+            cont[pc--] = null;
+        }
+        if (pc < fp) {
+            dropFrames();
+        }
+        if (pc < lp) {
+            dropLoops();
+        }
+        if (pc < shrinkMark) {
+            shrinkStack();
+        }
+    }
+
+    protected void growStack() {
+        int size = cont.length;
+        if (size >= maxContStack) {
+            pc--;
+            throw new EllaRuntimeException("Continuation stack overflow");
+        }
+        int newSize = size <= maxContStack / 2 ? size * 2 : maxContStack;
+        Continuation[] newCont = new Continuation[newSize];
+        System.arraycopy(cont, 0, newCont, 0, size);
+        cont = newCont;
+        shrinkMark = newSize / 4;
+    }
+
+    protected void shrinkStack() {
+        int newSize = Math.max(cont.length / 2, CONT_STACK_CHUNK);
+        Continuation[] newCont = new Continuation[newSize];
+        System.arraycopy(cont, 0, newCont, 0, pc + 1);
+        cont = newCont;
+        shrinkMark = newSize > CONT_STACK_CHUNK ? newSize / 4 : -1;
+    }
+
+    protected void resetStack() {
+        if (cont.length > CONT_STACK_CHUNK) {
+            cont = new Continuation[CONT_STACK_CHUNK];
+            shrinkMark = -1;
+        }
+        else {
+            Arrays.fill(cont, null);
+        }
+        pc = 0;
+        fp = -1;
+        frameCount = 0;
+        lp = -1;
+        loopCount = 0;
+        if (frameMarks.length > MARK_STACK_CHUNK) {
+            frameMarks = new int[MARK_STACK_CHUNK];
+        }
+        if (loopMarks.length > MARK_STACK_CHUNK) {
+            loopMarks = new int[MARK_STACK_CHUNK];
+        }
+    }
+
     public void stop() {
         stop = true;
     }
@@ -219,11 +467,14 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
     public void processExpression(Block blockExpression) {
         if (blockExpression.isScoped()) {
             Env savedEnv = env;
-            env = new StaticEnv(env);
-            cont[++pc] = new BlockCont(blockExpression, savedEnv);
+            Scope scope = blockExpression.getScope();
+            if (!scope.isElided()) {
+                env = new StaticEnv(env, scope);
+            }
+            push(blockPool.acquire().init(blockExpression, savedEnv));
         }
         else {
-            cont[++pc] = new BlockCont(blockExpression);
+            push(blockPool.acquire().init(blockExpression, null));
         }
         next = CONT;
     }
@@ -296,12 +547,12 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
     }
 
     public void processExpression(ObjectLiteralExpression objectLiteralExpression) {
-        cont[++pc] = new ObjLitCont(objectLiteralExpression.getObjectLiteral());
+        push(new ObjLitCont(objectLiteralExpression.getObjectLiteral()));
         next = CONT;
     }
 
     public void processExpression(ArrayLiteralExpression arrayLiteralExpression) {
-        cont[++pc] = new ArrLitCont(arrayLiteralExpression.getComponents());
+        push(new ArrLitCont(arrayLiteralExpression.getComponents()));
         next = CONT;
     }
 
@@ -311,27 +562,27 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
     }
 
     public void processExpression(AssignExpression assignExpression) {
-        cont[++pc] = new AssignCont(assignExpression.getVariable());
+        push(new AssignCont(assignExpression.getVariable()));
         stmt = assignExpression.getRvalue();
         next = EVAL;
     }
 
     public void processExpression(DeclareAndAssignExpression declareAndAssignExpression) {
         stmt = declareAndAssignExpression.getDeclareExpr();
-        cont[++pc] = new AssignExprCont(declareAndAssignExpression.getAssignExpr());
+        push(new AssignExprCont(declareAndAssignExpression.getAssignExpr()));
         next = EVAL;
     }
 
     public void processExpression(SlotSetExpression slotSetExpression) {
         SlotExpression slotExpression = slotSetExpression.getSlotExpression();
         stmt = slotExpression.getReceiver();
-        cont[++pc] = new SlotSetReceiverCont(slotExpression.getSlot(), slotSetExpression.getValueExpression());
+        push(new SlotSetReceiverCont(slotExpression.getSlot(), slotSetExpression.getValueExpression()));
         next = EVAL;
     }
 
     public void processExpression(SlotExpression slotExpression) {
         stmt = slotExpression.getReceiver();
-        cont[++pc] = new SlotGetReceiverCont(slotExpression.getSlot());
+        push(slotGetReceiverPool.acquire().init(slotExpression));
         next = EVAL;
     }
 
@@ -343,7 +594,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
     public void processExpression(FunctionDefinitionExpression functionDefinitionExpression) {
         Function func = functionDefinitionExpression.getFunction();
         String funcName = func.getName();
-        val = new FuncImpl(func);
+        val = new FuncImpl(func, env);
         if (funcName != null) {
             if (functionDefinitionExpression.isDeclareVariable()) {
                 env.add(functionDefinitionExpression.getVariable(), val);
@@ -352,9 +603,6 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
                 env.set(functionDefinitionExpression.getVariable(), val);
             }
         }
-        // FIXME: Should env be assiociated with newly created Func-Object instead? What if the definition is called
-        // FIXME: multiple times while references to a previous definition are still floating around?
-        func.setEnv(env);
         next = CONT;
     }
 
@@ -362,38 +610,36 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
         BlockClosure clos = blockClosureExpression.getBlockClosure();
 
         // FIXME: is this nessassary? Env is already saved at last...
-        clos.setHomeOffset(env.getClosureHomeOffset());
-        clos.setHomeCont(env.getClosureHomeCont());
-
-        val = new ClosImpl(clos);
-        clos.setEnv(env);
+        Continuation homeCont = env.getClosureHomeCont();
+        if (homeCont instanceof FunRetCont) {
+            // the closure identifies its home by this continuation, so it must not be recycled
+            ((FunRetCont) homeCont).setCaptured();
+        }
+        val = new ClosImpl(clos, env, env.getClosureHomeOffset(), homeCont);
 
         next = CONT;
     }
 
     public void processExpression(FunctionCallExpression functionCallExpression) {
         stmt = functionCallExpression.getExpression();
-        cont[++pc] = new CallCont(functionCallExpression.getArguments(), functionCallExpression.getCallFlags());
+        push(callPool.acquire().init(null, null, functionCallExpression.getArguments(),
+                                     functionCallExpression.getCallFlags()));
         next = EVAL;
     }
 
     public void processExpression(SlotCallExpression slotCallExpression) {
         SlotExpression slotExpression = slotCallExpression.getSlotExpression();
         stmt = slotExpression.getReceiver();
-        cont[++pc] = new SlotCallReceiverCont(slotCallExpression);
+        push(slotCallReceiverPool.acquire().init(slotCallExpression));
         next = EVAL;
     }
 
     public void processExpression(ReturnStatement returnStatement) {
         // tail-call optimization
         if (returnStatement.isOptimizeForTailCall()) {
-            // XXX: use env.getClosureHomeOffset() ???
-            for (int i = pc; i >= 0; i--) {
-                Continuation c = cont[i];
-                if (c instanceof FunRetCont) {
-                    pc = i;
-                }
-            }
+            // the innermost frame is the one of the function containing the return statement since the optimization
+            // is never applied to return statements of closures
+            unwind(fp);
 
             // assumes optimziation is performed only on return statements having function calls as expression
             // which implies there must be an expression - therefore not calling hasExpression() in this case
@@ -401,7 +647,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
             next = EVAL;
         }
         else {
-            cont[++pc] = new ReturnCont();
+            push(new ReturnCont());
 
             if (returnStatement.hasExpression()) {
                 stmt = returnStatement.getExpression();
@@ -445,7 +691,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
 
     public void processExpression(NewExpression newExpression) {
         stmt = newExpression.getExpression();
-        cont[++pc] = new NewCont(newExpression.getArguments());
+        push(new NewCont(newExpression.getArguments()));
         next = EVAL;
     }
 
@@ -457,7 +703,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
     }
 
     public void processContinuation(EndCont endCont) {
-        pc--;
+        pop();
         next = CONT;
     }
 
@@ -466,15 +712,21 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
             // aleady processed last statement of block, leaving
             if (blockCont.isScoped()) {
                 env = blockCont.getSavedEnv();
+                Scope scope = blockCont.getBlock().getScope();
+                if (scope.getHoistedTo() > scope.getHoistedFrom()) {
+                    env.unbind(scope.getHoistedFrom(), scope.getHoistedTo());
+                }
             }
-            pc--;
+            pop();
+            blockPool.release(blockCont);
             next = CONT;
         }
         else {
             stmt = blockCont.nextStatement();
             // tail-call optimization
             if (!blockCont.hasNextStatement() && blockCont.isOptimizeForTailCall()) {
-                pc--;
+                pop();
+                blockPool.release(blockCont);
             }
             next = EVAL;
         }
@@ -484,11 +736,11 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
         if (objLitCont.hasNextSlot()) {
             ObjectLiteral.SlotEntry slot = objLitCont.getNextSlot();
             stmt = slot.key;
-            cont[++pc] = new ObjLitSlotCont(objLitCont.getObj(), slot.value);
+            push(new ObjLitSlotCont(objLitCont.getObj(), slot.value));
             next = EVAL;
         }
         else {
-            pc--;
+            pop();
             val = objLitCont.getObj();
             next = CONT;
         }
@@ -501,7 +753,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
     }
 
     public void processContinuation(ObjLitSlotValueCont objLitSlotValueCont) {
-        pc--;
+        pop();
         objLitSlotValueCont.getObj().setSlot(context, objLitSlotValueCont.getSlot(), val);
         next = CONT;
     }
@@ -515,7 +767,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
         Expression componentExpr = arrLitCont.getNextComponent();
         if (componentExpr == null) {
             val = new Lst(arrLitCont.getComponentValues());
-            pc--;
+            pop();
             next = CONT;
         }
         else {
@@ -526,13 +778,13 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
 
     public void processContinuation(AssignExprCont assignExprCont) {
         stmt = assignExprCont.getAssign();
-        pc--;
+        pop();
         next = EVAL;
     }
 
     public void processContinuation(AssignCont assignCont) {
         env.set(assignCont.getVariable(), val);
-        pc--;
+        pop();
         next = CONT;
     }
 
@@ -553,7 +805,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
     }
 
     public void processContinuation(SlotSetValueCont slotSetValueCont) {
-        pc--;
+        pop();
 
         Obj receiver = slotSetValueCont.getReceiver();
         Obj slot = slotSetValueCont.getSlot();
@@ -565,15 +817,27 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
 
     public void processContinuation(SlotGetReceiverCont slotGetReceiverCont) {
         Obj receiver = val;
-        stmt = slotGetReceiverCont.getSlotExpression();
+        SlotExpression slotExpression = slotGetReceiverCont.getSlotExpression();
+        slotGetReceiverPool.release(slotGetReceiverCont);
+
+        Expression slot = slotExpression.getSlot();
+        if (slot instanceof IdentifierExpression) {
+            // constant slot -> lookup immediately using the inline cache of the call site
+            pop();
+            val = lookupSlot(slotExpression.getInlineCache(), receiver, ((IdentifierExpression) slot).getValue());
+            next = CONT;
+            return;
+        }
 
-        cont[pc] = new SlotGetSlotCont(receiver);
+        stmt = slot;
+        cont[pc] = slotGetSlotPool.acquire().init(receiver);
         next = EVAL;
     }
 
     public void processContinuation(SlotGetSlotCont slotGetSlotCont) {
-        pc--;
+        pop();
         Obj receiver = slotGetSlotCont.getReceiver();
+        slotGetSlotPool.release(slotGetSlotCont);
         Obj slot = val;
         Obj obj = receiver;
         while (true) {
@@ -595,8 +859,29 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
 
     public void processContinuation(SlotCallReceiverCont slotCallReceiverCont) {
         Obj receiver = val;
-        stmt = slotCallReceiverCont.getSlotExpression();
-        cont[pc] = new SlotCallSlotCont(receiver, slotCallReceiverCont.getCallExpression());
+        SlotCallExpression callExpression = slotCallReceiverCont.getCallExpression();
+        SlotExpression slotExpression = callExpression.getSlotExpression();
+        Expression slot = slotExpression.getSlot();
+        if (slot instanceof IdentifierExpression) {
+            // constant slot -> lookup immediately using the inline cache of the call site
+            val = lookupSlot(slotExpression.getInlineCache(), receiver, ((IdentifierExpression) slot).getValue());
+            List<Expression> args = callExpression.getArguments();
+            if (val instanceof NumericOp && args.size() == 1) {
+                // numeric operator of an unpatched numeric prototype -> bypass the generic call protocol
+                slotCallReceiverPool.release(slotCallReceiverCont);
+                numericOpCall((NumericOp) val, receiver, args.get(0));
+                return;
+            }
+            cont[pc] = callPool.acquire().init(receiver, slotHolder, callExpression.getArguments(),
+                                               callExpression.getCallFlags());
+            slotCallReceiverPool.release(slotCallReceiverCont);
+            next = CONT;
+            return;
+        }
+
+        stmt = slot;
+        cont[pc] = slotCallSlotPool.acquire().init(receiver, slotCallReceiverCont.getCallExpression());
+        slotCallReceiverPool.release(slotCallReceiverCont);
 
         next = EVAL;
     }
@@ -624,10 +909,107 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
             val = getObjNull();
         }
 
-        cont[pc] = new CallCont(ctx, receiver, slotCallSlotCont.getArguments(), slotCallSlotCont.getCallFlags());
+        cont[pc] = callPool.acquire().init(ctx, receiver, slotCallSlotCont.getArguments(),
+                                           slotCallSlotCont.getCallFlags());
+        slotCallSlotPool.release(slotCallSlotCont);
         next = CONT;
     }
 
+    /**
+     * Invokes the given numeric operator on the given receiver. Arguments consisting of a variable or a literal are
+     * evaluated in place, others are evaluated by a continuation applying the operator afterwards.
+     * <p>
+     * Expects the continuation of the call expression to be on top of the stack.
+     *
+     * @param op the numeric operator.
+     * @param receiver the receiver of the operator call.
+     * @param arg the argument expression of the operator call.
+     */
+    protected void numericOpCall(NumericOp op, Obj receiver, Expression arg) {
+        Obj argVal;
+        if (arg instanceof VariableExpression) {
+            argVal = env.get(((VariableExpression) arg).getVariable());
+        }
+        else if (arg instanceof IntegerLiteralExpression) {
+            argVal = ((IntegerLiteralExpression) arg).getValue();
+        }
+        else {
+            cont[pc] = numericOpPool.acquire().init(op, receiver);
+            stmt = arg;
+            next = EVAL;
+            return;
+        }
+        pop();
+        applyNumericOp(op, receiver, argVal);
+        next = CONT;
+    }
+
+    public void processContinuation(NumericOpCont numericOpCont) {
+        pop();
+        NumericOp op = numericOpCont.getOp();
+        Obj receiver = numericOpCont.getReceiver();
+        numericOpPool.release(numericOpCont);
+        applyNumericOp(op, receiver, val);
+        next = CONT;
+    }
+
+    protected void applyNumericOp(NumericOp op, Obj receiver, Obj arg) {
+        Obj result = op.apply(this, receiver, arg);
+        if (result != null) {
+            val = result;
+            return;
+        }
+
+        // operands not eligible for the fast path -> invoke the operator like any other native
+        try {
+            val = op.call(this, receiver, new Obj[] { arg });
+        } catch (EllaRuntimeException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new EllaNativeRuntimeException(e);
+        }
+    }
+
+    /**
+     * Holds the object the slot has been found in by the last call to {@link #lookupSlot(InlineCache, Obj, Obj)}.
+     */
+    protected Obj slotHolder;
+
+    /**
+     * Looks up the given slot in the given receiver and its parents, consulting the given inline cache first.
+     * The object the slot has been found in is stored in {@link #slotHolder}.
+     *
+     * @param cache the inline cache of the call site.
+     * @param receiver the object to start the lookup at.
+     * @param slot the slot to lookup.
+     * @return the slot's value or the null object if the slot is not defined.
+     */
+    protected Obj lookupSlot(InlineCache cache, Obj receiver, Obj slot) {
+        InlineCache.Entry entry = cache.find(context, receiver);
+        Obj value;
+        if (entry != null) {
+            slotHolder = entry.getHolder(receiver);
+            value = entry.getValue(receiver);
+        }
+        else {
+            Obj holder = receiver;
+            while (true) {
+                value = holder.getSlot(context, slot);
+                if (value != null) {
+                    break;
+                }
+                Obj parent = ObjUtils.getParent(context, holder);
+                if (parent == null) {
+                    break;
+                }
+                holder = parent;
+            }
+            cache.update(context, receiver, slot, holder, value);
+            slotHolder = holder;
+        }
+        return value == null ? getObjNull() : value;
+    }
+
     public void processContinuation(CallCont callCont) {
         // TODO: merge if-branches as far as possible
         // TODO: replace if-else by switch by introducing class ids (if possible enum-based)
@@ -635,18 +1017,19 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
             cont[pc] = new PrimitiveCont((Primitive) val, callCont.getContext());
         }
         else if (val instanceof Native) {
-            cont[pc] = new NativeCont((Native) val, callCont.getContext());
+            cont[pc] = nativePool.acquire().init((Native) val, callCont.getContext());
         }
         else if (val instanceof Func) {
-            Function func = ((Func) val).getFunction();
+            Func funcObj = (Func) val;
+            Function func = funcObj.getFunction();
             List<Expression> args = callCont.getArguments();
             checkFunArgs(func, args);
             // FIXME: should environment be saved _after_ evaluating arguments???
             Env savedEnv = env;
-            Env funcEnv = new StaticEnv(func.getEnv());
+            Env funcEnv = new StaticEnv(funcObj.getEnv(), func.getScope());
             funcEnv.setContext(callCont.isSuperCall() ? env.getContext() : callCont.getContext());
             funcEnv.setReceiver(callCont.getReceiver());
-            cont[pc] = new CallArgCont(func, funcEnv, savedEnv, callCont.isTailCall());
+            cont[pc] = callArgPool.acquire().init(func, funcEnv, savedEnv, callCont.isTailCall());
         }
         else if (val instanceof Clos) {
             Clos closObj = (Clos) val;
@@ -654,17 +1037,15 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
             List<Expression> args = callCont.getArguments();
             checkFunArgs(clos, args);
             Env savedEnv = env;
-            Env lexEnv = clos.getEnv();
-            Env closEnv = new StaticEnv(lexEnv);
-            closEnv.setContext(lexEnv.getContext());
-            closEnv.setReceiver(lexEnv.getReceiver());
-            cont[pc] = new CallArgCont(clos, closEnv, savedEnv);
+            Env closEnv = StaticEnv.forClosure(closObj.getEnv(), clos.getScope());
+            cont[pc] = callArgPool.acquire().init(closObj, closEnv, savedEnv);
         }
         else {
             throw new EllaRuntimeException("Invalid call: Neither block nor function");
         }
 
         next = evalArgs(callCont.getArguments());
+        callPool.release(callCont);
     }
 
     protected boolean evalArgs(List<Expression> args) {
@@ -674,7 +1055,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
         }
 
         stmt = args.get(0);
-        cont[++pc] = new ArgsCont(args);
+        push(argsPool.acquire().init(args));
         return EVAL;
     }
 
@@ -685,8 +1066,9 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
             next = EVAL;
         }
         else {
-            pc--;
+            pop();
             val = argsCont.getArgsValues();
+            argsPool.release(argsCont);
             next = CONT;
         }
     }
@@ -709,21 +1091,23 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
         if (callable instanceof Function) {
             // tail-call optimization
             if (callArgCont.isTailCall()) {
-                pc--;
+                pop();
             }
             else {
-                cont[pc] = new FunRetCont(callArgCont.getSavedEnv());
+                cont[pc] = funRetPool.acquire().init(callArgCont.getSavedEnv());
+                markFrame();
             }
             env.setClosureHome(pc, cont[pc]);
         }
         else if (callable instanceof BlockClosure) {
-            BlockClosure clos = (BlockClosure) callable;
-            cont[pc] = new ClosRetCont(clos, callArgCont.getSavedEnv());
+            cont[pc] = closRetPool.acquire().init(callArgCont.getClosure(), callArgCont.getSavedEnv());
+            markFrame();
         }
         else {
             throw new EllaRuntimeException("Internal error: Unhandled callable");
         }
 
+        callArgPool.release(callArgCont);
         next = EVAL;
     }
 
@@ -731,12 +1115,14 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
         // NOTE: The next flag has to be set _before_ invoking the call to allow the invoked method to modify it
         //       without getting overridden.
         next = CONT;
-        pc--;
+        pop();
 
+        Native nat = nativeCont.getNative();
         Obj context = nativeCont.getContext();
+        nativePool.release(nativeCont);
         Obj[] args = ((Args) val).args;
         try {
-            Obj result = nativeCont.getNative().call(this, context, args);
+            Obj result = nat.call(this, context, args);
             // Native functions are allowed to return null to indicate preservation of the current value to be desired
             if (result != null) {
                 val = result;
@@ -752,7 +1138,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
     }
 
     public void processContinuation(TriggeredNativeCont triggeredNativeCont) {
-        pc--;
+        pop();
         Native nat = triggeredNativeCont.getNative();
         Obj context = triggeredNativeCont.getContext();
         Obj[] args = triggeredNativeCont.getArgs();
@@ -773,14 +1159,14 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
     }
 
     public void processContinuation(PrimitiveCont primitiveCont) {
-        pc--;
+        pop();
         Obj[] args = ((Args) val).args;
         processPrimitive(primitiveCont.getPrimitive(), primitiveCont.getContext(), args);
         next = CONT;
     }
 
     public void processContinuation(TriggeredPrimitiveCont triggeredPrimitiveCont) {
-        pc--;
+        pop();
         Primitive prim = triggeredPrimitiveCont.getPrimitive();
         Obj context = triggeredPrimitiveCont.getContext();
         Obj[] args = triggeredPrimitiveCont.getArgs();
@@ -801,19 +1187,19 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
                 break;
             }
             case PRIM_LOOP:
-                cont[++pc] = new LoopCont();
+                pushLoop(new LoopCont());
                 break;
             case PRIM_LOOP_BREAK:
-                cont[++pc] = new LoopBreakCont();
+                push(new LoopBreakCont());
                 break;
             case PRIM_LOOP_CONTINUE:
-                cont[++pc] = new LoopContinueCont();
+                push(new LoopContinueCont());
                 break;
             case PRIM_EXIT:
                 if (args.length > 0) {
                     val = args[0];
                 }
-                pc = 0;
+                unwind(0);
                 exited = true;
                 break;
             default:
@@ -823,53 +1209,51 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
 
     public void processContinuation(FunRetCont funRetCont) {
         env = funRetCont.getSavedEnv();
-        pc--;
+        pop();
+        if (!funRetCont.isCaptured()) {
+            funRetPool.release(funRetCont);
+        }
         next = CONT;
     }
 
     public void processContinuation(ClosRetCont closRetCont) {
         env = closRetCont.getSavedEnv();
-        pc--;
+        pop();
+        closRetPool.release(closRetCont);
         next = CONT;
     }
 
     public void processContinuation(ReturnCont returnCont) {
-        pc--;
-        for (int i = pc; i >= 0; i--) {
-            Continuation c = cont[i];
-            if (c instanceof ClosRetCont) {
-                BlockClosure closure = ((ClosRetCont) c).getClosure();
-                int homeOffset = closure.getHomeOffset();
-                Continuation homeCont = closure.getHomeCont();
-                if (homeOffset < 0 || homeOffset >= i || cont[homeOffset] != homeCont) {
-                    // NOTE: This exact message is checked for in some unit tests (due to the lack of a proper
-                    //       exception handling scheme)
-                    throw new EllaNonLocalReturnException("Non-local return");
-                }
-                pc = homeOffset;
-                if (returnCont.hasSavedValue()) {
-                    val = returnCont.getSavedValue();
-                }
-                next = CONT;
-                return;
-            }
-            else if (c instanceof FunRetCont) {
-                pc = i;
-                if (returnCont.hasSavedValue()) {
-                    val = returnCont.getSavedValue();
-                }
-                next = CONT;
-                return;
+        pop();
+        if (fp < 0) {
+            throw new EllaRuntimeException("Found return statement outside of function block");
+        }
+        Continuation frame = cont[fp];
+        if (frame instanceof ClosRetCont) {
+            Clos closure = ((ClosRetCont) frame).getClosure();
+            int homeOffset = closure.getHomeOffset();
+            Continuation homeCont = closure.getHomeCont();
+            if (homeOffset < 0 || homeOffset >= fp || cont[homeOffset] != homeCont) {
+                // NOTE: This exact message is checked for in some unit tests (due to the lack of a proper
+                //       exception handling scheme)
+                throw new EllaNonLocalReturnException("Non-local return");
             }
+            unwind(homeOffset);
         }
-        throw new EllaRuntimeException("Found return statement outside of function block");
+        else {
+            unwind(fp);
+        }
+        if (returnCont.hasSavedValue()) {
+            val = returnCont.getSavedValue();
+        }
+        next = CONT;
     }
 
     public void processContinuation(NewCont newCont) {
         if (val instanceof NativeObj) {
             NativeObj context = (NativeObj) val;
             Call nativeConstructor = context.getNativeConstructor();
-            cont[pc] = new CallCont(context, context, newCont.getArguments());
+            cont[pc] = callPool.acquire().init(context, context, newCont.getArguments(), (byte) 0);
             val = nativeConstructor;
         }
         else {
@@ -888,59 +1272,72 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
             }
 
             if (initSlot == null) {
-                pc--;
+                pop();
                 val = newObj;
             }
             else {
                 val = initSlot;
                 cont[pc] = new NewResultCont(newObj);
-                cont[++pc] = new CallCont(newObj, parent, newCont.getArguments());
+                push(callPool.acquire().init(newObj, parent, newCont.getArguments(), (byte) 0));
             }
         }
         next = CONT;
     }
 
     public void processContinuation(NewResultCont newResultCont) {
-        pc--;
+        pop();
         val = newResultCont.getNewObject();
         next = CONT;
     }
 
     public void processContinuation(LoopCont loopCont) {
         // LoopCont is used as marker only -> just remove it
-        pc--;
+        pop();
     }
 
     public void processContinuation(LoopBreakCont loopBreakCont) {
-        for (int i = pc - 1; i >= 0; i--) {
-            Continuation c = cont[i];
-            if (c instanceof ClosRetCont) {
-                ClosRetCont closRetCont = (ClosRetCont) c;
-                env = closRetCont.getSavedEnv();
-            }
-            else if (c instanceof LoopCont) {
-                pc = i - 1;
-                next = CONT;
-                throw new LoopBreakException();
-            }
+        if (lp < 0) {
+            throw new EllaRuntimeException("Found break statement outside of loop");
+        }
+        if (unwindLoop()) {
+            loopStatus = LoopStatus.BREAK;
+            return;
         }
-        throw new EllaRuntimeException("Found break statement outside of loop");
+        throw new LoopBreakException();
     }
 
     public void processContinuation(LoopContinueCont loopContinueCont) {
-        for (int i = pc - 1; i >= 0; i--) {
-            Continuation c = cont[i];
-            if (c instanceof ClosRetCont) {
-                ClosRetCont closRetCont = (ClosRetCont) c;
-                env = closRetCont.getSavedEnv();
-            }
-            else if (c instanceof LoopCont) {
-                pc = i;
-                next = CONT;
-                throw new LoopContinueException();
-            }
+        if (lp < 0) {
+            throw new EllaRuntimeException("Found continue statement outside of loop");
+        }
+        if (unwindLoop()) {
+            loopStatus = LoopStatus.CONTINUE;
+            return;
         }
-        throw new EllaRuntimeException("Found continue statement outside of loop");
+        throw new LoopContinueException();
+    }
+
+    /**
+     * Removes the innermost loop marker and all continuations above it, restoring the environment of the loop body
+     * if it is left from within frames invoked by it.
+     *
+     * @return true if the loop is driven via {@link #invokeLoopBody(Obj, Obj, Obj[])}.
+     */
+    protected boolean unwindLoop() {
+        boolean statusLoop = cont[lp] == LOOP_BODY_CONT;
+        int frame = fp;
+        int outerFrame = -1;
+        for (int i = frameCount - 1; frame > lp; i--) {
+            outerFrame = frame;
+            frame = frameMarks[i];
+        }
+        if (outerFrame >= 0) {
+            Continuation c = cont[outerFrame];
+            env = c instanceof ClosRetCont ? ((ClosRetCont) c).getSavedEnv() : ((FunRetCont) c).getSavedEnv();
+        }
+        unwind(lp - 1);
+        next = CONT;
+        return statusLoop;
     }
 
     protected void checkFunArgs(Callable callable, List args) {
@@ -990,12 +1387,12 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
     }
 
     public void trigger(Primitive prim, Obj context, Obj... args) {
-        cont[++pc] = new TriggeredPrimitiveCont(prim, context, args);
+        push(new TriggeredPrimitiveCont(prim, context, args));
         next = CONT;
     }
 
     public void trigger(Native nat, Obj context, Obj... args) {
-        cont[++pc] = new TriggeredNativeCont(nat, context, args);
+        push(new TriggeredNativeCont(nat, context, args));
         next = CONT;
     }
 
@@ -1004,9 +1401,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
         List<Obj> argsList = Arrays.asList(args);
         checkFunArgs(closure, argsList);
         Env savedEnv = env;
-        Env lexEnv = closure.getEnv();
-        env = new StaticEnv(lexEnv);
-        env.setContext(lexEnv.getContext());
+        env = StaticEnv.forClosure(clos.getEnv(), closure.getScope());
 
         List<Variable> argVars = clos.getClosure().getArguments();
         int nargs = args.length;
@@ -1016,7 +1411,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
         }
 
         stmt = closure.getBody();
-        cont[++pc] = new ClosRetCont(closure, savedEnv);
+        pushFrame(closRetPool.acquire().init(clos, savedEnv));
         next = EVAL;
     }
 
@@ -1025,7 +1420,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
         List<Obj> argsList = Arrays.asList(args);
         checkFunArgs(function, argsList);
         Env savedEnv = env;
-        env = new StaticEnv(function.getEnv());
+        env = new StaticEnv(func.getEnv(), function.getScope());
         env.setContext(context);
         env.setReceiver(receiver);
 
@@ -1037,7 +1432,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
         }
 
         stmt = function.getBody();
-        cont[++pc] = new FunRetCont(savedEnv);
+        pushFrame(funRetPool.acquire().init(savedEnv));
         next = EVAL;
     }
 
@@ -1154,14 +1549,44 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
 
     protected static final Continuation LOOP_CONT = new LoopCont();
 
+    /**
+     * Marks loops driven via {@link #invokeLoopBody(Obj, Obj, Obj[])}.
+     */
+    protected static final Continuation LOOP_BODY_CONT = new LoopCont();
+
     public Obj invokeInLoop(Obj obj, Obj context, Obj... args)
             throws ClosureTerminatedException, LoopBreakException, LoopContinueException {
-        cont[++pc] = LOOP_CONT;
+        pushLoop(LOOP_CONT);
         Obj result = invoke(obj, context, args);
-        pc--;
+        pop();
         return result;
     }
 
+    public LoopStatus invokeLoopBody(Obj obj, Obj context, Obj... args) throws ClosureTerminatedException {
+        int loopFrame = pc;
+
+        pushLoop(LOOP_BODY_CONT);
+        loopStatus = null;
+        trigger(obj, context, args);
+
+        while (step() && pc > loopFrame + 1) {
+        }
+
+        if (pc > loopFrame) {
+            // body completed normally, remove the loop marker
+            pop();
+            return LoopStatus.NEXT;
+        }
+
+        // the loop marker has been removed by a loop control statement or by leaving the loop otherwise
+        LoopStatus status = loopStatus;
+        if (status == null) {
+            throw new ClosureTerminatedException();
+        }
+        loopStatus = null;
+        return status;
+    }
+
     public Obj getVal() {
         return val;
     }
@@ -1176,7 +1601,7 @@ public class EllaCPSEngine implements EllaEngine, ExpressionVisitor, Continuatio
 
     public void setState(EngineState state) {
         env = state.env;
-        pc = state.pc;
+        unwind(state.pc);
     }
 
     public Env getEnv() {
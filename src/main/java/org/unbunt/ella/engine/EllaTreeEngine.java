@@ -0,0 +1,1001 @@
+/* EllaTreeEngine.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.engine;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unbunt.ella.compiler.statement.AbstractFunctionCallExpression;
+import org.unbunt.ella.compiler.statement.Block;
+import org.unbunt.ella.compiler.support.AbstractCallable;
+import org.unbunt.ella.compiler.support.BlockClosure;
+import org.unbunt.ella.compiler.support.Callable;
+import org.unbunt.ella.compiler.support.Function;
+import org.unbunt.ella.compiler.support.Variable;
+import org.unbunt.ella.engine.context.Context;
+import org.unbunt.ella.engine.context.SQLResultListener;
+import org.unbunt.ella.engine.bytecode.BytecodeLoader;
+import org.unbunt.ella.engine.continuations.*;
+import org.unbunt.ella.engine.corelang.*;
+import org.unbunt.ella.engine.environment.Env;
+import org.unbunt.ella.engine.environment.EnvVariableInterpolator;
+import org.unbunt.ella.engine.environment.EscapingVariableInterpolator;
+import org.unbunt.ella.engine.environment.StaticEnv;
+import org.unbunt.ella.engine.nodes.BytecodeCompiler;
+import org.unbunt.ella.engine.nodes.ExitException;
+import org.unbunt.ella.engine.nodes.LoopStatusException;
+import org.unbunt.ella.engine.nodes.Node;
+import org.unbunt.ella.engine.nodes.NodeCompiler;
+import org.unbunt.ella.engine.nodes.ReturnException;
+import org.unbunt.ella.exception.*;
+import org.unbunt.ella.lang.Args;
+import org.unbunt.ella.lang.NumericOp;
+import org.unbunt.ella.lang.PlainObj;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Represents an interpreter for EllaScript programs which compiles the statement tree into executable nodes.
+ * <p>
+ * Unlike {@link EllaCPSEngine} this engine evaluates nested expressions on the Java stack. Function and closure
+ * activations are still tracked on a stack of frames so that returns from block closures can be resolved to the
+ * frame of their home function. Calls marked as tail calls are executed in the frame of the calling function.
+ * <p>
+ * Since non-tail recursion consumes Java stack, the depth of recursion is limited by the stack of the thread
+ * running the program. Programs are run on the calling thread unless a stack size is configured, either by the
+ * system property <code>ella.treeStackSize</code> or by {@link #setStackSize(long)}, in which case they are run on
+ * a shared runner thread with that stack size. Exceeding the stack results in a "Stack overflow" error which leaves
+ * the engine in a usable state.
+ */
+public class EllaTreeEngine implements EllaEngine, Engine {
+    protected final static Log logger = LogFactory.getLog(EllaTreeEngine.class);
+
+    protected static final int PRIM_ID            = Primitive.CODE_ID;
+    protected static final int PRIM_NI            = Primitive.CODE_NI;
+    protected static final int PRIM_LOOP          = Primitive.CODE_LOOP;
+    protected static final int PRIM_LOOP_BREAK    = Primitive.CODE_LOOP_BREAK;
+    protected static final int PRIM_LOOP_CONTINUE = Primitive.CODE_LOOP_CONTINUE;
+    protected static final int PRIM_EXIT          = Primitive.CODE_EXIT;
+
+    protected static final byte CALL_FLAG_SUPER = AbstractFunctionCallExpression.CALL_FLAG_SUPER;
+    protected static final byte CALL_FLAG_TAIL  = AbstractFunctionCallExpression.CALL_FLAG_TAIL;
+
+    /**
+     * Shared empty argument list.
+     */
+    public static final Obj[] NO_ARGS = Args.emptyArgs.args;
+
+    /**
+     * Returned by a call marked as tail call in place of its result to make the calling function execute the
+     * pending call in its own frame.
+     */
+    protected static final Obj TAIL_CALL = new PlainObj();
+
+    /**
+     * Default stack size of the thread running programs, configured by the system property
+     * <code>ella.treeStackSize</code>. The default of 0 makes programs run on the calling thread.
+     */
+    public static final long DEFAULT_STACK_SIZE = Long.getLong("ella.treeStackSize", 0);
+
+    /**
+     * Number of seconds a runner thread is kept alive while idle.
+     */
+    protected static final long RUNNER_KEEP_ALIVE = 60;
+
+    /**
+     * Runner threads for programs requiring a stack size of their own, by stack size.
+     */
+    protected static final ConcurrentMap<Long, ExecutorService> runners =
+            new ConcurrentHashMap<Long, ExecutorService>();
+
+    protected static final AtomicInteger runnerCount = new AtomicInteger();
+
+    /**
+     * Default number of invocations after which the body of a function or closure is compiled to JVM bytecode. May
+     * be overridden by the system property <code>ella.jitThreshold</code>. A value of 0 disables compilation.
+     */
+    public static final int DEFAULT_JIT_THRESHOLD = Integer.getInteger("ella.jitThreshold", 1000);
+
+    /**
+     * Whether failures to compile a body to JVM bytecode are raised as errors instead of leaving the body to the
+     * interpreter, configured by the system property <code>ella.jitStrict</code>. Meant for testing the compiler.
+     */
+    public static final boolean DEFAULT_JIT_STRICT = Boolean.getBoolean("ella.jitStrict");
+
+    /**
+     * Initial capacity of the frame stack.
+     */
+    protected static final int FRAME_STACK_CHUNK = 256;
+
+    protected Context context;
+    protected volatile boolean stop = false;
+    protected boolean exited = false;
+
+    protected Obj val;
+    protected Env env;
+
+    protected final EnvVariableInterpolator envVariableInterpolator;
+    protected final EscapingVariableInterpolator escapingVariableInterpolator;
+
+    protected final NodeCompiler compiler = new NodeCompiler();
+
+    protected long stackSize = DEFAULT_STACK_SIZE;
+
+    protected int jitThreshold = DEFAULT_JIT_THRESHOLD;
+    protected boolean jitStrict = DEFAULT_JIT_STRICT;
+    protected int compiledBodyCount = 0;
+    protected BytecodeLoader bytecodeLoader = null;
+
+    // Frames of active function and closure invocations. The frame at index 0 represents the top-level program.
+    protected Continuation[] frames = new Continuation[FRAME_STACK_CHUNK];
+    protected int fp = 0;
+
+    // Number of loop bodies currently being executed
+    protected int loopDepth = 0;
+
+    // Whether the innermost loop is driven via invokeLoopBody()
+    protected boolean statusLoop = false;
+
+    // The call pending to be executed in the frame of the current function
+    protected Function tailFunction;
+    protected Env tailEnv;
+    protected Obj[] tailArgs;
+
+    protected final ContinuationPool<FunRetCont> funRetPool = new ContinuationPool<FunRetCont>() {
+        protected FunRetCont create() {
+            return new FunRetCont();
+        }
+    };
+    protected final ContinuationPool<ClosRetCont> closRetPool = new ContinuationPool<ClosRetCont>() {
+        protected ClosRetCont create() {
+            return new ClosRetCont();
+        }
+    };
+
+    protected EllaTreeEngine(Context context) {
+        this.context = context;
+        this.env = context.getEnv();
+        this.envVariableInterpolator = new EnvVariableInterpolator(env);
+        this.escapingVariableInterpolator = new EscapingVariableInterpolator(envVariableInterpolator);
+    }
+
+    /**
+     * Creates a new engine with the given execution context.
+     *
+     * @param context the execution context to use.
+     * @return the newly created engine.
+     */
+    public static EllaEngine create(Context context) {
+        return new EllaTreeEngine(context);
+    }
+
+    public Object eval(Block block) throws EllaException, EllaStoppedException {
+        stop = false;
+        exited = false;
+        val = null;
+
+        try {
+            execute(compiler.compile(block));
+        } catch (ExitException ignored) {
+        } catch (EllaInterruptedException e) {
+            throw new EllaStoppedException(e);
+        } catch (EllaRuntimeException e) {
+            throw new EllaException(e);
+        } finally {
+            unwindFrames(0);
+            loopDepth = 0;
+            statusLoop = false;
+            tailFunction = null;
+            tailEnv = null;
+            tailArgs = null;
+        }
+
+        return val == null ? null : val.toJavaObject();
+    }
+
+    /**
+     * Executes the given program, on a runner thread if a stack size has been configured.
+     *
+     * @param program the program to execute.
+     */
+    protected void execute(final Node program) {
+        if (stackSize <= 0) {
+            program.exec(this);
+            return;
+        }
+
+        Future<?> result = getRunner(stackSize).submit(new Runnable() {
+            public void run() {
+                program.exec(EllaTreeEngine.this);
+            }
+        });
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    result.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    stop();
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new EllaRuntimeException(cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the executor running programs on threads with the given stack size. Its threads are created on
+     * demand and reused by all engines configured with that stack size.
+     *
+     * @param stackSize the stack size of the runner threads in bytes.
+     * @return the executor.
+     */
+    protected static ExecutorService getRunner(final long stackSize) {
+        ExecutorService runner = runners.get(stackSize);
+        if (runner == null) {
+            ThreadFactory factory = new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(null, r, "ella-engine-" + runnerCount.incrementAndGet(), stackSize);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+                                                                 RUNNER_KEEP_ALIVE, TimeUnit.SECONDS,
+                                                                 new SynchronousQueue<Runnable>(), factory);
+            runner = runners.putIfAbsent(stackSize, executor);
+            if (runner == null) {
+                runner = executor;
+            }
+            else {
+                executor.shutdown();
+            }
+        }
+        return runner;
+    }
+
+    /**
+     * Returns the stack size of the thread programs are run on.
+     *
+     * @return the stack size in bytes or 0 if programs are run on the calling thread.
+     */
+    public long getStackSize() {
+        return stackSize;
+    }
+
+    /**
+     * Sets the stack size of the thread programs are run on. The maximum depth of non-tail recursion depends on it.
+     * Programs of engines with a stack size are run on a shared runner thread.
+     *
+     * @param stackSize the stack size in bytes or 0 to run programs on the calling thread.
+     */
+    public void setStackSize(long stackSize) {
+        this.stackSize = stackSize;
+    }
+
+    /**
+     * Returns the number of invocations after which function and closure bodies are compiled to JVM bytecode.
+     *
+     * @return the invocation threshold or 0 if compilation is disabled.
+     */
+    public int getJitThreshold() {
+        return jitThreshold;
+    }
+
+    /**
+     * Sets the number of invocations after which function and closure bodies are compiled to JVM bytecode.
+     *
+     * @param jitThreshold the invocation threshold or 0 to disable compilation.
+     */
+    public void setJitThreshold(int jitThreshold) {
+        this.jitThreshold = jitThreshold;
+    }
+
+    /**
+     * Returns whether failures to compile a body to JVM bytecode are raised as errors.
+     *
+     * @return <code>true</code> if compilation failures are raised.
+     */
+    public boolean isJitStrict() {
+        return jitStrict;
+    }
+
+    /**
+     * Sets whether failures to compile a body to JVM bytecode are raised as errors instead of leaving the body to
+     * the interpreter.
+     *
+     * @param jitStrict <code>true</code> to raise compilation failures.
+     */
+    public void setJitStrict(boolean jitStrict) {
+        this.jitStrict = jitStrict;
+    }
+
+    /**
+     * Returns the number of function and closure bodies this engine has compiled to JVM bytecode.
+     *
+     * @return the number of compiled bodies.
+     */
+    public int getCompiledBodyCount() {
+        return compiledBodyCount;
+    }
+
+    public void stop() {
+        stop = true;
+    }
+
+    protected void checkStop() {
+        if (stop) {
+            throw new EllaInterruptedException();
+        }
+    }
+
+    protected int pushFrame(Continuation frame) {
+        if (++fp == frames.length) {
+            Continuation[] newFrames = new Continuation[frames.length * 2];
+            System.arraycopy(frames, 0, newFrames, 0, fp);
+            frames = newFrames;
+        }
+        frames[fp] = frame;
+        return fp;
+    }
+
+    /**
+     * Pops all frames above the given frame index.
+     *
+     * @param index the index of the frame to become the top of the stack.
+     */
+    protected void unwindFrames(int index) {
+        while (fp > index) {
+            frames[fp--] = null;
+        }
+    }
+
+    /**
+     * Determines the frame a return statement executed in the current frame returns from.
+     *
+     * @return the index of the frame to return from.
+     */
+    public int getReturnTarget() {
+        Continuation frame = frames[fp];
+        if (frame instanceof ClosRetCont) {
+            Clos closure = ((ClosRetCont) frame).getClosure();
+            int homeOffset = closure.getHomeOffset();
+            Continuation homeCont = closure.getHomeCont();
+            if (homeOffset < 0 || homeOffset >= fp || frames[homeOffset] != homeCont) {
+                // NOTE: This exact message is checked for in some unit tests (due to the lack of a proper
+                //       exception handling scheme)
+                throw new EllaNonLocalReturnException("Non-local return");
+            }
+            return homeOffset;
+        }
+        else if (frame instanceof FunRetCont) {
+            return fp;
+        }
+        throw new EllaRuntimeException("Found return statement outside of function block");
+    }
+
+    /**
+     * Returns the executable form of the body of the given callable, compiling it into nodes on first use. Once the
+     * body has been invoked often enough the nodes are compiled to JVM bytecode.
+     *
+     * @param callable the callable to get the body of.
+     * @return the compiled body.
+     */
+    protected Node getBody(AbstractCallable callable) {
+        Node body = callable.getCompiledBody();
+        if (body == null) {
+            body = compiler.compileBody(callable);
+            callable.setCompiledBody(body);
+        }
+        else if (jitThreshold > 0 && callable.countInvocation() == jitThreshold) {
+            body = compileBytecode(body);
+            callable.setCompiledBody(body);
+        }
+        return body;
+    }
+
+    /**
+     * Compiles the given body to JVM bytecode.
+     *
+     * @param body the body to compile.
+     * @return the compiled body or the given body if it could not be compiled.
+     */
+    protected Node compileBytecode(Node body) {
+        if (bytecodeLoader == null) {
+            bytecodeLoader = new BytecodeLoader(EllaTreeEngine.class.getClassLoader());
+        }
+        BytecodeCompiler bytecodeCompiler = new BytecodeCompiler(bytecodeLoader);
+        bytecodeCompiler.setStrict(jitStrict);
+        Node compiled = bytecodeCompiler.compile(body);
+        if (compiled != body) {
+            compiledBodyCount++;
+        }
+        return compiled;
+    }
+
+    /**
+     * Invokes the given callee. This is the entry point for calls in compiled programs.
+     *
+     * @param callee the object to invoke.
+     * @param ctx the context (<code>this</code>) of the invocation.
+     * @param receiver the object the callee has been found in.
+     * @param args the argument values.
+     * @param callFlags the flags of the call site.
+     * @return the result of the invocation.
+     */
+    public Obj call(Obj callee, Obj ctx, Obj receiver, Obj[] args, byte callFlags) {
+        if (callee instanceof Primitive) {
+            return processPrimitive((Primitive) callee, ctx, args);
+        }
+        else if (callee instanceof Native) {
+            return callNative((Native) callee, ctx, args);
+        }
+        else if (callee instanceof Func) {
+            Func func = (Func) callee;
+            Function function = func.getFunction();
+            checkFunArgs(function, args);
+            Env funcEnv = new StaticEnv(func.getEnv(), function.getScope());
+            funcEnv.setContext((callFlags & CALL_FLAG_SUPER) != 0 ? env.getContext() : ctx);
+            funcEnv.setReceiver(receiver);
+            if ((callFlags & CALL_FLAG_TAIL) != 0 && frames[fp] instanceof FunRetCont) {
+                // tail-call optimization: let the current function execute the call in its frame
+                tailFunction = function;
+                tailEnv = funcEnv;
+                tailArgs = args;
+                return TAIL_CALL;
+            }
+            return callFunction(function, funcEnv, args);
+        }
+        else if (callee instanceof Clos) {
+            return callClosure((Clos) callee, args);
+        }
+        throw new EllaRuntimeException("Invalid call: Neither block nor function");
+    }
+
+    /**
+     * Invokes the given callee with a single argument. Numeric operators of unpatched numeric prototypes are applied
+     * directly if the operands allow, bypassing the generic call protocol.
+     *
+     * @param callee the object to invoke.
+     * @param ctx the context (<code>this</code>) of the invocation.
+     * @param receiver the object the callee has been found in.
+     * @param arg the argument value.
+     * @param callFlags the flags of the call site.
+     * @return the result of the invocation.
+     */
+    public Obj callBinary(Obj callee, Obj ctx, Obj receiver, Obj arg, byte callFlags) {
+        if (callee instanceof NumericOp) {
+            Obj result = ((NumericOp) callee).apply(this, ctx, arg);
+            if (result != null) {
+                val = result;
+                return result;
+            }
+        }
+        return call(callee, ctx, receiver, new Obj[] { arg }, callFlags);
+    }
+
+    protected Obj callNative(Native nat, Obj context, Obj[] args) {
+        Obj result;
+        try {
+            result = nat.call(this, context, args);
+        } catch (ControlFlowException e) {
+            throw e;
+        } catch (EllaRuntimeException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new EllaNativeRuntimeException(e);
+        }
+        // Native functions are allowed to return null to indicate preservation of the current value to be desired
+        if (result == null) {
+            return val;
+        }
+        val = result;
+        return result;
+    }
+
+    protected Obj callFunction(Function function, Env funcEnv, Obj[] args) {
+        checkStop();
+        Env savedEnv = env;
+        FunRetCont frameCont = funRetPool.acquire().init(savedEnv);
+        int frame = pushFrame(frameCont);
+        try {
+            while (true) {
+                bindArgs(function, funcEnv, args);
+                funcEnv.setClosureHome(frame, frameCont);
+                env = funcEnv;
+
+                Obj result;
+                try {
+                    result = getBody(function).exec(this);
+                } catch (ReturnException e) {
+                    if (e.getFrame() != frame) {
+                        throw e;
+                    }
+                    result = e.getValue();
+                }
+
+                if (result != TAIL_CALL) {
+                    val = result;
+                    return result;
+                }
+
+                function = tailFunction;
+                funcEnv = tailEnv;
+                args = tailArgs;
+                tailFunction = null;
+                tailEnv = null;
+                tailArgs = null;
+
+                // NOTE: The frame is kept for the pending call. Block closures created by the calling function
+                //       may still return from it, as the result of the pending call is the result of the caller.
+                unwindFrames(frame);
+                checkStop();
+            }
+        } catch (StackOverflowError e) {
+            throw new EllaRuntimeException("Stack overflow");
+        } finally {
+            env = savedEnv;
+            unwindFrames(frame - 1);
+            if (!frameCont.isCaptured()) {
+                funRetPool.release(frameCont);
+            }
+        }
+    }
+
+    protected Obj callClosure(Clos clos, Obj[] args) {
+        checkStop();
+        BlockClosure closure = clos.getClosure();
+        checkFunArgs(closure, args);
+        Env savedEnv = env;
+        Env closEnv = StaticEnv.forClosure(clos.getEnv(), closure.getScope());
+        bindArgs(closure, closEnv, args);
+
+        ClosRetCont frameCont = closRetPool.acquire().init(clos, savedEnv);
+        int frame = pushFrame(frameCont);
+        try {
+            env = closEnv;
+            Obj result = getBody(closure).exec(this);
+            val = result;
+            return result;
+        } catch (StackOverflowError e) {
+            throw new EllaRuntimeException("Stack overflow");
+        } finally {
+            env = savedEnv;
+            unwindFrames(frame - 1);
+            closRetPool.release(frameCont);
+        }
+    }
+
+    protected void bindArgs(Callable callable, Env callEnv, Obj[] args) {
+        // NOTE: matching length of both containers is ensured by previous call to checkFunArgs()
+        List<Variable> argVars = callable.getArguments();
+        int nargs = args.length;
+        for (int i = 0; i < nargs; i++) {
+            callEnv.add(argVars.get(i), args[i]);
+        }
+    }
+
+    protected Obj processPrimitive(Primitive primitive, Obj context, Obj... args) {
+        switch (primitive.getCode()) {
+            case PRIM_ID: {
+                Obj o2 = args[0];
+                val = context == o2 ? getObjTrue() : getObjFalse();
+                break;
+            }
+            case PRIM_NI: {
+                Obj o2 = args[0];
+                val = context != o2 ? getObjTrue() : getObjFalse();
+                break;
+            }
+            case PRIM_LOOP:
+                break;
+            case PRIM_LOOP_BREAK:
+                if (loopDepth == 0) {
+                    throw new EllaRuntimeException("Found break statement outside of loop");
+                }
+                if (statusLoop) {
+                    throw LoopStatusException.BREAK;
+                }
+                throw new LoopBreakException();
+            case PRIM_LOOP_CONTINUE:
+                if (loopDepth == 0) {
+                    throw new EllaRuntimeException("Found continue statement outside of loop");
+                }
+                if (statusLoop) {
+                    throw LoopStatusException.CONTINUE;
+                }
+                throw new LoopContinueException();
+            case PRIM_EXIT:
+                if (args.length > 0) {
+                    val = args[0];
+                }
+                exited = true;
+                throw new ExitException();
+            default:
+                throw new EllaRuntimeException("Unhandled primitive: " + primitive);
+        }
+        return val;
+    }
+
+    protected void checkFunArgs(Callable callable, Obj[] args) {
+        if (callable.getArgCount() != args.length) {
+            throw new EllaRuntimeException("Arguments do not match function");
+        }
+    }
+
+    /**
+     * Holds the object the slot has been found in by the last slot lookup.
+     */
+    protected Obj slotHolder;
+
+    /**
+     * Returns the object the slot has been found in by the last slot lookup.
+     *
+     * @return the holder of the last looked up slot.
+     */
+    public Obj getSlotHolder() {
+        return slotHolder;
+    }
+
+    /**
+     * Looks up the given slot in the given receiver and its parents, consulting the given inline cache first.
+     * The object the slot has been found in is stored as slot holder.
+     *
+     * @param cache the inline cache of the call site.
+     * @param receiver the object to start the lookup at.
+     * @param slot the slot to lookup.
+     * @return the slot's value or the null object if the slot is not defined.
+     */
+    public Obj lookupSlot(InlineCache cache, Obj receiver, Obj slot) {
+        InlineCache.Entry entry = cache.find(context, receiver);
+        Obj value;
+        if (entry != null) {
+            slotHolder = entry.getHolder(receiver);
+            value = entry.getValue(receiver);
+        }
+        else {
+            Obj holder = receiver;
+            while (true) {
+                value = holder.getSlot(context, slot);
+                if (value != null) {
+                    break;
+                }
+                Obj parent = ObjUtils.getParent(context, holder);
+                if (parent == null) {
+                    break;
+                }
+                holder = parent;
+            }
+            cache.update(context, receiver, slot, holder, value);
+            slotHolder = holder;
+        }
+        return value == null ? getObjNull() : value;
+    }
+
+    /**
+     * Looks up the given slot in the given receiver and its parents. The object the slot has been found in is
+     * stored as slot holder.
+     *
+     * @param receiver the object to start the lookup at.
+     * @param slot the slot to lookup.
+     * @return the slot's value or the null object if the slot is not defined.
+     */
+    public Obj lookupSlot(Obj receiver, Obj slot) {
+        Obj holder = receiver;
+        Obj value;
+        while (true) {
+            value = holder.getSlot(context, slot);
+            if (value != null) {
+                break;
+            }
+            Obj parent = ObjUtils.getParent(context, holder);
+            if (parent == null) {
+                break;
+            }
+            holder = parent;
+        }
+        slotHolder = holder;
+        return value == null ? getObjNull() : value;
+    }
+
+    public EnvVariableInterpolator getEnvVariableInterpolator() {
+        return envVariableInterpolator;
+    }
+
+    public EscapingVariableInterpolator getEscapingVariableInterpolator() {
+        return escapingVariableInterpolator;
+    }
+
+    public boolean toBoolean(Obj value) {
+        return value != null
+               && context.getObjTrue().equals(value)
+               || (!(value instanceof Bool) && !(value instanceof Null));
+    }
+
+    public void finish() {
+        logger.debug("Finishing");
+
+        Set<Connection> connections = getObjConnMgr().getConnections();
+        for (Connection connection : connections) {
+            try {
+                if (connection.isClosed()) {
+                    continue;
+                }
+                connection.close();
+            } catch (SQLException e) {
+                logger.warn("Closing connection failed:", e);
+            }
+        }
+    }
+
+    public boolean isExited() {
+        return exited;
+    }
+
+    // native interface
+
+    // Triggered calls are executed right away, their result becomes the current value.
+
+    public void trigger(Obj obj, Obj context, Obj... args) {
+        Call call;
+        try {
+            call = (Call) obj;
+        } catch (ClassCastException e) {
+            throw new EllaRuntimeException(e);
+        }
+
+        Obj result = call.call(this, context, args);
+        if (result != null) {
+            val = result;
+        }
+    }
+
+    public void trigger(Primitive prim, Obj context, Obj... args) {
+        processPrimitive(prim, context, args);
+    }
+
+    public void trigger(Native nat, Obj context, Obj... args) {
+        callNative(nat, context, args);
+    }
+
+    public void trigger(Clos clos, Obj... args) {
+        callClosure(clos, args);
+    }
+
+    public void trigger(Func func, Obj context, Obj receiver, Obj... args) {
+        invoke(func, context, receiver, args);
+    }
+
+    public Obj invokeOnReceiver(Obj call, Obj context, Obj receiver, Obj... args) {
+        Call c = ObjUtils.ensureType(Call.class, call);
+        return c.call(this, context, receiver, args);
+    }
+
+    public Obj invoke(Obj call, Obj context, Obj... args) throws ClosureTerminatedException {
+        Call c = ObjUtils.ensureType(Call.class, call);
+        return c.call(this, context, args);
+    }
+
+    public Obj invoke(Primitive prim, Obj context, Obj... args) {
+        return processPrimitive(prim, context, args);
+    }
+
+    public Obj invoke(Native nat, Obj context, Obj... args) {
+        Obj result = nat.call(this, context, args);
+        if (result == null) {
+            return val; // XXX: better return getObjNull()?
+        }
+        return result;
+    }
+
+    public Obj invoke(Clos clos, Obj... args) throws ClosureTerminatedException {
+        return callClosure(clos, args);
+    }
+
+    public Obj invoke(Func func, Obj context, Obj receiver, Obj... args) throws ClosureTerminatedException {
+        Function function = func.getFunction();
+        checkFunArgs(function, args);
+        Env funcEnv = new StaticEnv(func.getEnv(), function.getScope());
+        funcEnv.setContext(context);
+        funcEnv.setReceiver(receiver);
+        return callFunction(function, funcEnv, args);
+    }
+
+    public Obj invokeSlot(Obj obj, Obj slot, Obj... args) throws ClosureTerminatedException {
+        Obj slotValue = lookupSlot(obj, slot);
+        return invokeOnReceiver(slotValue, obj, slotHolder, args);
+    }
+
+    /**
+     * Tries to invoke the value associated with the given slot on the given object.
+     *
+     * @param obj receiver if the slot invocation
+     * @param slot slot whose value is to be invoked
+     * @param args arguments passed to the invoked method
+     * @return the result of the invocation or null if the given slot was not set
+     */
+    public Obj invokeSlotIfPresent(Obj obj, Obj slot, Obj... args) {
+        Obj receiver = obj;
+        Obj slotValue;
+        while ((slotValue = receiver.getSlot(context, slot)) == null) {
+            receiver = ObjUtils.getParent(context, receiver);
+            if (receiver == null) {
+                break;
+            }
+        }
+
+        if (slotValue == null) {
+            return null;
+        }
+
+        return invokeOnReceiver(slotValue, obj, receiver, args);
+    }
+
+    public Obj invokeBlock(Block block) throws ClosureTerminatedException {
+        val = compiler.compile(block).exec(this);
+        return val;
+    }
+
+    public Obj invokeInLoop(Obj obj, Obj context, Obj... args)
+            throws ClosureTerminatedException, LoopBreakException, LoopContinueException {
+        checkStop();
+        boolean savedStatusLoop = statusLoop;
+        statusLoop = false;
+        loopDepth++;
+        try {
+            return invoke(obj, context, args);
+        } finally {
+            loopDepth--;
+            statusLoop = savedStatusLoop;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Loop control statements have to unwind the Java stack of the nodes evaluating the body, so they are still
+     * signaled by an exception internally. As the exception instances are shared and carry no stack trace this
+     * costs no more than a regular return.
+     */
+    public LoopStatus invokeLoopBody(Obj obj, Obj context, Obj... args) throws ClosureTerminatedException {
+        checkStop();
+        boolean savedStatusLoop = statusLoop;
+        statusLoop = true;
+        loopDepth++;
+        try {
+            val = invoke(obj, context, args);
+            return LoopStatus.NEXT;
+        } catch (LoopStatusException e) {
+            return e.getStatus();
+        } finally {
+            loopDepth--;
+            statusLoop = savedStatusLoop;
+        }
+    }
+
+    public Obj getVal() {
+        return val;
+    }
+
+    public void setVal(Obj val) {
+        this.val = val;
+    }
+
+    public EngineState getState() {
+        return new EngineState(env, fp);
+    }
+
+    public void setState(EngineState state) {
+        env = state.env;
+        unwindFrames(state.pc);
+    }
+
+    public Env getEnv() {
+        return env;
+    }
+
+    public void setEnv(Env env) {
+        this.env = env;
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public void notifyResultSet(ResultSet resultSet) {
+        context.notifyResultSet(resultSet);
+    }
+
+    public void notifyUpdateCount(int updateCount) {
+        context.notifyUpdateCount(updateCount);
+    }
+
+    public void addSQLResultListener(SQLResultListener listener) {
+        context.addSQLResultListener(listener);
+    }
+
+    public void removeSQLResultListener(SQLResultListener listener) {
+        context.removeSQLResultListener(listener);
+    }
+
+    public Sys getObjSys() {
+        return context.getObjSys();
+    }
+
+    public ConnMgr getObjConnMgr() {
+        return context.getObjConnMgr();
+    }
+
+    public Null getObjNull() {
+        return context.getObjNull();
+    }
+
+    public Bool getObjTrue() {
+        return context.getObjTrue();
+    }
+
+    public Bool getObjFalse() {
+        return context.getObjFalse();
+    }
+}
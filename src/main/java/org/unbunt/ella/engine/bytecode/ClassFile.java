@@ -0,0 +1,240 @@
+/* ClassFile.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.engine.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a JVM class file.
+ * <p>
+ * Only the subset of the class file format needed for generated code is supported. Classes are written in the
+ * version 49 format which is verified by type inference and therefore requires no stack map frames.
+ */
+public class ClassFile {
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_PRIVATE = 0x0002;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_SUPER = 0x0020;
+
+    protected static final int VERSION_MAJOR = 49;
+
+    protected static final int CONSTANT_UTF8 = 1;
+    protected static final int CONSTANT_INTEGER = 3;
+    protected static final int CONSTANT_CLASS = 7;
+    protected static final int CONSTANT_FIELDREF = 9;
+    protected static final int CONSTANT_METHODREF = 10;
+    protected static final int CONSTANT_INTERFACE_METHODREF = 11;
+    protected static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    protected final String name;
+    protected final String superName;
+
+    protected final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    protected final DataOutputStream pool = new DataOutputStream(poolBytes);
+    protected final Map<String, Integer> poolIndex = new HashMap<String, Integer>();
+    protected int poolCount = 1;
+
+    protected final List<byte[]> fields = new ArrayList<byte[]>();
+    protected final List<Code> methods = new ArrayList<Code>();
+
+    /**
+     * Creates a new class file.
+     *
+     * @param name the internal name of the class.
+     * @param superName the internal name of the super class.
+     */
+    public ClassFile(String name, String superName) {
+        this.name = name;
+        this.superName = superName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int utf8(String value) {
+        String key = "U" + value;
+        Integer index = poolIndex.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            pool.writeByte(CONSTANT_UTF8);
+            pool.writeUTF(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return register(key, 1);
+    }
+
+    public int integer(int value) {
+        String key = "I" + value;
+        Integer index = poolIndex.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            pool.writeByte(CONSTANT_INTEGER);
+            pool.writeInt(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return register(key, 1);
+    }
+
+    public int classRef(String internalName) {
+        return ref(CONSTANT_CLASS, "C" + internalName, utf8(internalName), -1);
+    }
+
+    public int nameAndType(String name, String descriptor) {
+        return ref(CONSTANT_NAME_AND_TYPE, "N" + name + ":" + descriptor, utf8(name), utf8(descriptor));
+    }
+
+    public int fieldRef(String owner, String name, String descriptor) {
+        return ref(CONSTANT_FIELDREF, "F" + owner + "." + name + ":" + descriptor,
+                   classRef(owner), nameAndType(name, descriptor));
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        return ref(CONSTANT_METHODREF, "M" + owner + "." + name + ":" + descriptor,
+                   classRef(owner), nameAndType(name, descriptor));
+    }
+
+    public int interfaceMethodRef(String owner, String name, String descriptor) {
+        return ref(CONSTANT_INTERFACE_METHODREF, "A" + owner + "." + name + ":" + descriptor,
+                   classRef(owner), nameAndType(name, descriptor));
+    }
+
+    protected int ref(int tag, String key, int index1, int index2) {
+        Integer index = poolIndex.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            pool.writeByte(tag);
+            pool.writeShort(index1);
+            if (index2 >= 0) {
+                pool.writeShort(index2);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return register(key, 1);
+    }
+
+    protected int register(String key, int size) {
+        int index = poolCount;
+        poolCount += size;
+        if (poolCount > 0xFFFF) {
+            throw new IllegalStateException("Constant pool overflow");
+        }
+        poolIndex.put(key, index);
+        return index;
+    }
+
+    public void addField(int access, String name, String descriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        fields.add(bytes.toByteArray());
+    }
+
+    /**
+     * Adds a method to this class.
+     *
+     * @param access the access flags of the method.
+     * @param name the name of the method.
+     * @param descriptor the descriptor of the method.
+     * @param argSlots the number of local variable slots occupied by the arguments, including <code>this</code>.
+     * @return the code of the method to be filled in by the caller.
+     */
+    public Code addMethod(int access, String name, String descriptor, int argSlots) {
+        Code code = new Code(this, access, name, descriptor, argSlots);
+        methods.add(code);
+        return code;
+    }
+
+    public byte[] toByteArray() {
+        // resolve all method related constants before the pool is written
+        List<byte[]> methodBytes = new ArrayList<byte[]>(methods.size());
+        for (Code code : methods) {
+            methodBytes.add(code.toByteArray());
+        }
+        int thisIndex = classRef(name);
+        int superIndex = classRef(superName);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION_MAJOR);
+            out.writeShort(poolCount);
+            poolBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisIndex);
+            out.writeShort(superIndex);
+            out.writeShort(0);
+            out.writeShort(fields.size());
+            for (byte[] field : fields) {
+                out.write(field);
+            }
+            out.writeShort(methodBytes.size());
+            for (byte[] method : methodBytes) {
+                out.write(method);
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
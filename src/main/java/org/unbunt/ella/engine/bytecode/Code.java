@@ -0,0 +1,323 @@
+/* Code.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.engine.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the code of a method.
+ * <p>
+ * The operand stack depth is tracked while instructions are emitted to determine the maximum stack size of the
+ * method. After unconditional jumps the depth has to be set explicitly via {@link #setStack(int)}.
+ */
+public class Code {
+    public static final int ACONST_NULL = 0x01;
+    public static final int ALOAD = 0x19;
+    public static final int ASTORE = 0x3a;
+    public static final int AALOAD = 0x32;
+    public static final int AASTORE = 0x53;
+    public static final int POP = 0x57;
+    public static final int DUP = 0x59;
+    public static final int SWAP = 0x5f;
+    public static final int GOTO = 0xa7;
+    public static final int RETURN = 0xb1;
+    public static final int ARETURN = 0xb0;
+    public static final int GETSTATIC = 0xb2;
+    public static final int GETFIELD = 0xb4;
+    public static final int PUTFIELD = 0xb5;
+    public static final int INVOKEVIRTUAL = 0xb6;
+    public static final int INVOKESPECIAL = 0xb7;
+    public static final int INVOKESTATIC = 0xb8;
+    public static final int INVOKEINTERFACE = 0xb9;
+    public static final int NEW = 0xbb;
+    public static final int ANEWARRAY = 0xbd;
+    public static final int ATHROW = 0xbf;
+    public static final int CHECKCAST = 0xc0;
+
+    protected static final int MAX_CODE_LENGTH = 0xFFFF;
+
+    protected final ClassFile classFile;
+    protected final int access;
+    protected final String name;
+    protected final String descriptor;
+
+    protected byte[] code = new byte[256];
+    protected int length = 0;
+    protected int stack = 0;
+    protected int maxStack = 0;
+    protected int maxLocals;
+    protected final List<int[]> exceptionTable = new ArrayList<int[]>();
+
+    protected Code(ClassFile classFile, int access, String name, String descriptor, int argSlots) {
+        this.classFile = classFile;
+        this.access = access;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.maxLocals = argSlots;
+    }
+
+    /**
+     * Allocates a new local variable slot.
+     *
+     * @return the index of the allocated slot.
+     */
+    public int newLocal() {
+        return maxLocals++;
+    }
+
+    public int getStack() {
+        return stack;
+    }
+
+    public void setStack(int stack) {
+        this.stack = stack;
+        if (stack > maxStack) {
+            maxStack = stack;
+        }
+    }
+
+    protected void adjustStack(int delta) {
+        setStack(stack + delta);
+    }
+
+    protected void put1(int b) {
+        if (length == code.length) {
+            if (length >= MAX_CODE_LENGTH) {
+                throw new IllegalStateException("Method too large: " + name);
+            }
+            byte[] newCode = new byte[code.length * 2];
+            System.arraycopy(code, 0, newCode, 0, length);
+            code = newCode;
+        }
+        code[length++] = (byte) b;
+    }
+
+    protected void put2(int s) {
+        put1(s >> 8);
+        put1(s);
+    }
+
+    public void op(int opcode, int stackDelta) {
+        put1(opcode);
+        adjustStack(stackDelta);
+    }
+
+    public void aconstNull() {
+        op(ACONST_NULL, 1);
+    }
+
+    public void aload(int local) {
+        if (local <= 3) {
+            op(0x2a + local, 1);
+        }
+        else {
+            localOp(ALOAD, local, 1);
+        }
+    }
+
+    public void astore(int local) {
+        if (local <= 3) {
+            op(0x4b + local, -1);
+        }
+        else {
+            localOp(ASTORE, local, -1);
+        }
+    }
+
+    protected void localOp(int opcode, int local, int stackDelta) {
+        if (local > 0xFF) {
+            put1(0xc4); // wide
+            op(opcode, stackDelta);
+            put2(local);
+        }
+        else {
+            op(opcode, stackDelta);
+            put1(local);
+        }
+    }
+
+    public void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            op(0x03 + value, 1);
+        }
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            op(0x10, 1); // bipush
+            put1(value);
+        }
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            op(0x11, 1); // sipush
+            put2(value);
+        }
+        else {
+            op(0x13, 1); // ldc_w
+            put2(classFile.integer(value));
+        }
+    }
+
+    public void typeOp(int opcode, String internalName) {
+        op(opcode, opcode == NEW ? 1 : 0);
+        put2(classFile.classRef(internalName));
+    }
+
+    public void fieldOp(int opcode, String owner, String name, String descriptor) {
+        int size = typeSize(descriptor, 0);
+        int delta;
+        switch (opcode) {
+            case GETSTATIC:
+                delta = size;
+                break;
+            case GETFIELD:
+                delta = size - 1;
+                break;
+            case PUTFIELD:
+                delta = -size - 1;
+                break;
+            default:
+                throw new IllegalArgumentException("Not a field instruction: " + opcode);
+        }
+        op(opcode, delta);
+        put2(classFile.fieldRef(owner, name, descriptor));
+    }
+
+    public void invoke(int opcode, String owner, String name, String descriptor) {
+        int argSize = argumentSize(descriptor);
+        int returnSize = typeSize(descriptor, descriptor.indexOf(')') + 1);
+        int delta = returnSize - argSize - (opcode == INVOKESTATIC ? 0 : 1);
+        if (opcode == INVOKEINTERFACE) {
+            op(opcode, delta);
+            put2(classFile.interfaceMethodRef(owner, name, descriptor));
+            put1(argSize + 1);
+            put1(0);
+        }
+        else {
+            op(opcode, delta);
+            put2(classFile.methodRef(owner, name, descriptor));
+        }
+    }
+
+    public void jump(int opcode, Label target) {
+        int position = length;
+        op(opcode, 0);
+        if (target.isPlaced()) {
+            put2(target.position - position);
+        }
+        else {
+            target.fixups.add(new int[] { position, length });
+            put2(0);
+        }
+    }
+
+    public void place(Label label) {
+        label.position = length;
+        for (int[] fixup : label.fixups) {
+            int offset = length - fixup[0];
+            code[fixup[1]] = (byte) (offset >> 8);
+            code[fixup[1] + 1] = (byte) offset;
+        }
+        label.fixups.clear();
+    }
+
+    /**
+     * Registers an exception handler.
+     *
+     * @param start the start of the guarded range (inclusive).
+     * @param end the end of the guarded range (exclusive).
+     * @param handler the start of the handler.
+     * @param type the internal name of the exception class to catch or <code>null</code> to catch any.
+     */
+    public void tryCatch(Label start, Label end, Label handler, String type) {
+        exceptionTable.add(new int[] { start.position, end.position, handler.position,
+                                       type == null ? 0 : classFile.classRef(type) });
+    }
+
+    protected static int argumentSize(String descriptor) {
+        int size = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            size += typeSize(descriptor, i);
+            i = skipType(descriptor, i);
+        }
+        return size;
+    }
+
+    protected static int typeSize(String descriptor, int index) {
+        char c = descriptor.charAt(index);
+        return c == 'V' ? 0 : c == 'J' || c == 'D' ? 2 : 1;
+    }
+
+    protected static int skipType(String descriptor, int index) {
+        while (descriptor.charAt(index) == '[') {
+            index++;
+        }
+        if (descriptor.charAt(index) == 'L') {
+            return descriptor.indexOf(';', index) + 1;
+        }
+        return index + 1;
+    }
+
+    protected byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(classFile.utf8(name));
+            out.writeShort(classFile.utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(classFile.utf8("Code"));
+            out.writeInt(12 + length + exceptionTable.size() * 8);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(length);
+            out.write(code, 0, length);
+            out.writeShort(exceptionTable.size());
+            for (int[] entry : exceptionTable) {
+                for (int value : entry) {
+                    out.writeShort(value);
+                }
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
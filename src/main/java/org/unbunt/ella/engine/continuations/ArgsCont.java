@@ -43,17 +43,26 @@ import org.unbunt.ella.lang.Args;
 
 import java.util.List;
 
-public class ArgsCont implements Continuation {
+public class ArgsCont implements ReusableContinuation {
     protected List<Expression> args;
     protected Obj[] argsValues;
     protected int argsSize;
     protected int currArg;
 
+    public ArgsCont() {
+    }
+
     public ArgsCont(List<Expression> args) {
+        init(args);
+    }
+
+    public ArgsCont init(List<Expression> args) {
         this.args = args;
-        this.argsValues = new Obj[args.size()];
+        // NOTE: The values array is handed over to the callee, so it cannot be reused.
         this.argsSize = args.size();
+        this.argsValues = new Obj[argsSize];
         this.currArg = 0;
+        return this;
     }
 
     public boolean hasNext() {
@@ -72,6 +81,11 @@ public class ArgsCont implements Continuation {
         return new Args(argsValues);
     }
 
+    public void reset() {
+        args = null;
+        argsValues = null;
+    }
+
     public void accept(ContinuationVisitor visitor) {
         visitor.processContinuation(this);
     }
@@ -43,7 +43,7 @@ import org.unbunt.ella.compiler.stmtbase.Statement;
 
 import java.util.List;
 
-public class BlockCont implements Continuation {
+public class BlockCont implements ReusableContinuation {
     protected Block block;
     protected Env savedEnv;
 
@@ -51,20 +51,24 @@ public class BlockCont implements Continuation {
     protected int stmtCount;
     protected int currStmt;
 
+    public BlockCont() {
+    }
+
     public BlockCont(Block block) {
-        this.block = block;
-        this.savedEnv = null;
-        this.statements = block.getStatements();
-        this.stmtCount = this.statements.size();
-        this.currStmt = 0;
+        init(block, null);
     }
 
     public BlockCont(Block block, Env savedEnv) {
+        init(block, savedEnv);
+    }
+
+    public BlockCont init(Block block, Env savedEnv) {
         this.block = block;
         this.savedEnv = savedEnv;
         this.statements = block.getStatements();
         this.stmtCount = this.statements.size();
         this.currStmt = 0;
+        return this;
     }
 
     public boolean hasNextStatement() {
@@ -91,6 +95,12 @@ public class BlockCont implements Continuation {
         return block.isOptimizeForTailCall();
     }
 
+    public void reset() {
+        block = null;
+        savedEnv = null;
+        statements = null;
+    }
+
     public void accept(ContinuationVisitor visitor) {
         visitor.processContinuation(this);
     }
@@ -40,34 +40,63 @@ package org.unbunt.ella.engine.continuations;
 import org.unbunt.ella.compiler.stmtbase.Statement;
 import org.unbunt.ella.compiler.support.Callable;
 import org.unbunt.ella.engine.continuations.ContinuationVisitor;
+import org.unbunt.ella.engine.corelang.Clos;
 import org.unbunt.ella.engine.environment.Env;
 
-public class CallArgCont implements Continuation {
+public class CallArgCont implements ReusableContinuation {
     protected Callable callable;
-
+    protected Clos closure;
     protected Env funcEnv;
     protected Env savedEnv;
-
     protected boolean tailCall;
 
+    public CallArgCont() {
+    }
+
     public CallArgCont(Callable callable, Env funcEnv, Env savedEnv) {
-        this.callable = callable;
-        this.funcEnv = funcEnv;
-        this.savedEnv = savedEnv;
-        this.tailCall = false;
+        init(callable, funcEnv, savedEnv, false);
     }
 
     public CallArgCont(Callable callable, Env funcEnv, Env savedEnv, boolean tailCall) {
+        init(callable, funcEnv, savedEnv, tailCall);
+    }
+
+    public CallArgCont init(Callable callable, Env funcEnv, Env savedEnv, boolean tailCall) {
         this.callable = callable;
+        this.closure = null;
         this.funcEnv = funcEnv;
         this.savedEnv = savedEnv;
         this.tailCall = tailCall;
+        return this;
+    }
+
+    /**
+     * Prepares the invocation of the given block closure object.
+     *
+     * @param closure the block closure object to invoke.
+     * @param closEnv the environment to invoke the closure in.
+     * @param savedEnv the environment to restore after the invocation.
+     * @return this continuation.
+     */
+    public CallArgCont init(Clos closure, Env closEnv, Env savedEnv) {
+        init(closure.getClosure(), closEnv, savedEnv, false);
+        this.closure = closure;
+        return this;
     }
 
     public Callable getCallable() {
         return callable;
     }
 
+    /**
+     * Returns the block closure object to invoke.
+     *
+     * @return the block closure object or <code>null</code> if a function is invoked.
+     */
+    public Clos getClosure() {
+        return closure;
+    }
+
     public Env getCallEnv() {
         return funcEnv;
     }
@@ -84,6 +113,13 @@ public class CallArgCont implements Continuation {
         return callable.getBody();
     }
 
+    public void reset() {
+        callable = null;
+        closure = null;
+        funcEnv = null;
+        savedEnv = null;
+    }
+
     public void accept(ContinuationVisitor visitor) {
         visitor.processContinuation(this);
     }
@@ -43,7 +43,7 @@ import org.unbunt.ella.engine.continuations.ContinuationVisitor;
 
 import java.util.List;
 
-public class CallCont implements Continuation {
+public class CallCont implements ReusableContinuation {
     public static byte FLAG_SUPER = 0x1;
     public static byte FLAG_TAIL  = 0x2;
 
@@ -52,25 +52,27 @@ public class CallCont implements Continuation {
     protected List<Expression> arguments;
     protected byte flags;
 
+    public CallCont() {
+    }
+
     public CallCont(Obj context, Obj receiver, List<Expression> arguments, byte flags) {
-        this.context = context;
-        this.receiver = receiver;
-        this.arguments = arguments;
-        this.flags = flags;
+        init(context, receiver, arguments, flags);
     }
 
     public CallCont(Obj context, Obj receiver, List<Expression> arguments) {
-        this.context = context;
-        this.receiver = receiver;
-        this.arguments = arguments;
-        this.flags = 0;
+        init(context, receiver, arguments, (byte) 0);
     }
 
     public CallCont(List<Expression> arguments, byte flags) {
-        this.context = null;
-        this.receiver = null;
+        init(null, null, arguments, flags);
+    }
+
+    public CallCont init(Obj context, Obj receiver, List<Expression> arguments, byte flags) {
+        this.context = context;
+        this.receiver = receiver;
         this.arguments = arguments;
         this.flags = flags;
+        return this;
     }
 
     public Obj getContext() {
@@ -93,6 +95,12 @@ public class CallCont implements Continuation {
         return (flags & FLAG_TAIL) != 0;
     }
 
+    public void reset() {
+        context = null;
+        receiver = null;
+        arguments = null;
+    }
+
     public void accept(ContinuationVisitor visitor) {
         visitor.processContinuation(this);
     }
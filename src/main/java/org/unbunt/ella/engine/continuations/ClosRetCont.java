@@ -39,18 +39,26 @@ package org.unbunt.ella.engine.continuations;
 
 import org.unbunt.ella.engine.environment.Env;
 import org.unbunt.ella.engine.continuations.ContinuationVisitor;
-import org.unbunt.ella.compiler.support.BlockClosure;
+import org.unbunt.ella.engine.corelang.Clos;
 
-public class ClosRetCont implements Continuation {
-    protected BlockClosure closure;
+public class ClosRetCont implements ReusableContinuation {
+    protected Clos closure;
     protected Env savedEnv;
 
-    public ClosRetCont(BlockClosure closure, Env savedEnv) {
+    public ClosRetCont() {
+    }
+
+    public ClosRetCont(Clos closure, Env savedEnv) {
+        init(closure, savedEnv);
+    }
+
+    public ClosRetCont init(Clos closure, Env savedEnv) {
         this.closure = closure;
         this.savedEnv = savedEnv;
+        return this;
     }
 
-    public BlockClosure getClosure() {
+    public Clos getClosure() {
         return closure;
     }
 
@@ -58,7 +66,12 @@ public class ClosRetCont implements Continuation {
         return savedEnv;
     }
 
+    public void reset() {
+        closure = null;
+        savedEnv = null;
+    }
+
     public void accept(ContinuationVisitor visitor) {
         visitor.processContinuation(this);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,99 @@
+/* ContinuationPool.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.engine.continuations;
+
+/**
+ * A bounded pool of reusable continuations of a single type.
+ * <p>
+ * Pools are owned by a single engine and thus not thread-safe. A continuation must be released only after the
+ * engine is done with it, i.e. it is neither on the continuation stack anymore nor referenced otherwise.
+ * Continuations not returned to the pool (i.e. ones dropped when unwinding the stack) are simply left to the
+ * garbage collector.
+ *
+ * @param <T> the type of the pooled continuations.
+ */
+public abstract class ContinuationPool<T extends ReusableContinuation> {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    protected final ReusableContinuation[] pool;
+    protected int size = 0;
+
+    public ContinuationPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ContinuationPool(int capacity) {
+        pool = new ReusableContinuation[capacity];
+    }
+
+    /**
+     * Returns a pooled continuation or creates a new one if the pool is empty.
+     * The continuation has to be initialized by the caller.
+     *
+     * @return a continuation ready to be initialized.
+     */
+    @SuppressWarnings({"unchecked"})
+    public T acquire() {
+        if (size == 0) {
+            return create();
+        }
+        T c = (T) pool[--size];
+        pool[size] = null;
+        return c;
+    }
+
+    /**
+     * Resets the given continuation and puts it back into the pool. If the pool is full, the continuation is
+     * discarded.
+     *
+     * @param c the continuation to release.
+     */
+    public void release(T c) {
+        if (size < pool.length) {
+            c.reset();
+            pool[size++] = c;
+        }
+    }
+
+    /**
+     * Creates a new uninitialized continuation.
+     *
+     * @return the newly created continuation.
+     */
+    protected abstract T create();
+}
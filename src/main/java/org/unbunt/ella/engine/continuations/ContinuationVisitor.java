@@ -79,6 +79,8 @@ public interface ContinuationVisitor {
 
     void processContinuation(TriggeredNativeCont triggeredNativeCont);
 
+    void processContinuation(NumericOpCont numericOpCont);
+
     void processContinuation(PrimitiveCont primitiveCont);
 
     void processContinuation(TriggeredPrimitiveCont triggeredPrimitiveCont);
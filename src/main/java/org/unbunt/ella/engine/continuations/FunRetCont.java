@@ -40,17 +40,46 @@ package org.unbunt.ella.engine.continuations;
 import org.unbunt.ella.engine.environment.Env;
 import org.unbunt.ella.engine.continuations.ContinuationVisitor;
 
-public class FunRetCont implements Continuation {
+public class FunRetCont implements ReusableContinuation {
     protected Env savedEnv;
+    protected boolean captured;
+
+    public FunRetCont() {
+    }
 
     public FunRetCont(Env savedEnv) {
+        init(savedEnv);
+    }
+
+    public FunRetCont init(Env savedEnv) {
         this.savedEnv = savedEnv;
+        this.captured = false;
+        return this;
     }
 
     public Env getSavedEnv() {
         return savedEnv;
     }
 
+    /**
+     * Checks if this continuation has been recorded as the home of a block closure.
+     * Closures identify their home by the identity of this continuation, so a captured instance must never be
+     * reused.
+     *
+     * @return true if this continuation has been captured.
+     */
+    public boolean isCaptured() {
+        return captured;
+    }
+
+    public void setCaptured() {
+        this.captured = true;
+    }
+
+    public void reset() {
+        savedEnv = null;
+    }
+
     public void accept(ContinuationVisitor visitor) {
         visitor.processContinuation(this);
     }
@@ -40,13 +40,21 @@ package org.unbunt.ella.engine.continuations;
 import org.unbunt.ella.engine.corelang.Native;
 import org.unbunt.ella.engine.corelang.Obj;
 
-public class NativeCont implements Continuation {
+public class NativeCont implements ReusableContinuation {
     protected Native nat;
     protected Obj context;
 
+    public NativeCont() {
+    }
+
     public NativeCont(Native nat, Obj context) {
+        init(nat, context);
+    }
+
+    public NativeCont init(Native nat, Obj context) {
         this.nat = nat;
         this.context = context;
+        return this;
     }
 
     public Native getNative() {
@@ -57,7 +65,12 @@ public class NativeCont implements Continuation {
         return context;
     }
 
+    public void reset() {
+        nat = null;
+        context = null;
+    }
+
     public void accept(ContinuationVisitor visitor) {
         visitor.processContinuation(this);
     }
-}
\ No newline at end of file
+}
@@ -41,28 +41,20 @@ import org.unbunt.ella.compiler.stmtbase.Expression;
 import org.unbunt.ella.compiler.statement.SlotCallExpression;
 import org.unbunt.ella.engine.continuations.ContinuationVisitor;
 
-public class SlotCallReceiverCont implements Continuation {
+public class SlotCallReceiverCont implements ReusableContinuation {
     protected SlotCallExpression callExpression;
 
-//    protected Expression slotExpression;
-//    protected List<Expression> arguments;
-
-//    public SlotCallReceiverCont(Expression slotExpression, List<Expression> arguments) {
-//        this.slotExpression = slotExpression;
-//        this.arguments = arguments;
-//    }
+    public SlotCallReceiverCont() {
+    }
 
     public SlotCallReceiverCont(SlotCallExpression callExpression) {
-        this.callExpression = callExpression;
+        init(callExpression);
     }
 
-//    public Expression getSlotExpression() {
-//        return slotExpression;
-//    }
-//
-//    public List<Expression> getArguments() {
-//        return arguments;
-//    }
+    public SlotCallReceiverCont init(SlotCallExpression callExpression) {
+        this.callExpression = callExpression;
+        return this;
+    }
 
     public SlotCallExpression getCallExpression() {
         return callExpression;
@@ -72,6 +64,10 @@ public class SlotCallReceiverCont implements Continuation {
         return callExpression.getSlotExpression().getSlot();
     }
 
+    public void reset() {
+        callExpression = null;
+    }
+
     public void accept(ContinuationVisitor visitor) {
         visitor.processContinuation(this);
     }
@@ -44,14 +44,21 @@ import org.unbunt.ella.engine.continuations.ContinuationVisitor;
 
 import java.util.List;
 
-public class SlotCallSlotCont implements Continuation {
+public class SlotCallSlotCont implements ReusableContinuation {
     protected SlotCallExpression callExpression;
     protected Obj receiver;
-    protected List<Expression> arguments;
+
+    public SlotCallSlotCont() {
+    }
 
     public SlotCallSlotCont(Obj receiver, SlotCallExpression callExpression) {
+        init(receiver, callExpression);
+    }
+
+    public SlotCallSlotCont init(Obj receiver, SlotCallExpression callExpression) {
         this.receiver = receiver;
         this.callExpression = callExpression;
+        return this;
     }
 
     public Obj getReceiver() {
@@ -66,6 +73,11 @@ public class SlotCallSlotCont implements Continuation {
         return callExpression.getCallFlags();
     }
 
+    public void reset() {
+        receiver = null;
+        callExpression = null;
+    }
+
     public void accept(ContinuationVisitor visitor) {
         visitor.processContinuation(this);
     }
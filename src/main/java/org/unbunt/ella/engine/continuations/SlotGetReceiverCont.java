@@ -37,20 +37,32 @@ exception statement from your version. */
 
 package org.unbunt.ella.engine.continuations;
 
-import org.unbunt.ella.compiler.stmtbase.Expression;
+import org.unbunt.ella.compiler.statement.SlotExpression;
 import org.unbunt.ella.engine.continuations.ContinuationVisitor;
 
-public class SlotGetReceiverCont implements Continuation {
-    protected Expression slotExpression;
+public class SlotGetReceiverCont implements ReusableContinuation {
+    protected SlotExpression slotExpression;
 
-    public SlotGetReceiverCont(Expression slotExpression) {
+    public SlotGetReceiverCont() {
+    }
+
+    public SlotGetReceiverCont(SlotExpression slotExpression) {
+        init(slotExpression);
+    }
+
+    public SlotGetReceiverCont init(SlotExpression slotExpression) {
         this.slotExpression = slotExpression;
+        return this;
     }
 
-    public Expression getSlotExpression() {
+    public SlotExpression getSlotExpression() {
         return slotExpression;
     }
 
+    public void reset() {
+        slotExpression = null;
+    }
+
     public void accept(ContinuationVisitor visitor) {
         visitor.processContinuation(this);
     }
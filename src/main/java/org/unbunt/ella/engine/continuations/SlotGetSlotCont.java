@@ -40,17 +40,29 @@ package org.unbunt.ella.engine.continuations;
 import org.unbunt.ella.engine.corelang.Obj;
 import org.unbunt.ella.engine.continuations.ContinuationVisitor;
 
-public class SlotGetSlotCont implements Continuation {
+public class SlotGetSlotCont implements ReusableContinuation {
     protected Obj receiver;
 
+    public SlotGetSlotCont() {
+    }
+
     public SlotGetSlotCont(Obj receiver) {
+        init(receiver);
+    }
+
+    public SlotGetSlotCont init(Obj receiver) {
         this.receiver = receiver;
+        return this;
     }
 
     public Obj getReceiver() {
         return receiver;
     }
 
+    public void reset() {
+        receiver = null;
+    }
+
     public void accept(ContinuationVisitor visitor) {
         visitor.processContinuation(this);
     }
@@ -39,14 +39,48 @@ package org.unbunt.ella.engine.corelang;
 
 import org.unbunt.ella.engine.context.Context;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * Base class for EllaScript objects.
+ * <p>
+ * Slots are stored according to the object's {@link Shape}: the shape maps slot keys to indexes into the object's
+ * value array and is shared by all objects having the same keys. Objects without slots allocate no storage at all.
+ * Subclasses access slots directly by means of {@link #getOwnSlot(Obj)}, {@link #putSlot(Obj, Obj)} and
+ * {@link #hasOwnSlot(Obj)}.
  */
-public abstract class AbstractObj implements Obj {
-    protected Map<Obj, Obj> slots = new HashMap<Obj, Obj>();
+public abstract class AbstractObj implements Obj, Cloneable {
+    /**
+     * The layout of this object's slots.
+     */
+    protected Shape shape = Shape.EMPTY;
+
+    /**
+     * The slot values, indexed as described by the shape. <code>null</code> until the first slot is added and
+     * for objects with a dictionary shape.
+     */
+    protected Obj[] values = null;
+
+    /**
+     * Set if the value array is shared with the object this object has been copied from. The array is copied before
+     * it is modified for the first time.
+     *
+     * @see #copy()
+     */
+    protected boolean sharedValues = false;
+
+    /**
+     * Incremented on every modification of this object's slots. Used to validate cached slot lookups.
+     *
+     * @see InlineCache
+     */
+    protected int slotVersion = 0;
 
     /**
      * Creates a new, empty EllaScript object.
@@ -58,27 +92,313 @@ public abstract class AbstractObj implements Obj {
         return -1;
     }
 
+    /**
+     * Returns the current slot version of this object. The version changes whenever slots are added, modified or
+     * removed.
+     *
+     * @return the slot version.
+     */
+    public int getSlotVersion() {
+        return slotVersion;
+    }
+
     public Obj setSlot(Context ctx, Obj key, Obj value) {
-        return slots.put(key, value);
+        return putSlot(key, value);
     }
 
     public Obj getSlot(Context ctx, Obj key) {
-        return slots.get(key);
+        return getOwnSlot(key);
     }
 
     public Obj removeSlot(Context ctx, Obj key) {
-        return slots.remove(key);
+        return deleteSlot(key);
     }
 
+    /**
+     * Returns a live view of this object's slots. Modifications of the returned map are written through to this
+     * object.
+     *
+     * @return this object's slots.
+     */
     public Map<Obj,Obj> getSlots() {
-        return slots;
+        return new SlotMap();
     }
 
     public void setSlots(Map<Obj, Obj> slots) {
-        this.slots = slots;
+        slotVersion++;
+        shape = Shape.EMPTY;
+        values = null;
+        sharedValues = false;
+        for (Map.Entry<Obj, Obj> entry : slots.entrySet()) {
+            putSlot(entry.getKey(), entry.getValue());
+        }
     }
 
     public Object toJavaObject() {
         return this;
     }
+
+    /**
+     * Returns a copy of this object having the same slots. The copy shares the slot storage with this object until
+     * either of both modifies its slots, so this object must not be modified anymore if it is not to be copied on
+     * modification itself. Used to create the native objects of an execution context from a snapshot.
+     * <p>
+     * Subclasses holding mutable state besides their slots have to override this method to copy that state.
+     *
+     * @return the copy.
+     */
+    public AbstractObj copy() {
+        AbstractObj copy;
+        try {
+            copy = (AbstractObj) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+        Map<Obj, Obj> dictionary = shape.dictionary;
+        if (dictionary != null) {
+            copy.shape = Shape.dictionary(new HashMap<Obj, Obj>(dictionary));
+        }
+        else if (values != null) {
+            copy.sharedValues = true;
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the value of the given slot of this object without consulting any parent objects.
+     *
+     * @param key the slot key.
+     * @return the slot's value or <code>null</code> if this object has no such slot.
+     */
+    protected Obj getOwnSlot(Obj key) {
+        Shape shape = this.shape;
+        Map<Obj, Obj> dictionary = shape.dictionary;
+        if (dictionary != null) {
+            return dictionary.get(key);
+        }
+        int index = shape.indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    /**
+     * Checks if this object has the given slot, not consulting any parent objects.
+     *
+     * @param key the slot key.
+     * @return true if the slot is defined in this object.
+     */
+    protected boolean hasOwnSlot(Obj key) {
+        Shape shape = this.shape;
+        Map<Obj, Obj> dictionary = shape.dictionary;
+        return dictionary != null ? dictionary.containsKey(key) : shape.indexOf(key) >= 0;
+    }
+
+    /**
+     * Sets the given slot of this object.
+     *
+     * @param key the slot key.
+     * @param value the slot value.
+     * @return the previous value of the slot or <code>null</code> if the slot has not been defined.
+     */
+    protected Obj putSlot(Obj key, Obj value) {
+        slotVersion++;
+        Shape shape = this.shape;
+        Map<Obj, Obj> dictionary = shape.dictionary;
+        if (dictionary != null) {
+            return dictionary.put(key, value);
+        }
+
+        if (sharedValues) {
+            values = values.clone();
+            sharedValues = false;
+        }
+
+        int index = shape.indexOf(key);
+        if (index >= 0) {
+            Obj previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        Shape next = shape.addSlot(key);
+        if (next == null) {
+            toDictionary().put(key, value);
+            return null;
+        }
+
+        int size = shape.size();
+        Obj[] values = this.values;
+        if (values == null) {
+            values = this.values = new Obj[2];
+        }
+        else if (size == values.length) {
+            Obj[] newValues = new Obj[size * 2];
+            System.arraycopy(values, 0, newValues, 0, size);
+            values = this.values = newValues;
+        }
+        values[size] = value;
+        this.shape = next;
+        return null;
+    }
+
+    /**
+     * Removes the given slot from this object. Objects removing a slot switch to a dictionary shape.
+     *
+     * @param key the slot key.
+     * @return the previous value of the slot or <code>null</code> if the slot has not been defined.
+     */
+    protected Obj deleteSlot(Obj key) {
+        Map<Obj, Obj> dictionary = shape.dictionary;
+        if (dictionary == null) {
+            if (shape.indexOf(key) < 0) {
+                return null;
+            }
+            dictionary = toDictionary();
+        }
+        slotVersion++;
+        return dictionary.remove(key);
+    }
+
+    /**
+     * Switches this object to a dictionary shape.
+     *
+     * @return the map now holding this object's slots.
+     */
+    protected Map<Obj, Obj> toDictionary() {
+        Shape shape = this.shape;
+        int size = shape.size();
+        Map<Obj, Obj> dictionary = new HashMap<Obj, Obj>(Math.max(size * 2, 16));
+        for (int i = 0; i < size; i++) {
+            dictionary.put(shape.getKey(i), values[i]);
+        }
+        this.shape = Shape.dictionary(dictionary);
+        this.values = null;
+        this.sharedValues = false;
+        return dictionary;
+    }
+
+    /**
+     * Live map view of the slots of the enclosing object.
+     */
+    protected class SlotMap extends AbstractMap<Obj, Obj> {
+        @Override
+        public int size() {
+            Shape shape = AbstractObj.this.shape;
+            return shape.dictionary != null ? shape.dictionary.size() : shape.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Obj && hasOwnSlot((Obj) key);
+        }
+
+        @Override
+        public Obj get(Object key) {
+            return key instanceof Obj ? getOwnSlot((Obj) key) : null;
+        }
+
+        @Override
+        public Obj put(Obj key, Obj value) {
+            return putSlot(key, value);
+        }
+
+        @Override
+        public Obj remove(Object key) {
+            return key instanceof Obj ? deleteSlot((Obj) key) : null;
+        }
+
+        @Override
+        public Set<Entry<Obj, Obj>> entrySet() {
+            return new AbstractSet<Entry<Obj, Obj>>() {
+                @Override
+                public int size() {
+                    return SlotMap.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<Obj, Obj>> iterator() {
+                    Shape shape = AbstractObj.this.shape;
+                    return shape.dictionary != null
+                           ? new DictionaryIterator(shape.dictionary.entrySet().iterator())
+                           : new ShapeIterator(shape, values);
+                }
+            };
+        }
+    }
+
+    /**
+     * Iterates the slots of a shape as they have been at the time of creation of the iterator.
+     */
+    protected class ShapeIterator implements Iterator<Map.Entry<Obj, Obj>> {
+        protected final Shape shape;
+        protected final Obj[] values;
+        protected int index = 0;
+        protected Obj lastKey = null;
+
+        protected ShapeIterator(Shape shape, Obj[] values) {
+            this.shape = shape;
+            this.values = values;
+        }
+
+        public boolean hasNext() {
+            return index < shape.size();
+        }
+
+        public Map.Entry<Obj, Obj> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastKey = shape.getKey(index);
+            return new SlotEntry(lastKey, values[index++]);
+        }
+
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            deleteSlot(lastKey);
+            lastKey = null;
+        }
+    }
+
+    /**
+     * Iterates the slots of a dictionary shape.
+     */
+    protected class DictionaryIterator implements Iterator<Map.Entry<Obj, Obj>> {
+        protected final Iterator<Map.Entry<Obj, Obj>> iterator;
+
+        protected DictionaryIterator(Iterator<Map.Entry<Obj, Obj>> iterator) {
+            this.iterator = iterator;
+        }
+
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        public Map.Entry<Obj, Obj> next() {
+            Map.Entry<Obj, Obj> entry = iterator.next();
+            return new SlotEntry(entry.getKey(), entry.getValue());
+        }
+
+        public void remove() {
+            slotVersion++;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * A slot of the enclosing object; setting the value writes through to the object.
+     */
+    protected class SlotEntry extends AbstractMap.SimpleEntry<Obj, Obj> {
+        private static final long serialVersionUID = 1L;
+
+        protected SlotEntry(Obj key, Obj value) {
+            super(key, value);
+        }
+
+        @Override
+        public Obj setValue(Obj value) {
+            putSlot(getKey(), value);
+            return super.setValue(value);
+        }
+    }
 }
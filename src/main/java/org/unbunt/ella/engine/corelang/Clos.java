@@ -38,6 +38,8 @@ exception statement from your version. */
 package org.unbunt.ella.engine.corelang;
 
 import org.unbunt.ella.compiler.support.BlockClosure;
+import org.unbunt.ella.engine.continuations.Continuation;
+import org.unbunt.ella.engine.environment.Env;
 
 /**
  * The core object representing block closures.
@@ -49,4 +51,26 @@ public interface Clos extends Obj, Call {
      * @return the compiled block closure.
      */
     BlockClosure getClosure();
+
+    /**
+     * Returns the environment the block closure has been created in.
+     *
+     * @return the defining environment.
+     */
+    Env getEnv();
+
+    /**
+     * Returns the continuation stack offset of the function that created this block closure.
+     *
+     * @return the offset of the home function.
+     */
+    int getHomeOffset();
+
+    /**
+     * Returns the continuation to expect at this block closures home offset.
+     *
+     * @return the continuation.
+     * @see #getHomeOffset()
+     */
+    Continuation getHomeCont();
 }
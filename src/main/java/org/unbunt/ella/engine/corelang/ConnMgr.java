@@ -77,4 +77,10 @@ public interface ConnMgr extends Obj {
      * @return the connections known to this connection manager.
      */
     Set<Connection> getConnections();
+
+    /**
+     * Forgets all connections known to this connection manager and restores its initial slots. The connections
+     * are expected to have been closed already.
+     */
+    void reset();
 }
@@ -251,6 +251,22 @@ public interface Engine extends SQLResultProvider {
     Obj invokeInLoop(Obj obj, Obj context, Obj... args)
             throws ClosureTerminatedException, LoopBreakException, LoopContinueException;
 
+    /**
+     * Installs a looping construct and invokes the given EllaScript object, which should be activatable, as the body
+     * of the loop. In contrast to {@link #invokeInLoop(Obj, Obj, Obj[])} any calls to the language's looping control
+     * facilities from within the invocation are reported by the returned status instead of by exceptions.
+     * <p>
+     * If the body completes normally, its result is available via {@link #getVal()}.
+     *
+     * @param obj the activatable object to be invoked.
+     * @param context the activation context the object is to be invoked with. May be <code>null</code>.
+     * @param args the arguments passed as part of the invocation.
+     * @return the status of the iteration.
+     * @throws ClosureTerminatedException indicates the invocation has to end abruptly because of a return operation
+     *                                    triggered from inside a block closure.
+     */
+    LoopStatus invokeLoopBody(Obj obj, Obj context, Obj... args) throws ClosureTerminatedException;
+
     /**
      * Returns current result of the evaluation so far.
      *
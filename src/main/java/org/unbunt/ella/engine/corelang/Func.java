@@ -38,6 +38,7 @@ exception statement from your version. */
 package org.unbunt.ella.engine.corelang;
 
 import org.unbunt.ella.compiler.support.Function;
+import org.unbunt.ella.engine.environment.Env;
 
 /**
  * The core object representing EllaScript functions.
@@ -49,4 +50,11 @@ public interface Func extends Obj, Call {
      * @return the compiled function.
      */
     public Function getFunction();
+
+    /**
+     * Returns the environment the function has been defined in.
+     *
+     * @return the defining environment.
+     */
+    public Env getEnv();
 }
@@ -0,0 +1,372 @@
+/* InlineCache.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.engine.corelang;
+
+import org.unbunt.ella.engine.context.Context;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A polymorphic inline cache for the slot lookups performed at a single slot access or slot call site.
+ * <p>
+ * Each entry records the result of a lookup along with the objects of the prototype chain that have been visited
+ * and the slot versions they had at that time. An entry applies to receivers of the same class and {@link Shape}
+ * which either hold the slot themselves or share the parent object the lookup continued at. Receivers having a
+ * dictionary shape are matched by identity. Entries are invalidated as soon as the slots of any object in their
+ * recorded chain are modified.
+ * <p>
+ * Only objects using the plain slot storage of {@link AbstractObj} take part in caching. Lookups involving
+ * objects computing slots dynamically (e.g. Java objects or the Sys object) are never cached.
+ * <p>
+ * Caches are attached to the compiled program and may be shared by engines in different threads, each running in
+ * its own context. Entries only refer to the objects of their context weakly, so a cache does not keep objects of
+ * finished contexts alive, and entries whose objects have been collected are stale. Entries found in the own
+ * receiver are keyed by shape only and apply to all contexts. When a cache is full, stale entries and entries
+ * created in other contexts are replaced first; a site is only considered megamorphic within the context that
+ * exceeded the maximum number of entries on its own.
+ * <p>
+ * Entries are immutable, so concurrent use at worst results in lost entries.
+ */
+public class InlineCache {
+    /**
+     * The maximum number of entries per cache. Sites seeing more receiver types within a single context are
+     * considered megamorphic and are not cached any longer for that context.
+     */
+    public static final int MAX_ENTRIES = 4;
+
+    /**
+     * The maximum length of a prototype chain to be cached.
+     */
+    public static final int MAX_CHAIN_LENGTH = 8;
+
+    protected static final Entry[] NO_ENTRIES = new Entry[0];
+
+    protected static final Map<Class<?>, Boolean> plainClasses = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    protected Entry[] entries = NO_ENTRIES;
+
+    /**
+     * The context this site has turned out to be megamorphic in, if any.
+     */
+    protected WeakReference<Context> megamorphic = null;
+
+    /**
+     * The number of lookups not satisfied by this cache. Only updated on the slow path.
+     */
+    protected int misses = 0;
+
+    /**
+     * Searches for a valid entry applying to the given receiver.
+     *
+     * @param ctx the execution context.
+     * @param receiver the receiver of the slot lookup.
+     * @return the matching entry or <code>null</code> if none applies.
+     */
+    public Entry find(Context ctx, Obj receiver) {
+        Entry[] entries = this.entries;
+        for (Entry entry : entries) {
+            if (entry != null && entry.matches(ctx, receiver)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records the result of a slot lookup performed by the caller, if the lookup is cacheable.
+     *
+     * @param ctx the execution context.
+     * @param receiver the receiver of the slot lookup.
+     * @param slot the slot looked up.
+     * @param holder the object the slot was found in or the last object visited if the slot was not found.
+     * @param value the value of the slot or <code>null</code> if the slot was not found.
+     */
+    public void update(Context ctx, Obj receiver, Obj slot, Obj holder, Obj value) {
+        misses++;
+        if (isMegamorphic(ctx) || !isPlain(receiver)) {
+            return;
+        }
+
+        Shape shape = ((AbstractObj) receiver).shape;
+        boolean byShape = !shape.isDictionary();
+        int index = -1;
+        int parentIndex = -1;
+        Obj proto = null;
+        Obj obj = receiver;
+        if (byShape) {
+            if (holder == receiver) {
+                index = shape.indexOf(slot);
+                if (index < 0) {
+                    // not found and no parent to continue at
+                    return;
+                }
+                obj = null;
+            }
+            else {
+                parentIndex = shape.indexOf(ObjUtils.SLOT_PARENT);
+                proto = ObjUtils.getParent(ctx, receiver);
+                obj = proto;
+            }
+        }
+
+        AbstractObj[] chain = new AbstractObj[MAX_CHAIN_LENGTH];
+        int length = 0;
+        while (obj != null) {
+            if (length == MAX_CHAIN_LENGTH || !isPlain(obj)) {
+                return;
+            }
+            chain[length++] = (AbstractObj) obj;
+            if (obj == holder) {
+                break;
+            }
+            obj = ObjUtils.getParent(ctx, obj);
+        }
+
+        ObjRef[] entryChain = new ObjRef[length];
+        int[] versions = new int[length];
+        for (int i = 0; i < length; i++) {
+            entryChain[i] = new ObjRef(chain[i]);
+            versions[i] = chain[i].slotVersion;
+        }
+        Entry entry;
+        if (index >= 0) {
+            entry = new Entry(ctx, receiver.getClass(), shape, null, index, -1, null, entryChain, versions, null, null);
+        }
+        else {
+            entry = new Entry(ctx, receiver.getClass(), byShape ? shape : null, byShape ? null : receiver,
+                              index, parentIndex, proto, entryChain, versions, holder, value);
+        }
+
+        Entry[] entries = this.entries;
+        int size = entries.length;
+        int replace = -1;
+        for (int i = 0; i < size; i++) {
+            Entry e = entries[i];
+            if (e == null || !e.isValid()) {
+                replace = i;
+                break;
+            }
+        }
+        if (replace < 0 && size == MAX_ENTRIES) {
+            for (int i = 0; i < size; i++) {
+                if (!entries[i].isOwnedBy(ctx)) {
+                    replace = i;
+                    break;
+                }
+            }
+            if (replace < 0) {
+                megamorphic = new WeakReference<Context>(ctx);
+                this.entries = NO_ENTRIES;
+                return;
+            }
+        }
+        if (replace >= 0) {
+            Entry[] newEntries = entries.clone();
+            newEntries[replace] = entry;
+            this.entries = newEntries;
+            return;
+        }
+        Entry[] newEntries = new Entry[size + 1];
+        System.arraycopy(entries, 0, newEntries, 0, size);
+        newEntries[size] = entry;
+        this.entries = newEntries;
+    }
+
+    /**
+     * Checks if this site has seen too many receiver types in the given context to be cached.
+     *
+     * @param ctx the execution context.
+     * @return true if lookups in the given context are not cached any longer.
+     */
+    public boolean isMegamorphic(Context ctx) {
+        WeakReference<Context> megamorphic = this.megamorphic;
+        return megamorphic != null && megamorphic.get() == ctx;
+    }
+
+    /**
+     * Returns the number of lookups at this site not satisfied by the cache.
+     *
+     * @return the number of misses.
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Checks if the slots of the given object are stored by {@link AbstractObj} only, i.e. its class does not
+     * override any of the slot access methods.
+     *
+     * @param obj the object to check.
+     * @return true if the slot lookups on the given object may be cached.
+     */
+    protected static boolean isPlain(Obj obj) {
+        Class<?> clazz = obj.getClass();
+        Boolean plain = plainClasses.get(clazz);
+        if (plain == null) {
+            plain = AbstractObj.class.isAssignableFrom(clazz)
+                    && isDeclaredByAbstractObj(clazz, "getSlot", Context.class, Obj.class)
+                    && isDeclaredByAbstractObj(clazz, "setSlot", Context.class, Obj.class, Obj.class)
+                    && isDeclaredByAbstractObj(clazz, "removeSlot", Context.class, Obj.class)
+                    && isDeclaredByAbstractObj(clazz, "getSlots")
+                    && isDeclaredByAbstractObj(clazz, "setSlots", Map.class);
+            plainClasses.put(clazz, plain);
+        }
+        return plain;
+    }
+
+    protected static boolean isDeclaredByAbstractObj(Class<?> clazz, String name, Class<?>... paramTypes) {
+        try {
+            Method method = clazz.getMethod(name, paramTypes);
+            return method.getDeclaringClass() == AbstractObj.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A weak reference to an object recorded by an entry. Objects recorded by a valid entry are always strongly
+     * reachable from the receivers matching it, so they are not cleared while the entry is in use.
+     */
+    protected static class ObjRef extends WeakReference<Obj> {
+        protected ObjRef(Obj obj) {
+            super(obj);
+        }
+    }
+
+    /**
+     * Represents a single cached slot lookup.
+     */
+    public static class Entry {
+        protected final WeakReference<Context> owner;
+        protected final Class<?> receiverClass;
+        protected final Shape shape;
+        protected final ObjRef receiver;
+        protected final int index;
+        protected final int parentIndex;
+        protected final ObjRef proto;
+        protected final ObjRef[] chain;
+        protected final int[] versions;
+        protected final ObjRef holder;
+        protected final ObjRef value;
+
+        protected Entry(Context owner, Class<?> receiverClass, Shape shape, Obj receiver, int index, int parentIndex,
+                        Obj proto, ObjRef[] chain, int[] versions, Obj holder, Obj value) {
+            this.owner = new WeakReference<Context>(owner);
+            this.receiverClass = receiverClass;
+            this.shape = shape;
+            this.receiver = receiver == null ? null : new ObjRef(receiver);
+            this.index = index;
+            this.parentIndex = parentIndex;
+            this.proto = proto == null ? null : new ObjRef(proto);
+            this.chain = chain;
+            this.versions = versions;
+            this.holder = holder == null ? null : new ObjRef(holder);
+            this.value = value == null ? null : new ObjRef(value);
+        }
+
+        /**
+         * Returns the object the slot has been found in.
+         *
+         * @param receiver the receiver this entry has been matched by.
+         * @return the holder of the slot.
+         */
+        public Obj getHolder(Obj receiver) {
+            return index >= 0 ? receiver : holder.get();
+        }
+
+        /**
+         * Returns the value of the slot.
+         *
+         * @param receiver the receiver this entry has been matched by.
+         * @return the slot value or <code>null</code> if the slot is not defined.
+         */
+        public Obj getValue(Obj receiver) {
+            if (index >= 0) {
+                return ((AbstractObj) receiver).values[index];
+            }
+            return value == null ? null : value.get();
+        }
+
+        protected boolean isOwnedBy(Context ctx) {
+            return owner.get() == ctx;
+        }
+
+        protected boolean matches(Context ctx, Obj receiver) {
+            if (shape == null) {
+                if (receiver != this.receiver.get()) {
+                    return false;
+                }
+            }
+            else {
+                if (receiver.getClass() != receiverClass) {
+                    return false;
+                }
+                AbstractObj plainReceiver = (AbstractObj) receiver;
+                if (plainReceiver.shape != shape) {
+                    return false;
+                }
+                if (index >= 0) {
+                    return plainReceiver.values[index] != null;
+                }
+                Obj parent = parentIndex >= 0 ? plainReceiver.values[parentIndex] : null;
+                if (parent == null) {
+                    parent = ctx.getObjectProto(receiver);
+                }
+                if (parent != proto.get()) {
+                    return false;
+                }
+            }
+            return isValid();
+        }
+
+        protected boolean isValid() {
+            ObjRef[] chain = this.chain;
+            int[] versions = this.versions;
+            for (int i = 0; i < chain.length; i++) {
+                AbstractObj obj = (AbstractObj) chain[i].get();
+                if (obj == null || obj.slotVersion != versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
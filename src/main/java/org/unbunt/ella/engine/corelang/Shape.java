@@ -0,0 +1,207 @@
+/* Shape.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.engine.corelang;
+
+import org.unbunt.ella.lang.Str;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Describes the layout of the slots of {@link AbstractObj} instances.
+ * <p>
+ * Objects having the same slot keys, added in the same order, share a single shape which maps each key to an
+ * index into the object's value array. Shapes are immutable and form a tree rooted at {@link #EMPTY}: adding a slot
+ * to an object replaces its shape by the child shape reached by a transition on the new key.
+ * <p>
+ * Objects with a large number of slots, slot keys which are not strings or removed slots switch to a dictionary
+ * shape which is private to the object and keeps the slots in a hash map.
+ * <p>
+ * Shapes are shared by all execution contexts and may be used concurrently.
+ */
+public class Shape {
+    /**
+     * The maximum number of slots of objects using a shared shape.
+     */
+    public static final int MAX_SLOTS = 32;
+
+    /**
+     * The maximum number of transitions from a single shape. Objects adding further keys switch to a
+     * dictionary shape. This bounds the number of shapes created by objects used as hash maps.
+     */
+    public static final int MAX_TRANSITIONS = 64;
+
+    /**
+     * The shape of objects without any slots.
+     */
+    public static final Shape EMPTY = new Shape(new Obj[0], new int[0], null);
+
+    protected final Obj[] keys;
+    protected final int[] hashes;
+    protected final Map<Obj, Obj> dictionary;
+
+    /**
+     * The most recently created transition. Checked without locking before consulting the transition map.
+     */
+    protected volatile Shape lastTransition = null;
+
+    /**
+     * Transitions to child shapes by key; guarded by this shape.
+     */
+    protected Map<Obj, Shape> transitions = null;
+
+    protected Shape(Obj[] keys, int[] hashes, Map<Obj, Obj> dictionary) {
+        this.keys = keys;
+        this.hashes = hashes;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Creates a new dictionary shape storing slots in the given map.
+     *
+     * @param slots the slot map.
+     * @return the dictionary shape.
+     */
+    public static Shape dictionary(Map<Obj, Obj> slots) {
+        return new Shape(null, null, slots);
+    }
+
+    /**
+     * Checks if this is a dictionary shape.
+     *
+     * @return true if this shape keeps slots in a hash map.
+     */
+    public boolean isDictionary() {
+        return dictionary != null;
+    }
+
+    /**
+     * Returns the slot map of a dictionary shape.
+     *
+     * @return the slot map or <code>null</code> if this is not a dictionary shape.
+     */
+    public Map<Obj, Obj> getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the number of slots described by this shape. Must not be called on dictionary shapes.
+     *
+     * @return the number of slots.
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the key of the slot stored at the given index. Must not be called on dictionary shapes.
+     *
+     * @param index the slot index.
+     * @return the slot key.
+     */
+    public Obj getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Returns the index of the given slot key. Must not be called on dictionary shapes.
+     *
+     * @param key the slot key.
+     * @return the index of the key or <code>-1</code> if this shape contains no such key.
+     */
+    public int indexOf(Obj key) {
+        Obj[] keys = this.keys;
+        int length = keys.length;
+        if (length == 0) {
+            return -1;
+        }
+        int[] hashes = this.hashes;
+        int hash = key.hashCode();
+        for (int i = 0; i < length; i++) {
+            Obj k = keys[i];
+            if (k == key || (hashes[i] == hash && k.equals(key))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the shape resulting from adding the given key to this shape. The key must not already be contained.
+     * Must not be called on dictionary shapes.
+     *
+     * @param key the slot key to add.
+     * @return the child shape or <code>null</code> if the object has to switch to a dictionary shape.
+     */
+    public Shape addSlot(Obj key) {
+        Shape last = lastTransition;
+        if (last != null) {
+            Obj lastKey = last.keys[keys.length];
+            if (lastKey == key || lastKey.equals(key)) {
+                return last;
+            }
+        }
+
+        if (!(key instanceof Str) || keys.length == MAX_SLOTS) {
+            return null;
+        }
+
+        synchronized (this) {
+            if (transitions == null) {
+                transitions = new HashMap<Obj, Shape>();
+            }
+            Shape child = transitions.get(key);
+            if (child == null) {
+                if (transitions.size() == MAX_TRANSITIONS) {
+                    return null;
+                }
+                int length = keys.length;
+                Obj[] childKeys = new Obj[length + 1];
+                int[] childHashes = new int[length + 1];
+                System.arraycopy(keys, 0, childKeys, 0, length);
+                System.arraycopy(hashes, 0, childHashes, 0, length);
+                childKeys[length] = key;
+                childHashes[length] = key.hashCode();
+                child = new Shape(childKeys, childHashes, null);
+                transitions.put(key, child);
+            }
+            lastTransition = child;
+            return child;
+        }
+    }
+}
@@ -41,35 +41,64 @@ import org.unbunt.ella.compiler.support.Variable;
 import org.unbunt.ella.engine.corelang.Obj;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Provides a caching mechanism for dynamic variable resolvers.
+ * <p>
+ * Optionally, names the base resolver failed to resolve are cached as well. This requires the base resolver to be
+ * stable, i.e. a name it does not resolve once must never be resolved later on. Resolving a name missing from the
+ * cache may be expensive, e.g. when looking up classes, so caching misses avoids repeating the lookup for every access
+ * to an ordinary variable.
  */
 public class CachingVariableResolver implements WritableVariableResolver {
     protected final DynamicVariableResolver realResolver;
 
+    protected final boolean cacheMisses;
+
     protected final Map<String, Obj> cache = new HashMap<String, Obj>();
 
     /**
-     * Creates a new CachingVariableResolver using the given resolver as the base resolver.
+     * The names the base resolver failed to resolve, if misses are cached.
+     */
+    protected final Set<String> misses = new HashSet<String>();
+
+    /**
+     * Creates a new CachingVariableResolver using the given resolver as the base resolver. Only resolved names are
+     * cached.
      *
      * @param realResolver the base resolver.
      */
     public CachingVariableResolver(DynamicVariableResolver realResolver) {
+        this(realResolver, false);
+    }
+
+    /**
+     * Creates a new CachingVariableResolver using the given resolver as the base resolver.
+     *
+     * @param realResolver the base resolver.
+     * @param cacheMisses whether to cache names the base resolver failed to resolve.
+     */
+    public CachingVariableResolver(DynamicVariableResolver realResolver, boolean cacheMisses) {
         this.realResolver = realResolver;
+        this.cacheMisses = cacheMisses;
     }
 
     public Obj resolve(Variable var) {
         String name = var.name;
         Obj value = cache.get(name);
-        if (value != null) {
+        if (value != null || misses.contains(name)) {
             return value;
         }
         value = realResolver.resolve(var);
         if (value != null) {
             cache.put(name, value);
         }
+        else if (cacheMisses) {
+            misses.add(name);
+        }
         return value;
     }
 
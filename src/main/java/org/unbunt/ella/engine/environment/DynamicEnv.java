@@ -126,6 +126,10 @@ public class DynamicEnv extends AbstractEnv {
         parent.add(var, value);
     }
 
+    public void unbind(int from, int to) {
+        parent.unbind(from, to);
+    }
+
     public int getMaxAddress() {
         return parent.getMaxAddress();
     }
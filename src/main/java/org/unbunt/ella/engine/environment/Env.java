@@ -126,6 +126,15 @@ public interface Env {
      */
     void add(Variable var, Obj value);
 
+    /**
+     * Removes the bindings of the variables occupying the given range of addresses in this environment. This is used
+     * when leaving a block whose variables are stored in the environment of the enclosing scope.
+     *
+     * @param from the lowest address, inclusive.
+     * @param to the highest address, exclusive.
+     */
+    void unbind(int from, int to);
+
     /**
      * Returns the highest address of a variable currently known to this environment.
      *
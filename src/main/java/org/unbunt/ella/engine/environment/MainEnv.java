@@ -40,6 +40,9 @@ package org.unbunt.ella.engine.environment;
 import org.unbunt.ella.compiler.support.Variable;
 import org.unbunt.ella.engine.corelang.Obj;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Acts as a global environment. Default bindings may be placed here using the <code>add</code> method.
  */
@@ -57,13 +60,92 @@ public class MainEnv extends StaticEnv {
         super(new DynamicEnv(new TopEnv(undefValue), resolver));
     }
 
+    /**
+     * Creates a new MainEnv using the given environment as parent environment.
+     *
+     * @param parent the environment to use as parent environment.
+     */
+    protected MainEnv(Env parent) {
+        super(parent);
+    }
+
+    /**
+     * The number of default bindings at the time of the last call to {@link #mark()}.
+     */
+    protected int markedSize = 0;
+
+    /**
+     * The values of the default bindings at the time of the last call to {@link #mark()}.
+     */
+    protected Obj[] markedValues = NO_VALUES;
+
     /**
      * Add a default binding. Associates the given value with a variable of the given name.
      *
      * @param var the variable's name.
      * @param value the value.
+     * @return the variable bound.
+     */
+    public Variable add(String var, Obj value) {
+        Variable variable = new Variable(size, var, true, false);
+        add(variable, value);
+        return variable;
+    }
+
+    /**
+     * Marks the current bindings as the default bindings to be restored by {@link #reset()}.
+     */
+    public void mark() {
+        markedSize = size;
+        markedValues = new Obj[size];
+        System.arraycopy(values, 0, markedValues, 0, size);
+    }
+
+    /**
+     * Creates a new global environment holding the default bindings of this environment as marked by the last call
+     * to {@link #mark()}. Both environments share the lookup of undefined variables, but bindings added to one of them
+     * are not visible in the other one. Programs compiled against the default bindings may thus be executed in a
+     * forked environment while values created by earlier executions stay reachable from the environment they have
+     * been created in.
+     *
+     * @return the new environment.
+     */
+    public MainEnv fork() {
+        MainEnv env = new MainEnv(parent);
+        for (int i = 0; i < markedSize; i++) {
+            env.bind(vars[i], markedValues[i]);
+        }
+        env.mark();
+        return env;
+    }
+
+    /**
+     * Returns the bindings added since the last call to {@link #mark()}, e.g. the global variables declared by the
+     * programs executed in this environment.
+     *
+     * @return the names of the added variables mapped to their values, in order of declaration.
+     */
+    public Map<String, Obj> getAddedBindings() {
+        Map<String, Obj> bindings = new LinkedHashMap<String, Obj>();
+        for (int i = markedSize; i < size; i++) {
+            Variable var = getVariable(i);
+            if (var != null) {
+                bindings.put(var.name, values[i]);
+            }
+        }
+        return bindings;
+    }
+
+    /**
+     * Removes all bindings added since the last call to {@link #mark()} and restores the values of the remaining
+     * bindings.
      */
-    public void add(String var, Obj value) {
-        add(new Variable(-1, var, true, false), value);
+    public void reset() {
+        System.arraycopy(markedValues, 0, values, 0, markedSize);
+        for (int i = markedSize; i < size; i++) {
+            values[i] = null;
+            vars[i] = null;
+        }
+        size = markedSize;
     }
 }
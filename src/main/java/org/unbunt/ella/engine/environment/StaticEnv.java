@@ -42,14 +42,33 @@ import org.unbunt.ella.compiler.support.Variable;
 import org.unbunt.ella.engine.continuations.Continuation;
 import org.unbunt.ella.engine.corelang.Obj;
 
-import java.util.ArrayList;
-
 /**
  * Represents a standard environment following the lexical addressing scheme.
+ * <p>
+ * Environments set up for the scope of a function, block closure or block hold their variables in an array sized from
+ * the scope at compile time. Other environments, like the global one, grow as variables are added.
  */
 public class StaticEnv extends AbstractEnv {
-    protected ArrayList<Obj> values = new ArrayList<Obj>();
-    protected ArrayList<Variable> vars = new ArrayList<Variable>();
+    protected static final int INITIAL_CAPACITY = 8;
+
+    protected static final Obj[] NO_VALUES = new Obj[0];
+
+    protected Obj[] values;
+
+    /**
+     * The variables bound in this environment if it has not been set up for a scope.
+     */
+    protected Variable[] vars;
+
+    /**
+     * The scope this environment has been set up for or <code>null</code> if it is not bound to a scope.
+     */
+    protected final Scope scope;
+
+    /**
+     * The number of variable slots in use, i.e. the highest address bound so far plus one.
+     */
+    protected int size = 0;
 
     protected Obj context = null;
     protected Obj receiver = null;
@@ -64,6 +83,47 @@ public class StaticEnv extends AbstractEnv {
      */
     public StaticEnv(Env parent) {
         super(parent);
+        this.scope = null;
+        this.values = new Obj[INITIAL_CAPACITY];
+        this.vars = new Variable[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Creates a new static environment holding the variables of the given scope.
+     *
+     * @param parent the environment to use as parent environment.
+     * @param scope the scope.
+     */
+    public StaticEnv(Env parent, Scope scope) {
+        super(parent);
+        this.scope = scope;
+        if (scope == null) {
+            this.values = new Obj[INITIAL_CAPACITY];
+            this.vars = new Variable[INITIAL_CAPACITY];
+        }
+        else {
+            int frameSize = scope.getFrameSize();
+            this.values = frameSize == 0 ? NO_VALUES : new Obj[frameSize];
+        }
+    }
+
+    /**
+     * Returns the environment to invoke a block closure in. Block closures declaring no variables run in the
+     * environment they have been created in, others get an environment of their own sharing the context of the
+     * environment they have been created in.
+     *
+     * @param lexEnv the environment the block closure has been created in.
+     * @param scope the scope of the block closure.
+     * @return the environment.
+     */
+    public static Env forClosure(Env lexEnv, Scope scope) {
+        if (scope != null && scope.isElided()) {
+            return lexEnv;
+        }
+        Env closEnv = new StaticEnv(lexEnv, scope);
+        closEnv.setContext(lexEnv.getContext());
+        closEnv.setReceiver(lexEnv.getReceiver());
+        return closEnv;
     }
 
     public void setContext(Obj context) {
@@ -83,33 +143,100 @@ public class StaticEnv extends AbstractEnv {
     }
 
     public void extend(Variable var) {
-        vars.add(var);
-        values.add(null);
+        bind(var, null);
     }
 
     public Obj get(Variable var, int addr) {
-        if (addr > 0xFFFF) {
-            return parent.get(var, addr - 0x10000);
+        StaticEnv env = this;
+        while (true) {
+            if (env.isStopped()) {
+                return null;
+            }
+            if (addr <= 0xFFFF) {
+                return env.values[addr];
+            }
+            addr -= 0x10000;
+            if (!(env.parent instanceof StaticEnv)) {
+                return env.parent.get(var, addr);
+            }
+            env = (StaticEnv) env.parent;
         }
-        return values.get(addr);
     }
 
     public void set(Variable var, int addr, Obj value) {
-        if (addr > 0xFFFF) {
-            parent.set(var, addr - 0x10000, value);
-        }
-        else {
-            values.set(addr, value);
+        StaticEnv env = this;
+        while (addr > 0xFFFF) {
+            addr -= 0x10000;
+            if (!(env.parent instanceof StaticEnv)) {
+                env.parent.set(var, addr, value);
+                return;
+            }
+            env = (StaticEnv) env.parent;
         }
+        env.values[addr] = value;
     }
 
     public void add(Variable var, Obj value) {
-        vars.add(var);
-        values.add(value);
+        bind(var, value);
+    }
+
+    protected void bind(Variable var, Obj value) {
+        // variables created outside of compiled code have no address, these are appended
+        int addr = var.address < 0 ? size : var.address;
+        if (addr >= values.length) {
+            grow(addr + 1);
+        }
+        values[addr] = value;
+        if (vars != null) {
+            vars[addr] = var;
+        }
+        if (addr >= size) {
+            size = addr + 1;
+        }
+    }
+
+    protected void grow(int capacity) {
+        int newCapacity = Math.max(capacity, values.length * 2);
+        Obj[] newValues = new Obj[newCapacity];
+        System.arraycopy(values, 0, newValues, 0, size);
+        values = newValues;
+        if (vars != null) {
+            Variable[] newVars = new Variable[newCapacity];
+            System.arraycopy(vars, 0, newVars, 0, size);
+            vars = newVars;
+        }
+    }
+
+    public void unbind(int from, int to) {
+        for (int i = from; i < to; i++) {
+            values[i] = null;
+        }
+    }
+
+    /**
+     * Returns the variable bound to the given address of this environment.
+     *
+     * @param addr the address.
+     * @return the variable or <code>null</code> if no variable is bound to this address.
+     */
+    protected Variable getVariable(int addr) {
+        if (values[addr] == null) {
+            return null;
+        }
+        return vars != null ? vars[addr] : scope.getFrameVariable(addr);
+    }
+
+    /**
+     * Returns <code>true</code> if lookups of variables stop at this environment, which then yield <code>null</code>.
+     *
+     * @return <code>false</code>.
+     */
+    protected boolean isStopped() {
+        return false;
     }
 
     public int getMaxAddress() {
-        return values.size() - 1;
+        return size - 1;
     }
 
     public void setClosureHome(int offset, Continuation cont) {
@@ -129,8 +256,10 @@ public class StaticEnv extends AbstractEnv {
 
     public Scope toScope() {
         Scope scope = parent == null ? new Scope() : new Scope(parent.toScope());
-        for (Variable var : vars) {
-            scope.addVariable(var.name);
+        for (int i = 0; i < size; i++) {
+            // unbound addresses are reserved to keep the addresses of the remaining variables
+            Variable var = getVariable(i);
+            scope.addFrameVariable(var == null ? null : var.name);
         }
         return scope;
     }
@@ -40,6 +40,10 @@ package org.unbunt.ella.engine.environment;
 import org.unbunt.ella.compiler.support.Variable;
 import org.unbunt.ella.engine.corelang.Obj;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Represents a static environment with additional support for locating variables by name.
  */
@@ -50,43 +54,78 @@ public class StaticSearchableEnv extends StaticEnv implements SearchableEnv {
      */
     protected boolean stopHere = false;
 
+    /**
+     * The addresses of the variables by name, see {@link #getAddresses(String)}.
+     */
+    protected Map<String, int[]> addresses;
+
+    /**
+     * The size of this environment at the time the variables have been indexed.
+     */
+    protected int indexedSize = -1;
+
     public StaticSearchableEnv(Env parent) {
         super(parent);
     }
 
     @Override
-    public Obj get(Variable var, int addr) {
-        if (stopHere) {
-            return null;
-        }
-        return super.get(var, addr);
-    }
-
-    @Override
-    public Obj get(Variable var) {
-        if (stopHere) {
-            return null;
-        }
-        return super.get(var);
+    protected boolean isStopped() {
+        return stopHere;
     }
 
     public Obj findLocal(String name) {
-        int nvars = vars.size();
-        for (int i = 0; i < nvars; i++) {
-            if (name.equals(vars.get(i).name)) {
-                return values.get(i);
+        int[] addrs = getAddresses(name);
+        if (addrs != null) {
+            for (int addr : addrs) {
+                Obj value = values[addr];
+                if (value != null) {
+                    return value;
+                }
             }
         }
         return null;
     }
 
     public void putLocal(String name, Obj value) {
-        int nvars = vars.size();
-        for (int i = 0; i < nvars; i++) {
-            if (name.equals(vars.get(i).name)) {
-                values.set(i, value);
+        int[] addrs = getAddresses(name);
+        if (addrs != null) {
+            for (int addr : addrs) {
+                if (values[addr] != null) {
+                    values[addr] = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the addresses of the variables of the given name in ascending order. The addresses are indexed by name
+     * on first use and indexed again after variables have been added.
+     *
+     * @param name the variable name.
+     * @return the addresses or <code>null</code> if there is no variable of the given name.
+     */
+    protected int[] getAddresses(String name) {
+        if (indexedSize != size) {
+            Map<String, int[]> index = new HashMap<String, int[]>();
+            for (int i = 0; i < size; i++) {
+                Variable var = vars != null ? vars[i] : scope.getFrameVariable(i);
+                if (var == null) {
+                    continue;
+                }
+                int[] addrs = index.get(var.name);
+                if (addrs == null) {
+                    addrs = new int[] { i };
+                }
+                else {
+                    addrs = Arrays.copyOf(addrs, addrs.length + 1);
+                    addrs[addrs.length - 1] = i;
+                }
+                index.put(var.name, addrs);
             }
+            addresses = index;
+            indexedSize = size;
         }
+        return addresses.get(name);
     }
 
     /**
@@ -111,6 +111,10 @@ public class TopEnv implements Env {
         throw new RuntimeException("TopEnv.add() not implemented");
     }
 
+    public void unbind(int from, int to) {
+        throw new RuntimeException("TopEnv.unbind() should not be called");
+    }
+
     protected void warn(Variable var) {
         System.err.println("Undefined variable: " + var.name);
     }
@@ -0,0 +1,377 @@
+/* BytecodeCompiler.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.engine.nodes;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unbunt.ella.compiler.support.Scope;
+import org.unbunt.ella.engine.EllaTreeEngine;
+import org.unbunt.ella.engine.bytecode.BytecodeLoader;
+import org.unbunt.ella.engine.bytecode.ClassFile;
+import org.unbunt.ella.engine.bytecode.Code;
+import org.unbunt.ella.engine.bytecode.Label;
+import org.unbunt.ella.engine.corelang.Obj;
+import org.unbunt.ella.engine.environment.Env;
+import org.unbunt.ella.engine.environment.StaticEnv;
+import org.unbunt.ella.exception.EllaRuntimeException;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles a tree of nodes into a single node implemented in JVM bytecode.
+ * <p>
+ * The generated class evaluates the tree in one method instead of dispatching on every node. Nodes contribute their
+ * code via {@link Node#compile(BytecodeCompiler)}; nodes without code of their own are embedded and evaluated by
+ * the interpreter. Values the code depends on are stored in final fields of the generated instance.
+ * <p>
+ * The generated code is linked against the public API of the engine only since it is defined by a class loader of
+ * its own. Any failure to generate or load the class leaves the tree to the interpreter, unless the compiler is
+ * strict, in which case the failure is raised as an error.
+ */
+public class BytecodeCompiler {
+    protected static final Log logger = LogFactory.getLog(BytecodeCompiler.class);
+
+    protected static final String CLASS_PREFIX = "org/unbunt/ella/engine/bytecode/gen/Body";
+    protected static final AtomicInteger classCounter = new AtomicInteger();
+
+    protected static final int LOCAL_THIS = 0;
+    protected static final int LOCAL_ENGINE = 1;
+
+    protected final BytecodeLoader loader;
+    protected boolean strict = false;
+
+    protected ClassFile classFile;
+    protected Code code;
+    protected final List<Object> constants = new ArrayList<Object>();
+    protected final List<Class<?>> constantTypes = new ArrayList<Class<?>>();
+
+    /**
+     * Creates a new compiler defining classes with the given class loader.
+     *
+     * @param loader the class loader to define generated classes with.
+     */
+    public BytecodeCompiler(BytecodeLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Sets whether failures to compile a node are raised instead of leaving the node to the interpreter.
+     *
+     * @param strict <code>true</code> to raise compilation failures.
+     */
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    /**
+     * Compiles the given node.
+     *
+     * @param node the node to compile.
+     * @return the compiled node or the given node if it could not be compiled.
+     * @throws EllaRuntimeException if the compiler is strict and the node could not be compiled.
+     */
+    public Node compile(Node node) {
+        try {
+            return generate(node);
+        } catch (RuntimeException e) {
+            return failed("Failed to compile node to bytecode", node, e);
+        } catch (LinkageError e) {
+            return failed("Failed to load compiled node", node, e);
+        } catch (Exception e) {
+            return failed("Failed to instantiate compiled node", node, e);
+        }
+    }
+
+    protected Node failed(String message, Node node, Throwable cause) {
+        if (strict) {
+            throw new EllaRuntimeException(message, cause);
+        }
+        logger.debug(message, cause);
+        return node;
+    }
+
+    /**
+     * Determines whether the given node has been generated by a bytecode compiler.
+     *
+     * @param node the node to check.
+     * @return <code>true</code> if the node is implemented in generated bytecode.
+     */
+    public static boolean isCompiled(Node node) {
+        return node.getClass().getClassLoader() instanceof BytecodeLoader;
+    }
+
+    protected Node generate(Node node) throws Exception {
+        constants.clear();
+        constantTypes.clear();
+        classFile = new ClassFile(CLASS_PREFIX + classCounter.incrementAndGet(), internalName(Node.class));
+
+        code = classFile.addMethod(ClassFile.ACC_PUBLIC, "exec",
+                                   methodDescriptor(Obj.class, EllaTreeEngine.class), 2);
+        emit(node);
+        code.op(Code.ARETURN, -1);
+
+        Code init = classFile.addMethod(ClassFile.ACC_PUBLIC, "<init>",
+                                        methodDescriptor(void.class, Object[].class), 2);
+        init.aload(LOCAL_THIS);
+        init.invoke(Code.INVOKESPECIAL, internalName(Node.class), "<init>", "()V");
+        for (int i = 0, n = constants.size(); i < n; i++) {
+            String type = descriptor(constantTypes.get(i));
+            classFile.addField(ClassFile.ACC_PRIVATE | ClassFile.ACC_FINAL, constantName(i), type);
+            init.aload(LOCAL_THIS);
+            init.aload(1);
+            init.pushInt(i);
+            init.op(Code.AALOAD, -1);
+            init.typeOp(Code.CHECKCAST, internalName(constantTypes.get(i)));
+            init.fieldOp(Code.PUTFIELD, classFile.getName(), constantName(i), type);
+        }
+        init.op(Code.RETURN, 0);
+
+        Class<?> nodeClass = loader.define(classFile);
+        return (Node) nodeClass.getConstructor(Object[].class).newInstance((Object) constants.toArray());
+    }
+
+    /**
+     * Returns the code being generated, e.g. for emitting stack manipulation and control flow instructions.
+     *
+     * @return the code of the method being generated.
+     */
+    public Code getCode() {
+        return code;
+    }
+
+    /**
+     * Emits the code evaluating the given node, leaving its value on the operand stack.
+     *
+     * @param node the node to emit the code of.
+     */
+    public void emit(Node node) {
+        node.compile(this);
+    }
+
+    /**
+     * Emits code evaluating the given node by the interpreter.
+     *
+     * @param node the node to evaluate.
+     */
+    public void emitExec(Node node) {
+        pushConstant(node, Node.class);
+        pushEngine();
+        code.invoke(Code.INVOKEVIRTUAL, internalName(Node.class), "exec",
+                    methodDescriptor(Obj.class, EllaTreeEngine.class));
+    }
+
+    /**
+     * Emits code evaluating the given nodes and collecting their values in an array.
+     *
+     * @param nodes the nodes to evaluate.
+     */
+    public void emitAll(Node[] nodes) {
+        if (nodes.length == 0) {
+            code.fieldOp(Code.GETSTATIC, internalName(EllaTreeEngine.class), "NO_ARGS", descriptor(Obj[].class));
+            return;
+        }
+        code.pushInt(nodes.length);
+        code.typeOp(Code.ANEWARRAY, internalName(Obj.class));
+        for (int i = 0; i < nodes.length; i++) {
+            code.op(Code.DUP, 1);
+            code.pushInt(i);
+            emit(nodes[i]);
+            code.op(Code.AASTORE, -3);
+        }
+    }
+
+    /**
+     * Emits code evaluating the statements of the given block in the environment of the given scope which is removed
+     * again when the block completes, either normally or abruptly.
+     *
+     * @param block the block to evaluate.
+     * @param scope the scope of the block.
+     */
+    public void emitScoped(BlockNode block, Scope scope) {
+        int savedEnv = code.newLocal();
+        int result = code.newLocal();
+        int exception = code.newLocal();
+
+        pushEngine();
+        invoke(EllaTreeEngine.class, "getEnv");
+        code.astore(savedEnv);
+
+        if (!scope.isElided()) {
+            pushEngine();
+            code.typeOp(Code.NEW, internalName(StaticEnv.class));
+            code.op(Code.DUP, 1);
+            code.aload(savedEnv);
+            pushConstant(scope, Scope.class);
+            code.invoke(Code.INVOKESPECIAL, internalName(StaticEnv.class), "<init>",
+                        methodDescriptor(void.class, Env.class, Scope.class));
+            invoke(EllaTreeEngine.class, "setEnv", Env.class);
+        }
+
+        Label start = new Label();
+        Label end = new Label();
+        Label handler = new Label();
+        Label done = new Label();
+
+        code.place(start);
+        block.compileStatements(this);
+        code.astore(result);
+        code.place(end);
+        emitLeaveScope(savedEnv, scope);
+        code.aload(result);
+        code.jump(Code.GOTO, done);
+
+        // the operand stack only holds the exception when entering the handler
+        int stack = code.getStack();
+        code.setStack(1);
+        code.place(handler);
+        code.astore(exception);
+        emitLeaveScope(savedEnv, scope);
+        code.aload(exception);
+        code.op(Code.ATHROW, -1);
+        code.tryCatch(start, end, handler, null);
+
+        code.setStack(stack);
+        code.place(done);
+    }
+
+    protected void emitLeaveScope(int savedEnv, Scope scope) {
+        pushEngine();
+        code.aload(savedEnv);
+        invoke(EllaTreeEngine.class, "setEnv", Env.class);
+        if (scope.getHoistedTo() > scope.getHoistedFrom()) {
+            code.aload(savedEnv);
+            code.pushInt(scope.getHoistedFrom());
+            code.pushInt(scope.getHoistedTo());
+            invoke(Env.class, "unbind", int.class, int.class);
+        }
+    }
+
+    /**
+     * Emits code pushing the executing engine.
+     */
+    public void pushEngine() {
+        code.aload(LOCAL_ENGINE);
+    }
+
+    /**
+     * Emits code pushing a value fixed at compile time.
+     *
+     * @param value the value to push, must not be <code>null</code>.
+     * @param type the public type to access the value as.
+     */
+    public void pushConstant(Object value, Class<?> type) {
+        if (!Modifier.isPublic(type.getModifiers()) || !type.isInstance(value)) {
+            throw new IllegalStateException("Invalid constant type: " + type);
+        }
+        int index = -1;
+        for (int i = 0, n = constants.size(); i < n; i++) {
+            if (constants.get(i) == value && constantTypes.get(i) == type) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            index = constants.size();
+            constants.add(value);
+            constantTypes.add(type);
+        }
+        code.aload(LOCAL_THIS);
+        code.fieldOp(Code.GETFIELD, classFile.getName(), constantName(index), descriptor(type));
+    }
+
+    /**
+     * Emits a virtual or interface invocation of a public method. The receiver and the arguments have to be on the
+     * operand stack.
+     *
+     * @param owner the class declaring the method.
+     * @param name the name of the method.
+     * @param parameterTypes the parameter types of the method.
+     */
+    public void invoke(Class<?> owner, String name, Class<?>... parameterTypes) {
+        Method method;
+        try {
+            method = owner.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+            throw new IllegalStateException("Not an instance method: " + method);
+        }
+        code.invoke(owner.isInterface() ? Code.INVOKEINTERFACE : Code.INVOKEVIRTUAL, internalName(owner), name,
+                    methodDescriptor(method.getReturnType(), parameterTypes));
+    }
+
+    protected static String constantName(int index) {
+        return "k" + index;
+    }
+
+    protected static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+    protected static String descriptor(Class<?> type) {
+        if (type.isArray()) {
+            return internalName(type);
+        }
+        if (type.isPrimitive()) {
+            if (type == void.class) {
+                return "V";
+            }
+            if (type == boolean.class) {
+                return "Z";
+            }
+            if (type == long.class) {
+                return "J";
+            }
+            return String.valueOf(Character.toUpperCase(type.getName().charAt(0)));
+        }
+        return "L" + internalName(type) + ";";
+    }
+
+    protected static String methodDescriptor(Class<?> returnType, Class<?>... parameterTypes) {
+        StringBuilder buf = new StringBuilder("(");
+        for (Class<?> type : parameterTypes) {
+            buf.append(descriptor(type));
+        }
+        return buf.append(')').append(descriptor(returnType)).toString();
+    }
+}
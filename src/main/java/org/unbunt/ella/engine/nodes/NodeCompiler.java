@@ -0,0 +1,256 @@
+/* NodeCompiler.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.engine.nodes;
+
+import org.unbunt.ella.compiler.statement.*;
+import org.unbunt.ella.compiler.stmtbase.Expression;
+import org.unbunt.ella.compiler.stmtbase.Statement;
+import org.unbunt.ella.compiler.support.AbstractCallable;
+import org.unbunt.ella.compiler.support.Function;
+import org.unbunt.ella.compiler.support.ObjectLiteral;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles statement trees into trees of executable nodes.
+ * <p>
+ * Compilation happens once per statement tree: function and closure bodies are compiled lazily on their first
+ * invocation and the result is kept with the callable.
+ */
+public class NodeCompiler implements ExpressionVisitor {
+    protected static final Node[] NO_NODES = new Node[0];
+
+    protected Node result;
+
+    /**
+     * Compiles the given statement.
+     *
+     * @param statement the statement to compile.
+     * @return the executable form of the statement.
+     */
+    public Node compile(Statement statement) {
+        statement.accept(this);
+        Node node = result;
+        result = null;
+        return node;
+    }
+
+    /**
+     * Compiles the body of the given callable.
+     * <p>
+     * Return statements directly contained in the body of a function are local to the function's frame, so they
+     * are compiled into the final statement of the body instead of unwinding the frame.
+     *
+     * @param callable the callable to compile the body of.
+     * @return the executable form of the body.
+     */
+    public Node compileBody(AbstractCallable callable) {
+        Statement body = callable.getBody();
+        if (callable instanceof Function && body instanceof Block) {
+            Block block = (Block) body;
+            List<Node> nodes = new ArrayList<Node>(block.getStatements().size());
+            for (Statement statement : block.getStatements()) {
+                if (statement instanceof ReturnStatement) {
+                    ReturnStatement returnStatement = (ReturnStatement) statement;
+                    if (returnStatement.hasExpression()) {
+                        nodes.add(compile(returnStatement.getExpression()));
+                    }
+                    break;
+                }
+                nodes.add(compile(statement));
+            }
+            Node[] statements = nodes.toArray(new Node[nodes.size()]);
+            return block.isScoped() ? new ScopedBlockNode(statements, block.getScope()) : new BlockNode(statements);
+        }
+        return compile(body);
+    }
+
+    protected Node[] compileAll(List<? extends Statement> statements) {
+        if (statements == null || statements.isEmpty()) {
+            return NO_NODES;
+        }
+        Node[] nodes = new Node[statements.size()];
+        int i = 0;
+        for (Statement statement : statements) {
+            nodes[i++] = compile(statement);
+        }
+        return nodes;
+    }
+
+    public void processExpression(Block blockExpression) {
+        Node[] statements = compileAll(blockExpression.getStatements());
+        result = blockExpression.isScoped()
+                 ? new ScopedBlockNode(statements, blockExpression.getScope())
+                 : new BlockNode(statements);
+    }
+
+    public void processExpression(IdentifierExpression identifierExpression) {
+        result = new ConstantNode(identifierExpression.getValue());
+    }
+
+    public void processExpression(IntegerLiteralExpression integerLiteralExpression) {
+        result = new ConstantNode(integerLiteralExpression.getValue());
+    }
+
+    public void processExpression(FloatingPointLiteralExpression floatingPointLiteralExpression) {
+        result = new ConstantNode(floatingPointLiteralExpression.getValue());
+    }
+
+    public void processExpression(BooleanLiteralExpression booleanLiteralExpression) {
+        result = new BooleanNode(booleanLiteralExpression.getValue());
+    }
+
+    public void processExpression(StringLiteralExpression stringLiteralExpression) {
+        result = new StringLiteralNode(stringLiteralExpression.getStringLiteral());
+    }
+
+    public void processExpression(ObjectLiteralExpression objectLiteralExpression) {
+        List<ObjectLiteral.SlotEntry> slots = objectLiteralExpression.getObjectLiteral().getSlots();
+        int n = slots.size();
+        Node[] keys = new Node[n];
+        Node[] values = new Node[n];
+        for (int i = 0; i < n; i++) {
+            ObjectLiteral.SlotEntry slot = slots.get(i);
+            keys[i] = compile(slot.key);
+            values[i] = compile(slot.value);
+        }
+        result = new ObjectLiteralNode(keys, values);
+    }
+
+    public void processExpression(ArrayLiteralExpression arrayLiteralExpression) {
+        Expression[] components = arrayLiteralExpression.getComponents();
+        Node[] nodes = new Node[components.length];
+        for (int i = 0; i < components.length; i++) {
+            nodes[i] = compile(components[i]);
+        }
+        result = new ArrayLiteralNode(nodes);
+    }
+
+    public void processExpression(SQLLiteralExpression sqlLiteralExpression) {
+        result = new SQLLiteralNode(sqlLiteralExpression.getParts(), sqlLiteralExpression.getParseMode());
+    }
+
+    public void processExpression(DeclareVariableExpression declareVariableExpression) {
+        result = new DeclareVariableNode(declareVariableExpression.getVariable());
+    }
+
+    public void processExpression(AssignExpression assignExpression) {
+        result = new AssignNode(assignExpression.getVariable(), compile(assignExpression.getRvalue()));
+    }
+
+    public void processExpression(DeclareAndAssignExpression declareAndAssignExpression) {
+        DeclareVariableNode declare = (DeclareVariableNode) compile(declareAndAssignExpression.getDeclareExpr());
+        AssignNode assign = (AssignNode) compile(declareAndAssignExpression.getAssignExpr());
+        result = new DeclareAndAssignNode(declare, assign);
+    }
+
+    public void processExpression(SlotSetExpression slotSetExpression) {
+        SlotExpression slotExpression = slotSetExpression.getSlotExpression();
+        Node receiver = compile(slotExpression.getReceiver());
+        Node slot = compile(slotExpression.getSlot());
+        result = new SlotSetNode(receiver, slot, compile(slotSetExpression.getValueExpression()));
+    }
+
+    public void processExpression(SlotExpression slotExpression) {
+        Node receiver = compile(slotExpression.getReceiver());
+        Expression slot = slotExpression.getSlot();
+        if (slot instanceof IdentifierExpression) {
+            // constant slot -> lookup through the inline cache of the slot expression
+            result = new SlotGetNode(receiver, ((IdentifierExpression) slot).getValue(),
+                                     slotExpression.getInlineCache());
+        }
+        else {
+            result = new DynamicSlotGetNode(receiver, compile(slot));
+        }
+    }
+
+    public void processExpression(VariableExpression variableExpression) {
+        result = new VariableNode(variableExpression.getVariable());
+    }
+
+    public void processExpression(FunctionDefinitionExpression functionDefinitionExpression) {
+        result = new FunctionDefinitionNode(functionDefinitionExpression.getFunction(),
+                                            functionDefinitionExpression.getVariable(),
+                                            functionDefinitionExpression.isDeclareVariable());
+    }
+
+    public void processExpression(FunctionCallExpression functionCallExpression) {
+        Node callee = compile(functionCallExpression.getExpression());
+        result = new CallNode(callee, compileAll(functionCallExpression.getArguments()),
+                              functionCallExpression.getCallFlags());
+    }
+
+    public void processExpression(SlotCallExpression slotCallExpression) {
+        SlotExpression slotExpression = slotCallExpression.getSlotExpression();
+        Node receiver = compile(slotExpression.getReceiver());
+        Expression slot = slotExpression.getSlot();
+        if (slot instanceof IdentifierExpression) {
+            // constant slot -> lookup through the inline cache of the call site
+            Node[] arguments = compileAll(slotCallExpression.getArguments());
+            result = new SlotCallNode(receiver, ((IdentifierExpression) slot).getValue(),
+                                      slotExpression.getInlineCache(), arguments, slotCallExpression.getCallFlags());
+        }
+        else {
+            Node slotNode = compile(slot);
+            Node[] arguments = compileAll(slotCallExpression.getArguments());
+            result = new DynamicSlotCallNode(receiver, slotNode, arguments, slotCallExpression.getCallFlags());
+        }
+    }
+
+    public void processExpression(ReturnStatement returnStatement) {
+        result = new ReturnNode(returnStatement.hasExpression() ? compile(returnStatement.getExpression()) : null);
+    }
+
+    public void processExpression(NewExpression newExpression) {
+        Node expression = compile(newExpression.getExpression());
+        result = new NewNode(expression, compileAll(newExpression.getArguments()));
+    }
+
+    public void processExpression(ThisExpression thisExpression) {
+        result = new ThisNode();
+    }
+
+    public void processExpression(SuperExpression superExpression) {
+        result = new SuperNode();
+    }
+
+    public void processExpression(BlockClosureExpression blockClosureExpression) {
+        result = new BlockClosureNode(blockClosureExpression.getBlockClosure());
+    }
+}
@@ -0,0 +1,86 @@
+/* SQLLiteralNode.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.engine.nodes;
+
+import org.unbunt.ella.compiler.support.SQLParseMode;
+import org.unbunt.ella.compiler.support.StringLiteral;
+import org.unbunt.ella.compiler.support.Variable;
+import org.unbunt.ella.engine.EllaTreeEngine;
+import org.unbunt.ella.engine.corelang.Obj;
+import org.unbunt.ella.engine.corelang.RawSQLObj;
+import org.unbunt.ella.engine.environment.Env;
+import org.unbunt.ella.engine.environment.EscapingVariableInterpolator;
+
+import java.util.List;
+
+/**
+ * Evaluates an SQL literal, interpolating any embedded variables.
+ */
+public class SQLLiteralNode extends Node {
+    protected final List<Object> parts;
+    protected final SQLParseMode parseMode;
+
+    public SQLLiteralNode(List<Object> parts, SQLParseMode parseMode) {
+        this.parts = parts;
+        this.parseMode = parseMode;
+    }
+
+    public Obj exec(EllaTreeEngine engine) {
+        Env env = engine.getEnv();
+        engine.getEnvVariableInterpolator().setEnv(env);
+        EscapingVariableInterpolator escapingVariableInterpolator = engine.getEscapingVariableInterpolator();
+        escapingVariableInterpolator.setStringType(parseMode.getStringType());
+
+        StringBuilder buf = new StringBuilder();
+        for (Object part : parts) {
+            if (part instanceof StringLiteral) {
+                StringLiteral string = (StringLiteral) part;
+                escapingVariableInterpolator.setDelim(string.getStartDelim());
+                buf.append(string.toSource(escapingVariableInterpolator));
+            }
+            else if (part instanceof Variable) {
+                buf.append(env.get((Variable) part).toString());
+            }
+            else {
+                buf.append(part.toString());
+            }
+        }
+
+        return new RawSQLObj(buf.toString(), parseMode);
+    }
+}
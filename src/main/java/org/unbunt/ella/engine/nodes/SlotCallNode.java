@@ -0,0 +1,105 @@
+/* SlotCallNode.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.engine.nodes;
+
+import org.unbunt.ella.engine.EllaTreeEngine;
+import org.unbunt.ella.engine.bytecode.Code;
+import org.unbunt.ella.engine.corelang.InlineCache;
+import org.unbunt.ella.engine.corelang.Obj;
+
+/**
+ * Invokes the value of a slot given by an identifier on the receiver. Lookups go through the inline cache of the
+ * call site this node was compiled from.
+ */
+public class SlotCallNode extends Node {
+    protected final Node receiver;
+    protected final Obj slot;
+    protected final InlineCache inlineCache;
+    protected final Node[] arguments;
+    protected final byte callFlags;
+
+    public SlotCallNode(Node receiver, Obj slot, InlineCache inlineCache, Node[] arguments, byte callFlags) {
+        this.receiver = receiver;
+        this.slot = slot;
+        this.inlineCache = inlineCache;
+        this.arguments = arguments;
+        this.callFlags = callFlags;
+    }
+
+    public Obj exec(EllaTreeEngine engine) {
+        Obj receiverObj = receiver.exec(engine);
+        Obj callee = engine.lookupSlot(inlineCache, receiverObj, slot);
+        // the holder has to be fetched before evaluating the arguments which may perform lookups themselves
+        Obj holder = engine.getSlotHolder();
+        if (arguments.length == 1) {
+            return engine.callBinary(callee, receiverObj, holder, arguments[0].exec(engine), callFlags);
+        }
+        return engine.call(callee, receiverObj, holder, execAll(engine, arguments), callFlags);
+    }
+
+    public void compile(BytecodeCompiler compiler) {
+        Code code = compiler.getCode();
+        int receiverObj = code.newLocal();
+        int callee = code.newLocal();
+        int holder = code.newLocal();
+        compiler.emit(receiver);
+        code.astore(receiverObj);
+        compiler.pushEngine();
+        compiler.pushConstant(inlineCache, InlineCache.class);
+        code.aload(receiverObj);
+        compiler.pushConstant(slot, Obj.class);
+        compiler.invoke(EllaTreeEngine.class, "lookupSlot", InlineCache.class, Obj.class, Obj.class);
+        code.astore(callee);
+        compiler.pushEngine();
+        compiler.invoke(EllaTreeEngine.class, "getSlotHolder");
+        code.astore(holder);
+        compiler.pushEngine();
+        code.aload(callee);
+        code.aload(receiverObj);
+        code.aload(holder);
+        if (arguments.length == 1) {
+            compiler.emit(arguments[0]);
+            code.pushInt(callFlags);
+            compiler.invoke(EllaTreeEngine.class, "callBinary", Obj.class, Obj.class, Obj.class, Obj.class, byte.class);
+            return;
+        }
+        compiler.emitAll(arguments);
+        code.pushInt(callFlags);
+        compiler.invoke(EllaTreeEngine.class, "call", Obj.class, Obj.class, Obj.class, Obj[].class, byte.class);
+    }
+}
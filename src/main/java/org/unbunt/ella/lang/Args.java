@@ -39,8 +39,6 @@ package org.unbunt.ella.lang;
 
 import org.unbunt.ella.exception.ClosureTerminatedException;
 import org.unbunt.ella.exception.EllaRuntimeException;
-import org.unbunt.ella.exception.LoopBreakException;
-import org.unbunt.ella.exception.LoopContinueException;
 import org.unbunt.ella.engine.corelang.*;
 import static org.unbunt.ella.engine.corelang.ObjUtils.ensureType;
 import org.unbunt.ella.engine.context.Context;
@@ -111,12 +109,8 @@ public class Args extends AbstractObj {
                 Obj clos = args[0];
 
                 for (Obj arg : thiz.args) {
-                    try {
-                        engine.invokeInLoop(clos, engine.getObjNull(), arg);
-                    } catch (LoopBreakException e) {
+                    if (engine.invokeLoopBody(clos, engine.getObjNull(), arg) == LoopStatus.BREAK) {
                         break;
-                    } catch (LoopContinueException e) {
-                        continue;
                     }
                 }
 
@@ -125,9 +119,9 @@ public class Args extends AbstractObj {
         };
 
         private ArgsProto() {
-            slots.put(Str.SYM_get, nativeGet);
-            slots.put(Str.SYM_size, nativeSize);
-            slots.put(Str.SYM_each, nativeEach);
+            putSlot(Str.SYM_get, nativeGet);
+            putSlot(Str.SYM_size, nativeSize);
+            putSlot(Str.SYM_each, nativeEach);
         }
 
         public static final int OBJECT_ID = ProtoRegistry.generateObjectID();
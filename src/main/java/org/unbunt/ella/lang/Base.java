@@ -43,8 +43,6 @@ import static org.unbunt.ella.engine.corelang.Consts.SLOT_CLONE_INIT;
 import static org.unbunt.ella.engine.corelang.Consts.SLOT_PARENT;
 import static org.unbunt.ella.engine.corelang.ObjUtils.ensureType;
 import org.unbunt.ella.exception.ClosureTerminatedException;
-import org.unbunt.ella.exception.LoopBreakException;
-import org.unbunt.ella.exception.LoopContinueException;
 
 import java.util.Map;
 
@@ -73,12 +71,8 @@ public class Base extends AbstractObj {
             Obj call = args[0];
 
             for (Map.Entry<Obj, Obj> entry : context.getSlots().entrySet()) {
-                try {
-                    engine.invokeInLoop(call, context, entry.getKey(), entry.getValue());
-                } catch (LoopBreakException e) {
+                if (engine.invokeLoopBody(call, context, entry.getKey(), entry.getValue()) == LoopStatus.BREAK) {
                     break;
-                } catch (LoopContinueException e) {
-                    continue;
                 }
             }
 
@@ -141,19 +135,19 @@ public class Base extends AbstractObj {
     public static final int OBJECT_ID = ProtoRegistry.generateObjectID();
 
     private Base() {
-        slots.put(Str.SYM__id, Primitives.ID);
-        slots.put(Str.SYM__ni, Primitives.NI);
-        slots.put(Str.SYM__eq, nativeEquals);
-        slots.put(Str.SYM__ne, nativeNotEquals);
-        slots.put(Str.SYM__logic_and, nativeAnd);
-        slots.put(Str.SYM__logic_or, nativeOr);
-        slots.put(Str.SYM__logic_not, nativeNot);
-        slots.put(Str.SYM_not, nativeNot);
-        slots.put(Str.SYM_clone, nativeClone);
-        slots.put(Str.SYM_each, nativeEach);
-        slots.put(Str.SYM_eachSlot, nativeEachSlot);
-        slots.put(Str.SYM_hasSlot, nativeHasSlot);
-        slots.put(Str.SYM_removeSlot, nativeRemoveSlot);
+        putSlot(Str.SYM__id, Primitives.ID);
+        putSlot(Str.SYM__ni, Primitives.NI);
+        putSlot(Str.SYM__eq, nativeEquals);
+        putSlot(Str.SYM__ne, nativeNotEquals);
+        putSlot(Str.SYM__logic_and, nativeAnd);
+        putSlot(Str.SYM__logic_or, nativeOr);
+        putSlot(Str.SYM__logic_not, nativeNot);
+        putSlot(Str.SYM_not, nativeNot);
+        putSlot(Str.SYM_clone, nativeClone);
+        putSlot(Str.SYM_each, nativeEach);
+        putSlot(Str.SYM_eachSlot, nativeEachSlot);
+        putSlot(Str.SYM_hasSlot, nativeHasSlot);
+        putSlot(Str.SYM_removeSlot, nativeRemoveSlot);
     }
 
     /**
@@ -153,10 +153,10 @@ public class BoolImpl extends AbstractObj implements Bool {
         };
 
         private BoolProto() {
-            slots.put(Str.SYM__logic_and, nativeAnd);
-            slots.put(Str.SYM__logic_or, nativeOr);
-            slots.put(Str.SYM__logic_not, nativeNot);
-            slots.put(Str.SYM_not, nativeNot);
+            putSlot(Str.SYM__logic_and, nativeAnd);
+            putSlot(Str.SYM__logic_or, nativeOr);
+            putSlot(Str.SYM__logic_not, nativeNot);
+            putSlot(Str.SYM_not, nativeNot);
         }
 
         public static final int OBJECT_ID = ProtoRegistry.generateObjectID();
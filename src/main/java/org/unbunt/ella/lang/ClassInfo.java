@@ -0,0 +1,256 @@
+/* ClassInfo.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.lang;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the reflection metadata of a Java class used for accessing the slots of {@link JObject} and
+ * {@link JClass} objects: the methods, getters, setters and fields by name.
+ * <p>
+ * The metadata is shared by all wrappers of a class and looked up once per name, including names not resolving to
+ * anything. Classes are retained weakly and their metadata softly, so neither prevents class unloading.
+ */
+public class ClassInfo {
+    protected static final Map<Class<?>, SoftReference<ClassInfo>> infos =
+            new WeakHashMap<Class<?>, SoftReference<ClassInfo>>();
+
+    protected static final Method[] NO_METHODS = new Method[0];
+
+    /**
+     * The members of names resolving to nothing.
+     */
+    protected static final Members NO_MEMBERS = new Members(NO_METHODS, null, NO_METHODS, null);
+
+    /**
+     * The described class.
+     */
+    public final Class<?> clazz;
+
+    /**
+     * The public methods of the described class.
+     */
+    protected final Method[] methods;
+
+    protected final ConcurrentMap<String, Members> members = new ConcurrentHashMap<String, Members>();
+    protected final ConcurrentMap<String, Members> staticMembers = new ConcurrentHashMap<String, Members>();
+
+    /**
+     * The public constructors of the described class, looked up on first use.
+     */
+    protected volatile Constructor[] constructors;
+
+    protected final OverloadCache<Constructor> constructorOverloads = new OverloadCache<Constructor>();
+
+    protected ClassInfo(Class<?> clazz) {
+        this.clazz = clazz;
+        this.methods = clazz.getMethods();
+    }
+
+    /**
+     * Returns the metadata of the given class.
+     *
+     * @param clazz the class.
+     * @return the metadata of the class.
+     */
+    public static ClassInfo forClass(Class<?> clazz) {
+        synchronized (infos) {
+            SoftReference<ClassInfo> ref = infos.get(clazz);
+            ClassInfo info = ref == null ? null : ref.get();
+            if (info == null) {
+                info = new ClassInfo(clazz);
+                infos.put(clazz, new SoftReference<ClassInfo>(info));
+            }
+            return info;
+        }
+    }
+
+    /**
+     * Returns the public methods of the described class.
+     *
+     * @return the public methods.
+     */
+    public Method[] getMethods() {
+        return methods.clone();
+    }
+
+    /**
+     * Returns the public constructor of the described class best matching the given arguments.
+     *
+     * @param argTypes the argument classes, <code>null</code> for arguments of unknown class.
+     * @param args the arguments.
+     * @return the matching constructor or <code>null</code> if there is none.
+     * @see ReflectionUtils#findMatchingConstructor(Constructor[], Class[], Object[])
+     */
+    public Constructor findConstructor(Class[] argTypes, Object[] args) {
+        Constructor ctor = constructorOverloads.get(argTypes);
+        if (ctor == null) {
+            Constructor[] ctors = constructors;
+            if (ctors == null) {
+                ctors = constructors = clazz.getConstructors();
+            }
+            ctor = ReflectionUtils.findMatchingConstructor(ctors, argTypes, args);
+            if (ctor != null) {
+                constructorOverloads.put(argTypes, ctor);
+            }
+        }
+        return ctor;
+    }
+
+    /**
+     * Returns the members accessible on instances of the described class under the given slot name.
+     *
+     * @param name the slot name.
+     * @return the members.
+     */
+    public Members getMembers(String name) {
+        Members result = members.get(name);
+        if (result == null) {
+            result = lookup(name, false);
+            members.put(name, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the static members of the described class accessible under the given slot name.
+     *
+     * @param name the slot name.
+     * @return the members.
+     */
+    public Members getStaticMembers(String name) {
+        Members result = staticMembers.get(name);
+        if (result == null) {
+            result = lookup(name, true);
+            staticMembers.put(name, result);
+        }
+        return result;
+    }
+
+    protected Members lookup(String name, boolean statics) {
+        String getterName = ReflectionUtils.getterFromProperty(name);
+        String setterName = ReflectionUtils.setterFromProperty(name);
+
+        List<Method> named = new ArrayList<Method>();
+        List<Method> setters = new ArrayList<Method>();
+        Method getter = null;
+        for (Method method : methods) {
+            if (statics && !Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            String methodName = method.getName();
+            if (methodName.equals(name)) {
+                named.add(method);
+            }
+            if (methodName.equals(setterName) && method.getParameterTypes().length == 1) {
+                setters.add(method);
+            }
+        }
+
+        // getters are looked up like Class.getMethod() does, preferring the most specific return type
+        try {
+            getter = clazz.getMethod(getterName);
+            if (statics && !Modifier.isStatic(getter.getModifiers())) {
+                getter = null;
+            }
+        } catch (NoSuchMethodException ignored) {
+        }
+
+        Field field = null;
+        try {
+            field = clazz.getField(name);
+            if (statics && !Modifier.isStatic(field.getModifiers())) {
+                field = null;
+            }
+        } catch (NoSuchFieldException ignored) {
+        }
+
+        if (named.isEmpty() && getter == null && setters.isEmpty() && field == null) {
+            return NO_MEMBERS;
+        }
+        return new Members(named.toArray(new Method[named.size()]), getter,
+                           setters.toArray(new Method[setters.size()]), field);
+    }
+
+    /**
+     * The members of a class accessible under a slot name.
+     */
+    public static class Members {
+        /**
+         * The methods named exactly like the slot.
+         */
+        public final Method[] methods;
+
+        /**
+         * The getter of the property named like the slot or <code>null</code> if there is none.
+         */
+        public final Method getter;
+
+        /**
+         * The setter methods of the property named like the slot taking one argument.
+         */
+        public final Method[] setters;
+
+        /**
+         * The field named like the slot or <code>null</code> if there is none.
+         */
+        public final Field field;
+
+        /**
+         * The resolved overloads of {@link #methods}.
+         */
+        public final OverloadCache<Method> overloads = new OverloadCache<Method>();
+
+        protected Members(Method[] methods, Method getter, Method[] setters, Field field) {
+            this.methods = methods;
+            this.getter = getter;
+            this.setters = setters;
+            this.field = field;
+        }
+    }
+}
@@ -39,25 +39,34 @@ package org.unbunt.ella.lang;
 
 import org.unbunt.ella.compiler.support.BlockClosure;
 import org.unbunt.ella.exception.ClosureTerminatedException;
-import org.unbunt.ella.exception.LoopBreakException;
-import org.unbunt.ella.exception.LoopContinueException;
 import org.unbunt.ella.engine.corelang.*;
 import static org.unbunt.ella.engine.corelang.ObjUtils.ensureType;
 import org.unbunt.ella.engine.context.Context;
+import org.unbunt.ella.engine.continuations.Continuation;
+import org.unbunt.ella.engine.environment.Env;
 
 /**
  * Represents a default implementation of the EllaScript core object <code>Clos</code>.
  */
 public class ClosImpl extends AbstractObj implements Clos {
-    protected BlockClosure closure;
+    protected final BlockClosure closure;
+    protected final Env env;
+    protected final int homeOffset;
+    protected final Continuation homeCont;
 
     /**
      * Creates a new Clos wrapping the given closure.
      *
      * @param closure the closure to wrap.
+     * @param env the environment the closure is created in.
+     * @param homeOffset the continuation stack offset of the function creating the closure.
+     * @param homeCont the continuation expected at the given offset.
      */
-    public ClosImpl(BlockClosure closure) {
+    public ClosImpl(BlockClosure closure, Env env, int homeOffset, Continuation homeCont) {
         this.closure = closure;
+        this.env = env;
+        this.homeOffset = homeOffset;
+        this.homeCont = homeCont;
     }
 
     public static final int OBJECT_ID = ProtoRegistry.generateObjectID();
@@ -92,6 +101,18 @@ public class ClosImpl extends AbstractObj implements Clos {
         return closure;
     }
 
+    public Env getEnv() {
+        return env;
+    }
+
+    public int getHomeOffset() {
+        return homeOffset;
+    }
+
+    public Continuation getHomeCont() {
+        return homeCont;
+    }
+
     /**
      * Represents the implicit parent object for Clos objects.
      */
@@ -107,12 +128,12 @@ public class ClosImpl extends AbstractObj implements Clos {
                         break;
                     }
 
-                    try {
-                        result = engine.invokeInLoop(args[0], _null);
-                    } catch (LoopBreakException e) {
+                    LoopStatus status = engine.invokeLoopBody(args[0], _null);
+                    if (status == LoopStatus.BREAK) {
                         break;
-                    } catch (LoopContinueException e) {
-                        continue;
+                    }
+                    if (status == LoopStatus.NEXT) {
+                        result = engine.getVal();
                     }
                 }
                 return result;
@@ -120,7 +141,7 @@ public class ClosImpl extends AbstractObj implements Clos {
         };
 
         private ClosProto() {
-            this.slots.put(Str.SYM_whileTrue, nativeWhileTrue);
+            putSlot(Str.SYM_whileTrue, nativeWhileTrue);
         }
 
         public static final int OBJECT_ID = ProtoRegistry.generateObjectID();
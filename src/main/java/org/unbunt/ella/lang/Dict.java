@@ -41,8 +41,6 @@ import org.unbunt.ella.engine.corelang.ObjUtils;
 import org.unbunt.ella.engine.corelang.*;
 import static org.unbunt.ella.engine.corelang.ObjUtils.ensureType;
 import org.unbunt.ella.exception.ClosureTerminatedException;
-import org.unbunt.ella.exception.LoopContinueException;
-import org.unbunt.ella.exception.LoopBreakException;
 import org.unbunt.ella.engine.context.Context;
 
 import java.util.Map;
@@ -117,11 +115,7 @@ public class Dict extends AbstractObj {
 
                 Map<Obj,Obj> slots = thiz.value.getSlots();
                 for (Map.Entry<Obj, Obj> entry : slots.entrySet()) {
-                    try {
-                        engine.invokeInLoop(closure, _null, entry.getKey(), entry.getValue());
-                    } catch (LoopContinueException e) {
-                        continue;
-                    } catch (LoopBreakException e) {
+                    if (engine.invokeLoopBody(closure, _null, entry.getKey(), entry.getValue()) == LoopStatus.BREAK) {
                         break;
                     }
                 }
@@ -182,14 +176,13 @@ public class Dict extends AbstractObj {
                 Dict result = new Dict(new PlainObj());
                 Map<Obj, Obj> resultSlots = result.value.getSlots();
                 for (Map.Entry<Obj, Obj> entry : slots.entrySet()) {
-                    try {
-                        resultSlots.put(entry.getKey(),
-                                        engine.invokeInLoop(clos, _null, entry.getKey(), entry.getValue()));
-                    } catch (LoopContinueException e) {
-                        continue;
-                    } catch (LoopBreakException e) {
+                    LoopStatus status = engine.invokeLoopBody(clos, _null, entry.getKey(), entry.getValue());
+                    if (status == LoopStatus.BREAK) {
                         break;
                     }
+                    if (status == LoopStatus.NEXT) {
+                        resultSlots.put(entry.getKey(), engine.getVal());
+                    }
                 }
 
                 return result;
@@ -211,14 +204,14 @@ public class Dict extends AbstractObj {
         };
 
         private DictProto() {
-            slots.put(Str.SYM_each, nativeEach);
-            slots.put(Str.SYM_size, nativeSize);
-            slots.put(Str.SYM_map, nativeMap);
-            slots.put(Str.SYM_values, nativeValues);
-            slots.put(Str.SYM_get, nativeGet);
-            slots.put(Str.SYM_set, nativeSet);
-            slots.put(Str.SYM_has, nativeHas);
-            slots.put(Str.SYM_remove, nativeRemove);
+            putSlot(Str.SYM_each, nativeEach);
+            putSlot(Str.SYM_size, nativeSize);
+            putSlot(Str.SYM_map, nativeMap);
+            putSlot(Str.SYM_values, nativeValues);
+            putSlot(Str.SYM_get, nativeGet);
+            putSlot(Str.SYM_set, nativeSet);
+            putSlot(Str.SYM_has, nativeHas);
+            putSlot(Str.SYM_remove, nativeRemove);
         }
 
         public Call getNativeConstructor() {
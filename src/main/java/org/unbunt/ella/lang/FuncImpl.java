@@ -42,20 +42,24 @@ import org.unbunt.ella.engine.corelang.*;
 import org.unbunt.ella.exception.ClosureTerminatedException;
 import org.unbunt.ella.compiler.support.Function;
 import org.unbunt.ella.engine.context.Context;
+import org.unbunt.ella.engine.environment.Env;
 
 /**
  * Represents a default implementation of the EllaScript core object <code>Func</code>.
  */
 public class FuncImpl extends AbstractObj implements Func {
-    protected Function function;
+    protected final Function function;
+    protected final Env env;
 
     /**
      * Creates a new Func wrapping the given function.
      *
      * @param function the function to wrap.
+     * @param env the environment the function is defined in.
      */
-    public FuncImpl(Function function) {
+    public FuncImpl(Function function, Env env) {
         this.function = function;
+        this.env = env;
     }
 
     public static final int OBJECT_ID = ProtoRegistry.generateObjectID();
@@ -90,6 +94,10 @@ public class FuncImpl extends AbstractObj implements Func {
         return function;
     }
 
+    public Env getEnv() {
+        return env;
+    }
+
     /**
      * Represents the implicit parent object for Func objects.
      */
@@ -103,7 +111,7 @@ public class FuncImpl extends AbstractObj implements Func {
         };
 
         private FuncProto() {
-            slots.put(Str.SYM_call, nativeCall);
+            putSlot(Str.SYM_call, nativeCall);
         }
 
         public static final int OBJECT_ID = ProtoRegistry.generateObjectID();
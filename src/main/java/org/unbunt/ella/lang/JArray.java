@@ -185,9 +185,9 @@ public class JArray extends AbstractObj {
         };
 
         private JArrayProto() {
-            slots.put(Str.SYM_each, nativeEach);
-            slots.put(Str.SYM_get, nativeGet);
-            slots.put(Str.SYM_set, nativeSet);
+            putSlot(Str.SYM_each, nativeEach);
+            putSlot(Str.SYM_get, nativeGet);
+            putSlot(Str.SYM_set, nativeSet);
         }
 
         public static final int OBJECT_ID = ProtoRegistry.generateObjectID();
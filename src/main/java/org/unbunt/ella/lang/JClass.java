@@ -57,6 +57,11 @@ public class JClass extends AbstractObj implements NativeObj {
      */
     public final Class<?> clazz;
 
+    /**
+     * The reflection metadata of the wrapped class, looked up on first use.
+     */
+    protected ClassInfo classInfo;
+
     protected static final Call NATIVE_CONSTRUCTOR = new NativeCall() {
         public Obj call(Engine engine, Obj context, Obj[] args) throws ClosureTerminatedException {
             Object result;
@@ -79,16 +84,14 @@ public class JClass extends AbstractObj implements NativeObj {
             Object[] jargs = NativeWrapper.unwrap(args);
 
             Constructor ctor =
-                    ReflectionUtils.findMatchingConstructor(cls.getConstructors(),
-                                                            ReflectionUtils.getArgTypes(jargs, args),
-                                                            jargs);
+                    ((JClass) context).getClassInfo().findConstructor(ReflectionUtils.getArgTypes(jargs, args), jargs);
 
             if (ctor == null) {
                 throw new EllaRuntimeException("No such constructor");
             }
 
             try {
-                result = ctor.newInstance(NativeWrapper.unwrap(args));
+                result = ctor.newInstance(jargs);
             } catch (InstantiationException e) {
                 throw new EllaRuntimeException(e);
             } catch (IllegalAccessException e) {
@@ -130,36 +133,39 @@ public class JClass extends AbstractObj implements NativeObj {
         return NATIVE_CONSTRUCTOR;
     }
 
+    /**
+     * Returns the reflection metadata of the wrapped class.
+     *
+     * @return the reflection metadata.
+     */
+    protected ClassInfo getClassInfo() {
+        ClassInfo info = classInfo;
+        if (info == null) {
+            info = classInfo = ClassInfo.forClass(clazz);
+        }
+        return info;
+    }
+
     @Override
     public Obj getSlot(Context ctx, Obj key) {
-        Obj value = slots.get(key);
+        Obj value = getOwnSlot(key);
         if (value != null) {
             return value;
         }
 
-        String keyStr = key.toString();
+        ClassInfo.Members members = getClassInfo().getStaticMembers(key.toString());
 
         // try to load method named exactly like the slot
-        List<Method> directMatches = ReflectionUtils.getStaticMethods(clazz, keyStr);
-        if (!directMatches.isEmpty()) {
-            JMethod method = new JMethod(directMatches.toArray(new Method[directMatches.size()]));
-            slots.put(key, method);
+        if (members.methods.length != 0) {
+            JMethod method = new JMethod(members.methods, members.overloads);
+            putSlot(key, method);
             return method;
         }
 
         // interpret given slot name as property name and try to find and invoke corresponding getter method
-        String propStr = ReflectionUtils.getterFromProperty(keyStr);
-        Method getter = null;
-        try {
-            getter = clazz.getMethod(propStr, (Class[])null);
-            if (!Modifier.isStatic(getter.getModifiers())) {
-                getter = null;
-            }
-        } catch (NoSuchMethodException ignored) {
-        }
-        if (getter != null) {
+        if (members.getter != null) {
             try {
-                return ReflectionUtils.invokeMethod(ctx, getter, null, (Object[])null);
+                return ReflectionUtils.invokeMethod(ctx, members.getter, null, (Object[])null);
             } catch (IllegalAccessException ignored) {
                 // access to getter denied by vm -> act as if no getter method was found;
             } catch (InvocationTargetException e) {
@@ -169,14 +175,12 @@ public class JClass extends AbstractObj implements NativeObj {
         }
 
         // try to find property named like the slot
-        try {
-            Field field = clazz.getField(keyStr);
-            if (Modifier.isStatic(field.getModifiers())) {
-                Object fieldValue = field.get(null);
+        if (members.field != null) {
+            try {
+                Object fieldValue = members.field.get(null);
                 return NativeWrapper.wrap(ctx, fieldValue);
+            } catch (IllegalAccessException ignored) {
             }
-        } catch (NoSuchFieldException ignored) {
-        } catch (IllegalAccessException ignored) {
         }
 
         return null;
@@ -184,55 +188,45 @@ public class JClass extends AbstractObj implements NativeObj {
 
     @Override
     public Obj setSlot(Context ctx, Obj key, Obj val) {
-        if (slots.containsKey(key)) {
-            slots.put(key, val);
+        if (hasOwnSlot(key)) {
+            putSlot(key, val);
             return this;
         }
 
-        String keyStr = key.toString();
+        ClassInfo.Members members = getClassInfo().getStaticMembers(key.toString());
         Object jvalue = val.toJavaObject();
 
         // interpret given slot name as property name and try to find and invoke corresponding setter method
-        String propStr = ReflectionUtils.setterFromProperty(keyStr);
-        Method[] methods = clazz.getMethods();
-        Method[] staticMethods = new Method[methods.length];
-        for (int i = 0; i < staticMethods.length; i++) {
-            Method m = staticMethods[i];
-            int flags = m.getModifiers();
-            if (Modifier.isStatic(flags)) {
-                staticMethods[i] = m;
-            }
-        }
-        Method setter = ReflectionUtils.findMatchingMethod(staticMethods, propStr,
-                                                           new Class[] {
-                                                                   jvalue == null ? null : jvalue.getClass()
-                                                           },
-                                                           new Object[] { jvalue });
-        if (setter != null) {
-            try {
-                ReflectionUtils.invokeMethod(ctx, setter, null, jvalue);
-            } catch (IllegalAccessException ignored) {
-                // access to setter denied by vm -> act as if no setter method was found;
-            } catch (InvocationTargetException e) {
-                // exception thrown by setter -> re-throw as script exception
-                throw ReflectionUtils.wrapInvocationTargetException(e);
+        if (members.setters.length != 0) {
+            Method setter = ReflectionUtils.findMatchingMethod(members.setters,
+                                                               new Class[] {
+                                                                       jvalue == null ? null : jvalue.getClass()
+                                                               },
+                                                               new Object[] { jvalue });
+            if (setter != null) {
+                try {
+                    ReflectionUtils.invokeMethod(ctx, setter, null, jvalue);
+                    return this;
+                } catch (IllegalAccessException ignored) {
+                    // access to setter denied by vm -> act as if no setter method was found;
+                } catch (InvocationTargetException e) {
+                    // exception thrown by setter -> re-throw as script exception
+                    throw ReflectionUtils.wrapInvocationTargetException(e);
+                }
             }
         }
 
         // try to find property named like the slot and set it's value
-        try {
-            Field field = clazz.getField(keyStr);
-            int flags = field.getModifiers();
-            if (Modifier.isStatic(flags)) {
-                field.set(null, val);
+        if (members.field != null) {
+            try {
+                members.field.set(null, val);
                 return this;
+            } catch (IllegalAccessException ignored) {
             }
-        } catch (NoSuchFieldException ignored) {
-        } catch (IllegalAccessException ignored) {
         }
 
         // fall back to using normal script object property (slot)
-        slots.put(key, val);
+        putSlot(key, val);
 
         return this;
     }
@@ -243,7 +237,7 @@ public class JClass extends AbstractObj implements NativeObj {
     public Map<Obj, Obj> getSlots() {
         Map<Obj, Obj> result = new HashMap<Obj, Obj>();
         Map<String, List<Method>> methodsByName = new HashMap<String, List<Method>>();
-        Method[] methods = clazz.getMethods();
+        Method[] methods = getClassInfo().getMethods();
         for (Method method : methods) {
             String name = method.getName();
             List<Method> namedMethods = methodsByName.get(name);
@@ -261,7 +255,7 @@ public class JClass extends AbstractObj implements NativeObj {
                     new JMethod(namedMethods.toArray(new Method[namedMethods.size()]))
             );
         }
-        result.putAll(slots);
+        result.putAll(super.getSlots());
         return result;
     }
 
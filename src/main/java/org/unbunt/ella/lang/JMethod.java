@@ -67,17 +67,34 @@ public class JMethod extends NativeCall {
      */
     protected final boolean selected;
 
+    /**
+     * The overloads of the wrapped methods resolved by previous calls.
+     */
+    protected final OverloadCache<Method> overloads;
+
     /**
      * Creates a new JMethod wrapping the given methods.
      *
      * @param methods the methods to wrap.
      */
     public JMethod(Method[] methods) {
-        this(methods, false);
+        this(methods, new OverloadCache<Method>(), false);
     }
 
-    private JMethod(Method[] methods, boolean selected) {
+    /**
+     * Creates a new JMethod wrapping the given methods, sharing the overload resolutions with all JMethod objects
+     * created with the same cache.
+     *
+     * @param methods the methods to wrap.
+     * @param overloads the cache of resolved overloads of the given methods.
+     */
+    public JMethod(Method[] methods, OverloadCache<Method> overloads) {
+        this(methods, overloads, false);
+    }
+
+    private JMethod(Method[] methods, OverloadCache<Method> overloads, boolean selected) {
         this.methods = methods;
+        this.overloads = overloads;
         this.selected = selected;
     }
 
@@ -94,7 +111,14 @@ public class JMethod extends NativeCall {
                 }
             }
             else {
-                method = ReflectionUtils.findMatchingMethod(methods, ReflectionUtils.getArgTypes(jargs, args), jargs);
+                Class[] argTypes = ReflectionUtils.getArgTypes(jargs, args);
+                method = overloads.get(argTypes);
+                if (method == null) {
+                    method = ReflectionUtils.findMatchingMethod(methods, argTypes, jargs);
+                    if (method != null) {
+                        overloads.put(argTypes, method);
+                    }
+                }
             }
             if (method == null) {
                 throw new EllaRuntimeException("No such method");
@@ -153,7 +177,7 @@ public class JMethod extends NativeCall {
                 if (selectedMethods.length == 0) {
                     throw new EllaRuntimeException("No such method");
                 }
-                return new JMethod(selectedMethods, true);
+                return new JMethod(selectedMethods, new OverloadCache<Method>(), true);
             }
         };
 
@@ -166,8 +190,8 @@ public class JMethod extends NativeCall {
         };
 
         private JMethodProto() {
-            slots.put(Str.SYM_select, nativeSelect);
-            slots.put(Str.SYM_call, nativeCall);
+            putSlot(Str.SYM_select, nativeSelect);
+            putSlot(Str.SYM_call, nativeCall);
         }
 
         @Override
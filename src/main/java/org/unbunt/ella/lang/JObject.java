@@ -42,7 +42,6 @@ import org.unbunt.ella.engine.corelang.AbstractObj;
 import org.unbunt.ella.engine.corelang.Obj;
 import org.unbunt.ella.engine.corelang.ProtoRegistry;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -66,6 +65,11 @@ public class JObject extends AbstractObj {
      */
     public final Class<?> clazz;
 
+    /**
+     * The reflection metadata of the type of the wrapped object, looked up on first use.
+     */
+    protected ClassInfo classInfo;
+
     /**
      * Creates a new JObject wrapping the given Java object.
      *
@@ -76,33 +80,39 @@ public class JObject extends AbstractObj {
         this.clazz = value.getClass();
     }
 
+    /**
+     * Returns the reflection metadata of the type of the wrapped object.
+     *
+     * @return the reflection metadata.
+     */
+    protected ClassInfo getClassInfo() {
+        ClassInfo info = classInfo;
+        if (info == null) {
+            info = classInfo = ClassInfo.forClass(clazz);
+        }
+        return info;
+    }
+
     @Override
     public Obj getSlot(Context ctx, Obj key) {
-        Obj val = slots.get(key);
+        Obj val = getOwnSlot(key);
         if (val != null) {
             return val;
         }
 
-        String keyStr = key.toString();
+        ClassInfo.Members members = getClassInfo().getMembers(key.toString());
 
         // try to load method named exactly like the slot
-        List<Method> directMatches = ReflectionUtils.getMethods(clazz, keyStr);
-        if (!directMatches.isEmpty()) {
-            JMethod method = new JMethod(directMatches.toArray(new Method[directMatches.size()]));
-            slots.put(key, method);
+        if (members.methods.length != 0) {
+            JMethod method = new JMethod(members.methods, members.overloads);
+            putSlot(key, method);
             return method;
         }
 
         // interpret given slot name as property name and try to find and invoke corresponding getter method
-        String propStr = ReflectionUtils.getterFromProperty(keyStr);
-        Method getter = null;
-        try {
-            getter = clazz.getMethod(propStr, (Class[])null);
-        } catch (NoSuchMethodException ignored) {
-        }
-        if (getter != null) {
+        if (members.getter != null) {
             try {
-                return ReflectionUtils.invokeMethod(ctx, getter, value, (Object[])null);
+                return ReflectionUtils.invokeMethod(ctx, members.getter, value, (Object[])null);
             } catch (IllegalAccessException ignored) {
                 // access to getter denied by vm -> act as if no getter method was found;
             } catch (InvocationTargetException e) {
@@ -112,12 +122,12 @@ public class JObject extends AbstractObj {
         }
 
         // try to find property named like the slot
-        try {
-            Field field = clazz.getField(keyStr);
-            Object fieldValue = field.get(value);
-            return NativeWrapper.wrap(ctx, fieldValue);
-        } catch (NoSuchFieldException ignored) {
-        } catch (IllegalAccessException ignored) {
+        if (members.field != null) {
+            try {
+                Object fieldValue = members.field.get(value);
+                return NativeWrapper.wrap(ctx, fieldValue);
+            } catch (IllegalAccessException ignored) {
+            }
         }
 
         return null;
@@ -125,44 +135,44 @@ public class JObject extends AbstractObj {
 
     @Override
     public Obj setSlot(Context ctx, Obj key, Obj val) {
-        if (slots.containsKey(key)) {
-            slots.put(key, val);
+        if (hasOwnSlot(key)) {
+            putSlot(key, val);
             return this;
         }
 
-        String keyStr = key.toString();
+        ClassInfo.Members members = getClassInfo().getMembers(key.toString());
         Object jvalue = val.toJavaObject();
 
         // interpret given slot name as property name and try to find and invoke corresponding setter method
-        String propStr = ReflectionUtils.setterFromProperty(keyStr);
-        Method[] methods = clazz.getMethods();
-        Method setter = ReflectionUtils.findMatchingMethod(methods, propStr,
-                                                           new Class[] {
-                                                                   jvalue == null ? null : jvalue.getClass()
-                                                           },
-                                                           new Object[] { jvalue });
-        if (setter != null) {
-            try {
-                return ReflectionUtils.invokeMethod(ctx, setter, value, jvalue);
-            } catch (IllegalAccessException ignored) {
-                // access to setter denied by vm -> act as if no setter method was found;
-            } catch (InvocationTargetException e) {
-                // exception thrown by setter -> re-throw as script exception
-                throw ReflectionUtils.wrapInvocationTargetException(e);
+        if (members.setters.length != 0) {
+            Method setter = ReflectionUtils.findMatchingMethod(members.setters,
+                                                               new Class[] {
+                                                                       jvalue == null ? null : jvalue.getClass()
+                                                               },
+                                                               new Object[] { jvalue });
+            if (setter != null) {
+                try {
+                    return ReflectionUtils.invokeMethod(ctx, setter, value, jvalue);
+                } catch (IllegalAccessException ignored) {
+                    // access to setter denied by vm -> act as if no setter method was found;
+                } catch (InvocationTargetException e) {
+                    // exception thrown by setter -> re-throw as script exception
+                    throw ReflectionUtils.wrapInvocationTargetException(e);
+                }
             }
         }
 
         // try to find property named like the slot and set it's value
-        try {
-            Field field = clazz.getField(keyStr);
-            field.set(value, val);
-            return this;
-        } catch (NoSuchFieldException ignored) {
-        } catch (IllegalAccessException ignored) {
+        if (members.field != null) {
+            try {
+                members.field.set(value, val);
+                return this;
+            } catch (IllegalAccessException ignored) {
+            }
         }
 
         // fall back to using normal script object property (slot)
-        slots.put(key, val);
+        putSlot(key, val);
 
         return this;
     }
@@ -172,7 +182,7 @@ public class JObject extends AbstractObj {
     public Map<Obj, Obj> getSlots() {
         Map<Obj, Obj> result = new HashMap<Obj, Obj>();
         Map<String, List<Method>> methodsByName = new HashMap<String, List<Method>>();
-        Method[] methods = clazz.getMethods();
+        Method[] methods = getClassInfo().getMethods();
         for (Method method : methods) {
             String name = method.getName();
             List<Method> namedMethods = methodsByName.get(name);
@@ -190,7 +200,7 @@ public class JObject extends AbstractObj {
                     new JMethod(namedMethods.toArray(new Method[namedMethods.size()]))
             );
         }
-        result.putAll(slots);
+        result.putAll(super.getSlots());
         return result;
     }
 
@@ -42,8 +42,6 @@ import org.unbunt.ella.engine.corelang.*;
 import static org.unbunt.ella.engine.corelang.ObjUtils.ensureType;
 import org.unbunt.ella.exception.ClosureTerminatedException;
 import org.unbunt.ella.exception.EllaRuntimeException;
-import org.unbunt.ella.exception.LoopBreakException;
-import org.unbunt.ella.exception.LoopContinueException;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -256,11 +254,7 @@ public class Lst extends AbstractObj {
 
                 if (closureArgs == 1) {
                     for (Obj obj : thiz.value) {
-                        try {
-                            engine.invokeInLoop(closure, _null, obj);
-                        } catch (LoopContinueException e) {
-                            continue;
-                        } catch (LoopBreakException e) {
+                        if (engine.invokeLoopBody(closure, _null, obj) == LoopStatus.BREAK) {
                             break;
                         }
                     }
@@ -269,11 +263,7 @@ public class Lst extends AbstractObj {
                     int size = thiz.value.size();
                     List<Obj> list = thiz.value;
                     for (int i = 0; i < size; i++) {
-                        try {
-                            engine.invokeInLoop(closure, _null, NativeWrapper.wrap(i), list.get(i));
-                        } catch (LoopContinueException e) {
-                            continue;
-                        } catch (LoopBreakException e) {
+                        if (engine.invokeLoopBody(closure, _null, NativeWrapper.wrap(i), list.get(i)) == LoopStatus.BREAK) {
                             break;
                         }
                     }
@@ -316,12 +306,12 @@ public class Lst extends AbstractObj {
                 Lst thiz = ensureType(Lst.class, context);
                 Obj call = args[0];
                 for (int i = 0; i < thiz.value.size(); i++) {
-                    try {
-                        thiz.value.set(i, engine.invokeInLoop(call, thiz, thiz.value.get(i)));
-                    } catch (LoopBreakException e) {
+                    LoopStatus status = engine.invokeLoopBody(call, thiz, thiz.value.get(i));
+                    if (status == LoopStatus.BREAK) {
                         break;
-                    } catch (LoopContinueException e) {
-                        continue;
+                    }
+                    if (status == LoopStatus.NEXT) {
+                        thiz.value.set(i, engine.getVal());
                     }
                 }
                 return thiz;
@@ -335,14 +325,12 @@ public class Lst extends AbstractObj {
                 Obj call = args[0];
                 Lst result = new Lst(thiz.value.size());
                 for (Obj obj : thiz.value) {
-                    try {
-                        if (trueObj.equals(engine.invokeInLoop(call, thiz, obj))) {
-                            result.value.add(obj);
-                        }
-                    } catch (LoopBreakException e) {
+                    LoopStatus status = engine.invokeLoopBody(call, thiz, obj);
+                    if (status == LoopStatus.BREAK) {
                         break;
-                    } catch (LoopContinueException e) {
-                        continue;
+                    }
+                    if (status == LoopStatus.NEXT && trueObj.equals(engine.getVal())) {
+                        result.value.add(obj);
                     }
                 }
                 return result;
@@ -350,17 +338,17 @@ public class Lst extends AbstractObj {
         };
 
         private LstProto() {
-            slots.put(Str.SYM_clone, nativeClone);
-            slots.put(Str.SYM_get, nativeGet);
-            slots.put(Str.SYM_set, nativeSet);
-            slots.put(Str.SYM_add, nativeAdd);
-            slots.put(Str.SYM_addAll, nativeAddAll);
-            slots.put(Str.SYM_remove, nativeRemove);
-            slots.put(Str.SYM_size, nativeSize);
-            slots.put(Str.SYM_each, nativeEach);
-            slots.put(Str.SYM_join, nativeJoin);
-            slots.put(Str.SYM_map, nativeMap);
-            slots.put(Str.SYM_filter, nativeFilter);
+            putSlot(Str.SYM_clone, nativeClone);
+            putSlot(Str.SYM_get, nativeGet);
+            putSlot(Str.SYM_set, nativeSet);
+            putSlot(Str.SYM_add, nativeAdd);
+            putSlot(Str.SYM_addAll, nativeAddAll);
+            putSlot(Str.SYM_remove, nativeRemove);
+            putSlot(Str.SYM_size, nativeSize);
+            putSlot(Str.SYM_each, nativeEach);
+            putSlot(Str.SYM_join, nativeJoin);
+            putSlot(Str.SYM_map, nativeMap);
+            putSlot(Str.SYM_filter, nativeFilter);
         }
 
         public Call getNativeConstructor() {
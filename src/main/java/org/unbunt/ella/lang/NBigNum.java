@@ -373,12 +373,12 @@ public class NBigNum extends AbstractObj implements NNumeric {
         };
 
         private NBigNumProto() {
-            slots.put(Str.SYM__plus, nativeAdd);
-            slots.put(Str.SYM__minus, nativeSubtract);
-            slots.put(Str.SYM__star, nativeMultiply);
-            slots.put(Str.SYM__slash, nativeDivide);
-            slots.put(Str.SYM_neg, nativeNegate);
-            slots.put(Str.SYM_valueOf, nativeValueOf);
+            putSlot(Str.SYM__plus, nativeAdd);
+            putSlot(Str.SYM__minus, nativeSubtract);
+            putSlot(Str.SYM__star, nativeMultiply);
+            putSlot(Str.SYM__slash, nativeDivide);
+            putSlot(Str.SYM_neg, nativeNegate);
+            putSlot(Str.SYM_valueOf, nativeValueOf);
         }
 
         @Override
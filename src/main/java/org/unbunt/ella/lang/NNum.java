@@ -279,7 +279,7 @@ public class NNum extends AbstractObj implements NNumeric {
             }
         };
 
-        protected static final NativeCall nativeAdd = new NativeCall() {
+        protected static final NativeCall nativeAdd = new NumericOp(NumericOp.OP_ADD) {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 NNum thiz = ensureType(NNum.class, context);
                 NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -290,7 +290,7 @@ public class NNum extends AbstractObj implements NNumeric {
             }
         };
 
-        protected static final NativeCall nativeSubtract = new NativeCall() {
+        protected static final NativeCall nativeSubtract = new NumericOp(NumericOp.OP_SUBTRACT) {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 NNum thiz = ensureType(NNum.class, context);
                 NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -301,7 +301,7 @@ public class NNum extends AbstractObj implements NNumeric {
             }
         };
 
-        protected static final NativeCall nativeMultiply = new NativeCall() {
+        protected static final NativeCall nativeMultiply = new NumericOp(NumericOp.OP_MULTIPLY) {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 NNum thiz = ensureType(NNum.class, context);
                 NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -312,7 +312,7 @@ public class NNum extends AbstractObj implements NNumeric {
             }
         };
 
-        protected static final NativeCall nativeDivide = new NativeCall() {
+        protected static final NativeCall nativeDivide = new NumericOp(NumericOp.OP_DIVIDE) {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 NNum thiz = ensureType(NNum.class, context);
                 NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -361,22 +361,14 @@ public class NNum extends AbstractObj implements NNumeric {
                 long i = start;
 
                 Null _null = engine.getObjNull();
-                try {
-                    engine.invokeInLoop(closure, _null, NativeWrapper.wrap(i));
-                } catch (LoopBreakException e) {
+                if (engine.invokeLoopBody(closure, _null, NativeWrapper.wrap(i)) == LoopStatus.BREAK) {
                     return null;
-                } catch (LoopContinueException e) {
-                    // nothing to do here just proceed to next iteration
                 }
 
                 while (i != stop) {
-                    try {
-                        i += step;
-                        engine.invokeInLoop(closure, _null, NativeWrapper.wrap(i));
-                    } catch (LoopBreakException e) {
+                    i += step;
+                    if (engine.invokeLoopBody(closure, _null, NativeWrapper.wrap(i)) == LoopStatus.BREAK) {
                         return null;
-                    } catch (LoopContinueException e) {
-                        // nothing to do here just proceed to next iteration
                     }
                 }
 
@@ -393,14 +385,14 @@ public class NNum extends AbstractObj implements NNumeric {
         };
 
         private NNumProto() {
-            slots.put(Str.SYM__plus, nativeAdd);
-            slots.put(Str.SYM__minus, nativeSubtract);
-            slots.put(Str.SYM__slash, nativeDivide);
-            slots.put(Str.SYM__star, nativeMultiply);
-            slots.put(Str.SYM_neg, nativeNegate);
-            slots.put(Str.SYM__dotdot, nativeRange);
-            slots.put(Str.SYM_valueOf, nativeValueOf);
-            slots.put(Str.SYM_to, nativeTo);
+            putSlot(Str.SYM__plus, nativeAdd);
+            putSlot(Str.SYM__minus, nativeSubtract);
+            putSlot(Str.SYM__slash, nativeDivide);
+            putSlot(Str.SYM__star, nativeMultiply);
+            putSlot(Str.SYM_neg, nativeNegate);
+            putSlot(Str.SYM__dotdot, nativeRange);
+            putSlot(Str.SYM_valueOf, nativeValueOf);
+            putSlot(Str.SYM_to, nativeTo);
         }
 
         @Override
@@ -119,7 +119,7 @@ public class NNumericProto extends AbstractObj {
         }
     };
 
-    protected static final NativeCall nativeGreaterThan = new NativeCall() {
+    protected static final NativeCall nativeGreaterThan = new NumericOp(NumericOp.OP_GREATER_THAN) {
         public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
             NNumeric thiz = ensureType(NNumeric.class, context);
             NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -131,7 +131,7 @@ public class NNumericProto extends AbstractObj {
         }
     };
 
-    protected static final NativeCall nativeGreaterOrEqual = new NativeCall() {
+    protected static final NativeCall nativeGreaterOrEqual = new NumericOp(NumericOp.OP_GREATER_OR_EQUAL) {
         public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
             NNumeric thiz = ensureType(NNumeric.class, context);
             NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -143,7 +143,7 @@ public class NNumericProto extends AbstractObj {
         }
     };
 
-    protected static final NativeCall nativeLessThan = new NativeCall() {
+    protected static final NativeCall nativeLessThan = new NumericOp(NumericOp.OP_LESS_THAN) {
         public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
             NNumeric thiz = ensureType(NNumeric.class, context);
             NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -155,7 +155,7 @@ public class NNumericProto extends AbstractObj {
         }
     };
 
-    protected static final NativeCall nativeLessOrEqual = new NativeCall() {
+    protected static final NativeCall nativeLessOrEqual = new NumericOp(NumericOp.OP_LESS_OR_EQUAL) {
         public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
             NNumeric thiz = ensureType(NNumeric.class, context);
             NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -167,7 +167,7 @@ public class NNumericProto extends AbstractObj {
         }
     };
 
-    protected static final NativeCall nativeEqual = new NativeCall() {
+    protected static final NativeCall nativeEqual = new NumericOp(NumericOp.OP_EQUAL) {
         public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
             NNumeric thiz = ensureType(NNumeric.class, context);
             NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -179,7 +179,7 @@ public class NNumericProto extends AbstractObj {
         }
     };
 
-    protected static final NativeCall nativeNotEqual = new NativeCall() {
+    protected static final NativeCall nativeNotEqual = new NumericOp(NumericOp.OP_NOT_EQUAL) {
         public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
             NNumeric thiz = ensureType(NNumeric.class, context);
             NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -191,7 +191,7 @@ public class NNumericProto extends AbstractObj {
         }
     };
 
-    protected static final NativeCall nativeIdentical = new NativeCall() {
+    protected static final NativeCall nativeIdentical = new NumericOp(NumericOp.OP_IDENTICAL) {
         public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
             NNumeric thiz = ensureType(NNumeric.class, context);
             NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -205,7 +205,7 @@ public class NNumericProto extends AbstractObj {
         }
     };
 
-    protected static final NativeCall nativeNotIdentical = new NativeCall() {
+    protected static final NativeCall nativeNotIdentical = new NumericOp(NumericOp.OP_NOT_IDENTICAL) {
         public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
             NNumeric thiz = ensureType(NNumeric.class, context);
             NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -244,28 +244,28 @@ public class NNumericProto extends AbstractObj {
     };
 
     private NNumericProto() {
-        slots.put(Str.SYM__gt, nativeGreaterThan);
-        slots.put(Str.SYM__ge, nativeGreaterOrEqual);
-        slots.put(Str.SYM__lt, nativeLessThan);
-        slots.put(Str.SYM__le, nativeLessOrEqual);
-        slots.put(Str.SYM__eq, nativeEqual);
-        slots.put(Str.SYM__ne, nativeNotEqual);
-        slots.put(Str.SYM__id, nativeIdentical);
-        slots.put(Str.SYM__ni, nativeNotIdentical);
-        slots.put(Str.SYM_numValue, nativeNumValue);
-        slots.put(Str.SYM_bigNumValue, nativeBigNumValue);
-        slots.put(Str.SYM_realValue, nativeRealValue);
-        slots.put(Str.SYM_bigRealValue, nativeBigRealValue);
-        slots.put(Str.SYM_toByte, nativeToByte);
-        slots.put(Str.SYM_toShort, nativeToShort);
-        slots.put(Str.SYM_toInteger, nativeToInteger);
-        slots.put(Str.SYM_toLong, nativeToLong);
-        slots.put(Str.SYM_toFloat, nativeToFloat);
-        slots.put(Str.SYM_toDouble, nativeToDouble);
-        slots.put(Str.SYM_isNaN, nativeIsNaN);
-        slots.put(Str.SYM_isInfinity, nativeIsInfinity);
-        slots.put(Str.SYM_isPositiveInfinity, nativeIsPositiveInfinity);
-        slots.put(Str.SYM_isNegativeInfinity, nativeIsNegativeInfinity);
+        putSlot(Str.SYM__gt, nativeGreaterThan);
+        putSlot(Str.SYM__ge, nativeGreaterOrEqual);
+        putSlot(Str.SYM__lt, nativeLessThan);
+        putSlot(Str.SYM__le, nativeLessOrEqual);
+        putSlot(Str.SYM__eq, nativeEqual);
+        putSlot(Str.SYM__ne, nativeNotEqual);
+        putSlot(Str.SYM__id, nativeIdentical);
+        putSlot(Str.SYM__ni, nativeNotIdentical);
+        putSlot(Str.SYM_numValue, nativeNumValue);
+        putSlot(Str.SYM_bigNumValue, nativeBigNumValue);
+        putSlot(Str.SYM_realValue, nativeRealValue);
+        putSlot(Str.SYM_bigRealValue, nativeBigRealValue);
+        putSlot(Str.SYM_toByte, nativeToByte);
+        putSlot(Str.SYM_toShort, nativeToShort);
+        putSlot(Str.SYM_toInteger, nativeToInteger);
+        putSlot(Str.SYM_toLong, nativeToLong);
+        putSlot(Str.SYM_toFloat, nativeToFloat);
+        putSlot(Str.SYM_toDouble, nativeToDouble);
+        putSlot(Str.SYM_isNaN, nativeIsNaN);
+        putSlot(Str.SYM_isInfinity, nativeIsInfinity);
+        putSlot(Str.SYM_isPositiveInfinity, nativeIsPositiveInfinity);
+        putSlot(Str.SYM_isNegativeInfinity, nativeIsNegativeInfinity);
     }
 
     @Override
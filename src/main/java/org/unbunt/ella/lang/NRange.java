@@ -41,8 +41,6 @@ import org.unbunt.ella.engine.context.Context;
 import org.unbunt.ella.engine.corelang.*;
 import static org.unbunt.ella.engine.corelang.ObjUtils.ensureType;
 import org.unbunt.ella.exception.ClosureTerminatedException;
-import org.unbunt.ella.exception.LoopBreakException;
-import org.unbunt.ella.exception.LoopContinueException;
 
 /**
  * Represents a numeric range.
@@ -131,22 +129,14 @@ public class NRange extends AbstractObj {
                 long i = start;
 
                 Null _null = engine.getObjNull();
-                try {
-                    engine.invokeInLoop(closure, _null, NativeWrapper.wrap(i));
-                } catch (LoopBreakException e) {
+                if (engine.invokeLoopBody(closure, _null, NativeWrapper.wrap(i)) == LoopStatus.BREAK) {
                     return null;
-                } catch (LoopContinueException e) {
-                    // nothing to do here just proceed to next iteration
                 }
 
                 while (i != stop) {
-                    try {
-                        i += step;
-                        engine.invokeInLoop(closure, _null, NativeWrapper.wrap(i));
-                    } catch (LoopBreakException e) {
+                    i += step;
+                    if (engine.invokeLoopBody(closure, _null, NativeWrapper.wrap(i)) == LoopStatus.BREAK) {
                         return null;
-                    } catch (LoopContinueException e) {
-                        // nothing to do here just proceed to next iteration
                     }
                 }
 
@@ -169,9 +159,9 @@ public class NRange extends AbstractObj {
         };
 
         private NRangeProto() {
-            slots.put(Str.SYM_each, nativeEach);
-            slots.put(Str.SYM_start, nativeStart);
-            slots.put(Str.SYM_stop, nativeStop);
+            putSlot(Str.SYM_each, nativeEach);
+            putSlot(Str.SYM_start, nativeStart);
+            putSlot(Str.SYM_stop, nativeStop);
         }
 
         public Call getNativeConstructor() {
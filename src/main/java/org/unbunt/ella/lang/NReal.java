@@ -370,7 +370,7 @@ public class NReal extends AbstractObj implements NNumeric {
             }
         };
 
-        protected static final NativeCall nativeAdd = new NativeCall() {
+        protected static final NativeCall nativeAdd = new NumericOp(NumericOp.OP_ADD) {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 NReal thiz = ensureType(NReal.class, context);
                 NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -381,7 +381,7 @@ public class NReal extends AbstractObj implements NNumeric {
             }
         };
 
-        protected static final NativeCall nativeSubtract = new NativeCall() {
+        protected static final NativeCall nativeSubtract = new NumericOp(NumericOp.OP_SUBTRACT) {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 NReal thiz = ensureType(NReal.class, context);
                 NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -392,7 +392,7 @@ public class NReal extends AbstractObj implements NNumeric {
             }
         };
 
-        protected static final NativeCall nativeMultiply = new NativeCall() {
+        protected static final NativeCall nativeMultiply = new NumericOp(NumericOp.OP_MULTIPLY) {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 NReal thiz = ensureType(NReal.class, context);
                 NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -403,7 +403,7 @@ public class NReal extends AbstractObj implements NNumeric {
             }
         };
 
-        protected static final NativeCall nativeDivide = new NativeCall() {
+        protected static final NativeCall nativeDivide = new NumericOp(NumericOp.OP_DIVIDE) {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 NReal thiz = ensureType(NReal.class, context);
                 NNumeric arg = ensureType(NNumeric.class, args[0]);
@@ -466,16 +466,16 @@ public class NReal extends AbstractObj implements NNumeric {
         };
 
         private NRealProto() {
-            slots.put(Str.SYM__plus, nativeAdd);
-            slots.put(Str.SYM__minus, nativeSubtract);
-            slots.put(Str.SYM__star, nativeMultiply);
-            slots.put(Str.SYM__slash, nativeDivide);
-            slots.put(Str.SYM_neg, nativeNegate);
-            slots.put(Str.SYM_valueOf, nativeValueOf);
-            slots.put(Str.SYM_isNaN, nativeIsNaN);
-            slots.put(Str.SYM_isInfinity, nativeIsInfinity);
-            slots.put(Str.SYM_isPositiveInfinity, nativeIsPositiveInfinity);
-            slots.put(Str.SYM_isNegativeInfinity, nativeIsNegativeInfinity);
+            putSlot(Str.SYM__plus, nativeAdd);
+            putSlot(Str.SYM__minus, nativeSubtract);
+            putSlot(Str.SYM__star, nativeMultiply);
+            putSlot(Str.SYM__slash, nativeDivide);
+            putSlot(Str.SYM_neg, nativeNegate);
+            putSlot(Str.SYM_valueOf, nativeValueOf);
+            putSlot(Str.SYM_isNaN, nativeIsNaN);
+            putSlot(Str.SYM_isInfinity, nativeIsInfinity);
+            putSlot(Str.SYM_isPositiveInfinity, nativeIsPositiveInfinity);
+            putSlot(Str.SYM_isNegativeInfinity, nativeIsNegativeInfinity);
         }
 
         @Override
@@ -160,15 +160,15 @@ public class NullImpl extends AbstractObj implements NativeObj, Null {
         };
 
         private NullProto() {
-            slots.put(Str.SYM__id, nativeIdentical);
-            slots.put(Str.SYM__eq, nativeIdentical);
-            slots.put(Str.SYM__ni, nativeNotIdentical);
-            slots.put(Str.SYM__ne, nativeNotIdentical);
-            slots.put(Str.SYM__logic_and, nativeAnd);
-            slots.put(Str.SYM__logic_or, nativeOr);
-            slots.put(Str.SYM__logic_not, nativeNot);
-            slots.put(Str.SYM_not, nativeNot);
-            slots.put(Str.SYM_type, nativeType);
+            putSlot(Str.SYM__id, nativeIdentical);
+            putSlot(Str.SYM__eq, nativeIdentical);
+            putSlot(Str.SYM__ni, nativeNotIdentical);
+            putSlot(Str.SYM__ne, nativeNotIdentical);
+            putSlot(Str.SYM__logic_and, nativeAnd);
+            putSlot(Str.SYM__logic_or, nativeOr);
+            putSlot(Str.SYM__logic_not, nativeNot);
+            putSlot(Str.SYM_not, nativeNot);
+            putSlot(Str.SYM_type, nativeType);
         }
 
         @Override
@@ -0,0 +1,170 @@
+/* NumericOp.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.lang;
+
+import org.unbunt.ella.engine.corelang.Engine;
+import org.unbunt.ella.engine.corelang.NativeCall;
+import org.unbunt.ella.engine.corelang.Obj;
+
+/**
+ * Base class for the native arithmetic and comparison operators of NNum and NReal objects.
+ * <p>
+ * In addition to being invoked through the generic call protocol like any other native, an operator may be applied
+ * directly to a receiver and a single argument by calling {@link #apply(Engine, Obj, Obj)}. The engines use this as
+ * fast path for binary operator calls: it is taken only if the slot lookup of the call site yields one of the
+ * operator instances installed by the numeric prototypes, so replacing an operator slot of a numeric prototype (or
+ * of a single number) disables it for the affected call sites.
+ */
+public abstract class NumericOp extends NativeCall {
+    public static final int OP_ADD = 0;
+    public static final int OP_SUBTRACT = 1;
+    public static final int OP_MULTIPLY = 2;
+    public static final int OP_DIVIDE = 3;
+    public static final int OP_GREATER_THAN = 4;
+    public static final int OP_GREATER_OR_EQUAL = 5;
+    public static final int OP_LESS_THAN = 6;
+    public static final int OP_LESS_OR_EQUAL = 7;
+    public static final int OP_EQUAL = 8;
+    public static final int OP_NOT_EQUAL = 9;
+    public static final int OP_IDENTICAL = 10;
+    public static final int OP_NOT_IDENTICAL = 11;
+
+    /**
+     * The operation performed by this operator.
+     */
+    protected final int op;
+
+    protected NumericOp(int op) {
+        this.op = op;
+    }
+
+    /**
+     * Applies this operator to the given receiver and argument if both are plain numbers of the same kind, i.e. both
+     * NNum or both NReal objects.
+     * <p>
+     * The result is identical to the one of invoking this operator through {@link #call(Engine, Obj, Obj[])}.
+     *
+     * @param engine the engine to obtain the boolean objects from.
+     * @param receiver the receiver of the operator call.
+     * @param arg the argument of the operator call.
+     * @return the result of the operation or <code>null</code> if the operands are not eligible for direct
+     *         application and the operator has to be invoked through the generic call protocol.
+     */
+    public Obj apply(Engine engine, Obj receiver, Obj arg) {
+        if (receiver instanceof NNum) {
+            if (arg instanceof NNum) {
+                return applyNum(engine, ((NNum) receiver).value, ((NNum) arg).value);
+            }
+        }
+        else if (receiver instanceof NReal) {
+            if (arg instanceof NReal) {
+                return applyReal(engine, ((NReal) receiver).value, ((NReal) arg).value);
+            }
+        }
+        return null;
+    }
+
+    protected Obj applyNum(Engine engine, long a, long b) {
+        switch (op) {
+            case OP_ADD:
+                return new NNum(a + b);
+            case OP_SUBTRACT:
+                return new NNum(a - b);
+            case OP_MULTIPLY:
+                return new NNum(a * b);
+            case OP_DIVIDE:
+                // leave reporting division by zero to the generic implementation
+                return b == 0 ? null : new NNum(a / b);
+            case OP_GREATER_THAN:
+                return toBool(engine, a > b);
+            case OP_GREATER_OR_EQUAL:
+                return toBool(engine, a >= b);
+            case OP_LESS_THAN:
+                return toBool(engine, a < b);
+            case OP_LESS_OR_EQUAL:
+                return toBool(engine, a <= b);
+            case OP_EQUAL:
+            case OP_IDENTICAL:
+                return toBool(engine, a == b);
+            case OP_NOT_EQUAL:
+            case OP_NOT_IDENTICAL:
+                return toBool(engine, a != b);
+        }
+        return null;
+    }
+
+    protected Obj applyReal(Engine engine, double a, double b) {
+        switch (op) {
+            case OP_ADD:
+                return new NReal(a + b);
+            case OP_SUBTRACT:
+                return new NReal(a - b);
+            case OP_MULTIPLY:
+                return new NReal(a * b);
+            case OP_DIVIDE:
+                return new NReal(a / b);
+        }
+
+        // mirrors NReal.compareTo(): a NaN receiver is not comparable, a NaN argument compares greater
+        if (Double.isNaN(a)) {
+            return toBool(engine, op == OP_NOT_EQUAL || op == OP_NOT_IDENTICAL);
+        }
+        int cmp = a < b ? -1 : a == b ? 0 : 1;
+        switch (op) {
+            case OP_GREATER_THAN:
+                return toBool(engine, cmp > 0);
+            case OP_GREATER_OR_EQUAL:
+                return toBool(engine, cmp >= 0);
+            case OP_LESS_THAN:
+                return toBool(engine, cmp < 0);
+            case OP_LESS_OR_EQUAL:
+                return toBool(engine, cmp <= 0);
+            case OP_EQUAL:
+            case OP_IDENTICAL:
+                return toBool(engine, cmp == 0);
+            case OP_NOT_EQUAL:
+            case OP_NOT_IDENTICAL:
+                return toBool(engine, cmp != 0);
+        }
+        return null;
+    }
+
+    protected static Obj toBool(Engine engine, boolean value) {
+        return value ? engine.getObjTrue() : engine.getObjFalse();
+    }
+}
@@ -0,0 +1,122 @@
+/* OverloadCache.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.lang;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the resolution of overloaded Java methods or constructors by the runtime classes of the arguments.
+ * <p>
+ * Overload resolution (see {@link ReflectionUtils#findMatchingMethod(java.lang.reflect.Method[], Class[], Object[])})
+ * depends on the argument classes only, so its result may be reused for any call passing arguments of the same
+ * classes. The most recently used resolution is checked first without allocating a lookup key. The cache may be
+ * used concurrently by any number of threads.
+ *
+ * @param <T> the type of the resolved overloads.
+ */
+public class OverloadCache<T> {
+    /**
+     * The maximum number of cached resolutions. Calls passing other argument classes are resolved on each call.
+     */
+    public static final int MAX_ENTRIES = 32;
+
+    protected final ConcurrentMap<ArgTypes, T> resolved = new ConcurrentHashMap<ArgTypes, T>();
+
+    protected volatile Entry<T> last;
+
+    /**
+     * Returns the overload resolved for the given argument classes.
+     *
+     * @param argTypes the argument classes, <code>null</code> for arguments of unknown class.
+     * @return the resolved overload or <code>null</code> if it has not been cached.
+     */
+    public T get(Class[] argTypes) {
+        Entry<T> entry = last;
+        if (entry != null && Arrays.equals(entry.argTypes, argTypes)) {
+            return entry.target;
+        }
+        T target = resolved.get(new ArgTypes(argTypes));
+        if (target != null) {
+            last = new Entry<T>(argTypes, target);
+        }
+        return target;
+    }
+
+    /**
+     * Caches the overload resolved for the given argument classes.
+     *
+     * @param argTypes the argument classes, <code>null</code> for arguments of unknown class.
+     * @param target the resolved overload.
+     */
+    public void put(Class[] argTypes, T target) {
+        if (resolved.size() < MAX_ENTRIES) {
+            resolved.put(new ArgTypes(argTypes), target);
+        }
+        last = new Entry<T>(argTypes, target);
+    }
+
+    protected static class Entry<T> {
+        protected final Class[] argTypes;
+        protected final T target;
+
+        protected Entry(Class[] argTypes, T target) {
+            this.argTypes = argTypes;
+            this.target = target;
+        }
+    }
+
+    protected static class ArgTypes {
+        protected final Class[] types;
+        protected final int hash;
+
+        protected ArgTypes(Class[] types) {
+            this.types = types;
+            this.hash = Arrays.hashCode(types);
+        }
+
+        public boolean equals(Object o) {
+            return o instanceof ArgTypes && Arrays.equals(types, ((ArgTypes) o).types);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
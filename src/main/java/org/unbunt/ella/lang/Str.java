@@ -42,15 +42,10 @@ import org.unbunt.ella.engine.corelang.*;
 import static org.unbunt.ella.engine.corelang.ObjUtils.ensureType;
 import org.unbunt.ella.exception.ClosureTerminatedException;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Represents an EllaScript object wrapping <code>String</code> values.
  */
 public class Str extends AbstractObj {
-    protected static Map<String, Str> pool = new HashMap<String, Str>();
-
     public static final Str SYM__plus = toSym("+");
     public static final Str SYM__minus = toSym("-");
     public static final Str SYM__star = toSym("*");
@@ -91,6 +86,8 @@ public class Str extends AbstractObj {
     public static final Str SYM_cr = toSym("cr");
     public static final Str SYM_create = toSym("create");
     public static final Str SYM_createFromProps = toSym("createFromProps");
+    public static final Str SYM_createPooled = toSym("createPooled");
+    public static final Str SYM_createPooledFromProps = toSym("createPooledFromProps");
     public static final Str SYM_createStmt = toSym("createStmt");
     public static final Str SYM_do = toSym("do");
     public static final Str SYM_each = toSym("each");
@@ -101,6 +98,7 @@ public class Str extends AbstractObj {
     public static final Str SYM_exec = toSym("exec");
     public static final Str SYM_execStmt = toSym("execStmt");
     public static final Str SYM_explicitSlot = toSym("explicitSlot");
+    public static final Str SYM_fetchSize = toSym("fetchSize");
     public static final Str SYM_filter = toSym("filter");
     public static final Str SYM_finish = toSym("finish");
     public static final Str SYM_first = toSym("first");
@@ -135,7 +133,9 @@ public class Str extends AbstractObj {
     public static final Str SYM_numValue = toSym("numValue");
     public static final Str SYM_out = toSym("out");
     public static final Str SYM_onAfterExecute = toSym("onAfterExecute");
+    public static final Str SYM_parallel = toSym("parallel");
     public static final Str SYM_parent = toSym("parent");
+    public static final Str SYM_pools = toSym("pools");
     public static final Str SYM_print = toSym("print");
     public static final Str SYM_put = toSym("put");
     public static final Str SYM_raise = toSym("raise");
@@ -151,6 +151,7 @@ public class Str extends AbstractObj {
     public static final Str SYM_size = toSym("size");
     public static final Str SYM_sleep = toSym("sleep");
     public static final Str SYM_start = toSym("start");
+    public static final Str SYM_stmtCache = toSym("stmtCache");
     public static final Str SYM_stop = toSym("stop");
     public static final Str SYM_substring = toSym("substring");
     public static final Str SYM_throw = toSym("throw");
@@ -184,13 +185,23 @@ public class Str extends AbstractObj {
      */
     public final String value;
 
+    /**
+     * Whether this is the canonical Str object of its value held by the {@link SymbolTable}.
+     */
+    protected final boolean symbol;
+
     /**
      * Creates a new Str wrapping the given value.
      *
      * @param value the value to wrap.
      */
     public Str(String value) {
+        this(value, false);
+    }
+
+    Str(String value, boolean symbol) {
         this.value = value;
+        this.symbol = symbol;
     }
 
     protected static final int OBJECT_ID = ProtoRegistry.generateObjectID();
@@ -224,6 +235,10 @@ public class Str extends AbstractObj {
         if (o == null || getClass() != o.getClass()) return false;
 
         Str str = (Str) o;
+        if (symbol && str.symbol) {
+            // distinct symbols never share a value
+            return false;
+        }
 
         return !(value != null ? !value.equals(str.value) : str.value != null);
     }
@@ -241,19 +256,23 @@ public class Str extends AbstractObj {
         return value;
     }
 
+    /**
+     * Checks if this is a symbol, i.e. the canonical Str object of its value.
+     *
+     * @return true if this is a symbol.
+     */
+    public boolean isSymbol() {
+        return symbol;
+    }
+
     /**
      * Does semantically the same as {@link String#intern()} just for EllaScript string objects.
      *
      * @return the canonical Str object matching this Str object.
+     * @see SymbolTable
      */
-    public synchronized Str intern() {
-        Str interned = pool.get(value);
-        if (interned != null) {
-            return interned;
-        }
-
-        pool.put(value, this);
-        return this;
+    public Str intern() {
+        return symbol ? this : SymbolTable.intern(value);
     }
 
     /**
@@ -264,7 +283,7 @@ public class Str extends AbstractObj {
      * @see #intern()
      */
     public static Str toSym(String name) {
-        return new Str(name).intern();
+        return SymbolTable.intern(name);
     }
 
     /**
@@ -371,21 +390,21 @@ public class Str extends AbstractObj {
         }
 
         protected StrProto() {
-            slots.put(SYM_lf, Str.toSym("\n"));
-            slots.put(SYM_cr, Str.toSym("\r"));
-            slots.put(SYM_crlf, Str.toSym("\r\n"));
-            slots.put(SYM_nl, Str.toSym(NEWLINE));
-            slots.put(SYM__gt, nativeGreaterThan);
-            slots.put(SYM__ge, nativeGreaterOrEqual);
-            slots.put(SYM__lt, nativeLessThan);
-            slots.put(SYM__le, nativeLessOrEqual);
-            slots.put(SYM__plus, nativeAdd);
-            slots.put(SYM_length, nativeLength);
-            slots.put(SYM_charAt, nativeCharAt);
-            slots.put(SYM_toUpper, nativeToUpper);
-            slots.put(SYM_toLower, nativeToLower);
-            slots.put(SYM_substring, nativeSubstring);
-            slots.put(SYM_fromCharCode, nativeFromCharCode);
+            putSlot(SYM_lf, Str.toSym("\n"));
+            putSlot(SYM_cr, Str.toSym("\r"));
+            putSlot(SYM_crlf, Str.toSym("\r\n"));
+            putSlot(SYM_nl, Str.toSym(NEWLINE));
+            putSlot(SYM__gt, nativeGreaterThan);
+            putSlot(SYM__ge, nativeGreaterOrEqual);
+            putSlot(SYM__lt, nativeLessThan);
+            putSlot(SYM__le, nativeLessOrEqual);
+            putSlot(SYM__plus, nativeAdd);
+            putSlot(SYM_length, nativeLength);
+            putSlot(SYM_charAt, nativeCharAt);
+            putSlot(SYM_toUpper, nativeToUpper);
+            putSlot(SYM_toLower, nativeToLower);
+            putSlot(SYM_substring, nativeSubstring);
+            putSlot(SYM_fromCharCode, nativeFromCharCode);
         }
 
         /**
@@ -0,0 +1,124 @@
+/* SymbolTable.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.lang;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The table of canonical Str objects used as symbols, i.e. as identifiers and slot keys.
+ * <p>
+ * The table may be used concurrently by any number of threads without locking on lookups. Symbols are retained
+ * weakly only: a symbol no longer referenced by any compiled program, object or constant is reclaimed by the
+ * garbage collector and its entry is purged on a subsequent insertion. Since at most one symbol of a given value
+ * is reachable at any time, two symbols are equal if and only if they are identical.
+ */
+public final class SymbolTable {
+    protected static final ConcurrentMap<String, SymbolRef> symbols = new ConcurrentHashMap<String, SymbolRef>(1024);
+
+    protected static final ReferenceQueue<Str> reclaimed = new ReferenceQueue<Str>();
+
+    private SymbolTable() {
+    }
+
+    /**
+     * Returns the symbol of the given value, creating it if necessary.
+     *
+     * @param value the value of the symbol.
+     * @return the symbol.
+     */
+    public static Str intern(String value) {
+        SymbolRef ref = symbols.get(value);
+        if (ref != null) {
+            Str symbol = ref.get();
+            if (symbol != null) {
+                return symbol;
+            }
+        }
+
+        purge();
+
+        Str symbol = new Str(value, true);
+        SymbolRef newRef = new SymbolRef(value, symbol, reclaimed);
+        while (true) {
+            SymbolRef existing = symbols.putIfAbsent(value, newRef);
+            if (existing == null) {
+                return symbol;
+            }
+            Str other = existing.get();
+            if (other != null) {
+                return other;
+            }
+            if (symbols.replace(value, existing, newRef)) {
+                return symbol;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of symbols currently held by the table, including symbols already reclaimed but not purged
+     * yet.
+     *
+     * @return the number of symbols.
+     */
+    public static int size() {
+        purge();
+        return symbols.size();
+    }
+
+    /**
+     * Removes the entries of all symbols reclaimed by the garbage collector.
+     */
+    protected static void purge() {
+        SymbolRef ref;
+        while ((ref = (SymbolRef) reclaimed.poll()) != null) {
+            symbols.remove(ref.value, ref);
+        }
+    }
+
+    protected static class SymbolRef extends WeakReference<Str> {
+        protected final String value;
+
+        protected SymbolRef(String value, Str symbol, ReferenceQueue<Str> queue) {
+            super(symbol, queue);
+            this.value = value;
+        }
+    }
+}
@@ -37,7 +37,7 @@ exception statement from your version. */
 
 package org.unbunt.ella.lang;
 
-import org.unbunt.ella.compiler.ParserHelper;
+import org.unbunt.ella.compiler.ScriptCache;
 import org.unbunt.ella.compiler.support.Scope;
 import org.unbunt.ella.compiler.support.Variable;
 import org.unbunt.ella.engine.*;
@@ -93,10 +93,9 @@ public class SysImpl extends AbstractObj implements Sys {
 
             Env savedEnv = engine.getEnv();
             Scope scope = savedEnv.toScope();
-            Scope parseScope = new Scope(scope);
             Block block;
             try {
-                block = ParserHelper.parseScript(parseScope, includedScript);
+                block = ScriptCache.parseScript(scope, includedScript);
             } catch (GenericParseException e) {
                 throw new EllaRuntimeException(e);
             }
@@ -184,7 +183,7 @@ public class SysImpl extends AbstractObj implements Sys {
                             }
                             return new JClass(cls);
                         }
-                    }));
+                    }, true));
             engine.setEnv(newEnv);
             return engine.getObjNull();
         }
@@ -210,11 +209,7 @@ public class SysImpl extends AbstractObj implements Sys {
     protected static final NativeCall nativeLoop = new NativeCall() {
         public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
             while (true) {
-                try {
-                    engine.invokeInLoop(args[0], engine.getObjNull());
-                } catch (LoopContinueException e) {
-                    continue;
-                } catch (LoopBreakException e) {
+                if (engine.invokeLoopBody(args[0], engine.getObjNull()) == LoopStatus.BREAK) {
                     break;
                 }
             }
@@ -234,8 +229,11 @@ public class SysImpl extends AbstractObj implements Sys {
             try {
                 engine.invoke(args[0], engine.getObjNull());
             } catch (EllaClientException e) {
+                // drop the continuations of the failed block before running the handler
+                engine.setState(state);
                 engine.invoke(args[1], engine.getObjNull(), e.getException());
             } catch (EllaRuntimeException e) {
+                engine.setState(state);
                 engine.invoke(args[1], engine.getObjNull(), new JObject(e));
             }
             engine.setState(state);
@@ -264,8 +262,10 @@ public class SysImpl extends AbstractObj implements Sys {
             try {
                 result = engine.invoke(args[0], engine.getObjNull());
             } catch (EllaClientException e) {
+                engine.setState(state);
                 result = engine.invoke(args[1], engine.getObjNull(), e.getException());
             } catch (EllaRuntimeException e) {
+                engine.setState(state);
                 result = engine.invoke(args[1], engine.getObjNull(), new JObject(e));
             } finally {
                 engine.invoke(args[2], engine.getObjNull());
@@ -467,26 +467,26 @@ public class SysImpl extends AbstractObj implements Sys {
     }
 
     public SysImpl() {
-        slots.put(Str.SYM_print, nativePrint);
-        slots.put(Str.SYM_put, nativePut);
-        slots.put(Str.SYM_includeFile, nativeIncludeFile);
-        slots.put(Str.SYM_importPackage, nativeImportPackage);
-        slots.put(Str.SYM_loop, nativeLoop);
-        slots.put(Str.SYM__break, Primitives.LOOP_BREAK);
-        slots.put(Str.SYM__continue, Primitives.LOOP_CONTINUE);
-        slots.put(Str.SYM__exit, Primitives.EXIT);
-        slots.put(Str.SYM_ifThen, nativeIfThen);
-        slots.put(Str.SYM_throw, nativeThrow);
-        slots.put(Str.SYM_raise, nativeThrow);
-        slots.put(Str.SYM_tryCatch, nativeTryCatch);
-        slots.put(Str.SYM_tryCatchFinally, nativeTryCatchFinally);
-        slots.put(Str.SYM_tryFinally, nativeTryFinally);
-        slots.put(Str.SYM_scriptName, nativeScriptName);
-        slots.put(Str.SYM_scriptResource, nativeScriptResource);
-        slots.put(Str.SYM_explicitSlot, nativeExplicitSlot);
-        slots.put(Str.SYM_noop, nativeNoop);
-        slots.put(Str.SYM_exec, nativeExec);
-        slots.put(Str.SYM_sleep, nativeSleep);
+        putSlot(Str.SYM_print, nativePrint);
+        putSlot(Str.SYM_put, nativePut);
+        putSlot(Str.SYM_includeFile, nativeIncludeFile);
+        putSlot(Str.SYM_importPackage, nativeImportPackage);
+        putSlot(Str.SYM_loop, nativeLoop);
+        putSlot(Str.SYM__break, Primitives.LOOP_BREAK);
+        putSlot(Str.SYM__continue, Primitives.LOOP_CONTINUE);
+        putSlot(Str.SYM__exit, Primitives.EXIT);
+        putSlot(Str.SYM_ifThen, nativeIfThen);
+        putSlot(Str.SYM_throw, nativeThrow);
+        putSlot(Str.SYM_raise, nativeThrow);
+        putSlot(Str.SYM_tryCatch, nativeTryCatch);
+        putSlot(Str.SYM_tryCatchFinally, nativeTryCatchFinally);
+        putSlot(Str.SYM_tryFinally, nativeTryFinally);
+        putSlot(Str.SYM_scriptName, nativeScriptName);
+        putSlot(Str.SYM_scriptResource, nativeScriptResource);
+        putSlot(Str.SYM_explicitSlot, nativeExplicitSlot);
+        putSlot(Str.SYM_noop, nativeNoop);
+        putSlot(Str.SYM_exec, nativeExec);
+        putSlot(Str.SYM_sleep, nativeSleep);
 
         dynSlots.put(Str.SYM_in, dynSlotIn);
         dynSlots.put(Str.SYM_out, dynSlotOut);
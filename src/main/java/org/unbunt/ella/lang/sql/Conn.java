@@ -37,15 +37,19 @@ exception statement from your version. */
 
 package org.unbunt.ella.lang.sql;
 
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.unbunt.ella.compiler.support.RawSQL;
 import org.unbunt.ella.engine.context.Context;
 import org.unbunt.ella.engine.corelang.*;
 import static org.unbunt.ella.engine.corelang.ObjUtils.ensureType;
 import org.unbunt.ella.exception.*;
 import org.unbunt.ella.lang.Base;
+import org.unbunt.ella.lang.JObject;
+import org.unbunt.ella.lang.NNumeric;
 import org.unbunt.ella.lang.Str;
 import org.unbunt.ella.utils.StopWatch;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.LinkedList;
@@ -57,11 +61,37 @@ import java.util.List;
 public class Conn extends AbstractObj {
     protected static final int OBJECT_ID = ProtoRegistry.generateObjectID();
 
+    /**
+     * The number of statements executed at a time by <code>parallel</code> if not given.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * The default number of rows fetched from the database at once by statements of a connection, configured through
+     * the <code>ella.fetchSize</code> system property. <code>0</code> leaves the choice to the driver.
+     */
+    public static final int DEFAULT_FETCH_SIZE = Integer.getInteger("ella.fetchSize", 0);
+
     protected final Connection connection;
 
+    /**
+     * Prepared statements of this connection available for reuse.
+     */
+    protected final StmtCache stmtCache;
+
+    protected int fetchSize = DEFAULT_FETCH_SIZE;
+
+    /**
+     * The data source the connection has been obtained from, used to open further connections to the same database
+     * for parallel execution, or <code>null</code> if unknown.
+     */
+    protected DataSource dataSource = null;
+
     protected boolean batchActive = false;
     protected StmtBatch batchStmt = null;
 
+    protected StmtParallel parallelStmt = null;
+
     protected boolean keepResources = false;
     protected List<Stmt> managedStatements = null;
 
@@ -72,6 +102,18 @@ public class Conn extends AbstractObj {
      */
     public Conn(Connection connection) {
         this.connection = connection;
+        this.stmtCache = new StmtCache(connection);
+    }
+
+    /**
+     * Creates a new Conn object wrapping the given connection obtained from the given data source.
+     *
+     * @param connection the connection to wrap.
+     * @param dataSource the data source the connection has been obtained from.
+     */
+    public Conn(Connection connection, DataSource dataSource) {
+        this(connection);
+        this.dataSource = dataSource;
     }
 
     /**
@@ -82,6 +124,7 @@ public class Conn extends AbstractObj {
      */
     public Conn(Connection connection, StmtBatch batch) {
         this.connection = connection;
+        this.stmtCache = new StmtCache(connection);
         this.batchStmt = batch;
         this.batchActive = true;
     }
@@ -111,6 +154,72 @@ public class Conn extends AbstractObj {
         return connection;
     }
 
+    /**
+     * Returns the cache of the prepared statements of this connection. Scripts access it through the
+     * <code>stmtCache</code> slot, e.g. to inspect its hit, miss and eviction counts.
+     * <p>
+     * The cache lives as long as this Conn. Closing a connection taken from a connection pool closes the cached
+     * statements along with it, so they are not reused by the next checkout of the same physical connection.
+     *
+     * @return the statement cache.
+     */
+    public StmtCache getStmtCache() {
+        return stmtCache;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Ensures that no parallel execution is active on this connection. Within a parallel block only plain SQL
+     * statements are handed to the parallel executor; other operations would run on this connection in the middle of
+     * the statements executed concurrently and are therefore rejected.
+     *
+     * @param operation the name of the operation, for the error message.
+     * @throws EllaRuntimeException if parallel execution is active.
+     */
+    protected void ensureNotParallel(String operation) {
+        if (parallelStmt != null) {
+            throw new EllaRuntimeException(operation + " is not supported within parallel execution: " +
+                                           "only plain SQL statements are executed in parallel");
+        }
+    }
+
+    /**
+     * Returns the pool to take connections for parallel execution from. Connections created by a connection
+     * pool are taken from the same pool. For other connections a pool for their database is created, which the
+     * caller must close when done.
+     *
+     * @param parallelism the number of connections needed at most.
+     * @return the connection pool.
+     */
+    protected ConnPool getParallelPool(int parallelism) {
+        if (dataSource instanceof ConnPool) {
+            return (ConnPool) dataSource;
+        }
+        if (dataSource instanceof DriverManagerDataSource) {
+            DriverManagerDataSource template = (DriverManagerDataSource) dataSource;
+            ConnPool.Config config = new ConnPool.Config();
+            config.setMaxSize(parallelism);
+            config.setIdleTimeout(0);
+            return new ConnPool(ConnPool.copyDataSource(template), template.getUrl(), config);
+        }
+        throw new EllaRuntimeException("Parallel execution is not supported for this connection: " +
+                                       "Unknown data source");
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new EllaRuntimeException("Illegal fetch size: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+    }
+
     @Override
     public int getObjectID() {
         return OBJECT_ID;
@@ -147,8 +256,13 @@ public class Conn extends AbstractObj {
                     }
                     return engine.getObjNull();
                 }
+                else if (thiz.parallelStmt != null) {
+                    thiz.parallelStmt.add(rawStmt);
+                    return engine.getObjNull();
+                }
                 else {
-                    Stmt stmt = new Stmt(rawStmt, thiz.connection, thiz.keepResources);
+                    Stmt stmt = new Stmt(rawStmt, thiz.connection, thiz.stmtCache, thiz.keepResources);
+                    stmt.setFetchSize(thiz.fetchSize);
                     if (thiz.keepResources) {
                         thiz.managedStatements.add(stmt);
                     }
@@ -160,8 +274,10 @@ public class Conn extends AbstractObj {
         protected static final NativeCall nativeCreateStmt = new NativeCall() {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 Conn thiz = ensureType(Conn.class, context);
+                thiz.ensureNotParallel("A statement used as a value (query or parameters)");
                 RawSQL query = ensureType(RawSQLObj.class, args[0]);
-                Stmt stmt = new Stmt(query, thiz.connection, thiz.keepResources);
+                Stmt stmt = new Stmt(query, thiz.connection, thiz.stmtCache, thiz.keepResources);
+                stmt.setFetchSize(thiz.fetchSize);
                 if (thiz.keepResources) {
                     thiz.managedStatements.add(stmt);
                 }
@@ -188,10 +304,20 @@ public class Conn extends AbstractObj {
             }
         };
 
+        protected static final NativeCall nativeFetchSize = new NativeCall() {
+            public Obj call(Engine engine, Obj context, Obj... args) {
+                Conn thiz = ensureType(Conn.class, context);
+                thiz.setFetchSize(ensureType(NNumeric.class, args[0]).intValue());
+                return thiz;
+            }
+        };
+
         protected static final NativeCall nativeClose = new NativeCall() {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 Conn thiz = ensureType(Conn.class, context);
+                thiz.ensureNotParallel("close");
                 try {
+                    thiz.stmtCache.clear();
                     thiz.connection.close();
                 } catch (SQLException e) {
                     throw new EllaRuntimeException(e.getMessage(), e);
@@ -238,9 +364,64 @@ public class Conn extends AbstractObj {
             }
         };
 
+        /**
+         * Executes the plain SQL statements issued on this connection within the given block concurrently, using up
+         * to the given number of connections to the same database at a time. The block itself, including closures it
+         * invokes, runs sequentially on the calling thread; only the statements are handed to the worker threads.
+         * Statements are joined at the end of the block, update counts are reported in the order the statements
+         * were issued and failures are raised as a single error. Other operations on this connection within the
+         * block, like creating statements to run queries or binding parameters, transactions or closing the
+         * connection, are rejected since they would run on this connection in the middle of the concurrently
+         * executed statements.
+         */
+        protected static final NativeCall nativeParallel = new NativeBatchCall() {
+            @Override
+            protected int getDefaultBatchSize() {
+                return DEFAULT_PARALLELISM;
+            }
+
+            protected Obj batchCall(Engine engine, Obj context, Obj closure, int parallelism) {
+                Conn thiz = ensureType(Conn.class, context);
+
+                if (thiz.batchActive || thiz.parallelStmt != null) {
+                    System.err.println("Warning: Batch or parallel execution already activated.");
+                    engine.invoke(closure, engine.getObjNull());
+                    return null;
+                }
+
+                ConnPool pool = thiz.getParallelPool(parallelism);
+
+                ConnMgr mgr = engine.getObjConnMgr();
+                Obj prevConn = mgr.activate(thiz);
+
+                try {
+                    thiz.parallelStmt = new StmtParallel(engine.getContext(), pool, parallelism);
+                    try {
+                        try {
+                            engine.invoke(closure, engine.getObjNull());
+                        } finally {
+                            thiz.parallelStmt.finish();
+                        }
+                    } finally {
+                        thiz.parallelStmt.close();
+                        thiz.parallelStmt = null;
+                    }
+                } finally {
+                    // the pool has been created for this block
+                    if (pool != thiz.dataSource) {
+                        pool.close();
+                    }
+                    mgr.activate(prevConn);
+                }
+
+                return null;
+            }
+        };
+
         protected static final NativeCall nativeWithPrepared = new NativeCall() {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 Conn thiz = ensureType(Conn.class, context);
+                thiz.ensureNotParallel("withPrepared");
                 Obj closure = args[0];
 
                 try {
@@ -259,6 +440,7 @@ public class Conn extends AbstractObj {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 Context engineContext = engine.getContext();
                 Conn thiz = ensureType(Conn.class, context);
+                thiz.ensureNotParallel("tx");
                 Obj closure = args[0];
 
                 Connection conn = thiz.connection;
@@ -333,6 +515,7 @@ public class Conn extends AbstractObj {
         protected static final NativeCall nativeBegin = new NativeCall() {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 Conn thiz = ensureType(Conn.class, context);
+                thiz.ensureNotParallel("begin");
 
                 Connection conn = thiz.connection;
 
@@ -352,6 +535,7 @@ public class Conn extends AbstractObj {
         protected static final NativeCall nativeCommit = new NativeCall() {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 Conn thiz = ensureType(Conn.class, context);
+                thiz.ensureNotParallel("commit");
                 try {
                     thiz.connection.commit();
                 } catch (SQLException e) {
@@ -364,6 +548,7 @@ public class Conn extends AbstractObj {
         protected static final NativeCall nativeRollback = new NativeCall() {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 Conn thiz = ensureType(Conn.class, context);
+                thiz.ensureNotParallel("rollback");
                 try {
                     thiz.connection.rollback();
                 } catch (SQLException e) {
@@ -373,17 +558,27 @@ public class Conn extends AbstractObj {
             }
         };
 
+        protected static final NativeCall nativeStmtCache = new NativeCall() {
+            public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
+                Conn thiz = ensureType(Conn.class, context);
+                return new JObject(thiz.stmtCache);
+            }
+        };
+
         private ConnProto() {
-            slots.put(Str.SYM_execStmt, nativeExecStmt);
-            slots.put(Str.SYM_createStmt, nativeCreateStmt);
-            slots.put(Str.SYM_do, nativeDo);
-            slots.put(Str.SYM_close, nativeClose);
-            slots.put(Str.SYM_batch, nativeBatch);
-            slots.put(Str.SYM_withPrepared, nativeWithPrepared);
-            slots.put(Str.SYM_tx, nativeTx);
-            slots.put(Str.SYM_begin, nativeBegin);
-            slots.put(Str.SYM_commit, nativeCommit);
-            slots.put(Str.SYM_rollback, nativeRollback);
+            putSlot(Str.SYM_execStmt, nativeExecStmt);
+            putSlot(Str.SYM_createStmt, nativeCreateStmt);
+            putSlot(Str.SYM_do, nativeDo);
+            putSlot(Str.SYM_close, nativeClose);
+            putSlot(Str.SYM_batch, nativeBatch);
+            putSlot(Str.SYM_withPrepared, nativeWithPrepared);
+            putSlot(Str.SYM_tx, nativeTx);
+            putSlot(Str.SYM_begin, nativeBegin);
+            putSlot(Str.SYM_commit, nativeCommit);
+            putSlot(Str.SYM_rollback, nativeRollback);
+            putSlot(Str.SYM_fetchSize, nativeFetchSize);
+            putSlot(Str.SYM_parallel, nativeParallel);
+            putSlot(Str.SYM_stmtCache, nativeStmtCache);
         }
 
         public static final int OBJECT_ID = ProtoRegistry.generateObjectID();
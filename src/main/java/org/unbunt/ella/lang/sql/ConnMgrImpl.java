@@ -45,12 +45,17 @@ import org.unbunt.ella.exception.ClosureTerminatedException;
 import org.unbunt.ella.exception.DBConnectionFailedException;
 import org.unbunt.ella.exception.EllaRuntimeException;
 import org.unbunt.ella.lang.Base;
+import org.unbunt.ella.lang.JObject;
+import org.unbunt.ella.lang.Lst;
 import org.unbunt.ella.lang.NullImpl;
 import org.unbunt.ella.lang.Str;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -146,7 +151,7 @@ public class ConnMgrImpl extends AbstractObj implements ConnMgr {
                 throw new EllaRuntimeException("Connection failed: " + e.getMessage(), e);
             }
 
-            Conn conn = new Conn(jdbcConn);
+            Conn conn = new Conn(jdbcConn, ds);
 
             // Activate connection if none active yet
             if (mgr.getSlot(engine.getContext(), Str.SYM_active) instanceof Null) {
@@ -206,7 +211,7 @@ public class ConnMgrImpl extends AbstractObj implements ConnMgr {
                 throw new EllaRuntimeException("Connection failed: " + e.getMessage(), e);
             }
 
-            Conn conn = new Conn(jdbcConn);
+            Conn conn = new Conn(jdbcConn, ds);
 
             // Activate connection if none active yet
             if (thiz.getSlot(engine.getContext(), Str.SYM_active) instanceof Null) {
@@ -219,14 +224,122 @@ public class ConnMgrImpl extends AbstractObj implements ConnMgr {
         }
     };
 
+    protected static NativeCall nativeCreatePooled = new NativeCall() {
+        public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
+            ConnMgrImpl thiz = ensureType(ConnMgrImpl.class, context);
+            Str[] connArgs = getConnArgs(args);
+
+            ConnPool pool;
+            try {
+                pool = DBUtils.createPooledDataSource(connArgs[0].value,
+                                                      value(connArgs[1]), value(connArgs[2]), value(connArgs[3]),
+                                                      new ConnPool.Config());
+            } catch (DBConnectionFailedException e) {
+                throw new EllaRuntimeException("Connection failed: " + e.getMessage(), e);
+            }
+
+            return thiz.createPooled(engine, pool);
+        }
+    };
+
+    protected static NativeCall nativeCreatePooledFromProps = new NativeCall() {
+        public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
+            ConnMgrImpl thiz = ensureType(ConnMgrImpl.class, context);
+            Str[] connArgs = getConnArgs(args);
+
+            ConnPool pool;
+            try {
+                pool = DBUtils.createPooledDataSourceFromProps(connArgs[0].value,
+                                                               value(connArgs[1]),
+                                                               value(connArgs[2]),
+                                                               value(connArgs[3]));
+            } catch (DBConnectionFailedException e) {
+                throw new EllaRuntimeException("Connection failed: " + e.getMessage(), e);
+            }
+
+            return thiz.createPooled(engine, pool);
+        }
+    };
+
+    protected static NativeCall nativePools = new NativeCall() {
+        public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
+            List<Obj> pools = new ArrayList<Obj>();
+            for (ConnPool pool : ConnPool.getPools()) {
+                pools.add(new JObject(pool));
+            }
+            return new Lst(pools);
+        }
+    };
+
+    /**
+     * Splits the arguments of the connection creating slots into the url or properties file, user, password and
+     * driver, any of them but the first one possibly <code>null</code>.
+     *
+     * @param args the arguments.
+     * @return the split arguments.
+     */
+    protected static Str[] getConnArgs(Obj[] args) {
+        Str[] result = new Str[4];
+        switch (args.length) {
+            case 1:
+                result[0] = ensureType(Str.class, args[0]);
+                break;
+            case 2:
+                result[0] = ensureType(Str.class, args[0]);
+                result[3] = ensureType(Str.class, args[1]);
+                break;
+            case 3:
+            case 4:
+                for (int i = 0; i < args.length; i++) {
+                    result[i] = ensureType(Str.class, args[i]);
+                }
+                break;
+            default:
+                throw new EllaRuntimeException("Illegal arguments");
+        }
+        return result;
+    }
+
+    protected static String value(Str str) {
+        return str == null ? null : str.value;
+    }
+
+    protected Conn createPooled(Engine engine, ConnPool pool) {
+        Connection jdbcConn;
+        try {
+            jdbcConn = pool.getConnection();
+        } catch (SQLException e) {
+            throw new EllaRuntimeException("Connection failed: " + e.getMessage(), e);
+        }
+
+        Conn conn = new Conn(jdbcConn, pool);
+
+        // Activate connection if none active yet
+        if (getSlot(engine.getContext(), Str.SYM_active) instanceof Null) {
+            setSlot(engine.getContext(), Str.SYM_active, conn);
+        }
+
+        // returned to the pool when the script finishes unless closed before
+        connections.add(jdbcConn);
+
+        return conn;
+    }
+
     /**
      * Creates a new connection manager.
      */
     public ConnMgrImpl() {
-        slots.put(Str.SYM_active, new NullImpl());
-        slots.put(Str.SYM_activate, nativeActivate);
-        slots.put(Str.SYM_create, nativeCreate);
-        slots.put(Str.SYM_createFromProps, nativeCreateFromProps);
+        initSlots();
+    }
+
+    protected void initSlots() {
+        putSlot(Str.SYM_active, new NullImpl());
+        putSlot(Str.SYM_activate, nativeActivate);
+        putSlot(Str.SYM_create, nativeCreate);
+        putSlot(Str.SYM_createFromProps, nativeCreateFromProps);
+        putSlot(Str.SYM_createPooled, nativeCreatePooled);
+        putSlot(Str.SYM_createPooledFromProps, nativeCreatePooledFromProps);
+        putSlot(Str.SYM_pools, nativePools);
     }
 
     /**
@@ -251,13 +364,27 @@ public class ConnMgrImpl extends AbstractObj implements ConnMgr {
      */
     public Obj activate(Obj conn) {
         assert conn != null;
-        return slots.put(Str.SYM_active, conn);
+        return putSlot(Str.SYM_active, conn);
     }
 
     public Set<Connection> getConnections() {
         return connections;
     }
 
+    public void reset() {
+        connections.clear();
+        setSlots(Collections.<Obj, Obj>emptyMap());
+        initSlots();
+    }
+
+    @Override
+    public ConnMgrImpl copy() {
+        ConnMgrImpl copy = (ConnMgrImpl) super.copy();
+        copy.connections = new HashSet<Connection>();
+        copy.putSlot(Str.SYM_active, new NullImpl());
+        return copy;
+    }
+
     /**
      * Overrides the method from superclass to return a proxy for all slots not found directly in this object's
      * slots property. The proxy forwards all calls to the active connection object.
@@ -269,7 +396,7 @@ public class ConnMgrImpl extends AbstractObj implements ConnMgr {
      */
     @Override
     public Obj getSlot(Context ctx, Obj key) {
-        Obj value = slots.get(key);
+        Obj value = getOwnSlot(key);
         if (value != null) {
             return value;
         }
@@ -0,0 +1,949 @@
+/* ConnPool.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.lang.sql;
+
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Pool of JDBC connections to a database.
+ * <p>
+ * Connections handed out by the pool are returned to it when they are closed. Connections idle for longer than the
+ * configured validation interval are validated before being handed out again, either by running the configured
+ * validation query or by asking the driver. Connections idle for longer than the configured idle timeout are closed
+ * in the background as long as more than the minimum number of connections are open. The minimum number of
+ * connections is opened when the pool is created and restored whenever connections are discarded. Callers wait up to
+ * the configured acquisition timeout for a connection when the maximum number of connections is in use.
+ * <p>
+ * Connections are returned to the pool in the state they were handed out in: open transactions are rolled back and
+ * auto-commit, read-only mode, transaction isolation, catalog, holdability and type map are restored. Connections
+ * whose state cannot be restored are closed instead.
+ * <p>
+ * Pools are shared by all callers asking for the same database, credentials and configuration, so that repeated
+ * script runs reuse established connections.
+ */
+public class ConnPool implements DataSource {
+    protected static final Map<Key, ConnPool> pools = new HashMap<Key, ConnPool>();
+
+    protected static final Timer evictor = new Timer("ella-connection-pool-evictor", true);
+
+    /**
+     * The methods changing session state of a connection that is restored when the connection is returned.
+     */
+    protected static final Set<String> STATE_SETTERS = new HashSet<String>(Arrays.asList(
+            "setReadOnly", "setTransactionIsolation", "setCatalog", "setHoldability", "setTypeMap"));
+
+    protected final DataSource target;
+    protected final Config config;
+    protected final Key key;
+
+    /**
+     * Idle connections, most recently used first.
+     */
+    protected final LinkedList<PooledConnection> idle = new LinkedList<PooledConnection>();
+
+    protected int size = 0;
+    protected int active = 0;
+    protected boolean closed = false;
+
+    protected long acquisitions = 0;
+    protected long timeouts = 0;
+    protected long created = 0;
+    protected long evicted = 0;
+    protected long invalidated = 0;
+    protected long totalWaitNanos = 0;
+    protected long maxWaitNanos = 0;
+    protected int peakActive = 0;
+
+    protected TimerTask evictionTask = null;
+
+    protected ConnPool(Key key, DataSource target, Config config) {
+        this.key = key;
+        this.target = target;
+        this.config = config.copy();
+        if (config.idleTimeout > 0) {
+            long period = Math.max(config.idleTimeout / 2, 1000);
+            evictionTask = new TimerTask() {
+                public void run() {
+                    evict();
+                }
+            };
+            evictor.schedule(evictionTask, period, period);
+        }
+    }
+
+    /**
+     * Creates a pool of connections opened by the given data source. Unlike the pools returned by
+     * {@link #getPool(DriverManagerDataSource, Config)}, the pool is not shared and must be closed by its creator.
+     *
+     * @param target the data source opening the connections.
+     * @param url the URL of the database, used for diagnostics only.
+     * @param config the pool configuration.
+     */
+    public ConnPool(DataSource target, String url, Config config) {
+        this(new Key(url, null, null, null, config), target, config);
+        fill();
+    }
+
+    /**
+     * Returns the pool of connections to the database described by the given data source, creating it if
+     * necessary. The data source is used as a template only, so single connection data sources are supported.
+     *
+     * @param template the data source describing the database and credentials.
+     * @param config the pool configuration.
+     * @return the pool.
+     */
+    public static ConnPool getPool(DriverManagerDataSource template, Config config) {
+        Key key = new Key(template.getUrl(), template.getUsername(), template.getPassword(),
+                          template.getConnectionProperties(), config);
+        ConnPool pool;
+        synchronized (pools) {
+            pool = pools.get(key);
+            if (pool != null) {
+                return pool;
+            }
+            pool = new ConnPool(key, copyDataSource(template), config);
+            pools.put(key, pool);
+        }
+        // opened outside the lock so that callers asking for other pools are not held up by the database
+        pool.fill();
+        return pool;
+    }
+
+    /**
+     * Creates a data source opening connections to the database described by the given data source.
+     *
+     * @param template the data source describing the database and credentials.
+     * @return the data source.
+     */
+    protected static DriverManagerDataSource copyDataSource(DriverManagerDataSource template) {
+        DriverManagerDataSource target = new DriverManagerDataSource();
+        target.setUrl(template.getUrl());
+        target.setUsername(template.getUsername());
+        target.setPassword(template.getPassword());
+        target.setConnectionProperties(template.getConnectionProperties());
+        return target;
+    }
+
+    /**
+     * Returns all open pools.
+     *
+     * @return the open pools.
+     */
+    public static Collection<ConnPool> getPools() {
+        synchronized (pools) {
+            return new ArrayList<ConnPool>(pools.values());
+        }
+    }
+
+    /**
+     * Closes all open pools.
+     */
+    public static void closeAll() {
+        for (ConnPool pool : getPools()) {
+            pool.close();
+        }
+    }
+
+    /**
+     * Takes a connection from the pool, opening a new one or waiting for one to be returned if necessary.
+     *
+     * @return the connection. Closing it returns it to the pool.
+     * @throws SQLException if the pool is closed, no connection becomes available in time or opening a new connection
+     *                      fails.
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.acquireTimeout);
+        PooledConnection conn;
+        while (true) {
+            conn = null;
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("Connection pool is closed");
+                }
+                if (!idle.isEmpty()) {
+                    conn = idle.removeFirst();
+                    checkedOut();
+                }
+                else if (size < config.maxSize) {
+                    size++;
+                    checkedOut();
+                }
+                else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts++;
+                        throw new SQLException("Timed out waiting " + config.acquireTimeout +
+                                               " ms for a pooled connection to " + key.url);
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a pooled connection");
+                    }
+                    continue;
+                }
+            }
+
+            if (conn == null) {
+                try {
+                    conn = new PooledConnection(target.getConnection());
+                } catch (SQLException e) {
+                    discarded(false);
+                    throw e;
+                } catch (RuntimeException e) {
+                    discarded(false);
+                    throw e;
+                }
+                synchronized (this) {
+                    created++;
+                }
+                break;
+            }
+
+            if (isValid(conn)) {
+                break;
+            }
+            destroy(conn);
+            synchronized (this) {
+                invalidated++;
+            }
+            discarded(true);
+        }
+
+        long waited = System.nanoTime() - start;
+        synchronized (this) {
+            totalWaitNanos += waited;
+            maxWaitNanos = Math.max(maxWaitNanos, waited);
+        }
+        return conn.newHandle();
+    }
+
+    protected void checkedOut() {
+        acquisitions++;
+        active++;
+        peakActive = Math.max(peakActive, active);
+    }
+
+    /**
+     * Accounts for a checked out connection that has been discarded.
+     *
+     * @param undoAcquisition whether the acquisition is retried.
+     */
+    protected synchronized void discarded(boolean undoAcquisition) {
+        size--;
+        active--;
+        if (undoAcquisition) {
+            acquisitions--;
+        }
+        notifyAll();
+    }
+
+    protected boolean isValid(PooledConnection conn) {
+        if (System.currentTimeMillis() - conn.lastUsed < config.validationInterval) {
+            return true;
+        }
+        try {
+            if (config.validationQuery == null) {
+                return conn.connection.isValid(Math.max(1, (int) (config.acquireTimeout / 1000)));
+            }
+            Statement stmt = conn.connection.createStatement();
+            try {
+                stmt.execute(config.validationQuery);
+            } finally {
+                stmt.close();
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        } catch (AbstractMethodError e) {
+            // pre JDBC 4 driver without Connection.isValid()
+            return true;
+        }
+    }
+
+    /**
+     * Takes back a connection, resetting it for reuse or closing it if resetting fails.
+     *
+     * @param conn the connection.
+     */
+    protected void release(PooledConnection conn) {
+        boolean reusable;
+        try {
+            reusable = !conn.connection.isClosed();
+            if (reusable && !conn.connection.getAutoCommit()) {
+                conn.connection.rollback();
+                conn.connection.setAutoCommit(true);
+            }
+            if (reusable) {
+                conn.restoreState();
+                conn.connection.clearWarnings();
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        synchronized (this) {
+            if (reusable && !closed) {
+                conn.lastUsed = System.currentTimeMillis();
+                idle.addFirst(conn);
+                active--;
+                notifyAll();
+                return;
+            }
+        }
+        destroy(conn);
+        discarded(false);
+        fill();
+    }
+
+    protected void destroy(PooledConnection conn) {
+        try {
+            conn.connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /**
+     * Closes connections idle for longer than the idle timeout, keeping at least the minimum number of connections
+     * open, and opens new connections if less than the minimum number are open.
+     */
+    protected void evict() {
+        List<PooledConnection> expired = new ArrayList<PooledConnection>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            long limit = System.currentTimeMillis() - config.idleTimeout;
+            // idle connections are ordered by last use, so the expired ones are at the end
+            while (size > config.minSize && !idle.isEmpty() && idle.getLast().lastUsed < limit) {
+                expired.add(idle.removeLast());
+                size--;
+                evicted++;
+            }
+        }
+        for (PooledConnection conn : expired) {
+            destroy(conn);
+        }
+        fill();
+    }
+
+    /**
+     * Opens new idle connections if less than the minimum number of connections are open. Failing to open a
+     * connection is not an error, as connections are opened on demand as well.
+     */
+    protected void fill() {
+        int missing;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            missing = Math.min(config.minSize, config.maxSize) - size;
+            if (missing <= 0) {
+                return;
+            }
+            size += missing;
+        }
+        for (int i = 0; i < missing; i++) {
+            PooledConnection conn = openQuietly();
+            synchronized (this) {
+                if (conn != null && !closed) {
+                    created++;
+                    conn.lastUsed = System.currentTimeMillis();
+                    idle.addLast(conn);
+                    notifyAll();
+                    continue;
+                }
+                // give up on the remaining connections
+                size -= missing - i;
+                notifyAll();
+            }
+            if (conn != null) {
+                destroy(conn);
+            }
+            return;
+        }
+    }
+
+    protected PooledConnection openQuietly() {
+        try {
+            return new PooledConnection(target.getConnection());
+        } catch (SQLException e) {
+            return null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Closes all idle connections and the connections in use as soon as they are returned. The pool cannot be used
+     * afterwards.
+     */
+    public void close() {
+        List<PooledConnection> toClose;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (evictionTask != null) {
+                evictionTask.cancel();
+            }
+            toClose = new ArrayList<PooledConnection>(idle);
+            size -= idle.size();
+            idle.clear();
+            notifyAll();
+        }
+        synchronized (pools) {
+            if (pools.get(key) == this) {
+                pools.remove(key);
+            }
+        }
+        for (PooledConnection conn : toClose) {
+            destroy(conn);
+        }
+    }
+
+    public Config getConfig() {
+        return config.copy();
+    }
+
+    public String getUrl() {
+        return key.url;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns the number of open connections.
+     *
+     * @return the number of open connections.
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public synchronized int getPeakActiveCount() {
+        return peakActive;
+    }
+
+    /**
+     * Returns the fraction of the maximum number of connections currently in use.
+     *
+     * @return the utilisation, between <code>0</code> and <code>1</code>.
+     */
+    public synchronized double getUtilisation() {
+        return (double) active / config.maxSize;
+    }
+
+    public synchronized long getAcquisitionCount() {
+        return acquisitions;
+    }
+
+    public synchronized long getTimeoutCount() {
+        return timeouts;
+    }
+
+    public synchronized long getCreatedCount() {
+        return created;
+    }
+
+    public synchronized long getEvictedCount() {
+        return evicted;
+    }
+
+    public synchronized long getInvalidatedCount() {
+        return invalidated;
+    }
+
+    /**
+     * Returns the average time callers waited for a connection, including the time to open new connections.
+     *
+     * @return the average wait time in milliseconds.
+     */
+    public synchronized double getAverageWaitMillis() {
+        return acquisitions == 0 ? 0 : totalWaitNanos / 1e6 / acquisitions;
+    }
+
+    /**
+     * Returns the longest time a caller waited for a connection, including the time to open new connections.
+     *
+     * @return the maximum wait time in milliseconds.
+     */
+    public synchronized double getMaxWaitMillis() {
+        return maxWaitNanos / 1e6;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ConnPool[url=" + key.url + ", size=" + size + ", active=" + active + ", idle=" + idle.size() +
+               ", maxSize=" + config.maxSize + "]";
+    }
+
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the credentials of the pool");
+    }
+
+    public PrintWriter getLogWriter() throws SQLException {
+        return target.getLogWriter();
+    }
+
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        target.setLogWriter(out);
+    }
+
+    public void setLoginTimeout(int seconds) throws SQLException {
+        target.setLoginTimeout(seconds);
+    }
+
+    public int getLoginTimeout() throws SQLException {
+        return target.getLoginTimeout();
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    protected class PooledConnection {
+        protected final Connection connection;
+        protected long lastUsed;
+
+        // Session state saved before it is changed during a checkout
+        protected boolean stateSaved = false;
+        protected boolean stateLost = false;
+        protected boolean readOnly;
+        protected int isolation;
+        protected String catalog;
+        protected int holdability;
+        protected Map<String, Class<?>> typeMap;
+
+        protected PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        /**
+         * Saves the session state of the connection before it is changed for the first time during a checkout. If
+         * the state cannot be read, the connection is closed when it is returned.
+         */
+        protected void saveState() {
+            if (stateSaved || stateLost) {
+                return;
+            }
+            try {
+                readOnly = connection.isReadOnly();
+                isolation = connection.getTransactionIsolation();
+                catalog = connection.getCatalog();
+                holdability = connection.getHoldability();
+                typeMap = connection.getTypeMap();
+                stateSaved = true;
+            } catch (SQLException e) {
+                stateLost = true;
+            } catch (AbstractMethodError e) {
+                // pre JDBC 3 driver
+                stateLost = true;
+            }
+        }
+
+        /**
+         * Restores the session state saved by {@link #saveState()}.
+         *
+         * @throws SQLException if the state cannot be restored.
+         */
+        protected void restoreState() throws SQLException {
+            if (stateLost) {
+                throw new SQLException("Session state of pooled connection cannot be restored");
+            }
+            if (!stateSaved) {
+                return;
+            }
+            connection.setReadOnly(readOnly);
+            connection.setTransactionIsolation(isolation);
+            if (catalog != null) {
+                connection.setCatalog(catalog);
+            }
+            connection.setHoldability(holdability);
+            if (typeMap != null) {
+                connection.setTypeMap(typeMap);
+            }
+            stateSaved = false;
+            typeMap = null;
+        }
+
+        protected Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(ConnPool.class.getClassLoader(),
+                                                       new Class<?>[] { Connection.class },
+                                                       new Handle(this));
+        }
+    }
+
+    /**
+     * The connection handed out to a caller for the time of one checkout. Closing it returns the physical connection
+     * to the pool along with closing the statements created through it.
+     */
+    protected class Handle implements InvocationHandler {
+        protected static final int PRUNE_THRESHOLD = 64;
+
+        protected final PooledConnection conn;
+        protected final List<Statement> statements = new LinkedList<Statement>();
+        protected boolean closed = false;
+
+        protected Handle(PooledConnection conn) {
+            this.conn = conn;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                close();
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return closed || conn.connection.isClosed();
+            }
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            if ("toString".equals(name)) {
+                return "Pooled" + (closed ? "[closed]" : "[" + conn.connection + "]");
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            if (STATE_SETTERS.contains(name)) {
+                conn.saveState();
+            }
+
+            Object result;
+            try {
+                result = method.invoke(conn.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                track((Statement) result);
+            }
+            return result;
+        }
+
+        protected void track(Statement statement) throws SQLException {
+            if (statements.size() >= PRUNE_THRESHOLD) {
+                for (Iterator<Statement> it = statements.iterator(); it.hasNext();) {
+                    if (it.next().isClosed()) {
+                        it.remove();
+                    }
+                }
+            }
+            statements.add(statement);
+        }
+
+        protected void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Statement statement : statements) {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {
+                }
+            }
+            statements.clear();
+            release(conn);
+        }
+    }
+
+    /**
+     * Configuration of a connection pool.
+     */
+    public static class Config {
+        public static final String PREFIX = "pool.";
+
+        protected int minSize = 0;
+        protected int maxSize = 8;
+        protected String validationQuery = null;
+        protected long validationInterval = 5000;
+        protected long idleTimeout = 300000;
+        protected long acquireTimeout = 30000;
+
+        /**
+         * Reads the pool configuration from the given connection properties and removes its entries, so that they
+         * are not passed on to the driver. Keys are <code>pool.minSize</code>, <code>pool.maxSize</code>,
+         * <code>pool.validationQuery</code>, <code>pool.validationInterval</code>, <code>pool.idleTimeout</code>
+         * and <code>pool.acquireTimeout</code>, times given in milliseconds.
+         *
+         * @param props the connection properties.
+         * @return the pool configuration.
+         */
+        public static Config fromProperties(Properties props) {
+            Config config = new Config();
+            String value;
+            if ((value = (String) props.remove(PREFIX + "minSize")) != null) {
+                config.setMinSize(Integer.parseInt(value.trim()));
+            }
+            if ((value = (String) props.remove(PREFIX + "maxSize")) != null) {
+                config.setMaxSize(Integer.parseInt(value.trim()));
+            }
+            if ((value = (String) props.remove(PREFIX + "validationQuery")) != null) {
+                config.setValidationQuery(value);
+            }
+            if ((value = (String) props.remove(PREFIX + "validationInterval")) != null) {
+                config.setValidationInterval(Long.parseLong(value.trim()));
+            }
+            if ((value = (String) props.remove(PREFIX + "idleTimeout")) != null) {
+                config.setIdleTimeout(Long.parseLong(value.trim()));
+            }
+            if ((value = (String) props.remove(PREFIX + "acquireTimeout")) != null) {
+                config.setAcquireTimeout(Long.parseLong(value.trim()));
+            }
+            return config;
+        }
+
+        public Config copy() {
+            Config copy = new Config();
+            copy.minSize = minSize;
+            copy.maxSize = maxSize;
+            copy.validationQuery = validationQuery;
+            copy.validationInterval = validationInterval;
+            copy.idleTimeout = idleTimeout;
+            copy.acquireTimeout = acquireTimeout;
+            return copy;
+        }
+
+        public int getMinSize() {
+            return minSize;
+        }
+
+        public void setMinSize(int minSize) {
+            if (minSize < 0) {
+                throw new IllegalArgumentException("Illegal minimum pool size: " + minSize);
+            }
+            this.minSize = minSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("Illegal maximum pool size: " + maxSize);
+            }
+            this.maxSize = maxSize;
+        }
+
+        public String getValidationQuery() {
+            return validationQuery;
+        }
+
+        /**
+         * Sets the query used to validate connections, or <code>null</code> to let the driver validate them.
+         *
+         * @param validationQuery the validation query.
+         */
+        public void setValidationQuery(String validationQuery) {
+            this.validationQuery = validationQuery;
+        }
+
+        public long getValidationInterval() {
+            return validationInterval;
+        }
+
+        /**
+         * Sets the time a connection may be idle before it is validated on checkout.
+         *
+         * @param validationInterval the time in milliseconds.
+         */
+        public void setValidationInterval(long validationInterval) {
+            this.validationInterval = validationInterval;
+        }
+
+        public long getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        /**
+         * Sets the time after which idle connections are closed, or <code>0</code> to keep them open.
+         *
+         * @param idleTimeout the time in milliseconds.
+         */
+        public void setIdleTimeout(long idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public long getAcquireTimeout() {
+            return acquireTimeout;
+        }
+
+        /**
+         * Sets the time to wait for a connection if all connections are in use.
+         *
+         * @param acquireTimeout the time in milliseconds.
+         */
+        public void setAcquireTimeout(long acquireTimeout) {
+            this.acquireTimeout = acquireTimeout;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Config)) {
+                return false;
+            }
+            Config other = (Config) o;
+            return minSize == other.minSize
+                   && maxSize == other.maxSize
+                   && validationInterval == other.validationInterval
+                   && idleTimeout == other.idleTimeout
+                   && acquireTimeout == other.acquireTimeout
+                   && (validationQuery == null
+                       ? other.validationQuery == null
+                       : validationQuery.equals(other.validationQuery));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = minSize;
+            result = 31 * result + maxSize;
+            result = 31 * result + (validationQuery == null ? 0 : validationQuery.hashCode());
+            result = 31 * result + (int) (validationInterval ^ (validationInterval >>> 32));
+            result = 31 * result + (int) (idleTimeout ^ (idleTimeout >>> 32));
+            result = 31 * result + (int) (acquireTimeout ^ (acquireTimeout >>> 32));
+            return result;
+        }
+    }
+
+    protected static class Key {
+        protected final String url;
+        protected final String user;
+        protected final String pass;
+        protected final Properties props;
+        protected final Config config;
+
+        protected Key(String url, String user, String pass, Properties props, Config config) {
+            this.url = url;
+            this.user = user;
+            this.pass = pass;
+            this.props = props == null ? new Properties() : (Properties) props.clone();
+            this.config = config.copy();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return eq(url, other.url) && eq(user, other.user) && eq(pass, other.pass)
+                   && props.equals(other.props) && config.equals(other.config);
+        }
+
+        protected static boolean eq(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = url == null ? 0 : url.hashCode();
+            result = 31 * result + (user == null ? 0 : user.hashCode());
+            result = 31 * result + props.hashCode();
+            result = 31 * result + config.hashCode();
+            return result;
+        }
+    }
+}
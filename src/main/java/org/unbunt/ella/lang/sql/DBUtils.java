@@ -53,6 +53,43 @@ public class DBUtils {
                                                                     String user, String pass,
                                                                     String classOrType)
             throws DBConnectionFailedException {
+        return createDataSourceFromProps(loadProps(propsFile), user, pass, classOrType);
+    }
+
+    /**
+     * Returns a pool of connections to the database described by the given connection properties file. The pool is
+     * configured through the <code>pool.*</code> properties.
+     *
+     * @param propsFile the connection properties file.
+     * @param user the user name or <code>null</code> to use the one given in the properties.
+     * @param pass the password or <code>null</code> to use the one given in the properties.
+     * @param classOrType the driver class or type or <code>null</code> to use the one given in the properties.
+     * @return the connection pool.
+     * @throws DBConnectionFailedException if the properties cannot be loaded or the driver cannot be found.
+     * @see ConnPool.Config#fromProperties(Properties)
+     */
+    public static ConnPool createPooledDataSourceFromProps(String propsFile,
+                                                           String user, String pass,
+                                                           String classOrType)
+            throws DBConnectionFailedException {
+        Properties props = loadProps(propsFile);
+        ConnPool.Config config;
+        try {
+            config = ConnPool.Config.fromProperties(props);
+        } catch (IllegalArgumentException e) {
+            throw new DBConnectionFailedException("Invalid pool configuration: " + propsFile + ": " +
+                                                  e.getMessage(), e);
+        }
+        return ConnPool.getPool(createDataSourceFromProps(props, user, pass, classOrType), config);
+    }
+
+    public static ConnPool createPooledDataSource(String url, String user, String pass, String classOrType,
+                                                  ConnPool.Config config)
+            throws DBConnectionFailedException {
+        return ConnPool.getPool(createDataSource(url, user, pass, classOrType), config);
+    }
+
+    protected static Properties loadProps(String propsFile) throws DBConnectionFailedException {
         Properties props = new Properties();
         try {
             props.load(new FileInputStream(propsFile));
@@ -60,8 +97,7 @@ public class DBUtils {
             throw new DBConnectionFailedException("Failed to load connection properties: " + propsFile + ": " +
                                                   e.getMessage(), e);
         }
-
-        return createDataSourceFromProps(props, user, pass, classOrType);
+        return props;
     }
 
     public static DriverManagerDataSource createDataSourceFromProps(Properties props,
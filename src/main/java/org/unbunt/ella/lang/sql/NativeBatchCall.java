@@ -60,10 +60,14 @@ abstract class NativeBatchCall extends NativeCall {
         }
         else {
             closure = args[0];
-            batchSize = DEFAULT_BATCH_SIZE;
+            batchSize = getDefaultBatchSize();
         }
         return batchCall(engine, context, closure, batchSize);
     }
 
+    protected int getDefaultBatchSize() {
+        return DEFAULT_BATCH_SIZE;
+    }
+
     protected abstract Obj batchCall(Engine engine, Obj context, Obj closure, int batchSize);
 }
@@ -38,8 +38,6 @@ exception statement from your version. */
 package org.unbunt.ella.lang.sql;
 
 import org.unbunt.ella.exception.ClosureTerminatedException;
-import org.unbunt.ella.exception.LoopBreakException;
-import org.unbunt.ella.exception.LoopContinueException;
 import org.unbunt.ella.exception.EllaRuntimeException;
 import org.unbunt.ella.lang.*;
 import org.unbunt.ella.engine.corelang.*;
@@ -61,6 +59,11 @@ public class ResSet extends AbstractObj {
     protected final ResultSet resultSet;
     protected final JObject wrappedResultSet;
 
+    /**
+     * The column names of the wrapped result set, looked up on first use.
+     */
+    protected String[] columnNames;
+
     /**
      * Creates a new ResSet wrapping the given result set.
      *
@@ -71,6 +74,25 @@ public class ResSet extends AbstractObj {
         this.wrappedResultSet = new JObject(resultSet);
     }
 
+    /**
+     * Returns the column names of the wrapped result set. The names are looked up once per result set. Rows are
+     * handed new Str objects of the names since scripts may set slots on them.
+     *
+     * @return the column names, indexed from <code>0</code>.
+     * @throws SQLException if a database error occurs.
+     */
+    protected String[] getColumnNames() throws SQLException {
+        if (columnNames == null) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            String[] names = new String[metaData.getColumnCount()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = metaData.getColumnName(i + 1);
+            }
+            columnNames = names;
+        }
+        return columnNames;
+    }
+
     /**
      * Closes the wrapped result set.
      *
@@ -204,16 +226,12 @@ public class ResSet extends AbstractObj {
 
                 try {
                     ResultSet rs = thiz.resultSet;
-                    ResultSetMetaData metaData = rs.getMetaData();
-                    int ncols = metaData.getColumnCount();
+                    String[] names = thiz.getColumnNames();
+                    int ncols = names.length;
                     for (int i = 1; i <= ncols; i++) {
-                        Str name = new Str(metaData.getColumnName(i));
+                        Str name = new Str(names[i - 1]);
                         Obj value = NativeWrapper.wrap(ctx, rs.getObject(i));
-                        try {
-                            engine.invokeInLoop(closure, _null, name, value);
-                        } catch (LoopContinueException e) {
-                            continue;
-                        } catch (LoopBreakException e) {
+                        if (engine.invokeLoopBody(closure, _null, name, value) == LoopStatus.BREAK) {
                             break;
                         }
                     }
@@ -232,8 +250,7 @@ public class ResSet extends AbstractObj {
 
                 try {
                     ResultSet rs = thiz.resultSet;
-                    ResultSetMetaData metaData = rs.getMetaData();
-                    int ncols = metaData.getColumnCount();
+                    int ncols = thiz.getColumnNames().length;
                     List<Obj> values = new ArrayList<Obj>(ncols);
                     for (int i = 1; i <= ncols; i++) {
                         values.add(NativeWrapper.wrap(ctx, rs.getObject(i)));
@@ -246,11 +263,11 @@ public class ResSet extends AbstractObj {
         };
 
         private ResSetProto() {
-            slots.put(Str.SYM_get, nativeGet);
-            slots.put(Str.SYM_each, nativeEach);
-            slots.put(Str.SYM_values, nativeValues);
-            slots.put(Str.SYM_update, nativeUpdate);
-            slots.put(Str.SYM_insert, nativeInsert);
+            putSlot(Str.SYM_get, nativeGet);
+            putSlot(Str.SYM_each, nativeEach);
+            putSlot(Str.SYM_values, nativeValues);
+            putSlot(Str.SYM_update, nativeUpdate);
+            putSlot(Str.SYM_insert, nativeInsert);
         }
 
         @Override
@@ -272,7 +289,7 @@ public class ResSet extends AbstractObj {
 
         public UpdateHelper(ResultSet resultSet) {
             this.resultSet = resultSet;
-            slots.put(Str.SYM_set, nativeSet);
+            putSlot(Str.SYM_set, nativeSet);
         }
 
         protected static final NativeCall nativeSet = new NativeCall() {
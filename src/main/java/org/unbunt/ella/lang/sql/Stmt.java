@@ -38,6 +38,7 @@ exception statement from your version. */
 package org.unbunt.ella.lang.sql;
 
 import org.unbunt.ella.compiler.ParserHelper;
+import org.unbunt.ella.compiler.RowUpdateDetector;
 import org.unbunt.ella.compiler.support.RawParamedSQL;
 import org.unbunt.ella.compiler.support.RawSQL;
 import org.unbunt.ella.engine.context.Context;
@@ -69,6 +70,28 @@ public class Stmt extends AbstractObj {
     protected PreparedStatement preparedStatement = null;
     protected Connection connection;
 
+    /**
+     * The cache of prepared statements of the connection or <code>null</code> if statements are not cached.
+     */
+    protected StmtCache stmtCache;
+
+    /**
+     * The SQL text and result set concurrency the current prepared statement has been checked out of the cache for,
+     * or <code>null</code> if the statement has not been taken from the cache.
+     */
+    protected String cachedSQL = null;
+    protected boolean cachedUpdatable;
+
+    /**
+     * The number of rows to fetch from the database at once, or <code>0</code> to leave the choice to the driver.
+     */
+    protected int fetchSize = 0;
+
+    /**
+     * Whether the current prepared statement has been used to execute a batch.
+     */
+    protected boolean batched = false;
+
     protected boolean paramed = false;
     protected Obj[] params = null;
     protected Map<String, Obj> namedParams = null;
@@ -90,8 +113,21 @@ public class Stmt extends AbstractObj {
      * @param managedExternal a flag indicating if this object's resources are to be managed from an external entity.
      */
     public Stmt(RawSQL rawStatement, Connection connection, boolean managedExternal) {
+        this(rawStatement, connection, null, managedExternal);
+    }
+
+    /**
+     * Creates a new Stmt taking its prepared statements from the given cache.
+     *
+     * @param rawStatement the SQL statement to wrap.
+     * @param connection the connection associated with the SQL statement.
+     * @param stmtCache the cache of prepared statements of the connection or <code>null</code>.
+     * @param managedExternal a flag indicating if this object's resources are to be managed from an external entity.
+     */
+    public Stmt(RawSQL rawStatement, Connection connection, StmtCache stmtCache, boolean managedExternal) {
         this.rawStatement = rawStatement;
         this.connection = connection;
+        this.stmtCache = stmtCache;
         this.managedExternal = managedExternal;
         this.keepResources = managedExternal;
     }
@@ -123,12 +159,8 @@ public class Stmt extends AbstractObj {
     }
 
     protected boolean execute(Context context) throws SQLException {
-        return execute(context, false);
-    }
-
-    protected boolean execute(Context context, boolean scrollable) throws SQLException {
         if (paramed) {
-            initPrepared(scrollable);
+            initPrepared(false);
             addParams();
             context.info(getParamedQuery());
             boolean isResult;
@@ -138,7 +170,7 @@ public class Stmt extends AbstractObj {
             return isResult;
         }
         else {
-            init(scrollable);
+            init(false);
             context.info(rawStatement.getStatement());
             boolean isResult;
             StopWatch timer = new StopWatch();
@@ -149,13 +181,17 @@ public class Stmt extends AbstractObj {
     }
 
     protected ResultSet query() throws SQLException {
+        return query(false);
+    }
+
+    protected ResultSet query(boolean updatable) throws SQLException {
         if (paramed) {
-            initPrepared(false);
+            initPrepared(updatable);
             addParams();
             return preparedStatement.executeQuery();
         }
         else {
-            init(false);
+            init(updatable);
             return statement.executeQuery(rawStatement.getStatement());
         }
     }
@@ -178,19 +214,28 @@ public class Stmt extends AbstractObj {
         setParams(params);
         addParams();
         preparedStatement.addBatch();
+        batched = true;
     }
 
     protected void addNamedBatch(Obj namedParams) throws SQLException {
         setNamedParams(namedParams);
         addParams();
         preparedStatement.addBatch();
+        batched = true;
     }
 
     protected void execBatch() throws SQLException {
         preparedStatement.executeBatch();
     }
 
-    protected void init(boolean scrollable) throws SQLException {
+    /**
+     * Creates the plain statement to execute. Unless an updatable result set is requested the statement produces
+     * forward-only, read-only result sets which drivers are able to stream instead of reading them into memory.
+     *
+     * @param updatable whether an updatable result set is requested.
+     * @throws SQLException if a database error occurs.
+     */
+    protected void init(boolean updatable) throws SQLException {
         if (initialized) {
             if (keepResources) {
                 return;
@@ -200,36 +245,25 @@ public class Stmt extends AbstractObj {
             }
         }
 
-        if (scrollable) {
+        if (updatable) {
             // create statement downgrading result set features as nessassary
             // NOTE: catching SQLException instead of SQLFeatureNotSupportedException since at least
             //       Xerial SQLite JDBC driver incorrectly throws generic SQLException...
             try {
-                statement = connection.createStatement(ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_UPDATABLE);
+                statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
             } catch (SQLException e) {
-                try {
-                    statement = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-                } catch (SQLException e2) {
-                    statement = connection.createStatement();
-                }
+                statement = connection.createStatement();
             }
         }
         else {
-            try {
-                statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
-            } catch (SQLException e) {
-                try {
-                    statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-                } catch (SQLException e2) {
-                    statement = connection.createStatement();
-                }
-            }
+            statement = connection.createStatement();
         }
+        applyFetchSize(statement);
 
         initialized = true;
     }
 
-    protected void initPrepared(boolean scrollable) throws SQLException {
+    protected void initPrepared(boolean updatable) throws SQLException {
         if (initialized) {
             if (keepResources) {
                 return;
@@ -240,39 +274,53 @@ public class Stmt extends AbstractObj {
         }
 
         String sql = getParamedQuery();
-        if (scrollable) {
-            try {
-                preparedStatement = connection.prepareStatement(sql,
-                                                                ResultSet.TYPE_SCROLL_INSENSITIVE,
-                                                                ResultSet.CONCUR_UPDATABLE);
-            } catch (SQLFeatureNotSupportedException e) {
-                try {
-                    preparedStatement = connection.prepareStatement(sql,
-                                                                    ResultSet.TYPE_SCROLL_INSENSITIVE,
-                                                                    ResultSet.CONCUR_READ_ONLY);
-                } catch (SQLFeatureNotSupportedException e2) {
-                    preparedStatement = connection.prepareStatement(sql);
-                }
-            }
+        if (stmtCache != null) {
+            preparedStatement = stmtCache.prepare(sql, updatable);
+            cachedSQL = sql;
+            cachedUpdatable = updatable;
         }
         else {
+            preparedStatement = prepare(connection, sql, updatable);
+        }
+        applyFetchSize(preparedStatement);
+
+        initialized = true;
+        paramed = true;
+    }
+
+    /**
+     * Prepares a statement producing forward-only result sets, downgrading the result set concurrency if an updatable
+     * result set is requested but not supported.
+     *
+     * @param connection the connection to prepare the statement with.
+     * @param sql the SQL text.
+     * @param updatable whether an updatable result set is requested.
+     * @return the prepared statement.
+     * @throws SQLException if a database error occurs.
+     */
+    protected static PreparedStatement prepare(Connection connection, String sql, boolean updatable)
+            throws SQLException {
+        if (updatable) {
             try {
-                preparedStatement = connection.prepareStatement(sql,
-                                                                ResultSet.TYPE_FORWARD_ONLY,
-                                                                ResultSet.CONCUR_UPDATABLE);
+                return connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
             } catch (SQLFeatureNotSupportedException e) {
-                try {
-                    preparedStatement = connection.prepareStatement(sql,
-                                                                    ResultSet.TYPE_FORWARD_ONLY,
-                                                                    ResultSet.CONCUR_READ_ONLY);
-                } catch (SQLFeatureNotSupportedException e2) {
-                    preparedStatement = connection.prepareStatement(sql);
-                }
+                return connection.prepareStatement(sql);
             }
         }
+        return connection.prepareStatement(sql);
+    }
 
-        initialized = true;
-        paramed = true;
+    protected void applyFetchSize(Statement statement) throws SQLException {
+        if (fetchSize > 0) {
+            statement.setFetchSize(fetchSize);
+        }
+    }
+
+    protected void setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new EllaRuntimeException("Illegal fetch size: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
     }
 
     protected void initPreparedForKeys() throws SQLException {
@@ -444,7 +492,12 @@ public class Stmt extends AbstractObj {
             }
 
             if (preparedStatement != null) {
-                preparedStatement.close();
+                if (cachedSQL != null) {
+                    stmtCache.release(cachedSQL, cachedUpdatable, preparedStatement, batched);
+                }
+                else {
+                    preparedStatement.close();
+                }
             }
         } finally {
             reset();
@@ -460,6 +513,8 @@ public class Stmt extends AbstractObj {
         namedParams = null;
         keepResources = false;
         initialized = false;
+        cachedSQL = null;
+        batched = false;
     }
 
     protected Statement getStatement() {
@@ -467,10 +522,15 @@ public class Stmt extends AbstractObj {
     }
 
     protected void setConnection(Connection connection) {
+        setConnection(connection, null);
+    }
+
+    protected void setConnection(Connection connection, StmtCache stmtCache) {
         if (this.initialized) {
             throw new EllaRuntimeException("Cannot set connection. Statement is already initialized.");
         }
         this.connection = connection;
+        this.stmtCache = stmtCache;
     }
 
     @Override
@@ -498,6 +558,16 @@ public class Stmt extends AbstractObj {
         return getParamedQuery();
     }
 
+    /**
+     * Checks whether rows of a result set passed to the given closure may be updated or inserted by the closure.
+     *
+     * @param closure the closure receiving the result set.
+     * @return <code>true</code> if an updatable result set is required.
+     */
+    protected static boolean mayUpdateRows(Obj closure) {
+        return !(closure instanceof Clos) || RowUpdateDetector.mayUpdateRows(((Clos) closure).getClosure());
+    }
+
     /**
      * Represents the implicit parent object for Stmt objects.
      */
@@ -508,7 +578,7 @@ public class Stmt extends AbstractObj {
             public Obj call(Engine engine, Obj context, Obj... args) throws ClosureTerminatedException {
                 Stmt thiz = ensureType(Stmt.class, context);
                 try {
-                    boolean hasResult = thiz.execute(engine.getContext(), true);
+                    boolean hasResult = thiz.execute(engine.getContext());
                     if (hasResult) {
                         ResultSet rs = thiz.getStatement().getResultSet(); // NOTE: rs closed implicitly with statement
                         engine.notifyResultSet(rs);
@@ -552,14 +622,10 @@ public class Stmt extends AbstractObj {
                 Obj closure = args[0];
                 Null _null = engine.getObjNull();
                 try {
-                    ResultSet rs = thiz.query();
+                    ResultSet rs = thiz.query(mayUpdateRows(closure));
                     ResSet resSet = new ResSet(rs);
                     while (rs.next()) {
-                        try {
-                            engine.invokeInLoop(closure, _null, resSet);
-                        } catch (LoopContinueException e) {
-                            continue;
-                        } catch (LoopBreakException e) {
+                        if (engine.invokeLoopBody(closure, _null, resSet) == LoopStatus.BREAK) {
                             break;
                         }
                     }
@@ -582,7 +648,7 @@ public class Stmt extends AbstractObj {
                 Obj closure = args[0];
                 Null _null = engine.getObjNull();
                 try {
-                    ResultSet rs = thiz.query();
+                    ResultSet rs = thiz.query(mayUpdateRows(closure));
                     ResSet resSet = new ResSet(rs);
                     engine.invoke(closure, _null, resSet);
                 } catch (SQLException e) {
@@ -612,8 +678,7 @@ public class Stmt extends AbstractObj {
                         Obj result = new PlainObj();
                         for (int i = 1; i <= ncols; i++) {
                             result.setSlot(ctx,
-                                           // XXX: Should name really be intern()ed?
-                                           new Str(meta.getColumnLabel(i)).intern(),
+                                           Str.toSym(meta.getColumnLabel(i)),
                                            NativeWrapper.wrap(ctx, rs.getObject(i)));
                         }
                         return result;
@@ -642,11 +707,7 @@ public class Stmt extends AbstractObj {
                     ResultSet rs = thiz.retrieveKeys();
                     ResSet resSet = new ResSet(rs);
                     while (rs.next()) {
-                        try {
-                            engine.invokeInLoop(closure, _null, resSet);
-                        } catch (LoopContinueException e) {
-                            continue;
-                        } catch (LoopBreakException e) {
+                        if (engine.invokeLoopBody(closure, _null, resSet) == LoopStatus.BREAK) {
                             break;
                         }
                     }
@@ -787,7 +848,18 @@ public class Stmt extends AbstractObj {
             public Obj call(Engine engine, Obj context, Obj... args) {
                 Stmt thiz = ensureType(Stmt.class, context);
                 Conn conn = ensureType(Conn.class, args[0]);
-                thiz.setConnection(conn.getConnection());
+                thiz.setConnection(conn.getConnection(), conn.getStmtCache());
+                if (thiz.fetchSize == 0) {
+                    thiz.setFetchSize(conn.getFetchSize());
+                }
+                return thiz;
+            }
+        };
+
+        protected static final NativeCall nativeFetchSize = new NativeCall() {
+            public Obj call(Engine engine, Obj context, Obj... args) {
+                Stmt thiz = ensureType(Stmt.class, context);
+                thiz.setFetchSize(ensureType(NNumeric.class, args[0]).intValue());
                 return thiz;
             }
         };
@@ -800,21 +872,22 @@ public class Stmt extends AbstractObj {
         };
 
         protected StmtProto() {
-            slots.put(Str.SYM_do, nativeDo);
-            slots.put(Str.SYM_exec, nativeExec);
-            slots.put(Str.SYM_each, nativeEach);
-            slots.put(Str.SYM_first, nativeFirst);
-            slots.put(Str.SYM_eachKey, nativeEachKey);
-            slots.put(Str.SYM_key, nativeKey);
-            slots.put(Str.SYM_with, nativeWith);
-            slots.put(Str.SYM_withParams, nativeWithParams);
-            slots.put(Str.SYM_withNamed, nativeWithNamed);
-            slots.put(Str.SYM_batch, nativeBatch);
-            slots.put(Str.SYM_batchNamed, nativeBatchNamed);
-            slots.put(Str.SYM_withPrepared, nativeWithPrepared);
-            slots.put(Str.SYM_withResult, nativeWithResult);
-            slots.put(Str.SYM_associateConnection, nativeAssociateConnection);
-            slots.put(Str.SYM_getQueryString, nativeGetQueryString);
+            putSlot(Str.SYM_do, nativeDo);
+            putSlot(Str.SYM_exec, nativeExec);
+            putSlot(Str.SYM_each, nativeEach);
+            putSlot(Str.SYM_first, nativeFirst);
+            putSlot(Str.SYM_eachKey, nativeEachKey);
+            putSlot(Str.SYM_key, nativeKey);
+            putSlot(Str.SYM_with, nativeWith);
+            putSlot(Str.SYM_withParams, nativeWithParams);
+            putSlot(Str.SYM_withNamed, nativeWithNamed);
+            putSlot(Str.SYM_batch, nativeBatch);
+            putSlot(Str.SYM_batchNamed, nativeBatchNamed);
+            putSlot(Str.SYM_withPrepared, nativeWithPrepared);
+            putSlot(Str.SYM_withResult, nativeWithResult);
+            putSlot(Str.SYM_associateConnection, nativeAssociateConnection);
+            putSlot(Str.SYM_getQueryString, nativeGetQueryString);
+            putSlot(Str.SYM_fetchSize, nativeFetchSize);
         }
 
         @Override
@@ -918,9 +991,9 @@ public class Stmt extends AbstractObj {
         public ParamBatch(Stmt stmt, int batchSize) {
             this.stmt = stmt;
             this.batchSize = batchSize;
-            slots.put(Str.SYM_add, nativeAdd);
-            slots.put(Str.SYM_addParams, nativeAddParams);
-            slots.put(Str.SYM_finish, nativeFinish);
+            putSlot(Str.SYM_add, nativeAdd);
+            putSlot(Str.SYM_addParams, nativeAddParams);
+            putSlot(Str.SYM_finish, nativeFinish);
         }
     }
 
@@ -943,8 +1016,8 @@ public class Stmt extends AbstractObj {
 
         public NamedParamBatch(Stmt stmt, int batchSize) {
             super(stmt, batchSize);
-            slots.put(Str.SYM_add, nativeAdd);
-            slots.put(Str.SYM_addParams, nativeAdd);
+            putSlot(Str.SYM_add, nativeAdd);
+            putSlot(Str.SYM_addParams, nativeAdd);
         }
     }
 
@@ -0,0 +1,234 @@
+/* StmtCache.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.lang.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the prepared statements of a connection, keyed by the SQL text and whether updatable result sets
+ * are requested.
+ * <p>
+ * Statements are checked out of the cache for the time they are in use and handed back afterwards, so a statement is
+ * never shared by two Stmt objects at a time, e.g. when the same query is run in the loop iterating its results. If the
+ * cache is full when a statement is handed back, the least recently used statement is closed.
+ */
+public class StmtCache {
+    /**
+     * The default number of prepared statements cached per connection, <code>0</code> disables caching.
+     */
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("ella.stmtCacheSize", 32);
+
+    protected final Connection connection;
+    protected final int capacity;
+
+    /**
+     * The idle statements ordered by access.
+     */
+    protected final Map<Key, PreparedStatement> statements = new LinkedHashMap<Key, PreparedStatement>(16, 0.75f, true);
+
+    protected long hits = 0;
+    protected long misses = 0;
+    protected long evictions = 0;
+
+    /**
+     * Creates a new cache of the default capacity for the given connection.
+     *
+     * @param connection the connection to prepare statements with.
+     */
+    public StmtCache(Connection connection) {
+        this(connection, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new cache for the given connection.
+     *
+     * @param connection the connection to prepare statements with.
+     * @param capacity the maximum number of idle statements to keep.
+     */
+    public StmtCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Checks out a prepared statement for the given SQL text, preparing it if no idle statement is cached.
+     *
+     * @param sql the SQL text.
+     * @param updatable whether a updatable result set is requested.
+     * @return the prepared statement.
+     * @throws SQLException if a database error occurs.
+     * @see Stmt#prepare(Connection, String, boolean)
+     */
+    public synchronized PreparedStatement prepare(String sql, boolean updatable) throws SQLException {
+        PreparedStatement statement = statements.remove(new Key(sql, updatable));
+        if (statement != null && !statement.isClosed()) {
+            hits++;
+            return statement;
+        }
+        misses++;
+        return Stmt.prepare(connection, sql, updatable);
+    }
+
+    /**
+     * Hands back a statement checked out before. The statement is reset and kept for reuse, or closed if resetting
+     * fails or a statement for the same SQL text is cached already.
+     *
+     * @param sql the SQL text.
+     * @param updatable whether a updatable result set was requested.
+     * @param statement the statement.
+     * @param batched whether the statement has been used to execute a batch.
+     * @throws SQLException if closing the statement fails.
+     */
+    public synchronized void release(String sql, boolean updatable, PreparedStatement statement, boolean batched)
+            throws SQLException {
+        Key key = new Key(sql, updatable);
+        if (capacity <= 0 || statements.containsKey(key)) {
+            statement.close();
+            return;
+        }
+
+        try {
+            ResultSet rs = statement.getResultSet();
+            if (rs != null) {
+                rs.close();
+            }
+            statement.clearParameters();
+            statement.setFetchSize(0);
+            if (batched) {
+                statement.clearBatch();
+            }
+        } catch (SQLException e) {
+            statement.close();
+            return;
+        }
+
+        statements.put(key, statement);
+        if (statements.size() > capacity) {
+            Iterator<PreparedStatement> eldest = statements.values().iterator();
+            PreparedStatement evicted = eldest.next();
+            eldest.remove();
+            evictions++;
+            try {
+                evicted.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Closes all idle statements.
+     */
+    public synchronized void clear() {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        statements.clear();
+    }
+
+    /**
+     * Returns the number of statements checked out from the cache.
+     *
+     * @return the number of cache hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of statements prepared since none was cached.
+     *
+     * @return the number of cache misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of idle statements closed to make room for others.
+     *
+     * @return the number of evictions.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of idle statements.
+     *
+     * @return the number of cached statements.
+     */
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    protected static class Key {
+        protected final String sql;
+        protected final boolean updatable;
+
+        protected Key(String sql, boolean updatable) {
+            this.sql = sql;
+            this.updatable = updatable;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key key = (Key) o;
+
+            return updatable == key.updatable && sql.equals(key.sql);
+        }
+
+        public int hashCode() {
+            return 31 * sql.hashCode() + (updatable ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/* StmtParallel.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.lang.sql;
+
+import org.unbunt.ella.compiler.support.RawSQL;
+import org.unbunt.ella.engine.context.Context;
+import org.unbunt.ella.exception.EllaRuntimeException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes independent SQL statements concurrently, each one on a connection taken from a data source for the time
+ * of its execution. Statements are executed in the order they are added, by at most the given number of threads at
+ * a time. Results of queries are discarded.
+ */
+public class StmtParallel {
+    protected static final AtomicInteger threadCount = new AtomicInteger();
+
+    protected final Context context;
+    protected final DataSource dataSource;
+    protected final ExecutorService executor;
+    protected final List<Task> tasks = new ArrayList<Task>();
+
+    /**
+     * Creates a new parallel executor.
+     *
+     * @param context the execution context, used for logging.
+     * @param dataSource the data source to take connections from, usually a connection pool.
+     * @param parallelism the maximum number of statements to execute at a time.
+     */
+    public StmtParallel(Context context, DataSource dataSource, int parallelism) {
+        if (parallelism < 1) {
+            throw new EllaRuntimeException("Illegal parallelism: " + parallelism);
+        }
+        this.context = context;
+        this.dataSource = dataSource;
+        this.executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ella-parallel-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Schedules the given statement for execution.
+     *
+     * @param query the statement.
+     */
+    public void add(RawSQL query) {
+        context.info("Parallel: %s", query.getStatement());
+        Task task = new Task(query);
+        task.future = executor.submit(task);
+        tasks.add(task);
+    }
+
+    /**
+     * Waits for all statements to complete and reports their update counts in the order the statements have been
+     * added.
+     *
+     * @throws EllaRuntimeException listing each failed statement along with its error if any statement failed.
+     */
+    public void finish() {
+        List<String> errors = new ArrayList<String>();
+        Throwable firstCause = null;
+        boolean interrupted = false;
+        for (Task task : tasks) {
+            Throwable cause;
+            try {
+                Integer updateCount = task.future.get();
+                if (updateCount != null) {
+                    context.notifyUpdateCount(updateCount);
+                }
+                continue;
+            } catch (ExecutionException e) {
+                cause = e.getCause();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                cause = e;
+            }
+            if (firstCause == null) {
+                firstCause = cause;
+            }
+            errors.add(task.query.getStatement() + ": " + cause.getMessage());
+            if (interrupted) {
+                break;
+            }
+        }
+        tasks.clear();
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!errors.isEmpty()) {
+            StringBuilder msg = new StringBuilder();
+            msg.append("Parallel execution failed for ").append(errors.size()).append(" statement(s):");
+            for (String error : errors) {
+                msg.append("\n    ").append(error);
+            }
+            throw new EllaRuntimeException(msg.toString(), firstCause);
+        }
+    }
+
+    /**
+     * Stops the threads executing statements, cancelling statements not yet started.
+     */
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    protected class Task implements Callable<Integer> {
+        protected final RawSQL query;
+        protected Future<Integer> future;
+
+        protected Task(RawSQL query) {
+            this.query = query;
+        }
+
+        public Integer call() throws SQLException {
+            Connection connection = dataSource.getConnection();
+            try {
+                Stmt stmt = new Stmt(query, connection, false);
+                try {
+                    if (stmt.execute(context)) {
+                        return null;
+                    }
+                    return stmt.getStatement().getUpdateCount();
+                } finally {
+                    stmt.close();
+                }
+            } finally {
+                connection.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/* BindingsContext.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.script;
+
+import org.unbunt.ella.DefaultContext;
+import org.unbunt.ella.compiler.support.Variable;
+import org.unbunt.ella.engine.corelang.Obj;
+import org.unbunt.ella.engine.environment.DynamicVariableResolver;
+import org.unbunt.ella.engine.environment.MainEnv;
+import org.unbunt.ella.engine.environment.WritableVariableResolver;
+import org.unbunt.ella.lang.Args;
+import org.unbunt.ella.lang.NativeWrapper;
+
+import javax.script.ScriptContext;
+import java.util.Map;
+
+/**
+ * Execution context of an {@link EllaScriptEngine}. Undefined variables are looked up in the bindings of the
+ * <code>ScriptContext</code> a program is evaluated with, before falling back to the slots of the Sys object.
+ * <p>
+ * Every evaluation runs in a global environment of its own which is forked from the default bindings, see
+ * {@link #enter(ScriptContext)}. That way programs compiled once may be evaluated any number of times, while functions
+ * defined by earlier evaluations keep the environment they have been defined in.
+ */
+public class BindingsContext extends DefaultContext {
+    protected ScriptContext scriptContext = null;
+
+    /**
+     * Creates a new context.
+     */
+    public BindingsContext() {
+        super();
+    }
+
+    protected DynamicVariableResolver createGlobalResolver() {
+        final DynamicVariableResolver sysResolver = super.createGlobalResolver();
+        return new WritableVariableResolver() {
+            public Obj resolve(Variable var) {
+                ScriptContext sc = scriptContext;
+                if (sc != null) {
+                    int scope = sc.getAttributesScope(var.name);
+                    if (scope != -1) {
+                        return wrap(sc.getAttribute(var.name, scope));
+                    }
+                }
+                return sysResolver.resolve(var);
+            }
+
+            public void update(Variable var, Obj value) {
+                ScriptContext sc = scriptContext;
+                if (sc != null) {
+                    int scope = sc.getAttributesScope(var.name);
+                    if (scope != -1) {
+                        sc.setAttribute(var.name, value.toJavaObject(), scope);
+                    }
+                }
+            }
+        };
+    }
+
+    protected Obj wrapArgs(Object[] args) {
+        Obj[] wrapped = new Obj[args.length];
+        for (int i = 0; i < wrapped.length; i++) {
+            wrapped[i] = wrap(args[i]);
+        }
+        return new Args(wrapped);
+    }
+
+    /**
+     * Wraps the given Java object into an EllaScript object. EllaScript objects, e.g. functions stored in the
+     * bindings by an earlier evaluation, are returned as they are.
+     *
+     * @param value the object to wrap.
+     * @return the EllaScript object.
+     */
+    public Obj wrap(Object value) {
+        return value instanceof Obj ? (Obj) value : NativeWrapper.wrap(this, value);
+    }
+
+    /**
+     * Prepares this context for an evaluation with the given script context. Installs a fresh global environment
+     * holding the default bindings and makes the bindings of the script context visible to the program.
+     *
+     * @param scriptContext the script context of the evaluation.
+     */
+    public void enter(ScriptContext scriptContext) {
+        this.scriptContext = scriptContext;
+        mainEnv = mainEnv.fork();
+        env = mainEnv;
+    }
+
+    /**
+     * Finishes an evaluation. The global variables declared by the program are stored in the engine scope of the
+     * script context so that they are visible to later evaluations.
+     */
+    public void leave() {
+        ScriptContext sc = scriptContext;
+        scriptContext = null;
+        for (Map.Entry<String, Obj> entry : mainEnv.getAddedBindings().entrySet()) {
+            Obj value = entry.getValue();
+            sc.setAttribute(entry.getKey(), value == null ? null : value.toJavaObject(), ScriptContext.ENGINE_SCOPE);
+        }
+    }
+
+    /**
+     * Returns the script context of the current evaluation.
+     *
+     * @return the script context or <code>null</code> if there is no evaluation in progress.
+     */
+    public ScriptContext getScriptContext() {
+        return scriptContext;
+    }
+}
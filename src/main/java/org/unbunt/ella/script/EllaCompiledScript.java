@@ -0,0 +1,81 @@
+/* EllaCompiledScript.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.script;
+
+import org.unbunt.ella.compiler.statement.Block;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+/**
+ * A compiled EllaScript program. The program may be evaluated any number of times without being parsed again.
+ */
+public class EllaCompiledScript extends CompiledScript {
+    protected final EllaScriptEngine engine;
+    protected final Block program;
+
+    /**
+     * Creates a new compiled script.
+     *
+     * @param engine the engine which compiled the program.
+     * @param program the compiled program.
+     */
+    public EllaCompiledScript(EllaScriptEngine engine, Block program) {
+        this.engine = engine;
+        this.program = program;
+    }
+
+    public Object eval(ScriptContext context) throws ScriptException {
+        return engine.eval(program, context, null);
+    }
+
+    public ScriptEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Returns the compiled program.
+     *
+     * @return the compiled program.
+     */
+    public Block getProgram() {
+        return program;
+    }
+}
@@ -0,0 +1,422 @@
+/* EllaScriptEngine.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.script;
+
+import org.unbunt.ella.Ella;
+import org.unbunt.ella.compiler.statement.Block;
+import org.unbunt.ella.engine.EllaEngine;
+import org.unbunt.ella.engine.EngineType;
+import org.unbunt.ella.engine.corelang.Call;
+import org.unbunt.ella.engine.corelang.Obj;
+import org.unbunt.ella.engine.corelang.ObjUtils;
+import org.unbunt.ella.exception.EllaException;
+import org.unbunt.ella.exception.EllaIOException;
+import org.unbunt.ella.exception.EllaParseException;
+import org.unbunt.ella.exception.EllaStoppedException;
+import org.unbunt.ella.lang.Str;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A <code>javax.script</code> engine for EllaScript.
+ * <p>
+ * Scripts are compiled once and the compiled programs are cached by their source code, so evaluating the same source
+ * code again does not parse it again. Each evaluation runs in a global environment of its own: Global variables
+ * declared by a program are stored in the engine scope bindings after the evaluation, and variables not declared by
+ * a program are looked up in the bindings of the script context, see {@link BindingsContext}. Functions defined by
+ * one evaluation are thus callable from later evaluations as well as through the <code>Invocable</code> interface.
+ * <p>
+ * Evaluations are serialized. Database connections opened by a program are closed when its evaluation ends.
+ */
+public class EllaScriptEngine extends AbstractScriptEngine implements Compilable, Invocable {
+    /**
+     * Default number of compiled programs kept in the cache.
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 64;
+
+    protected static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z_0-9]*");
+
+    protected static final String ENCODING = "UTF-8";
+
+    protected final EllaScriptEngineFactory factory;
+    protected final EngineType engineType;
+    protected final BindingsContext ellaContext;
+    protected final PrintStream defaultOutputStream;
+    protected final PrintStream defaultErrorStream;
+
+    /**
+     * Compiled programs, keyed by their source code and ordered by access.
+     */
+    protected final Map<String, EllaCompiledScript> programs;
+
+    /**
+     * Creates a new engine using the default execution engine.
+     */
+    public EllaScriptEngine() {
+        this(null, EngineType.getDefault(), DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * Creates a new engine.
+     *
+     * @param factory the factory which created this engine or <code>null</code>.
+     * @param engineType the type of execution engine to evaluate programs with.
+     * @param cacheCapacity the maximum number of compiled programs to keep.
+     */
+    public EllaScriptEngine(EllaScriptEngineFactory factory, EngineType engineType, final int cacheCapacity) {
+        this.factory = factory;
+        this.engineType = engineType;
+        this.ellaContext = new BindingsContext();
+        this.defaultOutputStream = ellaContext.getOutputStream();
+        this.defaultErrorStream = ellaContext.getErrorStream();
+        this.programs = new LinkedHashMap<String, EllaCompiledScript>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, EllaCompiledScript> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+    }
+
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+        return compile(script).eval(context);
+    }
+
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+        return eval(read(reader), context);
+    }
+
+    public Bindings createBindings() {
+        return new SimpleBindings();
+    }
+
+    public ScriptEngineFactory getFactory() {
+        return factory == null ? new EllaScriptEngineFactory(engineType) : factory;
+    }
+
+    /**
+     * Compiles the given script. The compiled program is cached, so compiling the same source code again returns
+     * the same instance.
+     *
+     * @param script the source code of the program.
+     * @return the compiled program.
+     * @throws ScriptException if compilation of the program fails.
+     */
+    public EllaCompiledScript compile(String script) throws ScriptException {
+        EllaCompiledScript compiled;
+        synchronized (programs) {
+            compiled = programs.get(script);
+        }
+        if (compiled != null) {
+            return compiled;
+        }
+
+        try {
+            compiled = new EllaCompiledScript(this, Ella.compile(script));
+        } catch (EllaIOException e) {
+            throw scriptException(e);
+        } catch (EllaParseException e) {
+            throw scriptException(e);
+        }
+
+        synchronized (programs) {
+            programs.put(script, compiled);
+        }
+        return compiled;
+    }
+
+    public CompiledScript compile(Reader script) throws ScriptException {
+        return compile(read(script));
+    }
+
+    /**
+     * Calls the function of the given name, which has been defined by an earlier evaluation or placed in the bindings
+     * otherwise. The function is invoked through a small program compiled once per name and number of arguments.
+     *
+     * @param name the name of the function.
+     * @param args the arguments to pass.
+     * @return the result of the call.
+     * @throws ScriptException if the function throws an exception.
+     * @throws NoSuchMethodException if there is no function of the given name.
+     */
+    public Object invokeFunction(String name, Object... args) throws ScriptException, NoSuchMethodException {
+        if (!IDENTIFIER.matcher(name).matches() || !(context.getAttribute(name) instanceof Call)) {
+            throw new NoSuchMethodException(name);
+        }
+        return invoke(name, null, args);
+    }
+
+    /**
+     * Calls the method of the given name on the given EllaScript object.
+     *
+     * @param thiz the object to call the method on.
+     * @param name the name of the method.
+     * @param args the arguments to pass.
+     * @return the result of the call.
+     * @throws ScriptException if the method throws an exception.
+     * @throws NoSuchMethodException if the object has no method of the given name.
+     * @throws IllegalArgumentException if the given object is not an EllaScript object.
+     */
+    public Object invokeMethod(Object thiz, String name, Object... args)
+            throws ScriptException, NoSuchMethodException {
+        if (!IDENTIFIER.matcher(name).matches() || !hasMethod(toObj(thiz), name)) {
+            throw new NoSuchMethodException(name);
+        }
+        return invoke(name, thiz, args);
+    }
+
+    public <T> T getInterface(Class<T> clasz) {
+        checkInterface(clasz);
+        for (Method method : clasz.getMethods()) {
+            if (!(context.getAttribute(method.getName()) instanceof Call)) {
+                return null;
+            }
+        }
+        return createProxy(null, clasz);
+    }
+
+    public <T> T getInterface(Object thiz, Class<T> clasz) {
+        checkInterface(clasz);
+        Obj obj = toObj(thiz);
+        for (Method method : clasz.getMethods()) {
+            if (!hasMethod(obj, method.getName())) {
+                return null;
+            }
+        }
+        return createProxy(thiz, clasz);
+    }
+
+    /**
+     * Evaluates the given program with the given script context.
+     *
+     * @param program the program to evaluate.
+     * @param context the script context.
+     * @param args the program arguments or <code>null</code> to take them from the {@link ScriptEngine#ARGV}
+     *             attribute of the script context.
+     * @return the result of the evaluation.
+     * @throws ScriptException if the program throws an exception or has been stopped.
+     */
+    protected synchronized Object eval(Block program, ScriptContext context, Object[] args) throws ScriptException {
+        if (args == null) {
+            args = toArgs(context.getAttribute(ARGV));
+        }
+        Object filename = context.getAttribute(FILENAME);
+
+        ellaContext.enter(context);
+        PrintStream out = createStream(context.getWriter(), defaultOutputStream);
+        PrintStream err = createStream(context.getErrorWriter(), defaultErrorStream);
+        ellaContext.setOutputStream(out);
+        ellaContext.setErrorStream(err);
+        ellaContext.setScriptFilename(filename == null ? "<unknown>" : filename.toString());
+        ellaContext.setArgs(args);
+
+        EllaEngine engine = engineType.create(ellaContext);
+        try {
+            return engine.eval(program);
+        } catch (EllaException e) {
+            throw scriptException(e);
+        } catch (EllaStoppedException e) {
+            throw scriptException(e);
+        } finally {
+            engine.finish();
+            if (out != defaultOutputStream) {
+                out.close();
+            }
+            if (err != defaultErrorStream) {
+                err.close();
+            }
+            ellaContext.leave();
+        }
+    }
+
+    protected Object invoke(String name, Object thiz, Object[] args) throws ScriptException {
+        StringBuilder buf = new StringBuilder(".");
+        int offset = 0;
+        if (thiz != null) {
+            buf.append("ARGV[0].");
+            offset = 1;
+        }
+        buf.append(name).append('(');
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append("ARGV[").append(i + offset).append(']');
+        }
+        buf.append(");");
+
+        Object[] invocationArgs = args;
+        if (thiz != null) {
+            invocationArgs = new Object[args.length + 1];
+            invocationArgs[0] = thiz;
+            System.arraycopy(args, 0, invocationArgs, 1, args.length);
+        }
+
+        return eval(compile(buf.toString()).getProgram(), context, invocationArgs);
+    }
+
+    protected boolean hasMethod(Obj obj, String name) {
+        synchronized (this) {
+            return ObjUtils.getSlot(ellaContext, obj, Str.toSym(name)) instanceof Call;
+        }
+    }
+
+    protected Obj toObj(Object thiz) {
+        if (!(thiz instanceof Obj)) {
+            throw new IllegalArgumentException("Not an EllaScript object: " + thiz);
+        }
+        return (Obj) thiz;
+    }
+
+    protected void checkInterface(Class<?> clasz) {
+        if (clasz == null || !clasz.isInterface()) {
+            throw new IllegalArgumentException("Not an interface: " + clasz);
+        }
+    }
+
+    protected <T> T createProxy(final Object thiz, Class<T> clasz) {
+        InvocationHandler handler = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getDeclaringClass() == Object.class) {
+                    return method.invoke(this, args);
+                }
+                if (args == null) {
+                    args = new Object[0];
+                }
+                Object result = thiz == null
+                                ? invokeFunction(method.getName(), args)
+                                : invokeMethod(thiz, method.getName(), args);
+                return convert(result, method.getReturnType());
+            }
+        };
+        return clasz.cast(Proxy.newProxyInstance(clasz.getClassLoader(), new Class<?>[] { clasz }, handler));
+    }
+
+    protected static Object convert(Object value, Class<?> type) {
+        if (type == void.class) {
+            return null;
+        }
+        if (!(value instanceof Number) || !type.isPrimitive()) {
+            return value;
+        }
+        Number num = (Number) value;
+        if (type == int.class) {
+            return num.intValue();
+        }
+        else if (type == long.class) {
+            return num.longValue();
+        }
+        else if (type == double.class) {
+            return num.doubleValue();
+        }
+        else if (type == float.class) {
+            return num.floatValue();
+        }
+        else if (type == short.class) {
+            return num.shortValue();
+        }
+        else if (type == byte.class) {
+            return num.byteValue();
+        }
+        return value;
+    }
+
+    protected static Object[] toArgs(Object argv) {
+        if (argv == null) {
+            return new Object[0];
+        }
+        else if (argv instanceof Object[]) {
+            return (Object[]) argv;
+        }
+        else if (argv instanceof Collection) {
+            return ((Collection<?>) argv).toArray();
+        }
+        return new Object[] { argv };
+    }
+
+    protected static PrintStream createStream(Writer writer, PrintStream defaultStream) {
+        if (writer == null) {
+            return defaultStream;
+        }
+        try {
+            return new PrintStream(new WriterOutputStream(writer, Charset.forName(ENCODING)), true, ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected static String read(Reader reader) throws ScriptException {
+        StringBuilder buf = new StringBuilder();
+        char[] chars = new char[4096];
+        try {
+            int n;
+            while ((n = reader.read(chars)) != -1) {
+                buf.append(chars, 0, n);
+            }
+        } catch (IOException e) {
+            throw scriptException(e);
+        }
+        return buf.toString();
+    }
+
+    protected static ScriptException scriptException(Exception e) {
+        ScriptException se = new ScriptException(e.getMessage());
+        se.initCause(e);
+        return se;
+    }
+}
@@ -0,0 +1,170 @@
+/* EllaScriptEngineFactory.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.script;
+
+import org.unbunt.ella.Ella;
+import org.unbunt.ella.engine.EngineType;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Factory for {@link EllaScriptEngine}s. Registered as <code>javax.script.ScriptEngineFactory</code> service, so that
+ * engines may be obtained from a <code>ScriptEngineManager</code> by one of the names <code>ella</code>,
+ * <code>EllaScript</code> and <code>ellascript</code>.
+ */
+public class EllaScriptEngineFactory implements ScriptEngineFactory {
+    public static final String ENGINE_NAME = "EllaScript Engine";
+    public static final String LANGUAGE_NAME = "EllaScript";
+
+    protected static final List<String> NAMES =
+            Collections.unmodifiableList(Arrays.asList("ella", "EllaScript", "ellascript"));
+    protected static final List<String> EXTENSIONS = Collections.unmodifiableList(Arrays.asList("ella", "sql"));
+    protected static final List<String> MIME_TYPES =
+            Collections.unmodifiableList(Arrays.asList("application/x-ellascript", "text/x-ellascript"));
+
+    protected final EngineType engineType;
+
+    /**
+     * Creates a factory for engines using the default execution engine, see {@link EngineType#getDefault()}.
+     */
+    public EllaScriptEngineFactory() {
+        this(EngineType.getDefault());
+    }
+
+    /**
+     * Creates a factory for engines using the given type of execution engine.
+     *
+     * @param engineType the type of execution engine to evaluate programs with.
+     */
+    public EllaScriptEngineFactory(EngineType engineType) {
+        this.engineType = engineType;
+    }
+
+    public String getEngineName() {
+        return ENGINE_NAME;
+    }
+
+    public String getEngineVersion() {
+        return Ella.VERSION;
+    }
+
+    public List<String> getExtensions() {
+        return EXTENSIONS;
+    }
+
+    public List<String> getMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    public List<String> getNames() {
+        return NAMES;
+    }
+
+    public String getLanguageName() {
+        return LANGUAGE_NAME;
+    }
+
+    public String getLanguageVersion() {
+        return Ella.VERSION;
+    }
+
+    /**
+     * Returns the value of the given parameter. The <code>THREADING</code> parameter is <code>null</code>: An engine
+     * evaluates one program at a time, concurrent evaluations are serialized.
+     *
+     * @param key the name of the parameter.
+     * @return the value of the parameter or <code>null</code> if it is unknown.
+     */
+    public Object getParameter(String key) {
+        if (ScriptEngine.ENGINE.equals(key)) {
+            return getEngineName();
+        }
+        else if (ScriptEngine.ENGINE_VERSION.equals(key)) {
+            return getEngineVersion();
+        }
+        else if (ScriptEngine.NAME.equals(key)) {
+            return NAMES.get(0);
+        }
+        else if (ScriptEngine.LANGUAGE.equals(key)) {
+            return getLanguageName();
+        }
+        else if (ScriptEngine.LANGUAGE_VERSION.equals(key)) {
+            return getLanguageVersion();
+        }
+        return null;
+    }
+
+    public String getMethodCallSyntax(String obj, String m, String... args) {
+        StringBuilder buf = new StringBuilder();
+        buf.append(obj).append('.').append(m).append('(');
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(args[i]);
+        }
+        return buf.append(')').toString();
+    }
+
+    public String getOutputStatement(String toDisplay) {
+        return "print(" + toDisplay + ")";
+    }
+
+    /**
+     * Returns a program executing the given statements in turn. The statements are expected to be expressions, e.g.
+     * as returned by {@link #getOutputStatement(String)} and {@link #getMethodCallSyntax(String, String, String[])}.
+     *
+     * @param statements the expressions to be evaluated by the program.
+     * @return the source code of the program.
+     */
+    public String getProgram(String... statements) {
+        StringBuilder buf = new StringBuilder();
+        for (String statement : statements) {
+            buf.append('.').append(statement).append(";\n");
+        }
+        return buf.toString();
+    }
+
+    public ScriptEngine getScriptEngine() {
+        return new EllaScriptEngine(this, engineType, EllaScriptEngine.DEFAULT_CACHE_CAPACITY);
+    }
+}
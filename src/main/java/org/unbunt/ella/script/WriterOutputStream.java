@@ -0,0 +1,119 @@
+/* WriterOutputStream.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.script;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Output stream decoding the bytes written to it and passing the resulting characters on to a writer. Used to
+ * redirect the output streams of an EllaScript context to the writers of a <code>ScriptContext</code>.
+ */
+class WriterOutputStream extends OutputStream {
+    protected static final int BUFFER_SIZE = 1024;
+
+    protected final Writer writer;
+    protected final CharsetDecoder decoder;
+    protected final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+    protected final CharBuffer out = CharBuffer.allocate(BUFFER_SIZE);
+
+    WriterOutputStream(Writer writer, Charset charset) {
+        this.writer = writer;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    public void write(int b) throws IOException {
+        in.put((byte) b);
+        decode(false);
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, in.remaining());
+            in.put(b, off, n);
+            off += n;
+            len -= n;
+            decode(false);
+        }
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Writes out any pending characters and flushes the writer. The writer is not closed.
+     *
+     * @throws IOException if writing fails.
+     */
+    public void close() throws IOException {
+        decode(true);
+        while (decoder.flush(out).isOverflow()) {
+            drain();
+        }
+        drain();
+        writer.flush();
+    }
+
+    protected void decode(boolean endOfInput) throws IOException {
+        in.flip();
+        CoderResult result;
+        do {
+            result = decoder.decode(in, out, endOfInput);
+            drain();
+        } while (result.isOverflow());
+        // an incomplete multi byte sequence remains in the buffer until the next write
+        in.compact();
+    }
+
+    protected void drain() throws IOException {
+        if (out.position() > 0) {
+            writer.write(out.array(), 0, out.position());
+            out.clear();
+        }
+    }
+}
@@ -0,0 +1,603 @@
+/* EllaService.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unbunt.ella.DefaultContext;
+import org.unbunt.ella.Ella;
+import org.unbunt.ella.compiler.statement.Block;
+import org.unbunt.ella.engine.EllaEngine;
+import org.unbunt.ella.engine.EngineType;
+import org.unbunt.ella.exception.EllaIOException;
+import org.unbunt.ella.exception.EllaParseException;
+import org.unbunt.ella.resource.SimpleResource;
+import org.unbunt.ella.resource.StringResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes EllaScript programs on a bounded pool of worker threads.
+ * <p>
+ * Programs are compiled once and cached, keyed by the path and modification time of their resource or by their
+ * source text. Each execution runs within a context of its own, taken from a pool of pre-initialized contexts which
+ * are reset and returned to the pool afterwards (see {@link DefaultContext#reset()}). Executions exceeding their
+ * timeout are stopped by means of {@link EllaEngine#stop()} and fail with an
+ * {@link org.unbunt.ella.exception.EllaStoppedException}. Cancelling the future of an execution stops it likewise.
+ * <p>
+ * Programs waiting for a worker are queued up to a fixed capacity, further submissions are rejected. Statistics
+ * about the executions performed so far are available through {@link #getStatistics()}.
+ */
+public class EllaService {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final int DEFAULT_CACHE_CAPACITY = 256;
+
+    /**
+     * The number of most recent executions latency percentiles are computed over.
+     */
+    protected static final int LATENCY_SAMPLES = 1024;
+
+    /**
+     * The interval in milliseconds a stopped engine is signalled again until its execution ends. Repeating the
+     * signal covers executions which have not reached the engine yet when being stopped first.
+     */
+    protected static final long STOP_INTERVAL = 10;
+
+    protected static final Log logger = LogFactory.getLog(EllaService.class);
+
+    protected final EngineType engineType;
+    protected final ThreadPoolExecutor executor;
+    protected final ScheduledThreadPoolExecutor timer;
+    protected final BlockingQueue<DefaultContext> contexts;
+    protected final Map<ProgramKey, Future<Block>> programs;
+
+    protected volatile long defaultTimeout = 0;
+
+    protected final long created = System.currentTimeMillis();
+    protected final AtomicLong submitted = new AtomicLong();
+    protected final AtomicLong rejected = new AtomicLong();
+    protected final AtomicLong completed = new AtomicLong();
+    protected final AtomicLong failed = new AtomicLong();
+    protected final AtomicLong timedOut = new AtomicLong();
+    protected final AtomicLong cancelled = new AtomicLong();
+    protected final AtomicLong cacheHits = new AtomicLong();
+    protected final AtomicLong cacheMisses = new AtomicLong();
+    protected final AtomicLong contextsCreated = new AtomicLong();
+    protected final AtomicInteger active = new AtomicInteger();
+
+    protected final long[] latencies = new long[LATENCY_SAMPLES];
+    protected long latencyCount = 0;
+
+    /**
+     * Creates a new service executing programs with the default engine type on the given number of workers.
+     *
+     * @param workers the number of worker threads.
+     */
+    public EllaService(int workers) {
+        this(workers, DEFAULT_QUEUE_CAPACITY, DEFAULT_CACHE_CAPACITY, EngineType.getDefault());
+    }
+
+    /**
+     * Creates a new service.
+     *
+     * @param workers the number of worker threads, which is also the number of contexts pooled.
+     * @param queueCapacity the maximum number of programs waiting for a worker.
+     * @param cacheCapacity the maximum number of compiled programs cached.
+     * @param engineType the type of engine to execute programs with.
+     */
+    public EllaService(int workers, int queueCapacity, final int cacheCapacity, EngineType engineType) {
+        this.engineType = engineType;
+
+        timer = new ScheduledThreadPoolExecutor(1, new ServiceThreadFactory("ella-timer", true));
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<Runnable>(queueCapacity),
+                                          new ServiceThreadFactory("ella-worker", false)) {
+            protected void terminated() {
+                timer.shutdown();
+            }
+        };
+
+        programs = new LinkedHashMap<ProgramKey, Future<Block>>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<ProgramKey, Future<Block>> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+
+        contexts = new ArrayBlockingQueue<DefaultContext>(workers);
+        for (int i = 0; i < workers; i++) {
+            contexts.offer(createContext());
+        }
+    }
+
+    /**
+     * Sets the timeout applied to programs submitted without an explicit timeout.
+     *
+     * @param timeout the timeout in milliseconds or <code>0</code> for no timeout.
+     */
+    public void setDefaultTimeout(long timeout) {
+        this.defaultTimeout = timeout;
+    }
+
+    public long getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    /**
+     * Submits the program represented by the given resource for execution using the default timeout.
+     *
+     * @param script the program.
+     * @param args the program arguments, exposed as <code>ARGV</code>.
+     * @return the future result of the program.
+     * @throws RejectedExecutionException if the queue is full or the service has been shut down.
+     */
+    public Future<Object> submit(SimpleResource script, Object... args) {
+        return submit(script, args, defaultTimeout);
+    }
+
+    /**
+     * Submits the program represented by the given resource for execution.
+     *
+     * @param script the program.
+     * @param args the program arguments, exposed as <code>ARGV</code>.
+     * @param timeout the timeout in milliseconds or <code>0</code> for no timeout.
+     * @return the future result of the program.
+     * @throws RejectedExecutionException if the queue is full or the service has been shut down.
+     */
+    public Future<Object> submit(SimpleResource script, Object[] args, long timeout) {
+        return submit(new Run(script, createKey(script), args, timeout));
+    }
+
+    /**
+     * Submits the program given by its source text for execution using the default timeout.
+     *
+     * @param source the source text of the program.
+     * @param args the program arguments, exposed as <code>ARGV</code>.
+     * @return the future result of the program.
+     * @throws RejectedExecutionException if the queue is full or the service has been shut down.
+     */
+    public Future<Object> submitSource(String source, Object... args) {
+        return submitSource(source, args, defaultTimeout);
+    }
+
+    /**
+     * Submits the program given by its source text for execution.
+     *
+     * @param source the source text of the program.
+     * @param args the program arguments, exposed as <code>ARGV</code>.
+     * @param timeout the timeout in milliseconds or <code>0</code> for no timeout.
+     * @return the future result of the program.
+     * @throws RejectedExecutionException if the queue is full or the service has been shut down.
+     */
+    public Future<Object> submitSource(String source, Object[] args, long timeout) {
+        return submit(new Run(null, new ProgramKey(source), args, timeout));
+    }
+
+    protected Future<Object> submit(Run run) {
+        RunFuture future = new RunFuture(run);
+        run.future = future;
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+        submitted.incrementAndGet();
+        return future;
+    }
+
+    /**
+     * Returns the compiled form of the program represented by the given resource, compiling it if it is not cached
+     * yet.
+     *
+     * @param script the program.
+     * @return the compiled program.
+     * @throws EllaIOException if reading the program fails.
+     * @throws EllaParseException if compilation of the program fails.
+     */
+    public Block compile(SimpleResource script) throws EllaIOException, EllaParseException {
+        DefaultContext context = acquireContext();
+        try {
+            return getProgram(script, createKey(script), context);
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    /**
+     * Initiates an orderly shutdown: programs already submitted are still executed, new ones are rejected.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for all submitted programs to complete after a shutdown request.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of the timeout.
+     * @return <code>true</code> if the service terminated, <code>false</code> if the timeout elapsed before.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this service.
+     *
+     * @return the statistics.
+     */
+    public ServiceStatistics getStatistics() {
+        long[] samples;
+        synchronized (latencies) {
+            samples = new long[(int) Math.min(latencyCount, LATENCY_SAMPLES)];
+            System.arraycopy(latencies, 0, samples, 0, samples.length);
+        }
+        Arrays.sort(samples);
+        return new ServiceStatistics(System.currentTimeMillis() - created, submitted.get(), rejected.get(),
+                                     completed.get(), failed.get(), timedOut.get(), cancelled.get(), active.get(),
+                                     executor.getQueue().size(), cacheHits.get(), cacheMisses.get(),
+                                     contextsCreated.get(), samples);
+    }
+
+    /**
+     * Creates a new context for the execution of programs. Subclasses may override this method to configure the
+     * contexts, e.g. their output streams.
+     *
+     * @return the new context.
+     */
+    protected DefaultContext createContext() {
+        contextsCreated.incrementAndGet();
+        return new DefaultContext();
+    }
+
+    protected DefaultContext acquireContext() {
+        DefaultContext context = contexts.poll();
+        return context != null ? context : createContext();
+    }
+
+    protected void releaseContext(DefaultContext context) {
+        // contexts modified beyond repair and surplus contexts are left to the garbage collector
+        if (context.reset()) {
+            contexts.offer(context);
+        }
+        else {
+            logger.debug("Discarding context modified by program");
+        }
+    }
+
+    /**
+     * Creates the cache key of the given resource.
+     *
+     * @param script the resource.
+     * @return the key or <code>null</code> if the resource cannot be cached since it lacks a path.
+     */
+    protected ProgramKey createKey(SimpleResource script) {
+        String path;
+        try {
+            path = script.getPath();
+        } catch (IOException e) {
+            return null;
+        }
+        if (path == null) {
+            return null;
+        }
+        long modified = 0;
+        try {
+            File file = script.getFile();
+            modified = file.lastModified();
+        } catch (IOException ignored) {
+            // not a file, assume the resource does not change
+        }
+        return new ProgramKey(path, modified);
+    }
+
+    protected Block getProgram(final SimpleResource script, ProgramKey key, final DefaultContext context)
+            throws EllaIOException, EllaParseException {
+        if (key == null) {
+            cacheMisses.incrementAndGet();
+            return new Ella.ELLA(context, script).compile();
+        }
+
+        FutureTask<Block> task = null;
+        Future<Block> program;
+        synchronized (programs) {
+            program = programs.get(key);
+            if (program == null) {
+                final SimpleResource resource = script != null ? script : new StringResource(key.source);
+                task = new FutureTask<Block>(new Callable<Block>() {
+                    public Block call() throws Exception {
+                        return new Ella.ELLA(context, resource).compile();
+                    }
+                });
+                programs.put(key, task);
+                program = task;
+            }
+        }
+
+        if (task != null) {
+            cacheMisses.incrementAndGet();
+            task.run();
+        }
+        else {
+            cacheHits.incrementAndGet();
+        }
+
+        try {
+            return program.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for compilation");
+        } catch (ExecutionException e) {
+            // do not cache failures, the resource might get fixed
+            synchronized (programs) {
+                if (programs.get(key) == program) {
+                    programs.remove(key);
+                }
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof EllaIOException) {
+                throw (EllaIOException) cause;
+            }
+            if (cause instanceof EllaParseException) {
+                throw (EllaParseException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    protected void recordLatency(long nanos) {
+        synchronized (latencies) {
+            latencies[(int) (latencyCount++ % LATENCY_SAMPLES)] = nanos;
+        }
+    }
+
+    /**
+     * Identifies a compiled program in the cache.
+     */
+    protected static class ProgramKey {
+        protected final String path;
+        protected final long modified;
+        protected final String source;
+
+        protected ProgramKey(String path, long modified) {
+            this.path = path;
+            this.modified = modified;
+            this.source = null;
+        }
+
+        protected ProgramKey(String source) {
+            this.path = null;
+            this.modified = 0;
+            this.source = source;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            ProgramKey that = (ProgramKey) o;
+
+            return modified == that.modified
+                   && (path != null ? path.equals(that.path) : that.path == null)
+                   && (source != null ? source.equals(that.source) : that.source == null);
+        }
+
+        public int hashCode() {
+            int result = path != null ? path.hashCode() : 0;
+            result = 31 * result + (int) (modified ^ (modified >>> 32));
+            result = 31 * result + (source != null ? source.hashCode() : 0);
+            return result;
+        }
+    }
+
+    /**
+     * A single execution of a program.
+     */
+    protected class Run implements Callable<Object> {
+        protected final SimpleResource script;
+        protected final ProgramKey key;
+        protected final Object[] args;
+        protected final long timeout;
+        protected RunFuture future;
+
+        protected Run(SimpleResource script, ProgramKey key, Object[] args, long timeout) {
+            this.script = script;
+            this.key = key;
+            this.args = args;
+            this.timeout = timeout;
+        }
+
+        public Object call() throws Exception {
+            active.incrementAndGet();
+            DefaultContext context = acquireContext();
+            try {
+                Block program = getProgram(script, key, context);
+                if (script != null) {
+                    context.setScriptFilename(script.getFilename());
+                    context.setScriptResource(script);
+                }
+                context.setArgs(args);
+
+                EllaEngine engine = engineType.create(context);
+                future.started(engine, timeout);
+                try {
+                    return engine.eval(program);
+                } finally {
+                    future.finished();
+                    engine.finish();
+                }
+            } finally {
+                releaseContext(context);
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * The future of an execution. Keeps track of the engine executing the program in order to stop it on timeout
+     * or cancellation.
+     */
+    protected class RunFuture extends FutureTask<Object> {
+        protected final long submittedAt = System.nanoTime();
+        protected EllaEngine engine = null;
+        protected ScheduledFuture<?> timeoutStopper = null;
+        protected ScheduledFuture<?> cancelStopper = null;
+        protected volatile boolean expired = false;
+
+        protected RunFuture(Run run) {
+            super(run);
+        }
+
+        protected synchronized void started(EllaEngine engine, long timeout) {
+            this.engine = engine;
+            if (timeout > 0) {
+                timeoutStopper = timer.scheduleWithFixedDelay(new Stopper(engine, true), timeout, STOP_INTERVAL,
+                                                              TimeUnit.MILLISECONDS);
+            }
+            if (isCancelled()) {
+                stopCancelled();
+            }
+        }
+
+        protected synchronized void finished() {
+            if (timeoutStopper != null) {
+                timeoutStopper.cancel(false);
+            }
+            if (cancelStopper != null) {
+                cancelStopper.cancel(false);
+            }
+            engine = null;
+        }
+
+        protected void stopCancelled() {
+            if (engine != null && cancelStopper == null) {
+                cancelStopper = timer.scheduleWithFixedDelay(new Stopper(engine, false), 0, STOP_INTERVAL,
+                                                             TimeUnit.MILLISECONDS);
+            }
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean result = super.cancel(mayInterruptIfRunning);
+            if (result) {
+                cancelled.incrementAndGet();
+                synchronized (this) {
+                    stopCancelled();
+                }
+            }
+            return result;
+        }
+
+        // statistics are recorded before the outcome becomes visible to callers waiting for it
+
+        protected void set(Object result) {
+            if (!isCancelled()) {
+                recordLatency(System.nanoTime() - submittedAt);
+                completed.incrementAndGet();
+            }
+            super.set(result);
+        }
+
+        protected void setException(Throwable t) {
+            if (!isCancelled()) {
+                recordLatency(System.nanoTime() - submittedAt);
+                failed.incrementAndGet();
+                if (expired) {
+                    timedOut.incrementAndGet();
+                }
+            }
+            super.setException(t);
+        }
+
+        protected class Stopper implements Runnable {
+            protected final EllaEngine engine;
+            protected final boolean timeout;
+
+            protected Stopper(EllaEngine engine, boolean timeout) {
+                this.engine = engine;
+                this.timeout = timeout;
+            }
+
+            public void run() {
+                if (timeout) {
+                    expired = true;
+                }
+                engine.stop();
+            }
+        }
+    }
+
+    protected static class ServiceThreadFactory implements ThreadFactory {
+        protected final String name;
+        protected final boolean daemon;
+        protected final AtomicInteger count = new AtomicInteger();
+
+        protected ServiceThreadFactory(String name, boolean daemon) {
+            this.name = name;
+            this.daemon = daemon;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(daemon);
+            return thread;
+        }
+    }
+}
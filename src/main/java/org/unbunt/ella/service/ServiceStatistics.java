@@ -0,0 +1,184 @@
+/* ServiceStatistics.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.service;
+
+/**
+ * A snapshot of the statistics of an {@link EllaService}.
+ * <p>
+ * Latencies are measured from the submission of a program until its execution completed, i.e. they include the time
+ * spent waiting for a worker. Percentiles are computed over the most recent executions only.
+ */
+public class ServiceStatistics {
+    protected final long uptime;
+    protected final long submitted;
+    protected final long rejected;
+    protected final long completed;
+    protected final long failed;
+    protected final long timedOut;
+    protected final long cancelled;
+    protected final int active;
+    protected final int queued;
+    protected final long cacheHits;
+    protected final long cacheMisses;
+    protected final long contextsCreated;
+    protected final long[] latencies;
+
+    /**
+     * Creates a new snapshot.
+     *
+     * @param uptime the milliseconds elapsed since the service has been created.
+     * @param submitted the number of programs accepted for execution.
+     * @param rejected the number of programs rejected because the queue was full or the service shut down.
+     * @param completed the number of executions completed successfully.
+     * @param failed the number of executions failed, including timed out executions.
+     * @param timedOut the number of executions stopped because they exceeded their timeout.
+     * @param cancelled the number of executions cancelled.
+     * @param active the number of executions currently running.
+     * @param queued the number of executions waiting for a worker.
+     * @param cacheHits the number of compilations served from the program cache.
+     * @param cacheMisses the number of compilations actually performed.
+     * @param contextsCreated the number of contexts created, i.e. not taken from the pool.
+     * @param latencies the latencies of the most recent executions in nanoseconds, sorted ascending.
+     */
+    public ServiceStatistics(long uptime, long submitted, long rejected, long completed, long failed, long timedOut,
+                             long cancelled, int active, int queued, long cacheHits, long cacheMisses,
+                             long contextsCreated, long[] latencies) {
+        this.uptime = uptime;
+        this.submitted = submitted;
+        this.rejected = rejected;
+        this.completed = completed;
+        this.failed = failed;
+        this.timedOut = timedOut;
+        this.cancelled = cancelled;
+        this.active = active;
+        this.queued = queued;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+        this.contextsCreated = contextsCreated;
+        this.latencies = latencies;
+    }
+
+    public long getUptime() {
+        return uptime;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    public long getCancelled() {
+        return cancelled;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public long getContextsCreated() {
+        return contextsCreated;
+    }
+
+    /**
+     * Returns the average number of executions finished (successfully or not) per second since the service has been
+     * created.
+     *
+     * @return the throughput in executions per second.
+     */
+    public double getThroughput() {
+        return uptime == 0 ? 0 : (completed + failed) * 1000.0 / uptime;
+    }
+
+    /**
+     * Returns the latency not exceeded by the given fraction of the most recent executions.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the latency in milliseconds or <code>0</code> if no execution has finished yet.
+     */
+    public double getLatencyPercentile(double percentile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * latencies.length) - 1;
+        index = Math.max(0, Math.min(latencies.length - 1, index));
+        return latencies[index] / 1000000.0;
+    }
+
+    /**
+     * Returns the maximum latency of the most recent executions.
+     *
+     * @return the latency in milliseconds or <code>0</code> if no execution has finished yet.
+     */
+    public double getMaxLatency() {
+        return getLatencyPercentile(100);
+    }
+
+    public String toString() {
+        return String.format("submitted=%d rejected=%d completed=%d failed=%d timedOut=%d cancelled=%d active=%d "
+                             + "queued=%d throughput=%.1f/s p50=%.2fms p99=%.2fms max=%.2fms",
+                             submitted, rejected, completed, failed, timedOut, cancelled, active, queued,
+                             getThroughput(), getLatencyPercentile(50), getLatencyPercentile(99), getMaxLatency());
+    }
+}
@@ -39,15 +39,33 @@ package org.unbunt.ella.utils;
 
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.unbunt.ella.exception.DBConnectionFailedException;
+import org.unbunt.ella.lang.sql.ConnPool;
+
+import javax.sql.DataSource;
 
 public abstract class ConnectionDetails {
     protected String user;
     protected String pass;
     protected String driver;
+    protected ConnPool.Config poolConfig;
 
     public abstract DriverManagerDataSource createDataSource()
             throws DataSourceInitializationException, DBConnectionFailedException;
 
+    /**
+     * Returns the data source to obtain connections from. If a pool configuration is set, this is the connection pool
+     * for the database shared with all other callers using the same connection details, otherwise a data source
+     * opening a new connection.
+     *
+     * @return the data source.
+     * @throws DataSourceInitializationException if the data source cannot be initialized.
+     * @throws DBConnectionFailedException if the driver cannot be loaded.
+     */
+    public DataSource getDataSource() throws DataSourceInitializationException, DBConnectionFailedException {
+        DriverManagerDataSource ds = createDataSource();
+        return poolConfig == null ? ds : ConnPool.getPool(ds, poolConfig);
+    }
+
     public String getUser() {
         return user;
     }
@@ -71,4 +89,18 @@ public abstract class ConnectionDetails {
     public void setDriver(String driver) {
         this.driver = driver;
     }
+
+    public ConnPool.Config getPoolConfig() {
+        return poolConfig;
+    }
+
+    /**
+     * Sets the configuration of the connection pool to use, or <code>null</code> to open a new connection for each
+     * run.
+     *
+     * @param poolConfig the pool configuration.
+     */
+    public void setPoolConfig(ConnPool.Config poolConfig) {
+        this.poolConfig = poolConfig;
+    }
 }
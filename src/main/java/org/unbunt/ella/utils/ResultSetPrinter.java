@@ -44,14 +44,16 @@ import java.sql.SQLException;
 
 /**
  * Simple JDBC ResultSet printer. Prints a tabular representation of ResultSets on a given output stream.
+ * <p>
+ * Result sets are streamed in constant memory, regardless of their type.
+ *
+ * @see StreamingResultSetPrinter
  */
 public class ResultSetPrinter {
-    protected final ForwardOnlyResultSetPrinter forwardOnlyResultSetPrinter;
-    protected final ScrollableResultSetPrinter scrollableResultSetPrinter;
+    protected final StreamingResultSetPrinter streamingResultSetPrinter;
 
     public ResultSetPrinter(OutputStream out) {
-        forwardOnlyResultSetPrinter = new ForwardOnlyResultSetPrinter(out);
-        scrollableResultSetPrinter = new ScrollableResultSetPrinter(out);
+        streamingResultSetPrinter = new StreamingResultSetPrinter(out);
     }
 
     /**
@@ -63,11 +65,6 @@ public class ResultSetPrinter {
      * @throws java.io.IOException if an I/O error occurs
      */
     public int print(ResultSet rs) throws SQLException, IOException {
-        if (rs.getType() == ResultSet.TYPE_FORWARD_ONLY) {
-            return forwardOnlyResultSetPrinter.print(rs);
-        }
-        else {
-            return scrollableResultSetPrinter.print(rs);
-        }
+        return streamingResultSetPrinter.print(rs);
     }
 }
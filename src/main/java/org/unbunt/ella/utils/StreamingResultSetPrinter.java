@@ -0,0 +1,412 @@
+/* StreamingResultSetPrinter.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ella.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Formatter;
+
+/**
+ * JDBC ResultSet printer using constant memory. Column widths are computed from a bounded window of leading rows,
+ * which is printed as soon as it has been read. The remaining rows are streamed, truncating values exceeding the
+ * width of their column.
+ * <p>
+ * Values are formatted into reusable buffers. Instances are therefore not safe for use by multiple threads.
+ */
+public class StreamingResultSetPrinter {
+    /**
+     * The default number of leading rows used to compute column widths.
+     */
+    public static final int DEFAULT_WINDOW = Integer.getInteger("ella.printWindow", 100);
+
+    /**
+     * The default maximum width of a column.
+     */
+    public static final int DEFAULT_MAX_COLUMN_WIDTH = Integer.getInteger("ella.printMaxColumnWidth", 80);
+
+    protected static final String NULL = "<NULL>";
+    protected static final String ELLIPSIS = "...";
+    protected static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    protected final Writer out;
+    protected final int window;
+    protected final int maxColumnWidth;
+
+    protected final StringBuilder cell = new StringBuilder();
+    protected final Formatter cellFormatter = new Formatter(cell);
+    protected final StringBuilder line = new StringBuilder();
+    protected char[] lineChars = new char[256];
+    protected final char[] streamBuf = new char[256];
+
+    /**
+     * Formatted cells of the leading rows, kept for reuse between result sets.
+     */
+    protected StringBuilder[][] windowCells = new StringBuilder[0][];
+
+    public StreamingResultSetPrinter(OutputStream out) {
+        this(out, DEFAULT_WINDOW, DEFAULT_MAX_COLUMN_WIDTH);
+    }
+
+    /**
+     * Creates a new printer.
+     *
+     * @param out the output stream to print on.
+     * @param window the number of leading rows to compute column widths from.
+     * @param maxColumnWidth the maximum width of a column.
+     */
+    public StreamingResultSetPrinter(OutputStream out, int window, int maxColumnWidth) {
+        this.out = new OutputStreamWriter(out);
+        this.window = Math.max(window, 1);
+        this.maxColumnWidth = Math.max(maxColumnWidth, ELLIPSIS.length() + 1);
+    }
+
+    /**
+     * Prints the given ResultSet on the output stream associated with this object.
+     *
+     * @param rs the ResultSet to print
+     * @return the number of rows in the ResultSet
+     * @throws java.sql.SQLException if a database access error occurs
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    public int print(ResultSet rs) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int cols = meta.getColumnCount();
+        int[] colTypes = new int[cols + 1];
+        int[] colWidths = new int[cols + 1];
+        boolean[] leftAligned = new boolean[cols + 1];
+        for (int i = 1; i <= cols; i++) {
+            colTypes[i] = meta.getColumnType(i);
+            colWidths[i] = Math.max(1, Math.min(meta.getColumnLabel(i).length(), maxColumnWidth));
+            leftAligned[i] = isLeftAligned(colTypes[i]);
+        }
+
+        // read the leading rows to compute column widths
+        StringBuilder[][] rows = getWindowCells(cols);
+        int nrows = 0;
+        while (nrows < window && rs.next()) {
+            StringBuilder[] row = rows[nrows++];
+            for (int i = 1; i <= cols; i++) {
+                formatCell(rs, i, colTypes[i]);
+                StringBuilder target = row[i];
+                target.setLength(0);
+                target.append(cell, 0, Math.min(cell.length(), maxColumnWidth + 1));
+                colWidths[i] = Math.max(colWidths[i], Math.min(cell.length(), maxColumnWidth));
+            }
+        }
+
+        line.setLength(0);
+        line.append('|');
+        for (int i = 1; i <= cols; i++) {
+            line.append(' ');
+            appendPadded(meta.getColumnLabel(i), colWidths[i], leftAligned[i]);
+            line.append(" |");
+        }
+        writeLine();
+
+        for (int r = 0; r < nrows; r++) {
+            StringBuilder[] row = rows[r];
+            line.setLength(0);
+            line.append('|');
+            for (int i = 1; i <= cols; i++) {
+                line.append(' ');
+                appendPadded(row[i], colWidths[i], leftAligned[i]);
+                line.append(" |");
+            }
+            writeLine();
+        }
+        out.flush();
+
+        // stream the remaining rows
+        if (nrows == window) {
+            while (rs.next()) {
+                nrows++;
+                line.setLength(0);
+                line.append('|');
+                for (int i = 1; i <= cols; i++) {
+                    formatCell(rs, i, colTypes[i]);
+                    line.append(' ');
+                    appendPadded(cell, colWidths[i], leftAligned[i]);
+                    line.append(" |");
+                }
+                writeLine();
+                if (nrows % window == 0) {
+                    out.flush();
+                }
+            }
+        }
+
+        line.setLength(0);
+        line.append(nrows).append(" rows.");
+        writeLine();
+        out.flush();
+
+        return nrows;
+    }
+
+    protected StringBuilder[][] getWindowCells(int cols) {
+        if (windowCells.length < window || windowCells[0].length < cols + 1) {
+            StringBuilder[][] cells = new StringBuilder[window][cols + 1];
+            for (StringBuilder[] row : cells) {
+                for (int i = 1; i <= cols; i++) {
+                    row[i] = new StringBuilder();
+                }
+            }
+            windowCells = cells;
+        }
+        return windowCells;
+    }
+
+    protected static boolean isLeftAligned(int colType) {
+        switch (colType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DOUBLE:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Appends the given value to the line buffer, padding it to the given width or truncating it if it exceeds the
+     * width. Line breaks and tabs are replaced by spaces to keep the table intact.
+     *
+     * @param value the value to append.
+     * @param width the width of the column.
+     * @param leftAlign whether to align the value to the left.
+     */
+    protected void appendPadded(CharSequence value, int width, boolean leftAlign) {
+        int len = value.length();
+        if (len > width) {
+            // columns narrower than the ellipsis only show as much of it as fits
+            int keep = Math.max(width - ELLIPSIS.length(), 0);
+            appendSanitized(value, keep);
+            line.append(ELLIPSIS, 0, width - keep);
+            return;
+        }
+        if (!leftAlign) {
+            appendSpaces(width - len);
+        }
+        appendSanitized(value, len);
+        if (leftAlign) {
+            appendSpaces(width - len);
+        }
+    }
+
+    protected void appendSanitized(CharSequence value, int len) {
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            line.append(c == '\n' || c == '\r' || c == '\t' ? ' ' : c);
+        }
+    }
+
+    protected void appendSpaces(int count) {
+        for (int i = 0; i < count; i++) {
+            line.append(' ');
+        }
+    }
+
+    protected void writeLine() throws IOException {
+        line.append(LINE_SEPARATOR);
+        int len = line.length();
+        if (lineChars.length < len) {
+            lineChars = new char[Math.max(len, lineChars.length * 2)];
+        }
+        line.getChars(0, len, lineChars, 0);
+        out.write(lineChars, 0, len);
+    }
+
+    /**
+     * Formats the value of the given column of the current row into the cell buffer.
+     *
+     * @param rs the result set.
+     * @param i the column index.
+     * @param colType the SQL type of the column.
+     * @throws SQLException if a database access error occurs.
+     * @throws IOException if reading a character stream fails.
+     */
+    protected void formatCell(ResultSet rs, int i, int colType) throws SQLException, IOException {
+        cell.setLength(0);
+
+        Object o;
+        try {
+            o = rs.getObject(i);
+        } catch (SQLException e) {
+            // Gracefully handle incompatibility between JDBC and MySQL
+            // MySQL supports zero dates, JDBC chokes on them
+            boolean temporal = colType == Types.DATE || colType == Types.TIME || colType == Types.TIMESTAMP;
+            if (temporal && rs.getLong(i) == 0) {
+                cell.append('0');
+                return;
+            }
+            throw e;
+        }
+        if (o == null) {
+            cell.append(NULL);
+            return;
+        }
+
+        switch (colType) {
+            case Types.BIT:         // boolean
+            case Types.BOOLEAN:     // boolean
+                cell.append(rs.getBoolean(i) ? "<TRUE>" : "<FALSE>");
+                break;
+            case Types.TINYINT:     // long
+            case Types.SMALLINT:    // long
+            case Types.INTEGER:     // long
+            case Types.BIGINT:      // long
+                cell.append(rs.getLong(i));
+                break;
+            case Types.FLOAT:       // double
+            case Types.REAL:        // double
+            case Types.DOUBLE:      // double
+                cellFormatter.format("%g", rs.getDouble(i));
+                break;
+            case Types.NUMERIC:     // BigDecimal
+            case Types.DECIMAL: {   // BigDecimal
+                BigDecimal val = rs.getBigDecimal(i);
+                if (val.scale() <= 0) {
+                    cell.append(val.toBigIntegerExact());
+                }
+                else {
+                    cellFormatter.format("%g", val);
+                }
+                break;
+            }
+            case Types.CHAR:        // String
+            case Types.VARCHAR:     // String
+                cell.append(rs.getString(i));
+                break;
+            case Types.DATE:        // Date
+                cell.append(rs.getDate(i));
+                break;
+            case Types.TIME:        // Time
+                cell.append(rs.getTime(i));
+                break;
+            case Types.TIMESTAMP:   // Timestamp
+                cell.append(rs.getTimestamp(i));
+                break;
+            case Types.BINARY:      // Bytes
+                cell.append("<BINARY>");
+                break;
+            case Types.VARBINARY:   // Bytes
+                cell.append("<VARBINARY>");
+                break;
+            case Types.LONGVARBINARY: // BinaryStream
+                cell.append("<LONGVARBINARY>");
+                break;
+            case Types.NULL:        // null
+                cell.append(NULL);
+                break;
+            case Types.OTHER:       // ?
+                // PostgreSQL JDBC driver returns type OTHER for raw string literals.
+                // In this cases the returned object is of type String, so we try and
+                // check this, overriding the OTHER type in this case.
+                cell.append(o instanceof String ? (String) o : "<UNKNOWN>");
+                break;
+            case Types.DISTINCT:    // ?
+                cell.append("<DISTINCT>");
+                break;
+            case Types.ARRAY:       // Array
+                cell.append("<ARRAY>");
+                break;
+            case Types.BLOB:        // Blob
+                cell.append("<BLOB>");
+                break;
+            case Types.CLOB:        // Clob
+                cell.append("<CLOB>");
+                break;
+            case Types.REF:         // Ref
+                cell.append("<REF>");
+                break;
+            case Types.LONGVARCHAR: { // CharacterStream
+                // JDBC suggests to use getCharacterStream() on the result set for this type of data
+                Reader reader = rs.getCharacterStream(i);
+                try {
+                    int read = reader.read(streamBuf, 0, streamBuf.length);
+                    if (read > 0) {
+                        cell.append(streamBuf, 0, read);
+                    }
+                } finally {
+                    reader.close();
+                }
+                break;
+            }
+            case Types.DATALINK:    // ?
+                cell.append("<DATALINK>");
+                break;
+            case Types.ROWID:       // ?
+                cell.append("<ROWID>");
+                break;
+            case Types.NCHAR:       // ?
+            case Types.NVARCHAR:    // ?
+                cell.append(rs.getNString(i));
+                break;
+            case Types.LONGNVARCHAR: // ?
+                cell.append("<LONGNVARCHAR>");
+                break;
+            case Types.NCLOB:       // ?
+                cell.append("<NCLOB>");
+                break;
+            case Types.SQLXML:      // ?
+                cell.append("<SQLXML>");
+                break;
+            default:
+                // JAVA_OBJECT, STRUCT and unknown types
+                cell.append(o);
+                break;
+        }
+    }
+}
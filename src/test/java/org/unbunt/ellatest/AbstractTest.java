@@ -50,7 +50,10 @@ public class AbstractTest {
     }
 
     protected static String fileContent(String path) throws IOException {
-        File file = file(path);
+        return fileContent(file(path));
+    }
+
+    protected static String fileContent(File file) throws IOException {
         StringBuilder result = new StringBuilder();
         FileReader reader = new FileReader(file);
         char[] buf = new char[8 * 1024];
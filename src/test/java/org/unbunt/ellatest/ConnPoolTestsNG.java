@@ -0,0 +1,408 @@
+/* ConnPoolTestsNG.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ellatest;
+
+import static org.testng.Assert.*;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testng.annotations.Test;
+import org.unbunt.ella.lang.sql.ConnPool;
+import org.unbunt.ellatest.MockJDBC.MockConnection;
+import org.unbunt.ellatest.MockJDBC.MockDataSource;
+import static org.unbunt.ellatest.MockJDBC.mockOf;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Properties;
+
+@Test(groups = { "sql" })
+public class ConnPoolTestsNG {
+    /**
+     * Exposes the maintenance tasks otherwise run in the background.
+     */
+    protected static class TestPool extends ConnPool {
+        protected TestPool(MockDataSource target, Config config) {
+            super(target.proxy, "jdbc:mock:test", config);
+        }
+
+        public void runEviction() {
+            evict();
+        }
+    }
+
+    protected static ConnPool.Config config(int minSize, int maxSize) {
+        ConnPool.Config config = new ConnPool.Config();
+        config.setMinSize(minSize);
+        config.setMaxSize(maxSize);
+        // keep the background eviction out of the way, tests run it explicitly
+        config.setIdleTimeout(0);
+        return config;
+    }
+
+    public void checkoutAndReturn() throws SQLException {
+        MockDataSource ds = new MockDataSource();
+        ConnPool pool = new TestPool(ds, config(0, 2));
+        try {
+            Connection conn = pool.getConnection();
+            assertEquals(ds.connections.size(), 1);
+            assertEquals(pool.getActiveCount(), 1);
+            assertEquals(pool.getIdleCount(), 0);
+
+            PreparedStatement stmt = conn.prepareStatement("select 1");
+            conn.setAutoCommit(false);
+            conn.close();
+            assertTrue(conn.isClosed());
+            assertTrue(mockOf(stmt).closed, "Statement not closed with its connection");
+            try {
+                conn.prepareStatement("select 1");
+                fail("Closed connection still usable");
+            } catch (SQLException expected) {
+            }
+
+            // the physical connection is rolled back, reset and kept open
+            MockConnection physical = ds.connections.get(0);
+            assertFalse(physical.closed);
+            assertEquals(physical.rollbacks, 1);
+            assertTrue(physical.autoCommit);
+            assertEquals(pool.getActiveCount(), 0);
+            assertEquals(pool.getIdleCount(), 1);
+
+            Connection again = pool.getConnection();
+            assertNotSame(again, conn);
+            assertFalse(again.isClosed());
+            assertEquals(ds.connections.size(), 1, "Idle connection not reused");
+            again.close();
+
+            assertEquals(pool.getAcquisitionCount(), 2);
+            assertEquals(pool.getCreatedCount(), 1);
+            assertEquals(pool.getSize(), 1);
+        } finally {
+            pool.close();
+        }
+        assertEquals(ds.countOpen(), 0);
+        try {
+            pool.getConnection();
+            fail("Closed pool still usable");
+        } catch (SQLException expected) {
+        }
+    }
+
+    public void sessionStateRestored() throws SQLException {
+        MockDataSource ds = new MockDataSource();
+        ConnPool pool = new TestPool(ds, config(0, 1));
+        try {
+            Connection conn = pool.getConnection();
+            conn.setReadOnly(true);
+            conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            conn.setCatalog("other");
+            conn.setHoldability(ResultSet.CLOSE_CURSORS_AT_COMMIT);
+            conn.setTypeMap(Collections.<String, Class<?>>singletonMap("POINT", Object.class));
+            conn.close();
+
+            Connection next = pool.getConnection();
+            assertEquals(ds.connections.size(), 1, "Idle connection not reused");
+            assertFalse(next.isReadOnly());
+            assertEquals(next.getTransactionIsolation(), Connection.TRANSACTION_READ_COMMITTED);
+            assertEquals(next.getCatalog(), "main");
+            assertEquals(next.getHoldability(), ResultSet.HOLD_CURSORS_OVER_COMMIT);
+            assertTrue(next.getTypeMap().isEmpty());
+
+            // the state handed out is the one restored, not the one of the previous checkout
+            next.setReadOnly(true);
+            next.close();
+            Connection third = pool.getConnection();
+            assertFalse(third.isReadOnly());
+            third.close();
+        } finally {
+            pool.close();
+        }
+    }
+
+    public void unrestorableConnectionClosed() throws SQLException {
+        MockDataSource ds = new MockDataSource();
+        ConnPool pool = new TestPool(ds, config(0, 1));
+        try {
+            Connection conn = pool.getConnection();
+            MockConnection physical = ds.connections.get(0);
+            physical.stateFailure = new SQLException("not supported");
+            conn.setReadOnly(true);
+            conn.close();
+            assertTrue(physical.closed, "Connection with unknown state returned to the pool");
+            assertEquals(pool.getSize(), 0);
+
+            Connection next = pool.getConnection();
+            assertEquals(ds.connections.size(), 2);
+            assertFalse(next.isReadOnly());
+            next.close();
+        } finally {
+            pool.close();
+        }
+    }
+
+    public void maxSizeBlocks() throws Exception {
+        MockDataSource ds = new MockDataSource();
+        ConnPool.Config config = config(0, 1);
+        config.setAcquireTimeout(100);
+        ConnPool pool = new TestPool(ds, config);
+        try {
+            final Connection conn = pool.getConnection();
+            long start = System.currentTimeMillis();
+            try {
+                pool.getConnection();
+                fail("Pool exceeded its maximum size");
+            } catch (SQLException expected) {
+            }
+            assertTrue(System.currentTimeMillis() - start >= 90, "Did not wait for a connection");
+            assertEquals(pool.getTimeoutCount(), 1);
+            assertEquals(ds.connections.size(), 1);
+
+            // a waiting caller gets the connection as soon as it is returned
+            Thread releaser = new Thread() {
+                public void run() {
+                    try {
+                        Thread.sleep(50);
+                        conn.close();
+                    } catch (Exception ignored) {
+                    }
+                }
+            };
+            releaser.start();
+            Connection next = waitFor(pool);
+            releaser.join();
+            assertFalse(next.isClosed());
+            assertEquals(ds.connections.size(), 1);
+            assertEquals(pool.getPeakActiveCount(), 1);
+            next.close();
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * Takes a connection, retrying on timeouts for up to five seconds.
+     */
+    protected static Connection waitFor(ConnPool pool) throws SQLException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                return pool.getConnection();
+            } catch (SQLException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public void validation() throws SQLException {
+        MockDataSource ds = new MockDataSource();
+        ConnPool.Config config = config(0, 2);
+        config.setValidationInterval(0);
+        ConnPool pool = new TestPool(ds, config);
+        try {
+            pool.getConnection().close();
+            MockConnection first = ds.connections.get(0);
+
+            // valid connections are reused after asking the driver
+            pool.getConnection().close();
+            assertEquals(first.validations, 1);
+            assertEquals(ds.connections.size(), 1);
+
+            // invalid connections are closed and replaced
+            first.valid = false;
+            Connection conn = pool.getConnection();
+            assertEquals(first.validations, 2);
+            assertTrue(first.closed);
+            assertEquals(ds.connections.size(), 2);
+            assertEquals(pool.getInvalidatedCount(), 1);
+            assertEquals(pool.getSize(), 1);
+            assertEquals(pool.getAcquisitionCount(), 3);
+            conn.close();
+        } finally {
+            pool.close();
+        }
+
+        // a validation query is run instead of asking the driver
+        ds = new MockDataSource();
+        config.setValidationQuery("select 1 from dual");
+        pool = new TestPool(ds, config);
+        try {
+            pool.getConnection().close();
+            pool.getConnection().close();
+            MockConnection conn = ds.connections.get(0);
+            assertEquals(conn.validations, 0);
+            assertEquals(conn.statements.size(), 1);
+            assertEquals(conn.statements.get(0).executed.get(0), "select 1 from dual");
+            assertTrue(conn.statements.get(0).closed);
+        } finally {
+            pool.close();
+        }
+    }
+
+    public void eviction() throws Exception {
+        MockDataSource ds = new MockDataSource();
+        ConnPool.Config config = config(1, 4);
+        config.setIdleTimeout(50);
+        TestPool pool = new TestPool(ds, config);
+        try {
+            Connection a = pool.getConnection();
+            Connection b = pool.getConnection();
+            Connection c = pool.getConnection();
+            assertEquals(ds.connections.size(), 3);
+            a.close();
+            b.close();
+            c.close();
+
+            pool.runEviction();
+            assertEquals(pool.getEvictedCount(), 0, "Connections evicted before the idle timeout");
+
+            Thread.sleep(100);
+            pool.runEviction();
+            assertEquals(pool.getEvictedCount(), 2);
+            assertEquals(pool.getSize(), 1);
+            assertEquals(pool.getIdleCount(), 1);
+            assertEquals(ds.countOpen(), 1);
+            // the most recently used connection is kept
+            assertFalse(ds.connections.get(2).closed);
+        } finally {
+            pool.close();
+        }
+        assertEquals(ds.countOpen(), 0);
+    }
+
+    public void minSize() throws SQLException {
+        MockDataSource ds = new MockDataSource();
+        ConnPool pool = new TestPool(ds, config(2, 4));
+        try {
+            // opened on creation without waiting for the eviction
+            assertEquals(pool.getSize(), 2);
+            assertEquals(pool.getIdleCount(), 2);
+            assertEquals(ds.connections.size(), 2);
+
+            // restored when a broken connection is returned
+            Connection conn = pool.getConnection();
+            Connection other = pool.getConnection();
+            other.close();
+            ds.connections.get(0).closed = true;
+            conn.close();
+            assertEquals(pool.getSize(), 2);
+            assertEquals(pool.getIdleCount(), 2);
+            assertEquals(ds.connections.size(), 3);
+            assertEquals(ds.countOpen(), 2);
+        } finally {
+            pool.close();
+        }
+
+        // failing to open connections does not fail the pool
+        ds = new MockDataSource();
+        ds.connectFailure = new SQLException("down");
+        pool = new TestPool(ds, config(2, 4));
+        try {
+            assertEquals(pool.getSize(), 0);
+            ds.connectFailure = null;
+            pool.getConnection().close();
+            assertEquals(pool.getSize(), 1);
+        } finally {
+            pool.close();
+        }
+    }
+
+    public void sharedPools() {
+        DriverManagerDataSource template = new DriverManagerDataSource();
+        template.setUrl("jdbc:mock:shared");
+        template.setUsername("user");
+        ConnPool pool = ConnPool.getPool(template, config(0, 2));
+        try {
+            assertSame(ConnPool.getPool(template, config(0, 2)), pool);
+            assertNotSame(ConnPool.getPool(template, config(0, 3)), pool);
+            assertTrue(ConnPool.getPools().contains(pool));
+        } finally {
+            ConnPool.closeAll();
+        }
+        assertTrue(pool.isClosed());
+        assertFalse(ConnPool.getPools().contains(pool));
+        assertNotSame(ConnPool.getPool(template, config(0, 2)), pool);
+        ConnPool.closeAll();
+    }
+
+    public void configFromProperties() {
+        Properties props = new Properties();
+        props.setProperty("pool.minSize", " 2 ");
+        props.setProperty("pool.maxSize", "16");
+        props.setProperty("pool.validationQuery", "select 1");
+        props.setProperty("pool.validationInterval", "1000");
+        props.setProperty("pool.idleTimeout", "60000");
+        props.setProperty("pool.acquireTimeout", "500");
+        props.setProperty("user", "scott");
+        props.setProperty("poolsize", "3");
+
+        ConnPool.Config config = ConnPool.Config.fromProperties(props);
+        assertEquals(config.getMinSize(), 2);
+        assertEquals(config.getMaxSize(), 16);
+        assertEquals(config.getValidationQuery(), "select 1");
+        assertEquals(config.getValidationInterval(), 1000);
+        assertEquals(config.getIdleTimeout(), 60000);
+        assertEquals(config.getAcquireTimeout(), 500);
+
+        // pool entries are not passed on to the driver
+        assertEquals(props.size(), 2);
+        assertEquals(props.getProperty("user"), "scott");
+        assertEquals(props.getProperty("poolsize"), "3");
+
+        // missing entries keep their defaults
+        ConnPool.Config defaults = ConnPool.Config.fromProperties(new Properties());
+        assertEquals(defaults, new ConnPool.Config());
+        assertNull(defaults.getValidationQuery());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void configRejectsIllegalSize() {
+        Properties props = new Properties();
+        props.setProperty("pool.maxSize", "0");
+        ConnPool.Config.fromProperties(props);
+    }
+
+    @Test(expectedExceptions = NumberFormatException.class)
+    public void configRejectsMalformedNumber() {
+        Properties props = new Properties();
+        props.setProperty("pool.idleTimeout", "5 minutes");
+        ConnPool.Config.fromProperties(props);
+    }
+}
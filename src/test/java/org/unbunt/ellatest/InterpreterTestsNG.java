@@ -40,25 +40,88 @@ package org.unbunt.ellatest;
 import static org.testng.Assert.*;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
+import org.unbunt.ella.DefaultContext;
 import org.unbunt.ella.Ella;
-import static org.unbunt.ella.Ella.eval;
-import static org.unbunt.ella.Ella.evalIncremental;
+import org.unbunt.ella.compiler.statement.Block;
+import org.unbunt.ella.compiler.statement.FunctionDefinitionExpression;
+import org.unbunt.ella.compiler.statement.SlotCallExpression;
+import org.unbunt.ella.compiler.stmtbase.Statement;
+import org.unbunt.ella.engine.EllaEngine;
+import org.unbunt.ella.engine.context.Context;
+import org.unbunt.ella.engine.EngineType;
+import org.unbunt.ella.engine.corelang.InlineCache;
 import org.unbunt.ella.exception.*;
+import org.unbunt.ella.lang.Str;
+import org.unbunt.ella.resource.FilesystemResource;
+import org.unbunt.ella.resource.SimpleResource;
+import org.unbunt.ella.resource.StringResource;
 import static org.unbunt.ellatest.TestUtils.ensureType;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Test(groups = { "interpreter" }, dependsOnGroups = { "parser" })
 public class InterpreterTestsNG extends AbstractTest {
+    protected final EngineType engineType;
+
     protected Ella interp;
 
+    public InterpreterTestsNG() {
+        this(EngineType.CPS);
+    }
+
+    /**
+     * Creates the test suite running all scripts on the given engine.
+     *
+     * @param engineType the engine to run the scripts on.
+     */
+    protected InterpreterTestsNG(EngineType engineType) {
+        this.engineType = engineType;
+    }
+
     @BeforeTest
     public void init() {
         // nothing to do, yet
     }
 
+    protected Ella.ELLA createELLA(SimpleResource script, Context context) {
+        Ella.ELLA ella = new Ella.ELLA(context, script);
+        ella.setEngineType(engineType);
+        return ella;
+    }
+
+    protected Object eval(File script, Object... args)
+            throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        return eval(script, new DefaultContext(args));
+    }
+
+    protected Object eval(File script, Context context)
+            throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        return createELLA(new FilesystemResource(script), context).execute();
+    }
+
+    protected Object eval(String script, Object... args)
+            throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        return eval(script, new DefaultContext(args));
+    }
+
+    protected Object eval(String script, Context context)
+            throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        return createELLA(new StringResource(script), context).execute();
+    }
+
+    protected Object evalIncremental(File script, Object... args)
+            throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        return createELLA(new FilesystemResource(script), new DefaultContext(args)).executeIncremental();
+    }
+
     public void emptyStringLiteral() throws EllaParseException, EllaIOException, EllaException, EllaStoppedException {
         // NOTE: This is actually a parser test, but we run it to check the resulting value here.
         Object result = eval(".'';");
@@ -287,6 +350,141 @@ public class InterpreterTestsNG extends AbstractTest {
                    "Loop does not honour continue statement");
     }
 
+    public void loopStatus() throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        Object result = eval(file("loop-status"));
+        assertEquals(result, 3l);
+    }
+
+    public void capturedHomeNotRecycled() throws EllaIOException, EllaParseException, EllaStoppedException {
+        try {
+            eval(file("cont-pool-captured-home"));
+            assertTrue(false, "Escaped block returned from a foreign function (didn't throw exception)");
+        } catch (EllaException e) {
+            assertTrue(e.isCausedBy(EllaNonLocalReturnException.class),
+                       "Incorrect exception thrown on non-local return of escaped block");
+        }
+    }
+
+    public void numFastPath() throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        Object result = eval(file("num-fast-path"));
+        assertEquals(result, 55l);
+    }
+
+    public void numSlotsNotShared() throws Exception {
+        // slots set on a number computed by an arithmetic operation must not show up on other numbers
+        DefaultContext context = new DefaultContext();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        context.setOutputStream(new PrintStream(out, true));
+        eval("var n := 2 + 3; .n.foo = 'leak'; var m := 1 + 4; .print(m.foo);", context);
+        assertEquals(out.toString().trim(), "Null");
+    }
+
+    public void lexicalFrames() throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        Object result = eval(file("lexical-frames"));
+        assertEquals(result, 42l);
+    }
+
+    public void symbols() throws Exception {
+        final String name = "symbolTest" + System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Str>> results = new ArrayList<Future<Str>>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(new java.util.concurrent.Callable<Str>() {
+                    public Str call() {
+                        return new Str(name).intern();
+                    }
+                }));
+            }
+            Str symbol = Str.toSym(name);
+            assertTrue(symbol.isSymbol());
+            for (Future<Str> result : results) {
+                assertSame(result.get(), symbol);
+            }
+            assertEquals(new Str(name), symbol);
+            assertFalse(symbol.equals(Str.toSym(name + "x")));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void contextSnapshot() throws Exception {
+        String patch = ".Lst.answer = fun() { 42; }; .Bool.answer = fun() { 43; }; .[].answer() + true.answer();";
+        assertEquals(eval(patch, new DefaultContext()), 85l);
+        assertEquals(eval(patch, new DefaultContext(new Object[0], null)), 85l);
+
+        // patched prototypes are private to the patching context
+        DefaultContext context = new DefaultContext();
+        assertNull(eval(".Lst.answer;", context));
+        assertNull(eval(".Bool.answer;", context));
+        assertTrue(context.reset());
+        eval(patch, context);
+        assertFalse(context.reset());
+        assertNull(eval(".Lst.answer;", new DefaultContext()));
+
+        // lazily registered prototypes
+        String java = "var SB := new JClass('java.lang.StringBuilder'); var sb := new SB(); .sb.append('x'); .sb.toString();";
+        assertEquals(eval(java, new DefaultContext(new Object[0], null)), "x");
+        assertEquals(eval(java, new DefaultContext()), "x");
+        context = new DefaultContext(new Object[0], null);
+        assertTrue(context.reset());
+        eval(java, context);
+        assertTrue(context.reset());
+    }
+
+    public void sharedProgram() throws Exception {
+        final Block program = Ella.compile(file("shared-program"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < 16; i++) {
+                final EngineType engineType = i % 2 == 0 ? EngineType.CPS : EngineType.TREE;
+                results.add(executor.submit(new java.util.concurrent.Callable<Object>() {
+                    public Object call() throws Exception {
+                        EllaEngine engine = engineType.create(new DefaultContext());
+                        try {
+                            return engine.eval(program);
+                        } finally {
+                            engine.finish();
+                        }
+                    }
+                }));
+            }
+            for (Future<Object> result : results) {
+                assertEquals(result.get(), 610l);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void inlineCacheContexts() throws Exception {
+        Block program = Ella.compile(file("inline-cache-contexts"));
+        InlineCache cache = null;
+        for (Statement statement : program.getStatements()) {
+            if (statement instanceof FunctionDefinitionExpression) {
+                Block body = (Block) ((FunctionDefinitionExpression) statement).getFunction().getBody();
+                SlotCallExpression call = (SlotCallExpression) body.getStatements().get(0);
+                cache = call.getSlotExpression().getInlineCache();
+            }
+        }
+        assertNotNull(cache, "Slot call site not found");
+
+        // each context has its own prototype, so it misses once and hits on all further calls
+        for (int i = 0; i < 3 * InlineCache.MAX_ENTRIES; i++) {
+            DefaultContext context = new DefaultContext();
+            EllaEngine engine = (i % 2 == 0 ? EngineType.CPS : EngineType.TREE).create(context);
+            int misses = cache.getMisses();
+            try {
+                assertEquals(engine.eval(program), "A");
+            } finally {
+                engine.finish();
+            }
+            assertEquals(cache.getMisses() - misses, 1, "Inline cache not hit in context " + i);
+            assertFalse(cache.isMegamorphic(context), "Inline cache megamorphic in context " + i);
+        }
+    }
+
     public void args() throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
         int arg = 42;
         Object result = eval(".ARGV[0];", arg);
@@ -305,6 +503,11 @@ public class InterpreterTestsNG extends AbstractTest {
         eval(file("include-file"));
     }
 
+    public void includeFileRepeated() throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        Object result = eval(file("include-file-repeated"));
+        assertEquals(result, 430l);
+    }
+
     public void includeFileClosureUpdate()
             throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
         eval(file("include-file-closure-update"));
@@ -390,6 +593,30 @@ public class InterpreterTestsNG extends AbstractTest {
         eval(file("host-integration-method-select"));
     }
 
+    public void hostIntegrationProperties()
+            throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        Object result = eval(file("host-integration-properties"));
+        assertEquals(result, 10045l);
+    }
+
+    public void hostIntegrationOverloads()
+            throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        Object result = eval(file("host-integration-overloads"));
+        assertEquals(result, 110l);
+    }
+
+    public void hostIntegrationWrap()
+            throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        Object result = eval(file("host-integration-wrap"));
+        assertEquals(result, 3l);
+    }
+
+    public void importPackageGlobals()
+            throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        Object result = eval(file("import-package-globals"));
+        assertEquals(result, 5050l);
+    }
+
     public void array() throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
         Object result = eval(file("array"));
         List<Long> expected = new ArrayList<Long>(5);
@@ -463,4 +690,22 @@ public class InterpreterTestsNG extends AbstractTest {
         Object result = eval(file("bug-while-false-return-null"));
         assertNull(result);
     }
-}
\ No newline at end of file
+
+    public void deepRecursion() throws EllaParseException, EllaIOException, EllaException, EllaStoppedException {
+        Object result = eval(file("deep-recursion"));
+        assertEquals(result, 10l);
+    }
+
+    public void frameTargets() throws EllaParseException, EllaIOException, EllaException, EllaStoppedException {
+        Object result = eval(file("frame-targets"));
+        assertEquals(result, 3l);
+    }
+
+    public void inlineCache() throws EllaParseException, EllaIOException, EllaException, EllaStoppedException {
+        eval(file("inline-cache"));
+    }
+
+    public void shapes() throws EllaParseException, EllaIOException, EllaException, EllaStoppedException {
+        eval(file("shapes"));
+    }
+}
@@ -0,0 +1,86 @@
+/* MethInvokeAllocBench.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ellatest;
+
+import org.unbunt.ella.Ella;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the number of bytes allocated per method invocation, using the script of
+ * <code>test/bench-meth-invoke.sql</code> as workload.
+ * <p>
+ * The loop is run once as given and once with its method call doubled, so the difference of both runs
+ * is the allocation caused by the method calls alone (excluding parsing and loop overhead).
+ * Requires a JVM supporting <code>com.sun.management.ThreadMXBean</code>.
+ */
+public class MethInvokeAllocBench extends AbstractTest {
+    protected static final File WORKLOAD = new File("test/bench-meth-invoke.sql");
+    protected static final String CALL = "\t1 add 2;\n";
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        String single = fileContent(WORKLOAD);
+        if (!single.contains(CALL)) {
+            throw new IllegalStateException("Method call not found in " + WORKLOAD);
+        }
+        String dual = single.replace(CALL, CALL + CALL);
+
+        // warm up
+        run(single, iterations / 10);
+        run(dual, iterations / 10);
+
+        long singleBytes = run(single, iterations);
+        long dualBytes = run(dual, iterations);
+
+        System.out.println("iterations:           " + iterations);
+        System.out.println("bytes per iteration:  " + (singleBytes / iterations));
+        System.out.println("bytes per method call: " + ((dualBytes - singleBytes) / iterations));
+    }
+
+    protected static long run(String script, int iterations) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        Ella.eval(script, iterations);
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+}
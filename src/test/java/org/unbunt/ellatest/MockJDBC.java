@@ -0,0 +1,523 @@
+/* MockJDBC.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ellatest;
+
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Minimal JDBC objects recording the calls made on them, for testing code that manages connections and statements
+ * without a database.
+ */
+public class MockJDBC {
+    /**
+     * Returns the default value of the given return type, so that unhandled methods behave as no-ops.
+     */
+    protected static Object defaultValue(Class<?> type) {
+        if (type == Boolean.TYPE) {
+            return false;
+        }
+        if (type == Integer.TYPE || type == Short.TYPE || type == Byte.TYPE) {
+            return 0;
+        }
+        if (type == Long.TYPE) {
+            return 0l;
+        }
+        if (type == Double.TYPE || type == Float.TYPE) {
+            return 0.0;
+        }
+        return null;
+    }
+
+    protected static Object identity(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if ("equals".equals(name)) {
+            return proxy == args[0];
+        }
+        if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        }
+        return null;
+    }
+
+    /**
+     * A data source opening mock connections.
+     */
+    public static class MockDataSource implements InvocationHandler {
+        public final DataSource proxy;
+        public final List<MockConnection> connections =
+                Collections.synchronizedList(new ArrayList<MockConnection>());
+
+        /**
+         * Outcomes of statements executed on the connections, by SQL text.
+         *
+         * @see MockStatement#outcome(String)
+         */
+        public final Map<String, Object> outcomes = new ConcurrentHashMap<String, Object>();
+
+        /**
+         * Thrown by <code>getConnection</code> if set.
+         */
+        public volatile SQLException connectFailure = null;
+
+        public MockDataSource() {
+            proxy = (DataSource) Proxy.newProxyInstance(MockJDBC.class.getClassLoader(),
+                                                        new Class[] { DataSource.class }, this);
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name) || "hashCode".equals(name)) {
+                return identity(proxy, method, args);
+            }
+            if ("getConnection".equals(name)) {
+                if (connectFailure != null) {
+                    throw connectFailure;
+                }
+                MockConnection conn = new MockConnection(outcomes);
+                connections.add(conn);
+                return conn.proxy;
+            }
+            return defaultValue(method.getReturnType());
+        }
+
+        public int countOpen() {
+            int open = 0;
+            synchronized (connections) {
+                for (MockConnection conn : connections) {
+                    if (!conn.closed) {
+                        open++;
+                    }
+                }
+            }
+            return open;
+        }
+    }
+
+    public static class MockConnection implements InvocationHandler {
+        public final Connection proxy;
+        public final List<MockStatement> statements = new ArrayList<MockStatement>();
+        public final Map<String, Object> outcomes;
+
+        public boolean closed = false;
+        public boolean autoCommit = true;
+        public boolean valid = true;
+        public int validations = 0;
+        public int rollbacks = 0;
+
+        public boolean readOnly = false;
+        public int isolation = Connection.TRANSACTION_READ_COMMITTED;
+        public String catalog = "main";
+        public int holdability = ResultSet.HOLD_CURSORS_OVER_COMMIT;
+        public Map<String, Class<?>> typeMap = new HashMap<String, Class<?>>();
+
+        /**
+         * Thrown by the getters of the session state if set.
+         */
+        public SQLException stateFailure = null;
+
+        public MockConnection() {
+            this(new ConcurrentHashMap<String, Object>());
+        }
+
+        public MockConnection(Map<String, Object> outcomes) {
+            this.outcomes = outcomes;
+            proxy = (Connection) Proxy.newProxyInstance(MockJDBC.class.getClassLoader(),
+                                                        new Class[] { Connection.class }, this);
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name) || "hashCode".equals(name)) {
+                return identity(proxy, method, args);
+            }
+            if ("toString".equals(name)) {
+                return "MockConnection@" + System.identityHashCode(proxy);
+            }
+            if ("close".equals(name)) {
+                closed = true;
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return closed;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            if ("prepareStatement".equals(name) || "createStatement".equals(name)) {
+                MockStatement stmt = new MockStatement(this, args != null && args.length > 0 ? (String) args[0] : null);
+                statements.add(stmt);
+                return stmt.proxy;
+            }
+            if ("isValid".equals(name)) {
+                validations++;
+                return valid;
+            }
+            if ("getAutoCommit".equals(name)) {
+                return autoCommit;
+            }
+            if ("setAutoCommit".equals(name)) {
+                autoCommit = (Boolean) args[0];
+                return null;
+            }
+            if ("rollback".equals(name)) {
+                rollbacks++;
+                return null;
+            }
+            if (stateFailure != null && (name.startsWith("get") || name.startsWith("is"))) {
+                throw stateFailure;
+            }
+            if ("isReadOnly".equals(name)) {
+                return readOnly;
+            }
+            if ("setReadOnly".equals(name)) {
+                readOnly = (Boolean) args[0];
+                return null;
+            }
+            if ("getTransactionIsolation".equals(name)) {
+                return isolation;
+            }
+            if ("setTransactionIsolation".equals(name)) {
+                isolation = (Integer) args[0];
+                return null;
+            }
+            if ("getCatalog".equals(name)) {
+                return catalog;
+            }
+            if ("setCatalog".equals(name)) {
+                catalog = (String) args[0];
+                return null;
+            }
+            if ("getHoldability".equals(name)) {
+                return holdability;
+            }
+            if ("setHoldability".equals(name)) {
+                holdability = (Integer) args[0];
+                return null;
+            }
+            if ("getTypeMap".equals(name)) {
+                return new HashMap<String, Class<?>>(typeMap);
+            }
+            if ("setTypeMap".equals(name)) {
+                @SuppressWarnings("unchecked")
+                Map<String, Class<?>> map = (Map<String, Class<?>>) args[0];
+                typeMap = new HashMap<String, Class<?>>(map);
+                return null;
+            }
+            return defaultValue(method.getReturnType());
+        }
+    }
+
+    public static class MockStatement implements InvocationHandler {
+        public final MockConnection connection;
+        public final String sql;
+        public final PreparedStatement proxy;
+
+        public boolean closed = false;
+        public int resets = 0;
+        public final List<String> executed = new ArrayList<String>();
+        public int updateCount = -1;
+        public ResultSet resultSet = null;
+
+        /**
+         * Thrown by <code>clearParameters</code> if set.
+         */
+        public SQLException resetFailure = null;
+
+        public MockStatement(MockConnection connection, String sql) {
+            this.connection = connection;
+            this.sql = sql;
+            proxy = (PreparedStatement) Proxy.newProxyInstance(MockJDBC.class.getClassLoader(),
+                                                               new Class[] { PreparedStatement.class }, this);
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name) || "hashCode".equals(name)) {
+                return identity(proxy, method, args);
+            }
+            if ("toString".equals(name)) {
+                return "MockStatement[" + sql + "]";
+            }
+            if ("close".equals(name)) {
+                closed = true;
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return closed;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            if ("clearParameters".equals(name)) {
+                if (resetFailure != null) {
+                    throw resetFailure;
+                }
+                resets++;
+                return null;
+            }
+            if ("getConnection".equals(name)) {
+                return connection.proxy;
+            }
+            if ("execute".equals(name) || "executeUpdate".equals(name)) {
+                boolean isResult = outcome(args != null && args.length > 0 ? (String) args[0] : sql);
+                return "execute".equals(name) ? (Object) isResult : (Object) updateCount;
+            }
+            if ("executeQuery".equals(name)) {
+                outcome(args != null && args.length > 0 ? (String) args[0] : sql);
+                return resultSet;
+            }
+            if ("getUpdateCount".equals(name)) {
+                return updateCount;
+            }
+            if ("getResultSet".equals(name)) {
+                return resultSet;
+            }
+            return defaultValue(method.getReturnType());
+        }
+
+        /**
+         * Executes the given SQL text according to the outcome registered for it with the connection. An
+         * <code>SQLException</code> is thrown, an <code>Integer</code> is the update count, <code>Boolean.TRUE</code>
+         * stands for a query and a <code>MockResultSet</code> for a query returning its rows. Statements without an
+         * outcome update no rows.
+         *
+         * @param sql the SQL text.
+         * @return whether the statement is a query.
+         * @throws SQLException if registered for the statement.
+         */
+        protected boolean outcome(String sql) throws SQLException {
+            executed.add(sql);
+            Object outcome = sql == null ? null : connection.outcomes.get(sql);
+            if (outcome instanceof SQLException) {
+                throw (SQLException) outcome;
+            }
+            if (Boolean.TRUE.equals(outcome)) {
+                updateCount = -1;
+                return true;
+            }
+            if (outcome instanceof MockResultSet) {
+                resultSet = ((MockResultSet) outcome).proxy;
+                updateCount = -1;
+                return true;
+            }
+            updateCount = outcome instanceof Integer ? (Integer) outcome : 0;
+            return false;
+        }
+    }
+
+    /**
+     * A JDBC driver for URLs starting with <code>jdbc:mock:</code>, connecting to a mock data source per URL. The
+     * driver registers itself when loaded.
+     */
+    public static class MockDriver implements Driver {
+        public static final String PREFIX = "jdbc:mock:";
+
+        protected static final Map<String, MockDataSource> databases = new ConcurrentHashMap<String, MockDataSource>();
+
+        static {
+            try {
+                DriverManager.registerDriver(new MockDriver());
+            } catch (SQLException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        public static synchronized MockDataSource getDatabase(String url) {
+            MockDataSource db = databases.get(url);
+            if (db == null) {
+                db = new MockDataSource();
+                databases.put(url, db);
+            }
+            return db;
+        }
+
+        public Connection connect(String url, Properties info) throws SQLException {
+            return acceptsURL(url) ? getDatabase(url).proxy.getConnection() : null;
+        }
+
+        public boolean acceptsURL(String url) {
+            return url.startsWith(PREFIX);
+        }
+
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    /**
+     * A forward only result set over the given rows. A value that is a <code>SQLException</code> is thrown by
+     * <code>getObject</code>, while the numeric getters return <code>0</code> for it, like drivers do for zero
+     * dates.
+     */
+    public static class MockResultSet implements InvocationHandler {
+        public final String[] labels;
+        public final int[] types;
+        public final Object[][] rows;
+        public final ResultSet proxy;
+
+        public int row = -1;
+        public boolean closed = false;
+
+        public MockResultSet(String[] labels, int[] types, Object[][] rows) {
+            this.labels = labels;
+            this.types = types;
+            this.rows = rows;
+            proxy = (ResultSet) Proxy.newProxyInstance(MockJDBC.class.getClassLoader(),
+                                                       new Class[] { ResultSet.class }, this);
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name) || "hashCode".equals(name)) {
+                return identity(proxy, method, args);
+            }
+            if ("close".equals(name)) {
+                closed = true;
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return closed;
+            }
+            if (closed) {
+                throw new SQLException("Result set is closed");
+            }
+            if ("getMetaData".equals(name)) {
+                return Proxy.newProxyInstance(MockJDBC.class.getClassLoader(),
+                                              new Class[] { ResultSetMetaData.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if ("getColumnCount".equals(name)) {
+                            return labels.length;
+                        }
+                        if ("getColumnLabel".equals(name) || "getColumnName".equals(name)) {
+                            return labels[(Integer) args[0] - 1];
+                        }
+                        if ("getColumnType".equals(name)) {
+                            return types[(Integer) args[0] - 1];
+                        }
+                        return defaultValue(method.getReturnType());
+                    }
+                });
+            }
+            if ("getType".equals(name)) {
+                return ResultSet.TYPE_FORWARD_ONLY;
+            }
+            if ("next".equals(name)) {
+                return ++row < rows.length;
+            }
+            if (name.startsWith("get") && args != null && args.length == 1 && args[0] instanceof Integer) {
+                if (row < 0 || row >= rows.length) {
+                    throw new SQLException("No current row");
+                }
+                return getValue(name, rows[row][(Integer) args[0] - 1], method.getReturnType());
+            }
+            return defaultValue(method.getReturnType());
+        }
+
+        protected Object getValue(String getter, Object value, Class<?> type) throws SQLException {
+            if (value instanceof SQLException) {
+                if ("getObject".equals(getter)) {
+                    throw (SQLException) value;
+                }
+                return defaultValue(type);
+            }
+            if (value == null) {
+                return defaultValue(type);
+            }
+            if ("getString".equals(getter) || "getNString".equals(getter)) {
+                return value.toString();
+            }
+            if ("getLong".equals(getter)) {
+                return ((Number) value).longValue();
+            }
+            if ("getDouble".equals(getter)) {
+                return ((Number) value).doubleValue();
+            }
+            if ("getBigDecimal".equals(getter)) {
+                return value instanceof BigDecimal ? value : new BigDecimal(value.toString());
+            }
+            if ("getCharacterStream".equals(getter)) {
+                return new StringReader(value.toString());
+            }
+            return value;
+        }
+    }
+
+    public static MockStatement mockOf(Statement stmt) {
+        return (MockStatement) Proxy.getInvocationHandler(stmt);
+    }
+}
@@ -0,0 +1,101 @@
+/* ResSetTestsNG.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ellatest;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+import org.unbunt.ella.DefaultContext;
+import org.unbunt.ella.Ella;
+import org.unbunt.ella.engine.EllaEngine;
+import org.unbunt.ella.engine.EngineType;
+import org.unbunt.ella.engine.context.Context;
+import org.unbunt.ella.lang.sql.Conn;
+import org.unbunt.ellatest.MockJDBC.MockDataSource;
+import org.unbunt.ellatest.MockJDBC.MockResultSet;
+
+import java.sql.Types;
+
+@Test(groups = { "interpreter" }, dependsOnGroups = { "parser" })
+public class ResSetTestsNG {
+    protected static Object eval(MockResultSet rs, String script) throws Exception {
+        MockDataSource ds = new MockDataSource();
+        ds.outcomes.put("select * from t", rs);
+        Context context = new DefaultContext();
+        context.getObjConnMgr().activate(new Conn(ds.proxy.getConnection()));
+
+        EllaEngine engine = EngineType.CPS.create(context);
+        try {
+            return engine.eval(Ella.compile(script));
+        } finally {
+            engine.finish();
+        }
+    }
+
+    protected static MockResultSet rows() {
+        return new MockResultSet(new String[] { "id", "name" }, new int[] { Types.INTEGER, Types.VARCHAR },
+                                 new Object[][] { { 1, "a" }, { 2, "b" }, { 3, "c" } });
+    }
+
+    public void columnNamesNotShared() throws Exception {
+        Object result = eval(rows(),
+                "var seen := '';\n" +
+                ".(sql select * from t).each { row =>\n" +
+                "    row.each { name, value =>\n" +
+                "        if (name.seen === true) {\n" +
+                "            throw 'slot of column name ' + name + ' shared with previous row';\n" +
+                "        }\n" +
+                "        name.seen = true;\n" +
+                "        seen = seen + name + '=' + value + ';';\n" +
+                "    };\n" +
+                "};\n" +
+                ".seen;");
+        assertEquals(result, "id=1;name=a;id=2;name=b;id=3;name=c;");
+    }
+
+    public void values() throws Exception {
+        Object result = eval(rows(),
+                "var seen := '';\n" +
+                ".(sql select * from t).each { row =>\n" +
+                "    row.values().each { value =>\n" +
+                "        seen = seen + value + ';';\n" +
+                "    };\n" +
+                "};\n" +
+                ".seen;");
+        assertEquals(result, "1;a;2;b;3;c;");
+    }
+}
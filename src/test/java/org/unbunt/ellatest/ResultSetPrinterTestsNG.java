@@ -0,0 +1,145 @@
+/* ResultSetPrinterTestsNG.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ellatest;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+import org.unbunt.ella.utils.ForwardOnlyResultSetPrinter;
+import org.unbunt.ella.utils.StreamingResultSetPrinter;
+import org.unbunt.ellatest.MockJDBC.MockResultSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+@Test(groups = { "sql" })
+public class ResultSetPrinterTestsNG {
+    protected static final String NL = System.getProperty("line.separator");
+
+    protected static final String[] LABELS = {
+            "id", "name", "amount", "price", "created", "flag", "note"
+    };
+
+    protected static final int[] TYPES = {
+            Types.INTEGER, Types.VARCHAR, Types.DECIMAL, Types.DOUBLE, Types.TIMESTAMP, Types.BOOLEAN,
+            Types.LONGVARCHAR
+    };
+
+    protected static final String WIDE = "a rather long value that makes this column wider than all the others";
+
+    protected static Object[][] rows() {
+        return new Object[][] {
+                { 1, "first", new BigDecimal("0.001"), 1.5, Timestamp.valueOf("2009-06-15 12:30:00"), true, "short" },
+                { 2, null, new BigDecimal("100"), null, null, false, null },
+                { 300000, WIDE, null, -2.25e10, Timestamp.valueOf("2009-06-16 08:00:00"), null, WIDE + WIDE },
+                { null, "", new BigDecimal("-7"), 0.0, new SQLException("zero date"), true, "x" },
+                { 5, "last", new BigDecimal("12.50"), 3.0, Timestamp.valueOf("2010-01-01 00:00:01"), false, "" }
+        };
+    }
+
+    protected static String printOld(Object[][] rows) throws SQLException, IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int nrows = new ForwardOnlyResultSetPrinter(out).print(new MockResultSet(LABELS, TYPES, rows).proxy);
+        assertEquals(nrows, rows.length);
+        return out.toString();
+    }
+
+    protected static String print(StreamingResultSetPrinter printer, ByteArrayOutputStream out, Object[][] rows)
+            throws SQLException, IOException {
+        out.reset();
+        int nrows = printer.print(new MockResultSet(LABELS, TYPES, rows).proxy);
+        assertEquals(nrows, rows.length);
+        return out.toString();
+    }
+
+    public void sameOutputAsForwardOnlyPrinter() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingResultSetPrinter printer = new StreamingResultSetPrinter(out, 100, 200);
+        assertEquals(print(printer, out, rows()), printOld(rows()));
+
+        // cached window cells are reused by the next result set
+        Object[][] rows = rows();
+        rows[0][1] = "changed";
+        assertEquals(print(printer, out, rows), printOld(rows));
+        assertEquals(print(printer, out, new Object[0][]), printOld(new Object[0][]));
+    }
+
+    public void sameOutputWithWideRowsInWindow() throws Exception {
+        // the widest values are in the window, so streaming the remaining rows does not change the layout
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingResultSetPrinter printer = new StreamingResultSetPrinter(out, 3, 200);
+        assertEquals(print(printer, out, rows()), printOld(rows()));
+    }
+
+    public void truncatesWideValues() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingResultSetPrinter printer = new StreamingResultSetPrinter(out, 2, 10);
+        String[] lines = print(printer, out, rows()).split(NL);
+        assertEquals(lines, new String[] {
+                "| id | name   |     amount |   price |    created | flag    | note   |",
+                "|  1 | first  | 0.00100000 | 1.50000 | 2009-06... | <TRUE>  | short  |",
+                "|  2 | <NULL> |        100 |  <NULL> |     <NULL> | <FALSE> | <NULL> |",
+                // rows after the window are truncated to the widths computed from the window
+                "| .. | a r... |     <NULL> | -2.2... | 2009-06... | <NULL>  | a r... |",
+                "| .. |        |         -7 | 0.00000 |          0 | <TRUE>  | x      |",
+                "|  5 | last   |    12.5000 | 3.00000 | 2010-01... | <FALSE> |        |",
+                "5 rows."
+        });
+    }
+
+    public void replacesLineBreaks() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingResultSetPrinter printer = new StreamingResultSetPrinter(out, 100, 80);
+        Object[][] rows = rows();
+        rows[0][1] = "two\nlines\tand\r\ntab";
+        String[] lines = print(printer, out, rows).split(NL);
+        assertTrue(lines[1].contains(" two lines and  tab "), lines[1]);
+        assertEquals(lines.length, 7);
+    }
+
+    @Test(expectedExceptions = SQLException.class)
+    public void rethrowsNonTemporalErrors() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Object[][] rows = rows();
+        rows[0][0] = new SQLException("broken");
+        print(new StreamingResultSetPrinter(out), out, rows);
+    }
+}
@@ -0,0 +1,119 @@
+/* RowUpdateDetectorTestsNG.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ellatest;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+import org.unbunt.ella.Ella;
+import org.unbunt.ella.compiler.RowUpdateDetector;
+import org.unbunt.ella.compiler.statement.BlockClosureExpression;
+import org.unbunt.ella.compiler.statement.DeclareAndAssignExpression;
+import org.unbunt.ella.compiler.stmtbase.Statement;
+import org.unbunt.ella.compiler.support.BlockClosure;
+import org.unbunt.ella.exception.EllaIOException;
+import org.unbunt.ella.exception.EllaParseException;
+
+import java.util.List;
+
+@Test(groups = { "interpreter" }, dependsOnGroups = { "parser" })
+public class RowUpdateDetectorTestsNG {
+    /**
+     * Compiles a block closure taking a row argument. The body is preceded by declarations of <code>name</code>,
+     * <code>f</code> and <code>list</code> so that it may refer to them.
+     */
+    protected BlockClosure closure(String body) throws EllaIOException, EllaParseException {
+        List<Statement> statements = Ella.compile(
+                "var name := 'update'; var f := fun(x) { return x; }; var list := [];\n" +
+                "var closure := { row => " + body + " };").getStatements();
+        DeclareAndAssignExpression decl = (DeclareAndAssignExpression) statements.get(statements.size() - 1);
+        return ((BlockClosureExpression) decl.getAssignExpr().getRvalue()).getBlockClosure();
+    }
+
+    protected boolean mayUpdateRows(String body) throws EllaIOException, EllaParseException {
+        return RowUpdateDetector.mayUpdateRows(closure(body));
+    }
+
+    public void constantSlots() throws Exception {
+        assertFalse(mayUpdateRows(".print(row.id);"));
+        assertFalse(mayUpdateRows(".print(row{'id'});"));
+        assertFalse(mayUpdateRows(".print(row[1]);"));
+        assertFalse(mayUpdateRows(".print(row['update']);"));
+        assertFalse(mayUpdateRows(".print(row{1});"));
+        // an identifier names the slot itself, not the value of the variable
+        assertFalse(mayUpdateRows(".print(row{name});"));
+        assertFalse(mayUpdateRows("var s := row.id.toString(); .print(s.length());"));
+        assertFalse(mayUpdateRows(".print(f(row.id) + row{'it''s'});"));
+        assertFalse(mayUpdateRows(""));
+    }
+
+    public void constantModifyingSlots() throws Exception {
+        assertTrue(mayUpdateRows("row.update({ u => u['id'] = 1; });"));
+        assertTrue(mayUpdateRows("row.insert({ u => u['id'] = 1; });"));
+        assertTrue(mayUpdateRows("row{'update'}({ u => u['id'] = 1; });"));
+        // any reference to the modifying slots counts, whatever the receiver
+        assertTrue(mayUpdateRows("var u := row.id; list.insert(u);"));
+    }
+
+    public void dynamicSlots() throws Exception {
+        assertTrue(mayUpdateRows("row{f(name)}({ u => u['id'] = 1; });"));
+        assertTrue(mayUpdateRows("row{'up' + 'date'}({ u => u['id'] = 1; });"));
+        assertTrue(mayUpdateRows("row{f('insert')}({ u => u['id'] = 1; });"));
+        assertTrue(mayUpdateRows("row{'' + name}({ u => u['id'] = 1; });"));
+        assertTrue(mayUpdateRows("row{\"@{name}\"}({ u => u['id'] = 1; });"));
+        assertTrue(mayUpdateRows(".print(row{\"id@{name}\"});"));
+        // a dynamic slot counts whatever the receiver, like the modifying slots do
+        assertTrue(mayUpdateRows("var id := row.id; .print(list{'' + name});"));
+    }
+
+    public void escapingRow() throws Exception {
+        assertTrue(mayUpdateRows(".f(row);"));
+        assertTrue(mayUpdateRows("var r := row;"));
+        assertTrue(mayUpdateRows("return row;"));
+        assertTrue(mayUpdateRows("var l := [row];"));
+        assertTrue(mayUpdateRows("var o := { r: row };"));
+        assertTrue(mayUpdateRows("var c := { => .f(row); };"));
+        assertTrue(mayUpdateRows("list.add(row);"));
+    }
+
+    public void noRowArgument() throws Exception {
+        List<Statement> statements = Ella.compile("var closure := { => .print(1); };").getStatements();
+        DeclareAndAssignExpression decl = (DeclareAndAssignExpression) statements.get(0);
+        BlockClosure closure = ((BlockClosureExpression) decl.getAssignExpr().getRvalue()).getBlockClosure();
+        assertFalse(RowUpdateDetector.mayUpdateRows(closure));
+    }
+}
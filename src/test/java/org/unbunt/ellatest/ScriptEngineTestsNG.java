@@ -0,0 +1,141 @@
+/* ScriptEngineTestsNG.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ellatest;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import java.io.StringWriter;
+
+@Test(groups = { "interpreter" }, dependsOnGroups = { "parser" })
+public class ScriptEngineTestsNG extends AbstractTest {
+    protected ScriptEngine engine;
+
+    public interface Adder {
+        int add(int a, int b);
+    }
+
+    @BeforeMethod
+    public void init() {
+        engine = new ScriptEngineManager().getEngineByName("ella");
+        assertNotNull(engine, "Script engine not registered");
+    }
+
+    public void eval() throws Exception {
+        assertEquals(engine.eval(".20 + 22;"), 42l);
+        assertEquals(engine.eval(".'foo' + 'bar';"), "foobar");
+    }
+
+    public void bindings() throws Exception {
+        engine.put("x", 40);
+        assertEquals(engine.eval(".x + 2;"), 42l);
+        engine.eval(".x = x + 1;");
+        assertEquals(engine.get("x"), 41l);
+        engine.eval("var y := 'declared';");
+        assertEquals(engine.get("y"), "declared");
+    }
+
+    public void globalsSurviveEvaluations() throws Exception {
+        engine.eval("var base := 40; fun add(a) { a + base; }");
+        engine.eval("var base := 0;");
+        assertEquals(engine.eval(".add(2);"), 42l);
+    }
+
+    public void compiledScript() throws Exception {
+        Compilable compilable = (Compilable) engine;
+        CompiledScript script = compilable.compile(".n = n + 1; .n;");
+        assertSame(compilable.compile(".n = n + 1; .n;"), script);
+        engine.put("n", 0);
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(script.eval(), (long) i);
+        }
+    }
+
+    public void invokeFunction() throws Exception {
+        engine.eval("var offset := 2; fun add(a, b) { a + b + offset; }");
+        Invocable invocable = (Invocable) engine;
+        assertEquals(invocable.invokeFunction("add", 20, 20), 42l);
+        assertEquals(invocable.getInterface(Adder.class).add(10, 30), 42);
+        try {
+            invocable.invokeFunction("missing");
+            fail("Expected NoSuchMethodException");
+        } catch (NoSuchMethodException e) {
+            // expected
+        }
+    }
+
+    public void invokeMethod() throws Exception {
+        Object calc = engine.eval("var Calc := { factor: 2, add: fun(a, b) { (a + b) * this.factor; } }; .Calc;");
+        Invocable invocable = (Invocable) engine;
+        assertEquals(invocable.invokeMethod(calc, "add", 10, 11), 42l);
+        assertEquals(invocable.getInterface(calc, Adder.class).add(1, 20), 42);
+    }
+
+    public void output() throws Exception {
+        StringWriter out = new StringWriter();
+        engine.getContext().setWriter(out);
+        engine.put("who", "w\u00f6rld");
+        engine.eval(".print('hello', who);");
+        assertEquals(out.toString().trim(), "hello w\u00f6rld");
+    }
+
+    public void error() throws Exception {
+        try {
+            engine.eval("var := ;");
+            fail("Expected parse error");
+        } catch (ScriptException e) {
+            // expected
+        }
+        try {
+            engine.eval("throw 'failed';");
+            fail("Expected script exception");
+        } catch (ScriptException e) {
+            // expected
+        }
+        engine.getContext().setAttribute("z", 1, ScriptContext.GLOBAL_SCOPE);
+        assertEquals(engine.eval(".z;"), 1l);
+    }
+}
@@ -0,0 +1,123 @@
+/* ServiceTestsNG.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ellatest;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.unbunt.ella.exception.EllaParseException;
+import org.unbunt.ella.exception.EllaStoppedException;
+import org.unbunt.ella.resource.FilesystemResource;
+import org.unbunt.ella.service.EllaService;
+import org.unbunt.ella.service.ServiceStatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@Test(groups = { "interpreter" }, dependsOnGroups = { "parser" })
+public class ServiceTestsNG extends AbstractTest {
+    protected EllaService service;
+
+    @BeforeClass
+    public void init() {
+        service = new EllaService(4);
+    }
+
+    @AfterClass
+    public void shutdown() throws InterruptedException {
+        service.shutdown();
+        assertTrue(service.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    public void concurrentRuns() throws Exception {
+        List<Future<Object>> results = new ArrayList<Future<Object>>();
+        for (int i = 0; i < 32; i++) {
+            results.add(service.submit(new FilesystemResource(file("shared-program")), new Object[0], 0));
+        }
+        for (Future<Object> result : results) {
+            assertEquals(result.get(), 610l);
+        }
+        ServiceStatistics stats = service.getStatistics();
+        assertTrue(stats.getCacheHits() >= 31 - stats.getCacheMisses());
+        assertTrue(stats.getCompleted() >= 32);
+        assertTrue(stats.getLatencyPercentile(99) > 0);
+    }
+
+    public void contextReset() throws Exception {
+        for (int i = 0; i < 8; i++) {
+            Object result = service.submitSource(".ARGV[0];", i).get();
+            assertEquals(((Number) result).intValue(), i);
+        }
+        for (int i = 0; i < 8; i++) {
+            service.submitSource("var leaked := 42; .leaked;").get();
+            assertNull(service.submitSource(".leaked;").get(), "Global variable survived context reset");
+        }
+    }
+
+    public void timeout() throws Exception {
+        Future<Object> result = service.submitSource("var i := 0; while (true) { i = i + 1; }", new Object[0], 100);
+        try {
+            result.get(10, TimeUnit.SECONDS);
+            fail("Expected timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof EllaStoppedException, "Unexpected exception: " + e.getCause());
+        }
+        assertTrue(service.getStatistics().getTimedOut() >= 1);
+    }
+
+    public void cancel() throws Exception {
+        Future<Object> result = service.submitSource("var i := 0; while (true) { i = i + 1; }");
+        Thread.sleep(50);
+        assertTrue(result.cancel(true));
+        // the worker is released again once the engine has been stopped
+        assertEquals(service.submitSource(".23;").get(10, TimeUnit.SECONDS), 23l);
+    }
+
+    public void parseError() throws Exception {
+        try {
+            service.submitSource("var := ;").get();
+            fail("Expected parse error");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof EllaParseException, "Unexpected exception: " + e.getCause());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/* StartupBench.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ellatest;
+
+import org.unbunt.ella.ContextSnapshot;
+import org.unbunt.ella.DefaultContext;
+import org.unbunt.ella.Ella;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+/**
+ * Measures the startup cost of the interpreter.
+ * <p>
+ * First the time to create an execution context is measured in-process, once bootstrapping all native objects and
+ * once copying them from the default snapshot. Then the <code>ella</code> command line interpreter is started
+ * repeatedly in a new JVM with the script of <code>test/bench-startup.sql</code>, measuring the wall time until the
+ * first statement of the script has printed its output.
+ */
+public class StartupBench {
+    protected static final String SCRIPT = "test/bench-startup.sql";
+
+    public static void main(String[] args) throws Exception {
+        int contexts = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int launches = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        // warm up
+        createContexts(contexts / 10, false);
+        createContexts(contexts / 10, true);
+
+        long bootstrap = createContexts(contexts, false);
+        long snapshot = createContexts(contexts, true);
+        System.out.println("contexts:                " + contexts);
+        System.out.println("bootstrap per context:   " + (bootstrap / contexts) + "ns");
+        System.out.println("snapshot per context:    " + (snapshot / contexts) + "ns");
+
+        long[] times = new long[launches];
+        for (int i = 0; i < launches; i++) {
+            times[i] = launch();
+        }
+        Arrays.sort(times);
+        System.out.println("launches:                " + launches);
+        System.out.println("first statement min:     " + (times[0] / 1000000) + "ms");
+        System.out.println("first statement median:  " + (times[launches / 2] / 1000000) + "ms");
+    }
+
+    protected static long createContexts(int count, boolean fromSnapshot) {
+        ContextSnapshot snapshot = fromSnapshot ? ContextSnapshot.getDefault() : null;
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            new DefaultContext(new Object[0], snapshot);
+        }
+        return System.nanoTime() - start;
+    }
+
+    protected static long launch() throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                                    Ella.class.getName(), "-quiet", SCRIPT);
+        builder.redirectErrorStream(true);
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals("ready")) {
+                    return System.nanoTime() - start;
+                }
+            }
+            throw new IllegalStateException("Script did not print its first statement's output");
+        } finally {
+            reader.close();
+            process.waitFor();
+        }
+    }
+}
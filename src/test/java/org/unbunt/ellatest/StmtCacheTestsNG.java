@@ -0,0 +1,218 @@
+/* StmtCacheTestsNG.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ellatest;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+import org.unbunt.ella.DefaultContext;
+import org.unbunt.ella.Ella;
+import org.unbunt.ella.engine.EllaEngine;
+import org.unbunt.ella.engine.EngineType;
+import org.unbunt.ella.engine.context.Context;
+import org.unbunt.ella.lang.sql.Conn;
+import org.unbunt.ella.lang.sql.StmtCache;
+import org.unbunt.ellatest.MockJDBC.MockConnection;
+import org.unbunt.ellatest.MockJDBC.MockStatement;
+import static org.unbunt.ellatest.MockJDBC.mockOf;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+@Test(groups = { "sql" })
+public class StmtCacheTestsNG {
+    @Test
+    public void hitsAndMisses() throws SQLException {
+        MockConnection conn = new MockConnection();
+        StmtCache cache = new StmtCache(conn.proxy, 4);
+
+        PreparedStatement first = cache.prepare("select 1", false);
+        cache.release("select 1", false, first, false);
+        PreparedStatement second = cache.prepare("select 1", false);
+        assertSame(second, first);
+        assertFalse(mockOf(first).closed);
+        assertEquals(mockOf(first).resets, 1);
+
+        // the updatable flag is part of the key
+        PreparedStatement updatable = cache.prepare("select 1", true);
+        assertNotSame(updatable, first);
+
+        assertEquals(cache.getHits(), 1);
+        assertEquals(cache.getMisses(), 2);
+        assertEquals(cache.getEvictions(), 0);
+        assertEquals(conn.statements.size(), 2);
+    }
+
+    @Test
+    public void closedStatementIsNotReused() throws SQLException {
+        MockConnection conn = new MockConnection();
+        StmtCache cache = new StmtCache(conn.proxy, 4);
+
+        PreparedStatement first = cache.prepare("select 1", false);
+        cache.release("select 1", false, first, false);
+        first.close();
+        PreparedStatement second = cache.prepare("select 1", false);
+        assertNotSame(second, first);
+        assertEquals(cache.getHits(), 0);
+        assertEquals(cache.getMisses(), 2);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws SQLException {
+        MockConnection conn = new MockConnection();
+        StmtCache cache = new StmtCache(conn.proxy, 2);
+
+        PreparedStatement a = cache.prepare("select 'a'", false);
+        PreparedStatement b = cache.prepare("select 'b'", false);
+        cache.release("select 'a'", false, a, false);
+        cache.release("select 'b'", false, b, false);
+
+        // using a makes b the least recently used statement
+        assertSame(cache.prepare("select 'a'", false), a);
+        cache.release("select 'a'", false, a, false);
+
+        PreparedStatement c = cache.prepare("select 'c'", false);
+        cache.release("select 'c'", false, c, false);
+
+        assertEquals(cache.size(), 2);
+        assertEquals(cache.getEvictions(), 1);
+        assertTrue(mockOf(b).closed);
+        assertFalse(mockOf(a).closed);
+        assertFalse(mockOf(c).closed);
+
+        assertSame(cache.prepare("select 'a'", false), a);
+        assertSame(cache.prepare("select 'c'", false), c);
+        assertNotSame(cache.prepare("select 'b'", false), b);
+        assertEquals(cache.getHits(), 3);
+        assertEquals(cache.getMisses(), 4);
+    }
+
+    @Test
+    public void checkedOutStatementIsNotShared() throws SQLException {
+        MockConnection conn = new MockConnection();
+        StmtCache cache = new StmtCache(conn.proxy, 4);
+
+        PreparedStatement outer = cache.prepare("select * from t", false);
+        cache.release("select * from t", false, outer, false);
+
+        // the same query run again inside the result loop of the first must not get the open statement
+        PreparedStatement loop = cache.prepare("select * from t", false);
+        PreparedStatement inner = cache.prepare("select * from t", false);
+        assertNotSame(inner, loop);
+        assertEquals(cache.getHits(), 1);
+        assertEquals(cache.getMisses(), 2);
+
+        cache.release("select * from t", false, inner, false);
+        assertFalse(mockOf(loop).closed);
+        assertFalse(mockOf(inner).closed);
+
+        // only one statement per query is kept, the other one is closed on release
+        cache.release("select * from t", false, loop, false);
+        assertTrue(mockOf(loop).closed);
+        assertFalse(mockOf(inner).closed);
+        assertEquals(cache.size(), 1);
+        assertEquals(cache.getEvictions(), 0);
+    }
+
+    @Test
+    public void releaseClosesStatementIfResetFails() throws SQLException {
+        MockConnection conn = new MockConnection();
+        StmtCache cache = new StmtCache(conn.proxy, 4);
+
+        PreparedStatement stmt = cache.prepare("select 1", false);
+        mockOf(stmt).resetFailure = new SQLException("reset failed");
+        cache.release("select 1", false, stmt, false);
+
+        assertTrue(mockOf(stmt).closed);
+        assertEquals(cache.size(), 0);
+        assertNotSame(cache.prepare("select 1", false), stmt);
+        assertEquals(cache.getMisses(), 2);
+    }
+
+    @Test
+    public void zeroCapacityDisablesCache() throws SQLException {
+        MockConnection conn = new MockConnection();
+        StmtCache cache = new StmtCache(conn.proxy, 0);
+
+        PreparedStatement first = cache.prepare("select 1", false);
+        cache.release("select 1", false, first, false);
+        assertTrue(mockOf(first).closed);
+        assertEquals(mockOf(first).resets, 0);
+
+        PreparedStatement second = cache.prepare("select 1", false);
+        assertNotSame(second, first);
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getHits(), 0);
+        assertEquals(cache.getMisses(), 2);
+        assertEquals(cache.getEvictions(), 0);
+    }
+
+    @Test
+    public void clearClosesIdleStatements() throws SQLException {
+        MockConnection conn = new MockConnection();
+        StmtCache cache = new StmtCache(conn.proxy, 4);
+
+        PreparedStatement a = cache.prepare("select 'a'", false);
+        PreparedStatement b = cache.prepare("select 'b'", false);
+        cache.release("select 'a'", false, a, false);
+        cache.clear();
+
+        assertTrue(mockOf(a).closed);
+        assertFalse(mockOf(b).closed);
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void statisticsVisibleToScripts() throws Exception {
+        MockConnection conn = new MockConnection();
+        Context context = new DefaultContext();
+        context.getObjConnMgr().activate(new Conn(conn.proxy));
+
+        EllaEngine engine = EngineType.CPS.create(context);
+        Object result;
+        try {
+            result = engine.eval(Ella.compile(
+                    ".1.to(3) { i => (sql update t set x = ?).with(i).exec(); };\n" +
+                    "var cache := ConnMgr.active.stmtCache();\n" +
+                    ".'' + cache.hits + '/' + cache.misses + '/' + cache.evictions;"));
+        } finally {
+            engine.finish();
+        }
+        assertEquals(result, "2/1/0");
+        assertEquals(conn.statements.size(), 1);
+    }
+}
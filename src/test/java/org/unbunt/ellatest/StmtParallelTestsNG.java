@@ -0,0 +1,300 @@
+/* StmtParallelTestsNG.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ellatest;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+import org.unbunt.ella.DefaultContext;
+import org.unbunt.ella.Ella;
+import org.unbunt.ella.engine.EllaEngine;
+import org.unbunt.ella.engine.EngineType;
+import org.unbunt.ella.engine.context.Context;
+import org.unbunt.ella.engine.context.SQLResultListener;
+import org.unbunt.ella.engine.corelang.Obj;
+import org.unbunt.ella.engine.corelang.RawSQLObj;
+import org.unbunt.ella.exception.EllaRuntimeException;
+import org.unbunt.ella.lang.Str;
+import org.unbunt.ella.lang.sql.Conn;
+import org.unbunt.ella.lang.sql.ConnMgrImpl;
+import org.unbunt.ella.lang.sql.ConnPool;
+import org.unbunt.ella.lang.sql.StmtParallel;
+import org.unbunt.ellatest.MockJDBC.MockConnection;
+import org.unbunt.ellatest.MockJDBC.MockDataSource;
+import org.unbunt.ellatest.MockJDBC.MockDriver;
+import org.unbunt.ellatest.MockJDBC.MockStatement;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@Test(groups = { "interpreter" }, dependsOnGroups = { "parser" })
+public class StmtParallelTestsNG {
+    protected static final String DRIVER = MockDriver.class.getName();
+
+    /**
+     * Collects the update counts reported to a context.
+     */
+    protected static class UpdateCounts implements SQLResultListener {
+        protected final List<Integer> counts = Collections.synchronizedList(new ArrayList<Integer>());
+
+        public void resultSet(ResultSet resultSet) {
+        }
+
+        public void updateCount(int updateCount) {
+            counts.add(updateCount);
+        }
+    }
+
+    protected static RawSQLObj sql(String statement) {
+        return new RawSQLObj(statement, null);
+    }
+
+    public void updateCountsInOrder() {
+        MockDataSource ds = new MockDataSource();
+        for (int i = 1; i <= 8; i++) {
+            ds.outcomes.put("update t" + i, i * 10);
+        }
+        ds.outcomes.put("select * from t", Boolean.TRUE);
+        Context context = new DefaultContext();
+        UpdateCounts counts = new UpdateCounts();
+        context.addSQLResultListener(counts);
+
+        ConnPool pool = new ConnPool(ds.proxy, "jdbc:mock:parallel", new ConnPool.Config());
+        StmtParallel parallel = new StmtParallel(context, pool, 3);
+        try {
+            for (int i = 1; i <= 8; i++) {
+                parallel.add(sql("update t" + i));
+                if (i == 4) {
+                    // results of queries are not reported
+                    parallel.add(sql("select * from t"));
+                }
+            }
+            parallel.finish();
+        } finally {
+            parallel.close();
+            pool.close();
+        }
+
+        assertEquals(counts.counts, Arrays.asList(10, 20, 30, 40, 50, 60, 70, 80));
+        assertTrue(ds.connections.size() <= 3, "More connections than threads: " + ds.connections.size());
+        assertEquals(ds.countOpen(), 0);
+    }
+
+    public void finishReportsAllFailures() {
+        MockDataSource ds = new MockDataSource();
+        SQLException first = new SQLException("table a is locked");
+        ds.outcomes.put("update a", first);
+        ds.outcomes.put("update b", 1);
+        ds.outcomes.put("update c", new SQLException("table c does not exist"));
+        Context context = new DefaultContext();
+        UpdateCounts counts = new UpdateCounts();
+        context.addSQLResultListener(counts);
+
+        ConnPool pool = new ConnPool(ds.proxy, "jdbc:mock:parallel", new ConnPool.Config());
+        StmtParallel parallel = new StmtParallel(context, pool, 2);
+        try {
+            parallel.add(sql("update a"));
+            parallel.add(sql("update b"));
+            parallel.add(sql("update c"));
+            try {
+                parallel.finish();
+                fail("Failed statements not reported");
+            } catch (EllaRuntimeException e) {
+                assertSame(e.getCause(), first);
+                String msg = e.getMessage();
+                assertTrue(msg.contains("for 2 statement(s)"), msg);
+                assertTrue(msg.contains("update a: table a is locked"), msg);
+                assertTrue(msg.contains("update c: table c does not exist"), msg);
+                assertFalse(msg.contains("update b"), msg);
+            }
+            // statements succeeding are reported nevertheless
+            assertEquals(counts.counts, Collections.singletonList(1));
+
+            // failures are reported once
+            parallel.finish();
+        } finally {
+            parallel.close();
+            pool.close();
+        }
+        assertEquals(ds.countOpen(), 0);
+    }
+
+    @Test(expectedExceptions = EllaRuntimeException.class)
+    public void illegalParallelism() {
+        new StmtParallel(new DefaultContext(), new MockDataSource().proxy, 0);
+    }
+
+    protected static Object eval(Context context, String script) throws Exception {
+        EllaEngine engine = EngineType.CPS.create(context);
+        try {
+            return engine.eval(Ella.compile(script));
+        } finally {
+            engine.finish();
+        }
+    }
+
+    protected static Obj getActive(Context context) {
+        return ((ConnMgrImpl) context.getObjConnMgr()).getSlot(context, Str.SYM_active);
+    }
+
+    public void restoresActiveConnectionOnFailure() throws Exception {
+        String url = MockDriver.PREFIX + "restore";
+        MockDataSource db = MockDriver.getDatabase(url);
+        Context context = new DefaultContext();
+        Conn active = new Conn(new MockConnection().proxy);
+        context.getObjConnMgr().activate(active);
+
+        Object result = eval(context,
+                "var other := ConnMgr.create('" + url + "', '" + DRIVER + "');\n" +
+                "var failed := false;\n" +
+                "try {\n" +
+                "    other.parallel(2) { =>\n" +
+                "        sql update t set x = 1;\n" +
+                "        throw 'closure failed';\n" +
+                "    };\n" +
+                "} catch (e) {\n" +
+                "    failed = true;\n" +
+                "}\n" +
+                ".failed;");
+        assertEquals(result, Boolean.TRUE);
+        assertSame(getActive(context), active, "Active connection not restored");
+
+        // the pool created for the block is closed, only the connection of the script is left open
+        assertTrue(db.connections.size() >= 2, "Statement not executed in parallel");
+        assertEquals(db.countOpen(), 1);
+        assertFalse(db.connections.get(0).closed);
+    }
+
+    public void restoresActiveConnectionOnStatementFailure() throws Exception {
+        String url = MockDriver.PREFIX + "restore-statement";
+        MockDataSource db = MockDriver.getDatabase(url);
+        db.outcomes.put("update t set x = 1", 3);
+        db.outcomes.put("update u set x = 1", new SQLException("no such table: u"));
+        Context context = new DefaultContext();
+        UpdateCounts counts = new UpdateCounts();
+        context.addSQLResultListener(counts);
+        Conn active = new Conn(new MockConnection().proxy);
+        context.getObjConnMgr().activate(active);
+
+        Object result = eval(context,
+                "var other := ConnMgr.create('" + url + "', '" + DRIVER + "');\n" +
+                "var error := null;\n" +
+                "try {\n" +
+                "    other.parallel(2) { =>\n" +
+                "        sql update t set x = 1;\n" +
+                "        sql update u set x = 1;\n" +
+                "    };\n" +
+                "} catch (e) {\n" +
+                "    error = '' + e;\n" +
+                "}\n" +
+                ".error;");
+        assertTrue(String.valueOf(result).contains("update u set x = 1: no such table: u"), String.valueOf(result));
+        assertEquals(counts.counts, Collections.singletonList(3));
+        assertSame(getActive(context), active, "Active connection not restored");
+        assertEquals(db.countOpen(), 1);
+    }
+
+    public void pooledConnectionKeepsPool() throws Exception {
+        MockDataSource ds = new MockDataSource();
+        ds.outcomes.put("update t set x = 1", 5);
+        ConnPool pool = new ConnPool(ds.proxy, "jdbc:mock:pooled", new ConnPool.Config());
+        try {
+            Context context = new DefaultContext();
+            UpdateCounts counts = new UpdateCounts();
+            context.addSQLResultListener(counts);
+            Conn conn = new Conn(pool.getConnection(), pool);
+            context.getObjConnMgr().activate(conn);
+
+            eval(context,
+                 ".ConnMgr.parallel(2) { =>\n" +
+                 "    sql update t set x = 1;\n" +
+                 "    sql update t set x = 1;\n" +
+                 "};");
+            assertEquals(counts.counts, Arrays.asList(5, 5));
+            assertSame(getActive(context), conn);
+            assertFalse(pool.isClosed());
+            assertEquals(pool.getActiveCount(), 1, "Parallel connections not returned to the pool");
+        } finally {
+            pool.close();
+        }
+    }
+
+    public void rejectsOperationsBypassingParallelExecution() throws Exception {
+        MockDataSource ds = new MockDataSource();
+        ConnPool pool = new ConnPool(ds.proxy, "jdbc:mock:reject", new ConnPool.Config());
+        try {
+            Context context = new DefaultContext();
+            Conn conn = new Conn(pool.getConnection(), pool);
+            context.getObjConnMgr().activate(conn);
+
+            String[] blocks = {
+                    "(sql update t set x = ?).with(1).exec();",
+                    "(sql select * from t).each { row => };",
+                    "ConnMgr.active.tx { => sql update t set x = 1; };",
+                    "ConnMgr.active.commit();",
+            };
+            for (String block : blocks) {
+                Object result = eval(context,
+                        "var error := null;\n" +
+                        "try {\n" +
+                        "    ConnMgr.parallel(2) { =>\n" +
+                        "        sql update t set x = 1;\n" +
+                        "        " + block + "\n" +
+                        "    };\n" +
+                        "} catch (e) {\n" +
+                        "    error = '' + e;\n" +
+                        "}\n" +
+                        ".error;");
+                assertTrue(String.valueOf(result).contains("not supported within parallel execution"),
+                           block + ": " + result);
+                assertSame(getActive(context), conn);
+            }
+
+            // the connection is usable again after the block
+            eval(context, ".(sql update t set x = ?).with(2).exec();");
+            List<MockStatement> statements = ds.connections.get(0).statements;
+            assertEquals(statements.get(statements.size() - 1).executed,
+                         Collections.singletonList("update t set x = ?"));
+        } finally {
+            pool.close();
+        }
+    }
+}
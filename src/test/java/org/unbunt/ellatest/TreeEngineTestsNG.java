@@ -0,0 +1,127 @@
+/* TreeEngineTestsNG.java
+   Copyright (C) 2009, 2010 Thomas Weiß <panos@unbunt.org>
+
+This file is part of the Ella scripting language interpreter.
+
+Ella is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2, or (at your option)
+any later version.
+
+Ella is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Ella; see the file COPYING.  If not, write to the
+Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+02110-1301 USA.
+
+Linking this library statically or dynamically with other modules is
+making a combined work based on this library.  Thus, the terms and
+conditions of the GNU General Public License cover the whole
+combination.
+
+As a special exception, the copyright holders of this library give you
+permission to link this library with independent modules to produce an
+executable, regardless of the license terms of these independent
+modules, and to copy and distribute the resulting executable under
+terms of your choice, provided that you also meet, for each linked
+independent module, the terms and conditions of the license of that
+module.  An independent module is a module which is not derived from
+or based on this library.  If you modify this library, you may extend
+this exception to your version of the library, but you are not
+obligated to do so.  If you do not wish to do so, delete this
+exception statement from your version. */
+
+package org.unbunt.ellatest;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+import org.unbunt.ella.DefaultContext;
+import org.unbunt.ella.Ella;
+import org.unbunt.ella.compiler.support.Function;
+import org.unbunt.ella.engine.EllaTreeEngine;
+import org.unbunt.ella.engine.EngineType;
+import org.unbunt.ella.engine.corelang.Func;
+import org.unbunt.ella.engine.nodes.BytecodeCompiler;
+import org.unbunt.ella.exception.*;
+
+import java.io.IOException;
+
+/**
+ * Runs the interpreter test suite on the tree engine, along with tests specific to it.
+ */
+@Test(groups = { "interpreter" }, dependsOnGroups = { "parser" })
+public class TreeEngineTestsNG extends InterpreterTestsNG {
+    public TreeEngineTestsNG() {
+        super(EngineType.TREE);
+    }
+
+    public void engineType() {
+        assertEquals(EngineType.forName("tree"), EngineType.TREE);
+        assertEquals(EngineType.forName("CPS"), EngineType.CPS);
+    }
+
+    public void treeEngine() throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        Object result = eval(file("tree-engine"));
+        assertEquals(result, 10l);
+    }
+
+    public void bytecodeTier()
+            throws EllaIOException, EllaParseException, EllaException, EllaStoppedException, IOException {
+        Object result = eval(file("tree-engine-jit"));
+        assertEquals(result, 4001l);
+
+        EllaTreeEngine engine = (EllaTreeEngine) EngineType.TREE.create(new DefaultContext());
+        engine.setJitStrict(true);
+        try {
+            Object step = engine.eval(Ella.compile(fileContent("tree-engine-jit") + "\n.step;"));
+            Function function = ((Func) step).getFunction();
+            assertTrue(engine.getCompiledBodyCount() > 0, "No body compiled");
+            assertTrue(BytecodeCompiler.isCompiled(function.getCompiledBody()), "Hot function not compiled");
+            assertTrue(function.getInvocationCount() > engine.getJitThreshold(), "Compiled body not invoked");
+        } finally {
+            engine.finish();
+        }
+    }
+
+    public void callingThread() throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        String script = "var Thread := new JClass('java.lang.Thread'); .Thread.currentThread().getName();";
+
+        EllaTreeEngine engine = (EllaTreeEngine) EngineType.TREE.create(new DefaultContext());
+        try {
+            assertEquals(engine.getStackSize(), 0l);
+            assertEquals(engine.eval(Ella.compile(script)), Thread.currentThread().getName());
+
+            engine.setStackSize(16L << 20);
+            Object runner = engine.eval(Ella.compile(script));
+            assertTrue(((String) runner).startsWith("ella-engine-"), "Program not run on runner thread");
+        } finally {
+            engine.finish();
+        }
+    }
+
+    public void deepRecursion() throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        EllaTreeEngine engine = (EllaTreeEngine) EngineType.TREE.create(new DefaultContext());
+        engine.setStackSize(512L << 20);
+        try {
+            Object result = engine.eval(Ella.compile(file("deep-recursion")));
+            assertEquals(result, 10l);
+        } finally {
+            engine.finish();
+        }
+    }
+
+    public void frameTargets() throws EllaIOException, EllaParseException, EllaException, EllaStoppedException {
+        EllaTreeEngine engine = (EllaTreeEngine) EngineType.TREE.create(new DefaultContext());
+        engine.setStackSize(64L << 20);
+        try {
+            Object result = engine.eval(Ella.compile(file("frame-targets")));
+            assertEquals(result, 3l);
+        } finally {
+            engine.finish();
+        }
+    }
+}
@@ -1,3 +1,12 @@
-.1.to(10000000) { i =>
+fun add(n) { this + n; }
+.Num.add = add;
+
+-- the number of iterations may be given as first argument
+var iterations := 10000000;
+if (ARGV.size() > 0) {
+	iterations = ARGV[0];
+}
+
+.1.to(iterations) { i =>
 	1 add 2;
 };
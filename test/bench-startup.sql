@@ -0,0 +1,2 @@
+-- time-to-first-statement workload for StartupBench
+.print('ready');
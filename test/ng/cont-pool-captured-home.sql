@@ -0,0 +1,32 @@
+fun id(x) { x; }
+fun churn() {
+	-- executes enough calls to cycle the pooled return frames
+	var i := 0;
+	while (i < 100) {
+		id(i);
+		i = i + 1;
+	}
+}
+
+-- non-local return to a home that is still active after the pool has been reused
+fun outer() {
+	var block := {=> return 1; };
+	churn();
+	block();
+	return 2;
+}
+if (outer() != 1) {
+	throw 'non-local return did not reach its home';
+}
+
+-- a block escaping its home must not return from an activation that reuses its frame: both calls below start
+-- at the same stack offset, so a recycled frame would make the block return 23 from caller()
+fun makeBlock() { return {=> return 23; }; }
+fun caller(b) {
+	b();
+	return 42;
+}
+var block := makeBlock();
+var churned := churn();
+var result := caller(block);
+.result;
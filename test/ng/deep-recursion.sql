@@ -0,0 +1,24 @@
+fun depth(n) {
+	if (n == 0) {
+		return 0;
+	}
+	return 1 + depth(n - 1);
+}
+
+if (depth(100000) != 100000) {
+	throw 'deep recursion failed';
+}
+
+var overflow := null;
+try {
+	depth(10000000);
+} catch (e) {
+	overflow = e;
+}
+
+if (null === overflow) {
+	throw 'continuation stack overflow not raised';
+}
+
+-- engine must still be usable after an overflow
+.depth(10);
@@ -0,0 +1,58 @@
+-- a return in the middle of a function body returns from that function only, even when tail call optimized
+fun one() {
+	1;
+}
+fun early() {
+	return one();
+	2;
+}
+fun outer() {
+	var x := 10 + early();
+	return x + 100;
+}
+if (outer() != 111) {
+	throw 'tail call return unwound the caller';
+}
+
+-- returns from deep call chains
+fun chain(n) {
+	if (n == 0) {
+		return 'bottom';
+	}
+	var r := chain(n - 1);
+	return r;
+}
+if (chain(10000) != 'bottom') {
+	throw 'return from deep call chain failed';
+}
+
+-- break and continue target the innermost loop, also from within nested closures and functions
+fun skip(i) {
+	if (i == 2) {
+		continue;
+	}
+}
+var sum := 0;
+.1.to(3) { i =>
+	.1.to(10) { j =>
+		skip(j);
+		if (j > 4) {
+			break;
+		}
+		sum = sum + j;
+	};
+};
+if (sum != 24) {
+	throw 'nested break/continue failed: ' + sum;
+}
+
+-- variables of the loop body are accessible after leaving nested frames
+var last := null;
+.1.to(3) { i =>
+	var inner := i;
+	[1].each { e =>
+		skip(2);
+	};
+	last = inner;
+};
+.last;
@@ -0,0 +1,26 @@
+import org.unbunt.ellatest.*;
+import java.lang.StringBuilder;
+
+fun assert(expected, actual) {
+	if (expected != actual) {
+		throw "wrong overload called: expected=@{expected} actual=@{actual}";
+	}
+}
+
+var count := 0;
+for (i : 1..20) {
+	var test := new MethodSelectTest();
+	.assert(test.foo(i), 'foo(long)');
+	.assert(test.foo('s'), 'foo(String)');
+	.assert(test.foo(i), 'foo(long)');
+
+	var sb := new StringBuilder();
+	if (i > 10) {
+		.sb = new StringBuilder('a');
+	}
+	.sb.append('x');
+	.sb.append(true);
+	.count = count + sb.length();
+}
+
+.count;
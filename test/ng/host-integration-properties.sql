@@ -0,0 +1,23 @@
+import java.util.Date;
+import java.lang.Integer;
+
+fun assert(expected, actual) {
+	if (expected != actual) {
+		throw "wrong property value: expected=@{expected} actual=@{actual}";
+	}
+}
+
+var sum := 0;
+for (i : 0..9) {
+	var date := new Date(i);
+	.date.time = date.time + 1000;
+	.sum = sum + date.time;
+	if (date.noSuchProperty != null) {
+		throw 'undefined property should be null';
+	}
+}
+
+.assert(Integer.MAX_VALUE, 2147483647);
+.assert(Integer.noSuchField, null);
+
+.sum;
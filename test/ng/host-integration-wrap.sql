@@ -0,0 +1,43 @@
+import java.lang.*;
+import java.math.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+fun assert(expected, actual, msg) {
+	if (expected != actual) {
+		throw "wrong wrapped value: @{msg}: expected=@{expected} actual=@{actual}";
+	}
+}
+
+-- the first iteration determines the wrapping strategy of each class, later ones look it up
+var count := 0;
+for (i : 1..3) {
+	.assert(Integer.parseInt('20') + 22, 42, 'int');
+	.assert(Short.parseShort('20') + 22, 42, 'short');
+	.assert(Long.parseLong('20') + 22, 42, 'long');
+	.assert(Double.parseDouble('1.5') * 2, 3.0, 'double');
+	.assert(Float.parseFloat('1.5') * 2, 3.0, 'float');
+	.assert(new BigDecimal('1.25').add(new BigDecimal('1')) + 1, 3.25, 'BigDecimal');
+	.assert('' + (new BigInteger('12345678901234567890').add(new BigInteger('1')) + 1), '12345678901234567892',
+	        'BigInteger');
+	.assert(new StringBuilder('ab').toString() + 'c', 'abc', 'String');
+	.assert(new StringBuilder('x').append('y') + 'z', 'xyz', 'CharSequence');
+	if (!(Boolean.parseBoolean('true') === true)) {
+		throw 'wrapped boolean is not the shared true object';
+	}
+	.assert(new Date(0).clone().getTime() + i, i, 'Object');
+	.assert(new AtomicLong(i).incrementAndGet(), i + 1, 'Number subclass as Object');
+
+	var C := new Date(0).getClass();
+	.assert(new C(i).getTime(), i, 'Class');
+
+	var ids := TimeZone.getAvailableIDs();
+	if (ids.length < 1) {
+		throw 'wrapped array is empty';
+	}
+	.assert(ids[0] + '', TimeZone.getAvailableIDs()[0] + '', 'array element');
+
+	.count = count + 1;
+}
+
+.count;
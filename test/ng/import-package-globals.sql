@@ -0,0 +1,15 @@
+var n := 0;
+
+import java.util.*;
+
+fun add(a, b) {
+	a + b;
+}
+
+for (i : 1..100) {
+	.n = add(n, i);
+}
+
+var list := new ArrayList();
+.list.add(n);
+.n * list.size();
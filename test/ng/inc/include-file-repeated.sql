@@ -0,0 +1,5 @@
+var step := base * 2;
+
+fun twice(x) {
+	x * 2;
+}
@@ -6,6 +6,10 @@ import java.util.*;
 
 .time1 = Calendar.instance.timeInMillis;
 
+-- the included program may already be compiled and cached, so make sure the clock has advanced
+while (time1 == Calendar.instance.timeInMillis) {
+}
+
 .includeFile(inc);
 
 var time2 := Calendar.instance.timeInMillis;
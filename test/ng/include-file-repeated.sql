@@ -0,0 +1,17 @@
+var base := 1;
+var total := 0;
+
+for (i : 1..5) {
+	.includeFile('inc/include-file-repeated.sql');
+	.total = total + step;
+	.base = base + 1;
+}
+
+fun nested(b) {
+	var base := b;
+	var other := 'shifts the addresses of the including scope';
+	.includeFile('inc/include-file-repeated.sql');
+	twice(step);
+}
+
+.total + nested(100);
@@ -0,0 +1,13 @@
+-- the prototype and its instance are created anew in each context running this program
+var A := { name: fun() { 'A'; } };
+var b := new A();
+
+fun callName(o) { o.name(); }
+
+var i := 0;
+var result := null;
+while (i < 50) {
+	result = callName(b);
+	i = i + 1;
+}
+.result;
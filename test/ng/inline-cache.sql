@@ -0,0 +1,48 @@
+var A := { name: fun() { 'A'; } };
+var B := { parent: A };
+var b := new B();
+var c := new B();
+
+-- call and access sites are executed repeatedly, so their inline caches get populated
+fun callName(o) { o.name(); }
+fun getName(o) { o.name; }
+
+var i := 0;
+var results := [];
+while (i < 6) {
+	if (i == 2) {
+		-- patch the prototype of a cached chain
+		.A.name = fun() { 'A2'; };
+	}
+	if (i == 3) {
+		-- override in an intermediate prototype
+		.B.name = fun() { 'B'; };
+	}
+	if (i == 4) {
+		-- override in the receiver itself
+		.b.name = fun() { 'b'; };
+	}
+	if (i == 5) {
+		-- switch to another receiver
+		.b = c;
+	}
+	.results.add(callName(b));
+	i = i + 1;
+}
+
+if (results.join(',') != 'A,A,A2,B,b,B') {
+	throw 'unexpected slot call results: ' + results.join(',');
+}
+
+.Num.twice = fun() { this * 2; };
+var sum := 0;
+.1.to(3) { n => sum = sum + n.twice(); };
+.Num.twice = fun() { this * 3; };
+.1.to(3) { n => sum = sum + n.twice(); };
+if (sum != 30) {
+	throw 'unexpected result after patching Num: ' + sum;
+}
+
+if (getName(new B()) === getName({ name: 1 })) {
+	throw 'slot access cache mixed up receivers';
+}
@@ -0,0 +1,72 @@
+fun assert(actual, expected, msg) {
+	if (expected !== actual) {
+		throw "assertion failed: @{msg}: expected=@{expected} actual=@{actual}";
+	}
+}
+
+-- variables of nested blocks not captured by a closure share the frame of the enclosing function
+fun nested(a) {
+	var b := a + 1;
+	{
+		var c := b + 1;
+		{
+			var d := c + 1;
+			b = d;
+		}
+	}
+	a + b;
+}
+.assert(nested(1), 5, 'nested blocks');
+
+-- block variables captured by a closure get a frame of their own
+fun capture() {
+	var closures := [];
+	{
+		var j := 1;
+		closures.add({ => j; });
+	}
+	{
+		var j := 2;
+		closures.add({ => j; });
+	}
+	var c0 := closures[0];
+	var c1 := closures[1];
+	c0() + c1() * 10;
+}
+.assert(capture(), 21, 'captured block variables');
+
+-- closures without variables of their own address the variables of their home frame
+fun counter() {
+	var count := 0;
+	.1.to(5) { i => count = count + i; };
+	count;
+}
+.assert(counter(), 15, 'closure without own frame');
+
+-- shadowed variables resolve to the innermost declaration
+fun shadow() {
+	var x := 1;
+	{
+		var x := 2;
+		.assert(x, 2, 'inner shadow');
+	}
+	x;
+}
+.assert(shadow(), 1, 'outer shadow');
+
+-- recursion allocates a new frame per activation
+fun fact(n) {
+	if (n <= 1) {
+		return 1;
+	}
+	n * fact(n - 1);
+}
+.assert(fact(10), 3628800, 'recursion');
+
+-- blocks at top level keep working with the growable global frame
+var total := 0;
+{
+	var part := 21;
+	total = part * 2;
+}
+.total;
@@ -0,0 +1,92 @@
+fun assert(actual, expected, msg) {
+	if (expected != actual) {
+		throw "assertion failed: @{msg}: expected=@{expected} actual=@{actual}";
+	}
+}
+
+-- continue skips the rest of the body, break ends the loop
+var n := 0;
+.1.to(1000) { i =>
+	if (i > 10) {
+		break;
+	}
+	if (i > 5) {
+		continue;
+	}
+	n = n + 1;
+};
+.assert(n, 5, 'Num.to');
+
+var sum := 0;
+.[1, 2, 3, 4].each { v =>
+	if (v == 2) {
+		continue;
+	}
+	sum = sum + v;
+};
+.assert(sum, 8, 'Lst.each');
+
+-- map keeps elements the body continued on, filter drops them
+.assert([1, 2, 3].map { v =>
+	if (v == 2) {
+		continue;
+	}
+	v * 10;
+}, [10, 2, 30], 'Lst.map');
+.assert([1, 2, 3, 4].filter { v =>
+	if (v == 3) {
+		break;
+	}
+	true;
+}, [1, 2], 'Lst.filter');
+
+-- loop control crossing functions and natives invoked by the body
+fun stop(v) {
+	if (v == 3) {
+		break;
+	}
+}
+var count := 0;
+.[1, 2, 3, 4].each { v =>
+	stop(v);
+	count = count + 1;
+};
+.assert(count, 2, 'break from function');
+
+.count = 0;
+.[1, 2, 3, 4].each { v =>
+	.stop.call(null, v);
+	count = count + 1;
+};
+.assert(count, 2, 'break from function invoked by native');
+
+-- loop control applies to the innermost loop only
+var pairs := 0;
+.1.to(3) { i =>
+	[1, 2, 3].each { j =>
+		if (j == 2) {
+			break;
+		}
+		pairs = pairs + 1;
+	};
+};
+.assert(pairs, 3, 'nested loops');
+
+-- variables of the enclosing scope are intact after leaving the body
+var outer := 'outer';
+.loop {=>
+	var outer := 'inner';
+	break;
+};
+.assert(outer, 'outer', 'environment after break');
+
+var w := 0;
+var x := 0;
+while (w < 10) {
+	w = w + 1;
+	if (w > 3) {
+		continue;
+	}
+	x = x + 1;
+}
+.x;
@@ -0,0 +1,51 @@
+fun assert(actual, expected, msg) {
+	if (expected !== actual) {
+		throw "assertion failed: @{msg}: expected=@{expected} actual=@{actual}";
+	}
+}
+
+-- operands of the same kind are computed directly, mixed operands take the generic path
+var a := 3;
+.assert(a + 4, 7, 'Num + Num');
+.assert(a - 4, -1, 'Num - Num');
+.assert(a * 4, 12, 'Num * Num');
+.assert(7 / a, 2, 'Num / Num');
+.assert(1.5 * 2.0, 3.0, 'Real * Real');
+.assert(a / 2.0, 1.5, 'Num / Real');
+.assert(2.5 + a, 5.5, 'Real + Num');
+.assert(a < 4 && a <= 3 && a > 2 && a >= 3, true, 'Num comparison');
+.assert(a == 3.0, true, 'Num == Real');
+.assert(a === 3.0, false, 'Num === Real');
+.assert(2000 - 1000 === 1000, true, 'Num === Num');
+
+var nan := 0.0 / 0.0;
+.assert(nan == nan, false, 'NaN == NaN');
+.assert(nan != nan, true, 'NaN != NaN');
+.assert(1.0 > nan, true, 'Real > NaN');
+.assert(nan > 1.0, false, 'NaN > Real');
+
+var failed := false;
+try {
+	a / 0;
+} catch (e) {
+	.failed = true;
+}
+.assert(failed, true, 'division by zero');
+
+-- patching an operator of a numeric prototype disables the fast path of call sites already executed
+fun add(x, y) { x + y; }
+var sum := 0;
+.1.to(10) { i => sum = add(sum, i); };
+.assert(sum, 55, 'before patching');
+
+var plus := Num.+;
+.Num.+ = fun(x) { this * x; };
+.sum = 1;
+.1.to(5) { i => sum = add(sum, i); };
+.assert(sum, 120, 'after patching');
+
+.Num.+ = plus;
+.sum = 0;
+.1.to(10) { i => sum = add(sum, i); };
+.assert(sum, 55, 'after restoring');
+.sum;
@@ -0,0 +1,56 @@
+var P := { x: 'p', name: fun() { 'P'; } };
+var Q := { x: 'q', name: fun() { 'Q'; } };
+
+fun getX(o) { o.x; }
+fun callName(o) { o.name(); }
+
+-- objects sharing a shape but holding different values
+var results := [];
+.1.to(4) { n => results.add(getX({ parent: P, x: n })); };
+-- objects sharing a shape but having different parents
+.results.add(callName({ parent: P, x: 0 }));
+.results.add(callName({ parent: Q, x: 0 }));
+.results.add(callName({ parent: P, x: 0 }));
+if (results.join(',') != '1,2,3,4,P,Q,P') {
+	throw 'unexpected results for shared shapes: ' + results.join(',');
+}
+
+-- removing a slot exposes the parent's slot
+var o := { parent: Q, x: 'o' };
+var removed := [];
+.1.to(3) { n =>
+	removed.add(getX(o));
+	if (n == 2) {
+		.o.removeSlot('x');
+	}
+};
+if (removed.join(',') != 'o,o,q') {
+	throw 'unexpected results after removing a slot: ' + removed.join(',');
+}
+
+-- objects used as hash maps outgrow shared shapes
+var d := new Dict();
+.1.to(100) { n => d.set(n, n * 2); d.set('k' + n, n); };
+if (d.size() != 200 || d.get(50) != 100 || d.get('k99') != 99) {
+	throw 'unexpected dict contents';
+}
+.d.remove('k1');
+if (d.size() != 199 || d.has('k1')) {
+	throw 'unexpected dict contents after removal';
+}
+
+var small := new Dict();
+.small.set('a', 1);
+.small.set('b', 2);
+var sum := 0;
+.small.map { k, v => v * 10; }.each { k, v => sum = sum + v; };
+if (sum != 30) {
+	throw 'unexpected result of mapping a dict: ' + sum;
+}
+
+var e := { a: 1, b: 2, c: 3 };
+var slots := 0;
+.e.eachSlot { k, v => slots = slots + v; };
+if (slots != 6) {
+	throw 'unexpected result of iterating slots: ' + slots;
+}
@@ -0,0 +1,40 @@
+fun assert(actual, expected, msg) {
+	if (expected !== actual) {
+		throw "assertion failed: @{msg}: expected=@{expected} actual=@{actual}";
+	}
+}
+
+-- each evaluation of a block closure creates a closure bound to the environment of that evaluation
+fun makeClosures() {
+	var closures := [];
+	var i := 0;
+	while (i < 3) {
+		var j := i;
+		closures.add({ => j; });
+		i = i + 1;
+	}
+	closures;
+}
+var closures := makeClosures();
+var c0 := closures[0];
+var c2 := closures[2];
+.assert(c0() + c2() * 10, 20, 'closures created in a loop');
+
+-- each evaluation of a function definition creates a function bound to the environment of that evaluation
+fun adder(n) {
+	fun add(x) {
+		x + n;
+	}
+	add;
+}
+var add1 := adder(1);
+var add2 := adder(2);
+.assert(add1(10) + add2(10), 23, 'functions defined by calls');
+
+fun fib(n) {
+	if (n < 2) {
+		return n;
+	}
+	fib(n - 1) + fib(n - 2);
+}
+.fib(15);
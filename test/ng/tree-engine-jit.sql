@@ -0,0 +1,55 @@
+-- bodies invoked often enough get compiled to bytecode, so every check runs well beyond the threshold
+var P := { value: fun() { 1; } };
+var o := new P();
+
+fun step(obj, acc) {
+	var local := acc;
+	{
+		var inner := obj.value();
+		local = local + inner;
+	}
+	obj.last = local;
+	local;
+}
+
+fun find(list, value) {
+	list.each { e =>
+		if (e == value) {
+			return e;
+		}
+	};
+	return null;
+}
+
+fun fail(n) {
+	{
+		var scoped := n;
+		throw 'expected';
+	}
+}
+
+var acc := 0;
+var caught := 0;
+.1.to(3000) { i =>
+	if (i == 2000) {
+		-- the cached lookup in the compiled body has to notice the changed prototype
+		.P.value = fun() { 2; };
+	}
+	acc = step(o, acc);
+	if (find([1, i, 3], i) != i) {
+		throw 'non-local return from compiled closure failed';
+	}
+	try {
+		fail(i);
+	} catch (e) {
+		caught = caught + 1;
+	}
+};
+
+if (o.last != acc) {
+	throw 'slot assignment failed';
+}
+if (caught != 3000) {
+	throw 'exceptions from compiled bodies failed';
+}
+.acc;
@@ -0,0 +1,62 @@
+-- tail calls run in the frame of the calling function
+fun count(n, acc) {
+	if (n == 0) {
+		return acc;
+	}
+	return count(n - 1, acc + 1);
+}
+if (count(1000000, 0) != 1000000) {
+	throw 'tail call failed';
+}
+
+-- block closures return from their home function across natives and nested closures
+fun find(list, value) {
+	list.each { e =>
+		if (e == value) {
+			return e;
+		}
+	};
+	return null;
+}
+if (find([1, 2, 3], 2) != 2) {
+	throw 'non-local return failed';
+}
+if (null !== find([1, 2, 3], 4)) {
+	throw 'non-local return without match failed';
+}
+
+-- break and continue unwind closures invoked by the loop body
+var sum := 0;
+.1.to(10) { i =>
+	if (i == 3) {
+		continue;
+	}
+	if (i > 5) {
+		break;
+	}
+	sum = sum + i;
+};
+if (sum != 12) {
+	throw 'break/continue failed';
+}
+
+-- natives re-entering the engine with functions
+fun twice(f) { f.call(null, f.call(null, 1)); }
+if (twice(fun(x) { x * 2; }) != 4) {
+	throw 'native re-entry failed';
+}
+
+-- exceptions thrown by nested calls are catchable
+var caught := null;
+fun fail() { throw 'expected'; }
+try {
+	fail();
+} catch (e) {
+	caught = e;
+}
+if (caught != 'expected') {
+	throw 'catching exception failed';
+}
+
+-- the result of the program is the value of its last statement
+.count(10, 0);